@@ -2,17 +2,22 @@ package UI;
 import devices.*;
 import roles.*;
 import mediator.*;
+import events.*;
 import javax.swing.*;
 import javax.swing.border.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SmartHomeUI extends JFrame {
     private SmartHomeController controller;
     private SmartLight livingRoomLight;
     private SmartThermostat hallThermostat;
     private SmartSpeaker kitchenSpeaker;
+    private DeviceEventBus eventBus;
+    private final Map<ISmartDevice, JTextArea> statusAreas = new HashMap<>();
     
     private JTextArea logArea;
     private JPanel devicesPanel;
@@ -28,6 +33,12 @@ public class SmartHomeUI extends JFrame {
     private JButton vacationToggleBtn;
     private JButton energyToggleBtn;
     
+    // Rendered panel text, rebuilt only when a device's version changes
+    private final RenderCache statusTexts = new RenderCache(this::renderDeviceStatus);
+    private final RenderCache roleTexts = new RenderCache(this::renderDeviceRoles);
+    private static final String SHOWN_TEXT = "shownText"; // client property: text last set on a status area
+    private static final int UI_TICK_MILLIS = 50; // device changes are drawn at most this often
+    
     // Color schemes
     private static final Color ACTIVE_GREEN = new Color(46, 204, 113);
     private static final Color INACTIVE_GRAY = new Color(189, 195, 199);
@@ -53,6 +64,7 @@ public class SmartHomeUI extends JFrame {
         createControlPanel();
         createLogPanel();
         createBottomPanel();
+        startDeviceUpdates();
         
         setLocationRelativeTo(null);
         setVisible(true);
@@ -63,6 +75,7 @@ public class SmartHomeUI extends JFrame {
     
     private void initializeSystem() {
         controller = SmartHomeController.getInstance();
+        eventBus = DeviceEventBus.attach(controller);
         
         livingRoomLight = new SmartLight("DEV-001", "Living Room Light");
         hallThermostat = new SmartThermostat("DEV-002", "Hall Thermostat");
@@ -154,6 +167,7 @@ public class SmartHomeUI extends JFrame {
         statusArea.setBackground(new Color(248, 249, 250));
         statusArea.setBorder(new EmptyBorder(10, 10, 10, 10));
         updateDeviceStatus(statusArea, device);
+        statusAreas.put(device, statusArea);
         
         JScrollPane scrollPane = new JScrollPane(statusArea);
         scrollPane.setBorder(BorderFactory.createLineBorder(new Color(206, 212, 218)));
@@ -166,14 +180,12 @@ public class SmartHomeUI extends JFrame {
         onBtn.addActionListener(e -> {
             device.turnOn();
             log("✓ " + device.getDeviceName() + " turned ON");
-            refreshDeviceDisplay();
         });
         
         JButton offBtn = createDeviceButton("TURN OFF", ALERT_RED);
         offBtn.addActionListener(e -> {
             device.turnOff();
             log("✓ " + device.getDeviceName() + " turned OFF");
-            refreshDeviceDisplay();
         });
         
         JButton infoBtn = createDeviceButton("INFO", new Color(52, 152, 219));
@@ -464,7 +476,6 @@ public class SmartHomeUI extends JFrame {
         }
         
         updateStatusPanel();
-        refreshDeviceDisplay();
     }
     
     private void toggleVacationMode() {
@@ -481,7 +492,6 @@ public class SmartHomeUI extends JFrame {
         }
         
         updateStatusPanel();
-        refreshDeviceDisplay();
     }
     
     private void toggleEnergyMode() {
@@ -498,7 +508,6 @@ public class SmartHomeUI extends JFrame {
         }
         
         updateStatusPanel();
-        refreshDeviceDisplay();
     }
     
     private void updateToggleButton(JButton button, boolean active, String newText) {
@@ -642,6 +651,14 @@ public class SmartHomeUI extends JFrame {
     }
     
     private void updateDeviceStatus(JTextArea area, ISmartDevice device) {
+        String text = statusTexts.get(device);
+        if (area.getClientProperty(SHOWN_TEXT) != text) { // same instance means unchanged
+            area.setText(text);
+            area.putClientProperty(SHOWN_TEXT, text);
+        }
+    }
+    
+    private String renderDeviceStatus(ISmartDevice device) {
         StringBuilder sb = new StringBuilder();
         sb.append("━━━━━━━━━━━━━━━━━━━━\n");
         sb.append("STATUS\n");
@@ -671,35 +688,25 @@ public class SmartHomeUI extends JFrame {
                 sb.append("✓ ").append(role.getRoleName()).append("\n");
             }
         }
-        
-        area.setText(sb.toString());
+        return sb.toString();
     }
     
-    private void refreshDeviceDisplay() {
-        Component[] components = devicesPanel.getComponents();
-        int index = 0;
-        for (Component comp : components) {
-            if (comp instanceof JPanel) {
-                JPanel devicePanel = (JPanel) comp;
-                Component[] innerComps = devicePanel.getComponents();
-                for (Component inner : innerComps) {
-                    if (inner instanceof JScrollPane) {
-                        JScrollPane scroll = (JScrollPane) inner;
-                        JTextArea area = (JTextArea) scroll.getViewport().getView();
-                        ISmartDevice device = null;
-                        if (index == 0) device = livingRoomLight;
-                        else if (index == 1) device = hallThermostat;
-                        else if (index == 2) device = kitchenSpeaker;
-                        if (device != null) {
-                            updateDeviceStatus(area, device);
-                        }
-                    }
-                }
-                index++;
+    /**
+     * Redraw device panels from change events, once per tick
+     * Only devices that changed are rendered again
+     */
+    private void startDeviceUpdates() {
+        eventBus.subscribeBatched(DeviceEventFilter.all(), this::applyDeviceEvents);
+        new Timer(UI_TICK_MILLIS, e -> eventBus.flush()).start();
+    }
+    
+    private void applyDeviceEvents(List<DeviceEvent> events) {
+        for (DeviceEvent event : events) {
+            JTextArea area = statusAreas.get(event.getDevice());
+            if (area != null) {
+                updateDeviceStatus(area, event.getDevice()); // cheap when already up to date
             }
         }
-        devicesPanel.revalidate();
-        devicesPanel.repaint();
     }
     
     private void showDeviceInfo(ISmartDevice device) {
@@ -710,6 +717,19 @@ public class SmartHomeUI extends JFrame {
     }
     
     private void showDeviceRoles(ISmartDevice device) {
+        JTextArea textArea = new JTextArea(roleTexts.get(device));
+        textArea.setEditable(false);
+        textArea.setFont(new Font("Arial", Font.PLAIN, 13));
+        
+        JScrollPane scrollPane = new JScrollPane(textArea);
+        scrollPane.setPreferredSize(new Dimension(450, 250));
+        
+        JOptionPane.showMessageDialog(this, scrollPane, 
+            "Device Roles - " + device.getDeviceName(), 
+            JOptionPane.INFORMATION_MESSAGE);
+    }
+    
+    private String renderDeviceRoles(ISmartDevice device) {
         StringBuilder msg = new StringBuilder();
         msg.append("Device: ").append(device.getDeviceName()).append("\n\n");
         msg.append("Active Roles (").append(device.getAllRoles().size()).append("):\n\n");
@@ -723,17 +743,7 @@ public class SmartHomeUI extends JFrame {
                 msg.append("   ").append(role.getDescription()).append("\n\n");
             }
         }
-        
-        JTextArea textArea = new JTextArea(msg.toString());
-        textArea.setEditable(false);
-        textArea.setFont(new Font("Arial", Font.PLAIN, 13));
-        
-        JScrollPane scrollPane = new JScrollPane(textArea);
-        scrollPane.setPreferredSize(new Dimension(450, 250));
-        
-        JOptionPane.showMessageDialog(this, scrollPane, 
-            "Device Roles - " + device.getDeviceName(), 
-            JOptionPane.INFORMATION_MESSAGE);
+        return msg.toString();
     }
     
     private void showAboutDialog() {
@@ -0,0 +1,85 @@
+package bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Minimal benchmark harness with warmup, measurement and allocation profiling
+ * Each measurement reports time per operation, bytes allocated per operation
+ * (measuring thread) and GC collections during the measured iterations.
+ */
+public final class Bench {
+    /**
+     * One benchmark invocation; returns a value so the JIT cannot drop the work
+     */
+    public interface Op {
+        Object run();
+    }
+    
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static volatile Object sink;
+    
+    private final int warmupIterations;
+    private final int measureIterations;
+    
+    /**
+     * @param warmupIterations Untimed iterations run first
+     * @param measureIterations Timed iterations
+     */
+    public Bench(int warmupIterations, int measureIterations) {
+        this.warmupIterations = warmupIterations;
+        this.measureIterations = measureIterations;
+    }
+    
+    /**
+     * Print the column header for result lines
+     */
+    public static void printHeader() {
+        System.out.printf("%-34s %-28s %14s %14s %8s%n", "Benchmark", "Params", "ns/op", "B/op", "GCs");
+    }
+    
+    /**
+     * Run and report one benchmark
+     * @param name Benchmark name
+     * @param params Parameter description (fleet size, density...)
+     * @param opsPerInvocation Logical operations performed by one call of op
+     * @param setup Run before every iteration, untimed (may be null)
+     * @param op The measured work
+     */
+    public void measure(String name, String params, long opsPerInvocation, Runnable setup, Op op) {
+        for (int i = 0; i < warmupIterations; i++) {
+            if (setup != null) {
+                setup.run();
+            }
+            sink = op.run();
+        }
+        long nanos = 0;
+        long bytes = 0;
+        long gcs = 0;
+        for (int i = 0; i < measureIterations; i++) {
+            if (setup != null) {
+                setup.run();
+            }
+            long gcBefore = gcCount();
+            long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            sink = op.run();
+            nanos += System.nanoTime() - start;
+            bytes += THREADS.getCurrentThreadAllocatedBytes() - bytesBefore;
+            gcs += gcCount() - gcBefore;
+        }
+        double ops = (double) opsPerInvocation * measureIterations;
+        System.out.printf("%-34s %-28s %14.1f %14.1f %8d%n", name, params, nanos / ops, bytes / ops, gcs);
+    }
+    
+    private static long gcCount() {
+        long total = 0;
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        for (GarbageCollectorMXBean gc : collectors) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,220 @@
+package bench;
+
+import devices.DeviceStatus;
+import devices.ISmartDevice;
+import devices.SmartLight;
+import devices.SmartSpeaker;
+import devices.SmartThermostat;
+import logging.EventLog;
+import logging.Level;
+import mediator.SmartHomeController;
+import roles.NotificationRole;
+import roles.SecurityModeRole;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks for the controller, role and device hot paths
+ * Parameterized over fleet size and role density (fraction of devices
+ * holding NotificationRole / SecurityModeRole before a trigger).
+ *
+ * Usage: java -cp bin bench.ControllerBenchmarks [sizes=10,1000,100000,1000000] [densities=0.01,0.1,1.0] [quick]
+ */
+public class ControllerBenchmarks {
+    private static final SmartHomeController controller = SmartHomeController.getInstance();
+    
+    public static void main(String[] args) {
+        int[] sizes = {10, 1_000, 100_000, 1_000_000};
+        double[] densities = {0.01, 0.1, 1.0};
+        int warmup = 5;
+        int measure = 10;
+        for (String arg : args) {
+            if (arg.startsWith("sizes=")) {
+                sizes = parseInts(arg.substring(6));
+            } else if (arg.startsWith("densities=")) {
+                densities = parseDoubles(arg.substring(10));
+            } else if (arg.equals("quick")) {
+                warmup = 2;
+                measure = 3;
+            }
+        }
+        
+        EventLog.setLevel(Level.OFF); // measure the work, not the console
+        Bench bench = new Bench(warmup, measure);
+        Bench.printHeader();
+        for (int size : sizes) {
+            List<ISmartDevice> fleet = createFleet(size);
+            benchRegister(bench, fleet);
+            register(fleet);
+            benchDeviceInfo(bench, fleet);
+            benchSecurityMode(bench, fleet);
+            for (double density : densities) {
+                benchTriggers(bench, fleet, density);
+                benchRoleLookup(bench, fleet, density);
+            }
+            clear();
+        }
+    }
+    
+    // ===== Benchmarks =====
+    
+    private static void benchRegister(Bench bench, List<ISmartDevice> fleet) {
+        bench.measure("registerDevice", "size=" + fleet.size(), fleet.size(),
+            ControllerBenchmarks::clear,
+            () -> {
+                register(fleet);
+                return controller.getDeviceCount();
+            });
+    }
+    
+    private static void benchSecurityMode(Bench bench, List<ISmartDevice> fleet) {
+        bench.measure("activateSecurityMode", "size=" + fleet.size(), fleet.size(),
+            controller::deactivateSecurityMode,
+            () -> {
+                controller.activateSecurityMode();
+                return null;
+            });
+        bench.measure("deactivateSecurityMode", "size=" + fleet.size(), fleet.size(),
+            controller::activateSecurityMode,
+            () -> {
+                controller.deactivateSecurityMode();
+                return null;
+            });
+        controller.deactivateSecurityMode();
+    }
+    
+    private static void benchTriggers(Bench bench, List<ISmartDevice> fleet, double density) {
+        assignRoles(fleet, density);
+        String params = "size=" + fleet.size() + " density=" + density;
+        bench.measure("triggerSecurityAlert", params, 1, null, () -> {
+            controller.triggerSecurityAlert();
+            return null;
+        });
+        bench.measure("sendNotification", params, 1, null, () -> {
+            controller.sendNotification("benchmark");
+            return null;
+        });
+    }
+    
+    private static void benchRoleLookup(Bench bench, List<ISmartDevice> fleet, double density) {
+        String params = "size=" + fleet.size() + " density=" + density;
+        bench.measure("SmartDevice.hasRole", params, fleet.size(), null, () -> {
+            int found = 0;
+            for (ISmartDevice device : fleet) {
+                if (device.hasRole(NotificationRole.class)) {
+                    found++;
+                }
+            }
+            return found;
+        });
+        bench.measure("SmartDevice.getRole", params, fleet.size(), null, () -> {
+            int found = 0;
+            for (ISmartDevice device : fleet) {
+                if (device.getRole(SecurityModeRole.class) != null) {
+                    found++;
+                }
+            }
+            return found;
+        });
+    }
+    
+    private static void benchDeviceInfo(Bench bench, List<ISmartDevice> fleet) {
+        bench.measure("getDeviceInfo", "size=" + fleet.size(), fleet.size(), null, () -> {
+            long length = 0;
+            for (ISmartDevice device : fleet) {
+                length += device.getDeviceInfo().length();
+            }
+            return length;
+        });
+        StringBuilder text = new StringBuilder(256);
+        bench.measure("appendTo", "size=" + fleet.size(), fleet.size(), null, () -> {
+            long length = 0;
+            try {
+                for (ISmartDevice device : fleet) {
+                    text.setLength(0);
+                    device.appendTo(text);
+                    length += text.length();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return length;
+        });
+        ByteBuffer status = ByteBuffer.allocateDirect(DeviceStatus.RECORD_BYTES * fleet.size());
+        bench.measure("writeStatus", "size=" + fleet.size(), fleet.size(), null, () -> {
+            status.clear();
+            return DeviceStatus.writeAll(fleet, status);
+        });
+    }
+    
+    // ===== Fixtures =====
+    
+    private static List<ISmartDevice> createFleet(int size) {
+        List<ISmartDevice> fleet = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String id = "DEV-" + i;
+            switch (i % 3) {
+                case 0:
+                    fleet.add(new SmartLight(id, "Light " + i));
+                    break;
+                case 1:
+                    fleet.add(new SmartThermostat(id, "Thermostat " + i));
+                    break;
+                default:
+                    fleet.add(new SmartSpeaker(id, "Speaker " + i));
+                    break;
+            }
+        }
+        return fleet;
+    }
+    
+    /**
+     * Give the first density * size devices NotificationRole and SecurityModeRole, remove them from the rest
+     */
+    private static void assignRoles(List<ISmartDevice> fleet, double density) {
+        int holders = (int) Math.round(fleet.size() * density);
+        for (int i = 0; i < fleet.size(); i++) {
+            ISmartDevice device = fleet.get(i);
+            if (i < holders) {
+                device.addRole(new NotificationRole());
+                device.addRole(new SecurityModeRole());
+            } else {
+                device.removeRole(NotificationRole.class);
+                device.removeRole(SecurityModeRole.class);
+            }
+        }
+    }
+    
+    private static void register(List<ISmartDevice> fleet) {
+        for (ISmartDevice device : fleet) {
+            controller.registerDevice(device);
+        }
+    }
+    
+    private static void clear() {
+        for (ISmartDevice device : new ArrayList<>(controller.getAllDevices())) {
+            controller.unregisterDevice(device);
+        }
+    }
+    
+    private static int[] parseInts(String csv) {
+        String[] parts = csv.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+    
+    private static double[] parseDoubles(String csv) {
+        String[] parts = csv.split(",");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i].trim());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,139 @@
+package bench;
+
+import devices.CompactDeviceStore;
+import devices.ISmartDevice;
+import devices.SmartLight;
+import devices.SmartSpeaker;
+import devices.SmartThermostat;
+import roles.IDeviceRole;
+import roles.RoleDispatch;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Role dispatch: the old instanceof chain against the RoleDispatch table
+ * Both sides run the same trivial per-type work over a shuffled fleet of
+ * six device classes (three SmartDevice types and three compact views), so
+ * the numbers show the cost of choosing the behaviour, not of running it.
+ *
+ * Usage: java -cp bin bench.DispatchBenchmarks [sizes=1000,100000] [quick]
+ */
+public class DispatchBenchmarks {
+    private static long counter;
+    
+    /**
+     * Role used only to measure dispatch
+     */
+    private static final class ProbeRole implements IDeviceRole {
+        @Override
+        public void execute(ISmartDevice device) {
+            RoleDispatch.dispatch(this, device);
+        }
+        
+        @Override
+        public String getRoleName() {
+            return "Probe";
+        }
+        
+        @Override
+        public String getDescription() {
+            return "Benchmark probe";
+        }
+    }
+    
+    public static void main(String[] args) {
+        int[] sizes = {1_000, 100_000};
+        int warmup = 5;
+        int measure = 10;
+        for (String arg : args) {
+            if (arg.startsWith("sizes=")) {
+                String[] parts = arg.substring(6).split(",");
+                sizes = new int[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    sizes[i] = Integer.parseInt(parts[i].trim());
+                }
+            } else if (arg.equals("quick")) {
+                warmup = 2;
+                measure = 3;
+            }
+        }
+        
+        RoleDispatch.register(ProbeRole.class, SmartLight.class, (role, d) -> counter += 1);
+        RoleDispatch.register(ProbeRole.class, SmartSpeaker.class, (role, d) -> counter += 2);
+        RoleDispatch.register(ProbeRole.class, SmartThermostat.class, (role, d) -> counter += 3);
+        RoleDispatch.register(ProbeRole.class, CompactDeviceStore.LightView.class, (role, d) -> counter += 4);
+        RoleDispatch.register(ProbeRole.class, CompactDeviceStore.SpeakerView.class, (role, d) -> counter += 5);
+        RoleDispatch.register(ProbeRole.class, CompactDeviceStore.ThermostatView.class, (role, d) -> counter += 6);
+        
+        Bench bench = new Bench(warmup, measure);
+        Bench.printHeader();
+        ProbeRole probe = new ProbeRole();
+        for (int size : sizes) {
+            List<ISmartDevice> fleet = createFleet(size);
+            String params = "size=" + size + " types=6";
+            bench.measure("dispatch.instanceofChain", params, size, null, () -> {
+                for (ISmartDevice device : fleet) {
+                    instanceofChain(device);
+                }
+                return counter;
+            });
+            bench.measure("dispatch.roleDispatchTable", params, size, null, () -> {
+                for (ISmartDevice device : fleet) {
+                    probe.execute(device);
+                }
+                return counter;
+            });
+        }
+    }
+    
+    /**
+     * The shape every role used before RoleDispatch
+     */
+    private static void instanceofChain(ISmartDevice device) {
+        if (device instanceof SmartLight) {
+            counter += 1;
+        } else if (device instanceof SmartSpeaker) {
+            counter += 2;
+        } else if (device instanceof SmartThermostat) {
+            counter += 3;
+        } else if (device instanceof CompactDeviceStore.LightView) {
+            counter += 4;
+        } else if (device instanceof CompactDeviceStore.SpeakerView) {
+            counter += 5;
+        } else if (device instanceof CompactDeviceStore.ThermostatView) {
+            counter += 6;
+        }
+    }
+    
+    private static List<ISmartDevice> createFleet(int size) {
+        CompactDeviceStore store = new CompactDeviceStore();
+        List<ISmartDevice> fleet = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String id = "DEV-" + i;
+            switch (i % 6) {
+                case 0:
+                    fleet.add(new SmartLight(id, "Light " + i));
+                    break;
+                case 1:
+                    fleet.add(new SmartSpeaker(id, "Speaker " + i));
+                    break;
+                case 2:
+                    fleet.add(new SmartThermostat(id, "Thermostat " + i));
+                    break;
+                case 3:
+                    fleet.add(store.view(store.addLight(id, "Light " + i)));
+                    break;
+                case 4:
+                    fleet.add(store.view(store.addSpeaker(id, "Speaker " + i)));
+                    break;
+                default:
+                    fleet.add(store.view(store.addThermostat(id, "Thermostat " + i)));
+                    break;
+            }
+        }
+        Collections.shuffle(fleet, new Random(42));
+        return fleet;
+    }
+}
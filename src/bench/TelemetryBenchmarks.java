@@ -0,0 +1,150 @@
+package bench;
+
+import telemetry.GorillaBlock;
+import telemetry.GorillaDecoder;
+import telemetry.GorillaEncoder;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Compares Gorilla-encoded device history against the raw format
+ * (one long timestamp and one double value per sample, 16 bytes)
+ * Series model typical device fields: thermostat readings every 60 s with
+ * small jitter, brightness changed at irregular times, and a mostly
+ * constant volume.
+ *
+ * Usage: java -cp bin bench.TelemetryBenchmarks [samples=100000] [quick]
+ */
+public class TelemetryBenchmarks {
+    private static final long START = 1_700_000_000_000L;
+    
+    public static void main(String[] args) {
+        int samples = 100_000;
+        int warmup = 5;
+        int measure = 10;
+        for (String arg : args) {
+            if (arg.startsWith("samples=")) {
+                samples = Integer.parseInt(arg.substring(8));
+            } else if (arg.equals("quick")) {
+                warmup = 2;
+                measure = 3;
+            }
+        }
+        
+        Bench bench = new Bench(warmup, measure);
+        Bench.printHeader();
+        Random random = new Random(42);
+        benchSeries(bench, "thermostat", thermostatSeries(samples, random));
+        benchSeries(bench, "brightness", brightnessSeries(samples, random));
+        benchSeries(bench, "volume", volumeSeries(samples, random));
+    }
+    
+    // ===== Benchmarks =====
+    
+    private static void benchSeries(Bench bench, String name, long[][] series) {
+        long[] timestamps = series[0];
+        double[] values = toDoubles(series[1]);
+        int n = timestamps.length;
+        String params = name + " n=" + n;
+        
+        ByteBuffer raw = ByteBuffer.allocate(n * 16);
+        bench.measure("raw.encode", params, n, raw::clear, () -> {
+            for (int i = 0; i < n; i++) {
+                raw.putLong(timestamps[i]);
+                raw.putDouble(values[i]);
+            }
+            return raw.position();
+        });
+        bench.measure("raw.decode", params, n, raw::flip, () -> {
+            double sum = 0;
+            while (raw.hasRemaining()) {
+                sum += raw.getLong() + raw.getDouble();
+            }
+            return sum;
+        });
+        
+        bench.measure("gorilla.encode", params, n, null, () -> encode(timestamps, values));
+        GorillaBlock block = encode(timestamps, values);
+        bench.measure("gorilla.decode", params, n, null, () -> {
+            double sum = 0;
+            GorillaDecoder decoder = block.decoder();
+            while (decoder.next()) {
+                sum += decoder.timestamp() + decoder.value();
+            }
+            return sum;
+        });
+        verify(block, timestamps, values);
+        System.out.printf("%-34s %-28s %14s %14.2f bytes/sample (raw 16.00, %.1fx smaller)%n",
+            "gorilla.size", params, "", (double) block.sizeInBytes() / n, 16.0 * n / block.sizeInBytes());
+    }
+    
+    private static GorillaBlock encode(long[] timestamps, double[] values) {
+        GorillaEncoder encoder = new GorillaEncoder();
+        for (int i = 0; i < timestamps.length; i++) {
+            encoder.append(timestamps[i], values[i]);
+        }
+        return encoder.seal();
+    }
+    
+    private static void verify(GorillaBlock block, long[] timestamps, double[] values) {
+        GorillaDecoder decoder = block.decoder();
+        for (int i = 0; i < timestamps.length; i++) {
+            if (!decoder.next() || decoder.timestamp() != timestamps[i]
+                    || Double.doubleToRawLongBits(decoder.value()) != Double.doubleToRawLongBits(values[i])) {
+                throw new IllegalStateException("Round trip mismatch at sample " + i);
+            }
+        }
+    }
+    
+    // ===== Fixtures =====
+    
+    private static long[][] thermostatSeries(int n, Random random) {
+        long[] timestamps = new long[n];
+        long[] values = new long[n];
+        long time = START;
+        double temperature = 20.0;
+        for (int i = 0; i < n; i++) {
+            time += 60_000 + (random.nextInt(10) == 0 ? random.nextInt(200) - 100 : 0);
+            temperature = Math.max(10, Math.min(35, temperature + (random.nextInt(3) - 1) * 0.1));
+            timestamps[i] = time;
+            values[i] = Double.doubleToRawLongBits(Math.round(temperature * 10) / 10.0);
+        }
+        return new long[][] {timestamps, values};
+    }
+    
+    private static long[][] brightnessSeries(int n, Random random) {
+        long[] timestamps = new long[n];
+        long[] values = new long[n];
+        long time = START;
+        for (int i = 0; i < n; i++) {
+            time += 1_000 + random.nextInt(600_000);
+            timestamps[i] = time;
+            values[i] = Double.doubleToRawLongBits(random.nextInt(101));
+        }
+        return new long[][] {timestamps, values};
+    }
+    
+    private static long[][] volumeSeries(int n, Random random) {
+        long[] timestamps = new long[n];
+        long[] values = new long[n];
+        long time = START;
+        int volume = 50;
+        for (int i = 0; i < n; i++) {
+            time += 10_000;
+            if (random.nextInt(20) == 0) {
+                volume = random.nextInt(101);
+            }
+            timestamps[i] = time;
+            values[i] = Double.doubleToRawLongBits(volume);
+        }
+        return new long[][] {timestamps, values};
+    }
+    
+    private static double[] toDoubles(long[] bits) {
+        double[] values = new double[bits.length];
+        for (int i = 0; i < bits.length; i++) {
+            values[i] = Double.longBitsToDouble(bits[i]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,72 @@
+package commands;
+
+/**
+ * Statistics from applying a CommandBatch
+ * received = applied + skipped + failed + coalesced
+ */
+public class BatchResult {
+    int received;
+    int devices;
+    int writes;
+    int applied;
+    int skipped;
+    int failed;
+    int coalesced;
+    
+    /**
+     * Commands added to the batch
+     */
+    public int getReceived() {
+        return received;
+    }
+    
+    /**
+     * Distinct devices the batch touched
+     */
+    public int getDevices() {
+        return devices;
+    }
+    
+    /**
+     * Device writes performed: at most one per device, none for a device
+     * whose final state matched its current state
+     */
+    public int getDeviceWrites() {
+        return writes;
+    }
+    
+    /**
+     * Fields actually changed on devices
+     */
+    public int getApplied() {
+        return applied;
+    }
+    
+    /**
+     * Final field values dropped because the device already had them
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+    
+    /**
+     * Final field values the device rejected: out of range, or a field the
+     * device does not have
+     */
+    public int getFailed() {
+        return failed;
+    }
+    
+    /**
+     * Commands superseded by a later command for the same device and field
+     */
+    public int getCoalesced() {
+        return coalesced;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Batch: %d commands on %d devices -> %d writes, %d applied, %d coalesced, %d skipped, %d failed",
+            received, devices, writes, applied, coalesced, skipped, failed);
+    }
+}
@@ -0,0 +1,121 @@
+package commands;
+
+import devices.ISmartDevice;
+import devices.StateUpdate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects device commands and coalesces them as they are added
+ * Commands for one device collapse into the device's final state, which is
+ * applied as a single update: a light that gets turnOn, setBrightness(100),
+ * setBrightness(30), turnOff receives one write, with one version change,
+ * that leaves it off at 30%, and only the fields that really change are
+ * notified.
+ * Not thread-safe; build a batch on one thread, then apply it.
+ */
+public class CommandBatch {
+    private final Map<ISmartDevice, Pending> pending = new LinkedHashMap<>();
+    private int received;
+    
+    /**
+     * Add a command to the batch
+     * @return this batch, for chaining
+     */
+    public CommandBatch add(CommandType type, ISmartDevice device, double value) {
+        pending.computeIfAbsent(device, Pending::new).put(type, value);
+        received++;
+        return this;
+    }
+    
+    /**
+     * Number of commands added so far
+     */
+    public int getReceivedCount() {
+        return received;
+    }
+    
+    /**
+     * Number of devices with at least one pending write
+     */
+    public int getDeviceCount() {
+        return pending.size();
+    }
+    
+    /**
+     * Final state per device, in the order devices were first seen
+     */
+    public Collection<Pending> pending() {
+        return pending.values();
+    }
+    
+    /**
+     * Remove all commands so the batch can be reused
+     */
+    public void clear() {
+        pending.clear();
+        received = 0;
+    }
+    
+    /**
+     * Final effective state for one device
+     */
+    public static final class Pending {
+        private final ISmartDevice device;
+        private final StateUpdate update = new StateUpdate();
+        
+        Pending(ISmartDevice device) {
+            this.device = device;
+        }
+        
+        void put(CommandType type, double value) {
+            update.set(type.field(), type.target(value));
+        }
+        
+        public ISmartDevice getDevice() {
+            return device;
+        }
+        
+        /**
+         * Number of distinct fields written
+         */
+        public int getWriteCount() {
+            return update.getFieldCount();
+        }
+        
+        /**
+         * Apply the final state as one device write
+         * @param result Receives applied, skipped and failed counts
+         */
+        void applyTo(BatchResult result) {
+            device.applyUpdate(update);
+            int changed = Long.bitCount(update.getChanged());
+            int rejected = Long.bitCount(update.getRejected());
+            result.applied += changed;
+            result.failed += rejected;
+            result.skipped += update.getFieldCount() - changed - rejected;
+            if (changed != 0) {
+                result.writes++;
+            }
+        }
+    }
+    
+    /**
+     * Apply every device's final state in this batch
+     * Rejected fields are counted as failed and do not stop the batch
+     * @return Statistics for sizing batching windows
+     */
+    public BatchResult apply() {
+        BatchResult result = new BatchResult();
+        result.received = received;
+        result.devices = pending.size();
+        int fields = 0;
+        for (Pending writes : pending.values()) {
+            writes.applyTo(result);
+            fields += writes.getWriteCount();
+        }
+        result.coalesced = result.received - fields;
+        return result;
+    }
+}
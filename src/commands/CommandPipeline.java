@@ -0,0 +1,231 @@
+package commands;
+
+import devices.ISmartDevice;
+import logging.EventLog;
+import logging.Level;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Command ingestion pipeline in front of the devices
+ * Producers (UI, schedulers, sensors) publish typed commands into
+ * pre-allocated multi-producer ring buffers. Devices are partitioned by ID;
+ * each partition has a single writer thread, so commands for one device are
+ * applied in publish order and never race each other.
+ *
+ * publish() is allocation-free and returns a ticket that can be polled or
+ * awaited; submit() additionally completes a CompletableFuture.
+ *
+ * On close each writer drains its ring and then seals the ring's tail with
+ * a CAS, so a producer racing close() either lands before the seal and is
+ * applied, or sees the seal and gets an IllegalStateException.
+ */
+public class CommandPipeline implements AutoCloseable {
+    private static final int PARTITION_SHIFT = 56;
+    private static final long SEQUENCE_MASK = (1L << PARTITION_SHIFT) - 1;
+    private static final long SEALED = 1L << 62; // set in a partition's tail once its writer has stopped
+    private static final long IDLE_PARK_NANOS = 50_000;
+    
+    private final Partition[] partitions;
+    private volatile boolean running = true;
+    private final AtomicLong failed = new AtomicLong();
+    
+    /**
+     * @param partitionCount Number of writer threads (at most 128)
+     * @param capacity Ring size per partition, rounded up to a power of two
+     */
+    public CommandPipeline(int partitionCount, int capacity) {
+        if (partitionCount < 1 || partitionCount > 128) {
+            throw new IllegalArgumentException("partitionCount must be between 1 and 128");
+        }
+        partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i, capacity);
+        }
+    }
+    
+    // ===== Producers =====
+    
+    /**
+     * Queue a command without allocating
+     * Waits for a free slot if the partition ring is full
+     * @return Ticket identifying the command
+     * @throws IllegalStateException if the pipeline is closed or the partition's writer has stopped
+     */
+    public long publish(CommandType type, ISmartDevice device, double value) {
+        return partitionFor(device).publish(type, device, value, null);
+    }
+    
+    /**
+     * Queue a command and get a future completed once it has been applied
+     * The future completes exceptionally if the device rejected the command,
+     * e.g. with an IllegalArgumentException for an out-of-range value, or if
+     * applying it threw anything else, Errors included
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public CompletableFuture<Void> submit(CommandType type, ISmartDevice device, double value) {
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        partitionFor(device).publish(type, device, value, completion);
+        return completion;
+    }
+    
+    /**
+     * Check if the command with this ticket has been applied (or failed)
+     */
+    public boolean isApplied(long ticket) {
+        Partition partition = partitions[(int) (ticket >>> PARTITION_SHIFT)];
+        return partition.applied > (ticket & SEQUENCE_MASK);
+    }
+    
+    /**
+     * Wait until the command with this ticket has been applied (or failed)
+     * @throws IllegalStateException if the writer stopped without applying it
+     */
+    public void awaitApplied(long ticket) {
+        Partition partition = partitions[(int) (ticket >>> PARTITION_SHIFT)];
+        while (!isApplied(ticket)) {
+            if (!partition.writer.isAlive() && !isApplied(ticket)) {
+                throw new IllegalStateException("Command writer stopped before applying ticket " + ticket);
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+    
+    /**
+     * Total commands applied over all partitions
+     */
+    public long getAppliedCount() {
+        long total = 0;
+        for (Partition partition : partitions) {
+            total += partition.applied;
+        }
+        return total;
+    }
+    
+    /**
+     * Commands that threw or were rejected while being applied
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+    
+    /**
+     * Apply everything already queued, then stop the writer threads
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Partition partition : partitions) {
+            LockSupport.unpark(partition.writer);
+            try {
+                partition.writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private Partition partitionFor(ISmartDevice device) {
+        if (!running) {
+            throw new IllegalStateException("CommandPipeline is closed");
+        }
+        return partitions[Math.floorMod(device.getDeviceId().hashCode(), partitions.length)];
+    }
+    
+    // ===== Partition =====
+    
+    private static final class Slot {
+        CommandType type;
+        ISmartDevice device;
+        double value;
+        CompletableFuture<Void> completion;
+    }
+    
+    private final class Partition {
+        private final long ticketBase;
+        private final Slot[] slots;
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long applied; // every sequence below this has been applied
+        private final Thread writer;
+        
+        Partition(int index, int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            ticketBase = (long) index << PARTITION_SHIFT;
+            slots = new Slot[size];
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                slots[i] = new Slot();
+                sequences.set(i, i);
+            }
+            mask = size - 1;
+            writer = new Thread(this::drainLoop, "command-writer-" + index);
+            writer.setDaemon(true);
+            writer.start();
+        }
+        
+        long publish(CommandType type, ISmartDevice device, double value, CompletableFuture<Void> completion) {
+            while (true) {
+                long sequence = tail.get();
+                if ((sequence & SEALED) != 0) {
+                    throw new IllegalStateException("CommandPipeline is closed");
+                }
+                int index = (int) (sequence & mask);
+                long available = sequences.get(index);
+                if (available == sequence) {
+                    if (tail.compareAndSet(sequence, sequence + 1)) {
+                        Slot slot = slots[index];
+                        slot.type = type;
+                        slot.device = device;
+                        slot.value = value;
+                        slot.completion = completion;
+                        sequences.lazySet(index, sequence + 1);
+                        return ticketBase | sequence;
+                    }
+                } else if (available < sequence) {
+                    if (!writer.isAlive()) {
+                        throw new IllegalStateException("Command writer " + writer.getName() + " has stopped");
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS); // ring full, wait for the writer
+                }
+            }
+        }
+        
+        private void drainLoop() {
+            long next = 0;
+            while (true) {
+                int index = (int) (next & mask);
+                if (sequences.get(index) != next + 1) {
+                    // Seal only when no producer holds a claimed but unpublished slot
+                    if (!running && tail.compareAndSet(next, next | SEALED)) {
+                        return;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                Slot slot = slots[index];
+                CompletableFuture<Void> completion = slot.completion;
+                try {
+                    slot.type.apply(slot.device, slot.value);
+                    if (completion != null) {
+                        completion.complete(null);
+                    }
+                } catch (Throwable e) {
+                    // Errors too: a dead writer would leave the ring full and producers spinning
+                    failed.incrementAndGet();
+                    EventLog.log(Level.WARN, "⚠ Command failed: ", e, null);
+                    if (completion != null) {
+                        completion.completeExceptionally(e);
+                    }
+                }
+                slot.device = null;
+                slot.completion = null;
+                sequences.lazySet(index, next + slots.length);
+                applied = ++next;
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package commands;
+
+import devices.DeviceField;
+import devices.ISmartDevice;
+import devices.ISmartLight;
+import devices.ISmartSpeaker;
+import devices.ISmartThermostat;
+
+/**
+ * Device mutations that can be queued as commands
+ * The numeric argument is carried as a double so commands need no boxing;
+ * brightness and volume use its integer part.
+ */
+public enum CommandType {
+    TURN_ON {
+        @Override
+        public void apply(ISmartDevice device, double value) {
+            device.turnOn();
+        }
+        
+        @Override
+        public boolean isNoOp(ISmartDevice device, double value) {
+            return device.isOn();
+        }
+        
+        @Override
+        public DeviceField field() {
+            return DeviceField.POWER;
+        }
+        
+        @Override
+        public double target(double value) {
+            return 1;
+        }
+    },
+    TURN_OFF {
+        @Override
+        public void apply(ISmartDevice device, double value) {
+            device.turnOff();
+        }
+        
+        @Override
+        public boolean isNoOp(ISmartDevice device, double value) {
+            return !device.isOn();
+        }
+        
+        @Override
+        public DeviceField field() {
+            return DeviceField.POWER; // shares the power field with TURN_ON
+        }
+        
+        @Override
+        public double target(double value) {
+            return 0;
+        }
+    },
+    SET_BRIGHTNESS {
+        @Override
+        public void apply(ISmartDevice device, double value) {
+            accepted(device, expect(device, ISmartLight.class).setBrightness((int) value), "brightness", value);
+        }
+        
+        @Override
+        public boolean isNoOp(ISmartDevice device, double value) {
+            return device instanceof ISmartLight && ((ISmartLight) device).getBrightness() == (int) value;
+        }
+        
+        @Override
+        public DeviceField field() {
+            return DeviceField.BRIGHTNESS;
+        }
+    },
+    SET_VOLUME {
+        @Override
+        public void apply(ISmartDevice device, double value) {
+            accepted(device, expect(device, ISmartSpeaker.class).setVolume((int) value), "volume", value);
+        }
+        
+        @Override
+        public boolean isNoOp(ISmartDevice device, double value) {
+            return device instanceof ISmartSpeaker && ((ISmartSpeaker) device).getVolume() == (int) value;
+        }
+        
+        @Override
+        public DeviceField field() {
+            return DeviceField.VOLUME;
+        }
+    },
+    SET_TEMPERATURE {
+        @Override
+        public void apply(ISmartDevice device, double value) {
+            accepted(device, expect(device, ISmartThermostat.class).setTemperature(value), "temperature", value);
+        }
+        
+        @Override
+        public boolean isNoOp(ISmartDevice device, double value) {
+            return device instanceof ISmartThermostat && ((ISmartThermostat) device).getTargetTemperature() == value;
+        }
+        
+        @Override
+        public DeviceField field() {
+            return DeviceField.TARGET_TEMPERATURE;
+        }
+    };
+    
+    /**
+     * Apply this command to a device
+     * @param device Target device
+     * @param value Numeric argument (ignored by power commands)
+     * @throws IllegalArgumentException if the device does not support this command
+     *         or rejected the value
+     */
+    public abstract void apply(ISmartDevice device, double value);
+    
+    /**
+     * Check if applying this command would leave the device unchanged
+     */
+    public abstract boolean isNoOp(ISmartDevice device, double value);
+    
+    /**
+     * The device field this command writes; commands with the same field
+     * overwrite each other (TURN_ON and TURN_OFF both write power)
+     */
+    public abstract DeviceField field();
+    
+    /**
+     * Value the field ends up with, as set in a StateUpdate
+     * @param value Numeric argument of the command
+     */
+    public double target(double value) {
+        return value;
+    }
+    
+    private static <T> T expect(ISmartDevice device, Class<T> type) {
+        if (!type.isInstance(device)) {
+            throw new IllegalArgumentException(device.getDeviceName() + " does not support this command");
+        }
+        return type.cast(device);
+    }
+    
+    private static void accepted(ISmartDevice device, boolean accepted, String what, double value) {
+        if (!accepted) {
+            throw new IllegalArgumentException(device.getDeviceName() + " rejected " + what + " " + value);
+        }
+    }
+}
@@ -0,0 +1,893 @@
+package devices;
+
+import roles.IDeviceRole;
+import logging.EventLog;
+import logging.Level;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Optional compact backend for very large simulated fleets
+ * Device state is kept in primitive columns addressed by an int handle
+ * instead of one heap object per device. Thin ISmartDevice views are
+ * created on demand so the store works with the controller and roles.
+ *
+ * Roles are stored as a bitmask per device, with one prototype instance
+ * per role type. A device holding a different instance of the type - a
+ * configured role with another parameter - keeps it in a sparse side table,
+ * so every view returns exactly the role it was given. The mask bit is the
+ * role's RoleSet ordinal, which is assigned JVM-wide in first-use order:
+ * only the first 64 role classes loaded can be stored, and adding a later
+ * one throws IllegalArgumentException.
+ *
+ * View mutators notify device listeners exactly like SmartDevice setters,
+ * and like them leave the version alone when a value does not change,
+ * so listener-based subsystems (history, journal, energy, events) see
+ * compact devices too. The column setters below are raw writes, like
+ * SmartDevice.restoreState, and notify nobody.
+ *
+ * Thread safety: mutations of a device, through a view or a column setter,
+ * run under a lock taken from the store's stripe table by handle, and
+ * listeners are notified under it, as with SmartDevice. Power bits share a
+ * word between 64 devices and are updated with CAS; side tables are
+ * concurrent maps. Adding devices grows the columns and is not safe while
+ * other threads use the store: add the fleet before sharing its views.
+ */
+public class CompactDeviceStore {
+    public static final byte TYPE_LIGHT = 0;
+    public static final byte TYPE_THERMOSTAT = 1;
+    public static final byte TYPE_SPEAKER = 2;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int LOCK_STRIPES = 64; // power of two
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Object[] stripes = new Object[LOCK_STRIPES];
+    {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    // ===== Per-handle columns =====
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] typeSlot = new int[INITIAL_CAPACITY]; // index into the per-type columns
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private long[] onBits = new long[1]; // 64 devices per word, updated with CAS
+    private long[] roleMasks = new long[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY]; // +2 per change, like SmartDevice.getVersion
+    private int size;
+
+    // ===== Per-type columns =====
+    private int[] brightness = new int[INITIAL_CAPACITY];
+    private int lightCount;
+    private int[] volume = new int[INITIAL_CAPACITY];
+    private String[] currentSound = new String[INITIAL_CAPACITY]; // null means "None"
+    private int speakerCount;
+    private double[] targetTemperature = new double[INITIAL_CAPACITY];
+    private double[] currentTemperature = new double[INITIAL_CAPACITY];
+    private int thermostatCount;
+
+    // First role instance seen per role ordinal; most devices share it
+    private final AtomicReferenceArray<IDeviceRole> rolePrototypes = new AtomicReferenceArray<>(64);
+    // Instances that differ from the prototype, keyed by handle << 6 | ordinal
+    private final Map<Long, IDeviceRole> roleInstances = new ConcurrentHashMap<>();
+    // Listeners are rare, so they are kept sparse instead of as a column
+    private final Map<Integer, DeviceListener[]> listeners = new ConcurrentHashMap<>();
+    // Random streams exist only for devices that have drawn from one
+    private final Map<Integer, SplittableRandom> randoms = new ConcurrentHashMap<>();
+
+    // ===== Device Creation =====
+
+    /**
+     * Add a light with the same defaults as SmartLight
+     * @return Handle of the new device
+     */
+    public int addLight(String deviceId, String deviceName) {
+        int handle = newHandle(TYPE_LIGHT, deviceId, deviceName);
+        if (lightCount == brightness.length) {
+            brightness = Arrays.copyOf(brightness, lightCount * 2);
+        }
+        brightness[lightCount] = 100;
+        typeSlot[handle] = lightCount++;
+        return handle;
+    }
+
+    /**
+     * Add a thermostat with the same defaults as SmartThermostat
+     * @return Handle of the new device
+     */
+    public int addThermostat(String deviceId, String deviceName) {
+        int handle = newHandle(TYPE_THERMOSTAT, deviceId, deviceName);
+        if (thermostatCount == targetTemperature.length) {
+            targetTemperature = Arrays.copyOf(targetTemperature, thermostatCount * 2);
+            currentTemperature = Arrays.copyOf(currentTemperature, thermostatCount * 2);
+        }
+        targetTemperature[thermostatCount] = 20.0;
+        currentTemperature[thermostatCount] = 20.0;
+        typeSlot[handle] = thermostatCount++;
+        return handle;
+    }
+
+    /**
+     * Add a speaker with the same defaults as SmartSpeaker
+     * @return Handle of the new device
+     */
+    public int addSpeaker(String deviceId, String deviceName) {
+        int handle = newHandle(TYPE_SPEAKER, deviceId, deviceName);
+        if (speakerCount == volume.length) {
+            volume = Arrays.copyOf(volume, speakerCount * 2);
+            currentSound = Arrays.copyOf(currentSound, speakerCount * 2);
+        }
+        volume[speakerCount] = 50;
+        typeSlot[handle] = speakerCount++;
+        return handle;
+    }
+
+    private int newHandle(byte type, String deviceId, String deviceName) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            typeSlot = Arrays.copyOf(typeSlot, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            roleMasks = Arrays.copyOf(roleMasks, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+        }
+        if ((size >> 6) == onBits.length) {
+            onBits = Arrays.copyOf(onBits, onBits.length * 2);
+        }
+        int handle = size++;
+        types[handle] = type;
+        ids[handle] = deviceId;
+        names[handle] = deviceName;
+        return handle;
+    }
+
+    /**
+     * Number of devices in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the device type of a handle (one of the TYPE_ constants)
+     */
+    public byte typeOf(int handle) {
+        return types[handle];
+    }
+
+    /**
+     * Create a thin ISmartDevice view over a stored device
+     * Views hold only the store and the handle; two views of the same handle are equal
+     */
+    public ISmartDevice view(int handle) {
+        switch (types[handle]) {
+            case TYPE_LIGHT:
+                return new LightView(handle);
+            case TYPE_THERMOSTAT:
+                return new ThermostatView(handle);
+            default:
+                return new SpeakerView(handle);
+        }
+    }
+
+    // ===== Column Access =====
+
+    public String getDeviceId(int handle) {
+        return ids[handle];
+    }
+
+    public String getDeviceName(int handle) {
+        return names[handle];
+    }
+
+    /**
+     * Version stamp of a device; changes whenever its state or roles change
+     */
+    public long getVersion(int handle) {
+        return (long) LONGS.getAcquire(versions, handle);
+    }
+
+    /**
+     * Lock guarding mutations of a device; shared with other handles in the same stripe
+     */
+    Object lock(int handle) {
+        return stripes[handle & (LOCK_STRIPES - 1)];
+    }
+
+    // Caller holds lock(handle)
+    private void changed(int handle) {
+        LONGS.setRelease(versions, handle, versions[handle] + 2);
+    }
+
+    public boolean isOn(int handle) {
+        return ((long) LONGS.getAcquire(onBits, handle >> 6) & (1L << handle)) != 0;
+    }
+
+    public void setOn(int handle, boolean on) {
+        synchronized (lock(handle)) {
+            writeOn(handle, on);
+            changed(handle);
+        }
+    }
+
+    // The word is shared with handles under other stripes, so the bit is set with CAS
+    private void writeOn(int handle, boolean on) {
+        if (on) {
+            LONGS.getAndBitwiseOr(onBits, handle >> 6, 1L << handle);
+        } else {
+            LONGS.getAndBitwiseAnd(onBits, handle >> 6, ~(1L << handle));
+        }
+    }
+
+    public long getRoleMask(int handle) {
+        return (long) LONGS.getAcquire(roleMasks, handle);
+    }
+
+    public int getBrightness(int handle) {
+        return brightness[slot(handle, TYPE_LIGHT)];
+    }
+
+    public void setBrightnessValue(int handle, int value) {
+        synchronized (lock(handle)) {
+            brightness[slot(handle, TYPE_LIGHT)] = value;
+            changed(handle);
+        }
+    }
+
+    public int getVolume(int handle) {
+        return volume[slot(handle, TYPE_SPEAKER)];
+    }
+
+    public void setVolumeValue(int handle, int value) {
+        synchronized (lock(handle)) {
+            volume[slot(handle, TYPE_SPEAKER)] = value;
+            changed(handle);
+        }
+    }
+
+    public double getTargetTemperature(int handle) {
+        return targetTemperature[slot(handle, TYPE_THERMOSTAT)];
+    }
+
+    public void setTargetTemperatureValue(int handle, double value) {
+        synchronized (lock(handle)) {
+            targetTemperature[slot(handle, TYPE_THERMOSTAT)] = value;
+            changed(handle);
+        }
+    }
+
+    public double getCurrentTemperature(int handle) {
+        return currentTemperature[slot(handle, TYPE_THERMOSTAT)];
+    }
+
+    public void setCurrentTemperatureValue(int handle, double value) {
+        synchronized (lock(handle)) {
+            currentTemperature[slot(handle, TYPE_THERMOSTAT)] = value;
+            changed(handle);
+        }
+    }
+
+    private int slot(int handle, byte expectedType) {
+        if (types[handle] != expectedType) {
+            throw new IllegalArgumentException("Device " + ids[handle] + " has a different type");
+        }
+        return typeSlot[handle];
+    }
+
+    // ===== Role Columns =====
+
+    /**
+     * Set a role bit; caller holds lock(handle)
+     * @throws IllegalArgumentException if the role class was not among the first 64 loaded
+     */
+    boolean addRole(int handle, IDeviceRole role) {
+        int ordinal = RoleSet.ordinalOf(role.getClass());
+        if (ordinal >= 64) {
+            throw new IllegalArgumentException("CompactDeviceStore supports only the first 64 role types, not "
+                                               + role.getClass().getName());
+        }
+        long bit = 1L << ordinal;
+        if ((roleMasks[handle] & bit) != 0) {
+            return false;
+        }
+        // The instance is in place before the bit is published to lock-free readers
+        if (!rolePrototypes.compareAndSet(ordinal, null, role) && rolePrototypes.get(ordinal) != role) {
+            roleInstances.put(roleKey(handle, ordinal), role);
+        }
+        LONGS.setRelease(roleMasks, handle, roleMasks[handle] | bit);
+        changed(handle);
+        return true;
+    }
+
+    /**
+     * Clear a role bit; caller holds lock(handle)
+     */
+    IDeviceRole removeRole(int handle, Class<? extends IDeviceRole> roleType) {
+        IDeviceRole role = getRole(handle, roleType);
+        if (role != null) {
+            int ordinal = RoleSet.ordinalOf(roleType);
+            LONGS.setRelease(roleMasks, handle, roleMasks[handle] & ~(1L << ordinal));
+            if (role != rolePrototypes.get(ordinal)) {
+                roleInstances.remove(roleKey(handle, ordinal));
+            }
+            changed(handle);
+        }
+        return role;
+    }
+
+    IDeviceRole getRole(int handle, Class<? extends IDeviceRole> roleType) {
+        int ordinal = RoleSet.ordinalOf(roleType);
+        if (ordinal >= 64 || (getRoleMask(handle) & (1L << ordinal)) == 0) {
+            return null;
+        }
+        return role(handle, ordinal);
+    }
+
+    private IDeviceRole role(int handle, int ordinal) {
+        if (!roleInstances.isEmpty()) {
+            IDeviceRole role = roleInstances.get(roleKey(handle, ordinal));
+            if (role != null) {
+                return role;
+            }
+        }
+        return rolePrototypes.get(ordinal);
+    }
+
+    private static long roleKey(int handle, int ordinal) {
+        return (long) handle << 6 | ordinal;
+    }
+
+    // ===== Views =====
+
+    /**
+     * Common ISmartDevice behaviour for all views
+     */
+    private abstract class View implements ISmartDevice {
+        final int handle;
+
+        View(int handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public void turnOn() {
+            synchronized (lock(handle)) {
+                if (!isOn()) {
+                    setOn(handle, true);
+                    fireStateChanged(DeviceField.POWER, 0, 1);
+                }
+                fireUsed();
+            }
+            EventLog.log(Level.INFO, "  ✓ ", names[handle], " is now ON");
+        }
+
+        @Override
+        public void turnOff() {
+            synchronized (lock(handle)) {
+                if (isOn()) {
+                    setOn(handle, false);
+                    fireStateChanged(DeviceField.POWER, 1, 0);
+                }
+            }
+            EventLog.log(Level.INFO, "  ✓ ", names[handle], " is now OFF");
+        }
+
+        @Override
+        public boolean isOn() {
+            return CompactDeviceStore.this.isOn(handle);
+        }
+
+        @Override
+        public void applyUpdate(StateUpdate update) {
+            long changed = 0;
+            long rejected = 0;
+            synchronized (lock(handle)) {
+                for (long bits = update.getFields(); bits != 0; bits &= bits - 1) {
+                    DeviceField field = StateUpdate.field(Long.numberOfTrailingZeros(bits));
+                    double value = update.get(field);
+                    if (!accepts(field, value)) {
+                        rejected |= bits & -bits;
+                    } else if (readField(field) != value) {
+                        update.previous[field.ordinal()] = readField(field);
+                        changed |= bits & -bits;
+                    }
+                }
+                if (changed != 0) {
+                    for (long bits = changed; bits != 0; bits &= bits - 1) {
+                        DeviceField field = StateUpdate.field(Long.numberOfTrailingZeros(bits));
+                        writeField(field, update.get(field));
+                    }
+                    changed(handle); // one version step for the whole update
+                    for (long bits = changed; bits != 0; bits &= ~Long.highestOneBit(bits)) {
+                        DeviceField field = StateUpdate.field(63 - Long.numberOfLeadingZeros(bits));
+                        fireStateChanged(field, update.previous[field.ordinal()], update.get(field));
+                    }
+                }
+            }
+            if (changed != 0) {
+                EventLog.log(Level.INFO, "  ✓ ", names[handle], " updated, fields changed: ", Long.bitCount(changed), null);
+            }
+            update.complete(changed, rejected);
+        }
+
+        /**
+         * Same contract as SmartDevice.accepts; views add their own field
+         */
+        boolean accepts(DeviceField field, double value) {
+            return field == DeviceField.POWER;
+        }
+
+        double readField(DeviceField field) {
+            return isOn() ? 1 : 0;
+        }
+
+        /**
+         * Raw column write; applyUpdate bumps the version once afterwards
+         */
+        void writeField(DeviceField field, double value) {
+            writeOn(handle, value != 0);
+        }
+
+        @Override
+        public String getDeviceId() {
+            return ids[handle];
+        }
+
+        @Override
+        public String getDeviceName() {
+            return names[handle];
+        }
+
+        @Override
+        public void addRole(IDeviceRole role) {
+            boolean added;
+            synchronized (lock(handle)) {
+                added = CompactDeviceStore.this.addRole(handle, role);
+                if (added) {
+                    for (DeviceListener listener : listeners.getOrDefault(handle, NO_LISTENERS)) {
+                        listener.roleAdded(this, role);
+                    }
+                }
+            }
+            if (added) {
+                EventLog.log(Level.INFO, "  ✓ ", names[handle], " gained role: ", role.getRoleName(), null);
+            } else {
+                EventLog.log(Level.WARN, "  ⚠ ", names[handle], " already has role: ", role.getRoleName(), null);
+            }
+        }
+
+        @Override
+        public void removeRole(Class<? extends IDeviceRole> roleType) {
+            IDeviceRole removed;
+            synchronized (lock(handle)) {
+                removed = CompactDeviceStore.this.removeRole(handle, roleType);
+                if (removed != null) {
+                    for (DeviceListener listener : listeners.getOrDefault(handle, NO_LISTENERS)) {
+                        listener.roleRemoved(this, removed);
+                    }
+                }
+            }
+            if (removed != null) {
+                EventLog.log(Level.INFO, "  ✓ ", names[handle], " lost role: ", roleType.getSimpleName(), null);
+            }
+        }
+
+        @Override
+        public boolean hasRole(Class<? extends IDeviceRole> roleType) {
+            return getRole(roleType) != null;
+        }
+
+        @Override
+        public IDeviceRole getRole(Class<? extends IDeviceRole> roleType) {
+            return CompactDeviceStore.this.getRole(handle, roleType);
+        }
+
+        @Override
+        public List<IDeviceRole> getAllRoles() {
+            return new RoleView(handle);
+        }
+
+        @Override
+        public void addDeviceListener(DeviceListener listener) {
+            synchronized (lock(handle)) {
+                DeviceListener[] current = listeners.getOrDefault(handle, NO_LISTENERS);
+                DeviceListener[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = listener;
+                listeners.put(handle, updated);
+            }
+        }
+
+        @Override
+        public void removeDeviceListener(DeviceListener listener) {
+            synchronized (lock(handle)) {
+                DeviceListener[] current = listeners.get(handle);
+                if (current == null) {
+                    return;
+                }
+                for (int i = 0; i < current.length; i++) {
+                    if (current[i] == listener) {
+                        if (current.length == 1) {
+                            listeners.remove(handle);
+                        } else {
+                            DeviceListener[] updated = new DeviceListener[current.length - 1];
+                            System.arraycopy(current, 0, updated, 0, i);
+                            System.arraycopy(current, i + 1, updated, i, updated.length - i);
+                            listeners.put(handle, updated);
+                        }
+                        return;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void withLock(Runnable action) {
+            synchronized (lock(handle)) {
+                action.run();
+            }
+        }
+
+        int roleCount() {
+            return Long.bitCount(getRoleMask(handle));
+        }
+
+        /**
+         * Use a stream of the given source for this device, like SmartDevice.setRandomSource
+         */
+        public void setRandomSource(RandomSource source) {
+            randoms.put(handle, source.forKey(ids[handle]));
+        }
+
+        /**
+         * Next random value in [0, 1) from this device's stream
+         * The stream is the one a SmartDevice with the same ID would draw from
+         */
+        public double nextRandom() {
+            SplittableRandom stream = randoms.get(handle);
+            if (stream == null) {
+                stream = randoms.computeIfAbsent(handle, h -> RandomSource.getDefault().forKey(ids[h]));
+            }
+            synchronized (stream) {
+                return stream.nextDouble();
+            }
+        }
+
+        /**
+         * Notify this device's listeners that a numeric field changed
+         */
+        void fireStateChanged(DeviceField field, double oldValue, double newValue) {
+            for (DeviceListener listener : listeners.getOrDefault(handle, NO_LISTENERS)) {
+                listener.stateChanged(this, field, oldValue, newValue);
+            }
+        }
+
+        /**
+         * Notify this device's listeners that a text field changed
+         */
+        void fireTextChanged(DeviceField field, String oldValue, String newValue) {
+            for (DeviceListener listener : listeners.getOrDefault(handle, NO_LISTENERS)) {
+                listener.textChanged(this, field, oldValue, newValue);
+            }
+        }
+
+        /**
+         * Notify this device's listeners of an interaction, changed or not
+         */
+        void fireUsed() {
+            for (DeviceListener listener : listeners.getOrDefault(handle, NO_LISTENERS)) {
+                listener.deviceUsed(this);
+            }
+        }
+
+        @Override
+        public long getVersion() {
+            return CompactDeviceStore.this.getVersion(handle);
+        }
+
+        // Not cached: a String per device would undo the point of the store
+        @Override
+        public String getDeviceInfo() {
+            return StatusFormat.render(this);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof View
+                && ((View) other).store() == CompactDeviceStore.this
+                && ((View) other).handle == handle;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(CompactDeviceStore.this) * 31 + handle;
+        }
+
+        private CompactDeviceStore store() {
+            return CompactDeviceStore.this;
+        }
+    }
+
+    private static final DeviceListener[] NO_LISTENERS = new DeviceListener[0];
+
+    /**
+     * Read-only list of the roles set in a device's bitmask, in ordinal order
+     */
+    private final class RoleView extends AbstractList<IDeviceRole> implements RandomAccess {
+        private final int handle;
+
+        RoleView(int handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public IDeviceRole get(int index) {
+            long mask = getRoleMask(handle);
+            if (index < 0 || index >= Long.bitCount(mask)) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            for (int i = 0; i < index; i++) {
+                mask &= mask - 1; // clear lowest set bit
+            }
+            return role(handle, Long.numberOfTrailingZeros(mask));
+        }
+
+        @Override
+        public int size() {
+            return Long.bitCount(getRoleMask(handle));
+        }
+    }
+
+    /**
+     * Light view with the same operations as SmartLight
+     */
+    public final class LightView extends View implements ISmartLight {
+        LightView(int handle) {
+            super(handle);
+        }
+
+        public boolean setBrightness(int value) {
+            if (value >= 0 && value <= 100) {
+                synchronized (lock(handle)) {
+                    int previous = getBrightness();
+                    if (previous != value) {
+                        setBrightnessValue(handle, value);
+                        fireStateChanged(DeviceField.BRIGHTNESS, previous, value);
+                    }
+                    fireUsed();
+                }
+                EventLog.log(Level.INFO, "  ✓ ", names[handle], " brightness set to ", value, "%");
+                return true;
+            }
+            EventLog.log(Level.WARN, "  ⚠ Invalid brightness value. Must be 0-100");
+            return false;
+        }
+
+        public int getBrightness() {
+            return CompactDeviceStore.this.getBrightness(handle);
+        }
+
+        @Override
+        boolean accepts(DeviceField field, double value) {
+            return field == DeviceField.BRIGHTNESS ? value >= 0 && value <= 100 : super.accepts(field, value);
+        }
+
+        @Override
+        double readField(DeviceField field) {
+            return field == DeviceField.BRIGHTNESS ? getBrightness() : super.readField(field);
+        }
+
+        @Override
+        void writeField(DeviceField field, double value) {
+            if (field == DeviceField.BRIGHTNESS) {
+                brightness[typeSlot[handle]] = (int) value;
+            } else {
+                super.writeField(field, value);
+            }
+        }
+
+        @Override
+        public void appendTo(Appendable out) throws IOException {
+            StatusFormat.appendHeader(out, "SmartLight", ids[handle], names[handle], isOn());
+            out.append(", Brightness=");
+            StatusFormat.appendLong(out, getBrightness());
+            out.append('%');
+            StatusFormat.appendRoles(out, roleCount());
+        }
+
+        @Override
+        public void writeStatus(ByteBuffer out) {
+            DeviceStatus.put(out, DeviceStatus.TYPE_LIGHT, isOn(), false, roleCount(),
+                             getBrightness(), 0, getRoleMask(handle));
+        }
+    }
+
+    /**
+     * Thermostat view with the same operations as SmartThermostat
+     */
+    public final class ThermostatView extends View implements ISmartThermostat {
+        ThermostatView(int handle) {
+            super(handle);
+        }
+
+        public boolean setTemperature(double temperature) {
+            if (temperature >= 10.0 && temperature <= 35.0) {
+                synchronized (lock(handle)) {
+                    double previous = getTargetTemperature();
+                    if (previous != temperature) {
+                        setTargetTemperatureValue(handle, temperature);
+                        fireStateChanged(DeviceField.TARGET_TEMPERATURE, previous, temperature);
+                    }
+                }
+                EventLog.log(Level.INFO, "  ✓ ", names[handle], " target temperature set to ", temperature, "°C");
+                return true;
+            }
+            EventLog.log(Level.WARN, "  ⚠ Invalid temperature. Must be between 10°C and 35°C");
+            return false;
+        }
+
+        public double getTargetTemperature() {
+            return CompactDeviceStore.this.getTargetTemperature(handle);
+        }
+
+        public double getCurrentTemperature() {
+            return CompactDeviceStore.this.getCurrentTemperature(handle);
+        }
+
+        @Override
+        boolean accepts(DeviceField field, double value) {
+            return field == DeviceField.TARGET_TEMPERATURE
+                ? value >= 10.0 && value <= 35.0 : super.accepts(field, value);
+        }
+
+        @Override
+        double readField(DeviceField field) {
+            return field == DeviceField.TARGET_TEMPERATURE ? getTargetTemperature() : super.readField(field);
+        }
+
+        @Override
+        void writeField(DeviceField field, double value) {
+            if (field == DeviceField.TARGET_TEMPERATURE) {
+                targetTemperature[typeSlot[handle]] = value;
+            } else {
+                super.writeField(field, value);
+            }
+        }
+
+        @Override
+        public void appendTo(Appendable out) throws IOException {
+            StatusFormat.appendHeader(out, "SmartThermostat", ids[handle], names[handle], isOn());
+            out.append(", Target=");
+            StatusFormat.appendTenths(out, getTargetTemperature());
+            out.append("°C, Current=");
+            StatusFormat.appendTenths(out, getCurrentTemperature());
+            out.append("°C");
+            StatusFormat.appendRoles(out, roleCount());
+        }
+
+        @Override
+        public void writeStatus(ByteBuffer out) {
+            DeviceStatus.put(out, DeviceStatus.TYPE_THERMOSTAT, isOn(), false, roleCount(),
+                             DeviceStatus.hundredths(getTargetTemperature()),
+                             DeviceStatus.hundredths(getCurrentTemperature()), getRoleMask(handle));
+        }
+    }
+
+    /**
+     * Speaker view with the same operations as SmartSpeaker
+     */
+    public final class SpeakerView extends View implements ISmartSpeaker {
+        SpeakerView(int handle) {
+            super(handle);
+        }
+
+        public boolean setVolume(int value) {
+            if (value >= 0 && value <= 100) {
+                synchronized (lock(handle)) {
+                    int previous = getVolume();
+                    if (previous != value) {
+                        setVolumeValue(handle, value);
+                        fireStateChanged(DeviceField.VOLUME, previous, value);
+                    }
+                    fireUsed();
+                }
+                EventLog.log(Level.INFO, "  ✓ ", names[handle], " volume set to ", value, "%");
+                return true;
+            }
+            EventLog.log(Level.WARN, "  ⚠ Invalid volume. Must be 0-100");
+            return false;
+        }
+
+        public int getVolume() {
+            return CompactDeviceStore.this.getVolume(handle);
+        }
+
+        @Override
+        boolean accepts(DeviceField field, double value) {
+            return field == DeviceField.VOLUME ? value >= 0 && value <= 100 : super.accepts(field, value);
+        }
+
+        @Override
+        double readField(DeviceField field) {
+            return field == DeviceField.VOLUME ? getVolume() : super.readField(field);
+        }
+
+        @Override
+        void writeField(DeviceField field, double value) {
+            if (field == DeviceField.VOLUME) {
+                volume[typeSlot[handle]] = (int) value;
+            } else {
+                super.writeField(field, value);
+            }
+        }
+
+        public boolean playSound(String sound) {
+            boolean on;
+            synchronized (lock(handle)) {
+                on = isOn();
+                if (on) {
+                    String previous = getCurrentSound();
+                    if (!previous.equals(sound)) {
+                        currentSound[typeSlot[handle]] = sound;
+                        changed(handle);
+                        fireTextChanged(DeviceField.SOUND, previous, sound);
+                    }
+                    fireUsed();
+                }
+            }
+            if (on) {
+                if (EventLog.isEnabled(Level.INFO)) {
+                    EventLog.log(Level.INFO, "  🔊 " + names[handle] + " playing: \"" + sound + "\" at volume " + getVolume() + "%");
+                }
+                return true;
+            }
+            EventLog.log(Level.WARN, "  ⚠ ", names[handle], " is OFF. Cannot play sound.");
+            return false;
+        }
+
+        public void stopSound() {
+            synchronized (lock(handle)) {
+                String previous = getCurrentSound();
+                if (currentSound[typeSlot[handle]] != null) {
+                    currentSound[typeSlot[handle]] = null;
+                    changed(handle);
+                    fireTextChanged(DeviceField.SOUND, previous, "None");
+                }
+            }
+            EventLog.log(Level.INFO, "  ⏹️ ", names[handle], " stopped playing");
+        }
+
+        public String getCurrentSound() {
+            String sound = currentSound[slot(handle, TYPE_SPEAKER)];
+            return sound == null ? "None" : sound;
+        }
+
+        @Override
+        public void appendTo(Appendable out) throws IOException {
+            StatusFormat.appendHeader(out, "SmartSpeaker", ids[handle], names[handle], isOn());
+            out.append(", Volume=");
+            StatusFormat.appendLong(out, getVolume());
+            out.append("%, Playing='").append(getCurrentSound()).append('\'');
+            StatusFormat.appendRoles(out, roleCount());
+        }
+
+        @Override
+        public void writeStatus(ByteBuffer out) {
+            DeviceStatus.put(out, DeviceStatus.TYPE_SPEAKER, isOn(), currentSound[typeSlot[handle]] != null,
+                             roleCount(), getVolume(), 0, getRoleMask(handle));
+        }
+    }
+}
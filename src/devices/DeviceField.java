@@ -0,0 +1,14 @@
+package devices;
+
+/**
+ * Observable state fields of smart devices
+ * Numeric fields are reported as doubles; POWER uses 1 for on and 0 for off
+ */
+public enum DeviceField {
+    POWER,
+    BRIGHTNESS,
+    VOLUME,
+    TARGET_TEMPERATURE,
+    CURRENT_TEMPERATURE,
+    SOUND // reported through textChanged
+}
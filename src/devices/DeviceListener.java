@@ -0,0 +1,56 @@
+package devices;
+
+import roles.IDeviceRole;
+
+/**
+ * Listener notified when a device changes
+ * All methods have empty defaults so listeners only override what they need
+ */
+public interface DeviceListener {
+    /**
+     * Called after a role has been added to a device
+     * @param device The device that gained the role
+     * @param role The role that was added
+     */
+    default void roleAdded(ISmartDevice device, IDeviceRole role) {
+    }
+    
+    /**
+     * Called after a role has been removed from a device
+     * @param device The device that lost the role
+     * @param role The role that was removed
+     */
+    default void roleRemoved(ISmartDevice device, IDeviceRole role) {
+    }
+    
+    /**
+     * Called after a numeric field of a device changed
+     * Called while the device lock is held, so keep it short and do not
+     * call back into other devices
+     * @param device The device that changed
+     * @param field The field that changed
+     * @param oldValue Value before the change
+     * @param newValue Value after the change
+     */
+    default void stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+    }
+    
+    /**
+     * Called after a text field of a device changed
+     * @param device The device that changed
+     * @param field The field that changed
+     * @param oldValue Value before the change
+     * @param newValue Value after the change
+     */
+    default void textChanged(ISmartDevice device, DeviceField field, String oldValue, String newValue) {
+    }
+    
+    /**
+     * Called on every interaction with a device, even one that changes nothing
+     * Interactions are turnOn, setBrightness, setVolume and playSound with an
+     * accepted value; called after any change callbacks, under the device lock
+     * @param device The device that was used
+     */
+    default void deviceUsed(ISmartDevice device) {
+    }
+}
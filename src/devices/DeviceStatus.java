@@ -0,0 +1,117 @@
+package devices;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Fixed-layout binary device status, RECORD_BYTES per device
+ *
+ * Layout (buffer byte order, big-endian by default):
+ *   0  byte  type (TYPE_LIGHT, TYPE_THERMOSTAT or TYPE_SPEAKER)
+ *   1  byte  flags (FLAG_ON, FLAG_PLAYING)
+ *   2  short role count
+ *   4  int   level: brightness % for lights, volume % for speakers,
+ *            target temperature in hundredths of a degree for thermostats
+ *   8  int   current temperature in hundredths of a degree (thermostats, else 0)
+ *   12 int   reserved, written as 0
+ *   16 long  role mask (bit i = role ordinal i, see RoleSet.ordinalOf)
+ *
+ * Names, IDs and sound titles are left out so every record has the same
+ * size; record i describes the i-th device of whatever sequence was encoded.
+ */
+public final class DeviceStatus {
+    public static final int RECORD_BYTES = 24;
+    
+    // Same values as the CompactDeviceStore handle types
+    public static final byte TYPE_LIGHT = CompactDeviceStore.TYPE_LIGHT;
+    public static final byte TYPE_THERMOSTAT = CompactDeviceStore.TYPE_THERMOSTAT;
+    public static final byte TYPE_SPEAKER = CompactDeviceStore.TYPE_SPEAKER;
+    
+    public static final byte FLAG_ON = 1;
+    public static final byte FLAG_PLAYING = 2;
+    
+    private DeviceStatus() {
+    }
+    
+    // ===== Writing =====
+    
+    /**
+     * Write one record at the buffer's position; called by ISmartDevice.writeStatus
+     */
+    static void put(ByteBuffer out, byte type, boolean on, boolean playing, int roleCount,
+                    int level, int current, long roleMask) {
+        out.put(type);
+        out.put((byte) ((on ? FLAG_ON : 0) | (playing ? FLAG_PLAYING : 0)));
+        out.putShort((short) roleCount);
+        out.putInt(level);
+        out.putInt(current);
+        out.putInt(0);
+        out.putLong(roleMask);
+    }
+    
+    /**
+     * Write the status of every device, in iteration order
+     * @param devices Devices to encode
+     * @param out Buffer with at least devices.size() * RECORD_BYTES remaining
+     * @return Number of records written
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     */
+    public static int writeAll(Collection<? extends ISmartDevice> devices, ByteBuffer out) {
+        int count = 0;
+        for (ISmartDevice device : devices) {
+            device.writeStatus(out);
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * Convert a temperature to the hundredths stored in a record
+     */
+    static int hundredths(double temperature) {
+        return (int) Math.round(temperature * 100);
+    }
+    
+    // ===== Reading (absolute, offset = record start) =====
+    
+    public static byte type(ByteBuffer in, int offset) {
+        return in.get(offset);
+    }
+    
+    public static boolean isOn(ByteBuffer in, int offset) {
+        return (in.get(offset + 1) & FLAG_ON) != 0;
+    }
+    
+    public static boolean isPlaying(ByteBuffer in, int offset) {
+        return (in.get(offset + 1) & FLAG_PLAYING) != 0;
+    }
+    
+    public static int roleCount(ByteBuffer in, int offset) {
+        return Short.toUnsignedInt(in.getShort(offset + 2));
+    }
+    
+    /**
+     * Brightness or volume in percent, or target temperature in hundredths of a degree
+     */
+    public static int level(ByteBuffer in, int offset) {
+        return in.getInt(offset + 4);
+    }
+    
+    /**
+     * Current temperature in degrees (thermostats only)
+     */
+    public static double currentTemperature(ByteBuffer in, int offset) {
+        return in.getInt(offset + 8) / 100.0;
+    }
+    
+    /**
+     * Target temperature in degrees (thermostats only)
+     */
+    public static double targetTemperature(ByteBuffer in, int offset) {
+        return in.getInt(offset + 4) / 100.0;
+    }
+    
+    public static long roleMask(ByteBuffer in, int offset) {
+        return in.getLong(offset + 16);
+    }
+}
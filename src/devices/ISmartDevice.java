@@ -1,6 +1,8 @@
 package devices;
 
 import roles.IDeviceRole;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -26,12 +28,37 @@ public interface ISmartDevice {
      */
     boolean isOn();
     
+    /**
+     * Apply several field values as one change
+     * Every valid value that differs from the current one is written in a
+     * single step with one version change, and listeners hear once per
+     * changed field. Out-of-range values and fields this device does not
+     * have are rejected and leave the device unchanged; the update reports
+     * both through getChanged and getRejected.
+     * @param update Target values
+     */
+    void applyUpdate(StateUpdate update);
+    
     /**
      * Get device information as a formatted string
      * @return Device info string
      */
     String getDeviceInfo();
     
+    /**
+     * Append the same text as getDeviceInfo to a sink without building a String
+     * @param out Sink to write to
+     * @throws IOException if the sink fails
+     */
+    void appendTo(Appendable out) throws IOException;
+    
+    /**
+     * Write a fixed-size binary status record at the buffer's position
+     * See DeviceStatus for the layout
+     * @param out Buffer with at least DeviceStatus.RECORD_BYTES remaining
+     */
+    void writeStatus(ByteBuffer out);
+    
     /**
      * Get the unique device ID
      * @return Device ID
@@ -44,6 +71,13 @@ public interface ISmartDevice {
      */
     String getDeviceName();
     
+    /**
+     * Version stamp that changes on every change of state or roles
+     * Even while the device is stable; equal values mean nothing changed
+     * @return Current version
+     */
+    long getVersion();
+    
     // ===== Role Management Operations =====
     
     /**
@@ -74,7 +108,28 @@ public interface ISmartDevice {
     
     /**
      * Get all roles currently assigned to this device
-     * @return List of all roles
+     * @return Read-only view of all roles
      */
     List<IDeviceRole> getAllRoles();
+    
+    // ===== Listener Operations =====
+    
+    /**
+     * Register a listener to be notified of changes on this device
+     * @param listener The listener to add
+     */
+    void addDeviceListener(DeviceListener listener);
+    
+    /**
+     * Unregister a previously added listener
+     * @param listener The listener to remove
+     */
+    void removeDeviceListener(DeviceListener listener);
+    
+    /**
+     * Run an action under the lock this device changes and notifies listeners under
+     * No change to the device and no listener callback can interleave with it
+     * @param action The action to run; it must not wait on other threads
+     */
+    void withLock(Runnable action);
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package devices;
+
+/**
+ * Operations shared by every light, whether a SmartLight or a compact view
+ * Subsystems that only need the light's state (persistence, energy, commands)
+ * should test for this interface rather than a concrete class
+ */
+public interface ISmartLight extends ISmartDevice {
+    /**
+     * Set the brightness level
+     * @param brightness Brightness level (0-100)
+     * @return false if the value was rejected as out of range
+     */
+    boolean setBrightness(int brightness);
+    
+    /**
+     * Get current brightness level
+     * @return Current brightness (0-100)
+     */
+    int getBrightness();
+}
\ No newline at end of file
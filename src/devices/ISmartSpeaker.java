@@ -0,0 +1,37 @@
+package devices;
+
+/**
+ * Operations shared by every speaker, whether a SmartSpeaker or a compact view
+ */
+public interface ISmartSpeaker extends ISmartDevice {
+    /**
+     * Set the volume level
+     * @param volume Volume level (0-100)
+     * @return false if the value was rejected as out of range
+     */
+    boolean setVolume(int volume);
+    
+    /**
+     * Get current volume level
+     * @return Current volume (0-100)
+     */
+    int getVolume();
+    
+    /**
+     * Play a sound or message; ignored while the speaker is off
+     * @param sound Sound/message to play
+     * @return false if the speaker is off and nothing was played
+     */
+    boolean playSound(String sound);
+    
+    /**
+     * Stop playing current sound
+     */
+    void stopSound();
+    
+    /**
+     * Get the sound currently playing
+     * @return Sound name, or "None"
+     */
+    String getCurrentSound();
+}
\ No newline at end of file
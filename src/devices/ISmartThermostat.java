@@ -0,0 +1,25 @@
+package devices;
+
+/**
+ * Operations shared by every thermostat, whether a SmartThermostat or a compact view
+ */
+public interface ISmartThermostat extends ISmartDevice {
+    /**
+     * Set the target temperature
+     * @param temperature Target temperature in Celsius (10-35)
+     * @return false if the value was rejected as out of range
+     */
+    boolean setTemperature(double temperature);
+    
+    /**
+     * Get current target temperature
+     * @return Target temperature in Celsius
+     */
+    double getTargetTemperature();
+    
+    /**
+     * Get the last read room temperature
+     * @return Current temperature in Celsius
+     */
+    double getCurrentTemperature();
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package devices;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded source of independent random streams
+ *
+ * Each device (or worker) gets its own SplittableRandom derived from the
+ * seed and a stable key such as the device ID. Streams share no state, so
+ * parallel simulations never contend on a generator, and a device draws
+ * the same sequence for the same seed no matter which thread runs it or
+ * in what order devices are visited.
+ *
+ * Devices use the default source unless one is injected with
+ * SmartDevice.setRandomSource. The default is seeded from the clock;
+ * call setDefault(new RandomSource(seed)) before a run to make it reproducible.
+ */
+public final class RandomSource {
+    private static volatile RandomSource defaultSource = new RandomSource(System.nanoTime() ^ System.currentTimeMillis());
+
+    private final long seed;
+
+    /**
+     * @param seed Seed shared by every stream of this source
+     */
+    public RandomSource(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Source used by devices that were not given one
+     */
+    public static RandomSource getDefault() {
+        return defaultSource;
+    }
+
+    /**
+     * Replace the default source; affects devices that have not drawn a number yet
+     */
+    public static void setDefault(RandomSource source) {
+        defaultSource = source;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Stream for a stable key, e.g. a device ID
+     * The same seed and key always give the same stream
+     */
+    public SplittableRandom forKey(String key) {
+        long hash = 0xcbf29ce484222325L; // FNV-1a, stable across JVMs unlike String.hashCode mixing
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return new SplittableRandom(mix64(seed ^ mix64(hash)));
+    }
+
+    /**
+     * Stream for a numbered worker thread
+     */
+    public SplittableRandom forWorker(int index) {
+        return new SplittableRandom(mix64(seed + 0x9E3779B97F4A7C15L * (index + 1L)));
+    }
+
+    /**
+     * Finalizer of MurmurHash3; spreads nearby seeds so their streams do not overlap
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,72 @@
+package devices;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Text rendered from a device, reused until the device's version changes
+ * Used for descriptions that are rebuilt on every refresh (UI panels, role
+ * listings); a lookup for an unchanged device is one map read and one
+ * version comparison.
+ *
+ * Call forget when a device goes away, or the entry is kept for the life
+ * of the cache.
+ */
+public final class RenderCache {
+    /**
+     * Text and the version it was rendered at
+     */
+    private static final class Entry {
+        final long version;
+        final String text;
+        
+        Entry(long version, String text) {
+            this.version = version;
+            this.text = text;
+        }
+    }
+    
+    private final Function<? super ISmartDevice, String> renderer;
+    private final ConcurrentMap<ISmartDevice, Entry> entries = new ConcurrentHashMap<>();
+    
+    /**
+     * @param renderer Builds the text for a device; called again only after a change
+     */
+    public RenderCache(Function<? super ISmartDevice, String> renderer) {
+        this.renderer = renderer;
+    }
+    
+    /**
+     * Get the text for a device, rendering it if the device changed
+     * @param device Device to describe
+     * @return Cached or freshly rendered text
+     */
+    public String get(ISmartDevice device) {
+        long version = device.getVersion();
+        Entry entry = entries.get(device);
+        if (entry != null && entry.version == version) {
+            return entry.text;
+        }
+        String text = renderer.apply(device);
+        // Only keep text that is known to match a stable version
+        if ((version & 1) == 0 && device.getVersion() == version) {
+            entries.put(device, new Entry(version, text));
+        }
+        return text;
+    }
+    
+    /**
+     * Drop the entry for a device
+     */
+    public void forget(ISmartDevice device) {
+        entries.remove(device);
+    }
+    
+    /**
+     * Drop every entry
+     */
+    public void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,199 @@
+package devices;
+
+import roles.IDeviceRole;
+import roles.RoleRegistry;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compact role container used by SmartDevice
+ * Every role class is given a small ordinal the first time it is seen,
+ * so lookups are an array index instead of a scan over the role list.
+ * The first 64 role types are also tracked in a bitmask.
+ * Contents are copy-on-write, so lookups never lock and never see a
+ * half-applied change.
+ * Contents made only of RoleRegistry shared roles are interned: every
+ * device holding the same shared roles in the same order points at one
+ * State, and the step to the next one is cached on it, so toggling a mode
+ * across a fleet allocates nothing per device once the first has paid.
+ */
+public final class RoleSet {
+    private static final AtomicInteger NEXT_ORDINAL = new AtomicInteger();
+    private static final ClassValue<Integer> ORDINALS = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return NEXT_ORDINAL.getAndIncrement();
+        }
+    };
+    private static final IDeviceRole[] EMPTY = new IDeviceRole[0];
+    private static final ConcurrentMap<List<IDeviceRole>, State> INTERNED = new ConcurrentHashMap<>();
+    private static final State EMPTY_STATE = intern(new State(EMPTY, EMPTY, 0L, true));
+    
+    /**
+     * Immutable contents; replaced as a whole on every change
+     */
+    private static final class State {
+        final IDeviceRole[] slots;   // indexed by role ordinal
+        final IDeviceRole[] ordered; // insertion order, exact length
+        final long mask;
+        // Interned states only: added role or removed role class -> resulting interned state
+        final ConcurrentMap<Object, State> transitions;
+        
+        State(IDeviceRole[] slots, IDeviceRole[] ordered, long mask, boolean interned) {
+            this.slots = slots;
+            this.ordered = ordered;
+            this.mask = mask;
+            this.transitions = interned ? new ConcurrentHashMap<>() : null;
+        }
+    }
+    
+    private volatile State state = EMPTY_STATE;
+    private final List<IDeviceRole> view = new View();
+    
+    /**
+     * Get the ordinal assigned to a role class
+     * @param roleType Role class
+     * @return Stable ordinal for this JVM run
+     */
+    public static int ordinalOf(Class<?> roleType) {
+        return ORDINALS.get(roleType);
+    }
+    
+    /**
+     * Add a role unless a role of the same class is already present
+     * Callers serialize changes; readers never lock
+     * @return true if the role was added
+     */
+    public boolean add(IDeviceRole role) {
+        State current = state;
+        int ordinal = ordinalOf(role.getClass());
+        if (ordinal < current.slots.length && current.slots[ordinal] != null) {
+            return false;
+        }
+        if (current.transitions != null && RoleRegistry.isShared(role)) {
+            state = current.transitions.computeIfAbsent(role, key -> intern(added(current, role, ordinal, true)));
+        } else {
+            state = added(current, role, ordinal, false);
+        }
+        return true;
+    }
+    
+    private static State added(State current, IDeviceRole role, int ordinal, boolean interned) {
+        IDeviceRole[] slots = Arrays.copyOf(current.slots, Math.max(ordinal + 1, current.slots.length));
+        slots[ordinal] = role;
+        IDeviceRole[] ordered = Arrays.copyOf(current.ordered, current.ordered.length + 1);
+        ordered[current.ordered.length] = role;
+        long mask = ordinal < 64 ? current.mask | 1L << ordinal : current.mask;
+        return new State(slots, ordered, mask, interned);
+    }
+    
+    /**
+     * Remove the role of the given class
+     * Callers serialize changes; readers never lock
+     * @return The removed role, or null if none was present
+     */
+    public IDeviceRole remove(Class<? extends IDeviceRole> roleType) {
+        State current = state;
+        int ordinal = ordinalOf(roleType);
+        if (ordinal >= current.slots.length || current.slots[ordinal] == null) {
+            return null;
+        }
+        IDeviceRole removed = current.slots[ordinal];
+        if (current.transitions != null) {
+            // Every role of an interned state is shared, so the result can be interned too
+            state = current.transitions.computeIfAbsent(roleType, key -> intern(removed(current, removed, ordinal, true)));
+        } else {
+            state = removed(current, removed, ordinal, false);
+        }
+        return removed;
+    }
+    
+    private static State removed(State current, IDeviceRole removed, int ordinal, boolean interned) {
+        if (current.ordered.length == 1) {
+            return EMPTY_STATE;
+        }
+        IDeviceRole[] slots = current.slots.clone();
+        slots[ordinal] = null;
+        IDeviceRole[] ordered = new IDeviceRole[current.ordered.length - 1];
+        int next = 0;
+        for (IDeviceRole role : current.ordered) {
+            if (role != removed) {
+                ordered[next++] = role;
+            }
+        }
+        long mask = ordinal < 64 ? current.mask & ~(1L << ordinal) : current.mask;
+        return new State(slots, ordered, mask, interned);
+    }
+    
+    /**
+     * Canonical state for the given contents, so the cache stays bounded by
+     * the distinct role orderings rather than by the number of changes
+     */
+    private static State intern(State candidate) {
+        return INTERNED.computeIfAbsent(List.of(candidate.ordered), key -> candidate);
+    }
+    
+    public boolean contains(Class<? extends IDeviceRole> roleType) {
+        return get(roleType) != null;
+    }
+    
+    /**
+     * Get the role of the given class
+     * @return The role, or null if none was present
+     */
+    public IDeviceRole get(Class<? extends IDeviceRole> roleType) {
+        IDeviceRole[] slots = state.slots;
+        int ordinal = ordinalOf(roleType);
+        return ordinal < slots.length ? slots[ordinal] : null;
+    }
+    
+    public int size() {
+        return state.ordered.length;
+    }
+    
+    public boolean isEmpty() {
+        return state.ordered.length == 0;
+    }
+    
+    /**
+     * Bitmask of the role ordinals below 64 currently present
+     */
+    public long mask() {
+        return state.mask;
+    }
+    
+    /**
+     * Read-only live view of the roles in insertion order (no copy)
+     * Iteration works on the contents at the time the iterator was created
+     */
+    public List<IDeviceRole> asList() {
+        return view;
+    }
+    
+    private final class View extends AbstractList<IDeviceRole> implements RandomAccess {
+        @Override
+        public IDeviceRole get(int index) {
+            IDeviceRole[] ordered = state.ordered;
+            if (index < 0 || index >= ordered.length) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + ordered.length);
+            }
+            return ordered[index];
+        }
+        
+        @Override
+        public int size() {
+            return state.ordered.length;
+        }
+        
+        @Override
+        public Iterator<IDeviceRole> iterator() {
+            return Arrays.asList(state.ordered).iterator();
+        }
+    }
+}
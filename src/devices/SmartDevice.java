@@ -1,18 +1,58 @@
 package devices;
 
 import roles.IDeviceRole;
-import java.util.ArrayList;
+import logging.EventLog;
+import logging.Level;
+import java.util.Arrays;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Abstract base class for all smart home devices
  * Implements common functionality and role management
+ *
+ * Thread safety: mutators run under a lock taken from a shared stripe table
+ * and bump a version stamp (odd while a write is in progress). Readers never
+ * lock; multi-field reads such as getDeviceInfo retry until they observe a
+ * stable even version. Writes that leave a value as it was neither bump the
+ * version nor notify listeners.
  */
 public abstract class SmartDevice implements ISmartDevice {
-    protected String deviceId;
-    protected String deviceName;
-    protected boolean isOn;
-    protected List<IDeviceRole> roles;
+    private static final int LOCK_STRIPES = 64; // power of two
+    private static final Object[] STRIPES = new Object[LOCK_STRIPES];
+    static {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            STRIPES[i] = new Object();
+        }
+    }
+    
+    protected final String deviceId;
+    protected final String deviceName;
+    protected volatile boolean isOn;
+    protected final RoleSet roles;
+    protected final Object lock; // guards all mutations of this device
+    private volatile long version;
+    private volatile CachedInfo cachedInfo; // getDeviceInfo text for one version
+    private volatile SplittableRandom random; // created on first draw; draws lock the stream itself
+    
+    /**
+     * Info text and the version it was rendered at
+     */
+    private static final class CachedInfo {
+        final long version;
+        final String text;
+        
+        CachedInfo(long version, String text) {
+            this.version = version;
+            this.text = text;
+        }
+    }
+    
+    private static final AtomicReferenceFieldUpdater<SmartDevice, SplittableRandom> RANDOM =
+        AtomicReferenceFieldUpdater.newUpdater(SmartDevice.class, SplittableRandom.class, "random");
+    private static final DeviceListener[] NO_LISTENERS = new DeviceListener[0];
+    private volatile DeviceListener[] listeners = NO_LISTENERS; // copy-on-write, iterated without locking
     
     /**
      * Constructor for SmartDevice
@@ -23,21 +63,112 @@ public abstract class SmartDevice implements ISmartDevice {
         this.deviceId = deviceId;
         this.deviceName = deviceName;
         this.isOn = false;
-        this.roles = new ArrayList<>();
+        this.roles = new RoleSet();
+        this.lock = STRIPES[(deviceId.hashCode() * 0x9E3779B9 >>> 16) & (LOCK_STRIPES - 1)];
+    }
+    
+    // ===== Versioning =====
+    
+    /**
+     * Version stamp, incremented twice by every mutation
+     * An unchanged even value means the device state has not changed
+     * @return Current version
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Mark the start of a mutation; must be called while holding lock
+     */
+    protected final void beginWrite() {
+        version++;
+    }
+    
+    /**
+     * Mark the end of a mutation; must be called while holding lock
+     */
+    protected final void endWrite() {
+        version++;
+    }
+    
+    /**
+     * Start an optimistic read, waiting out any write in progress
+     * @return Version to pass to validateRead
+     */
+    protected final long beginRead() {
+        long stamp = version;
+        while ((stamp & 1) != 0) {
+            Thread.onSpinWait();
+            stamp = version;
+        }
+        return stamp;
+    }
+    
+    /**
+     * Check that no write happened since beginRead
+     * @param stamp Value returned by beginRead
+     * @return true if the fields read in between are consistent
+     */
+    protected final boolean validateRead(long stamp) {
+        return version == stamp;
+    }
+    
+    // ===== Randomness =====
+    
+    /**
+     * Give the device its own stream from a source, keyed by device ID
+     * @param source Source to draw from; the same seed replays the same values
+     */
+    public void setRandomSource(RandomSource source) {
+        random = source.forKey(deviceId);
+    }
+    
+    /**
+     * Next random value in [0, 1) from this device's stream
+     * Used by simulations and roles in place of Math.random.
+     * Draws lock only this device's stream, never the shared stripe lock,
+     * so they neither wait for nor hold up mutations of other devices
+     */
+    public double nextRandom() {
+        SplittableRandom stream = random;
+        if (stream == null) {
+            RANDOM.compareAndSet(this, null, RandomSource.getDefault().forKey(deviceId));
+            stream = random;
+        }
+        synchronized (stream) {
+            return stream.nextDouble();
+        }
     }
     
     // ===== Basic Device Operations =====
     
     @Override
     public void turnOn() {
-        isOn = true;
-        System.out.println("  ✓ " + deviceName + " is now ON");
+        synchronized (lock) {
+            if (!isOn) {
+                beginWrite();
+                isOn = true;
+                endWrite();
+                fireStateChanged(DeviceField.POWER, 0, 1);
+            }
+            fireUsed();
+        }
+        EventLog.log(Level.INFO, "  ✓ ", deviceName, " is now ON");
     }
     
     @Override
     public void turnOff() {
-        isOn = false;
-        System.out.println("  ✓ " + deviceName + " is now OFF");
+        synchronized (lock) {
+            if (isOn) {
+                beginWrite();
+                isOn = false;
+                endWrite();
+                fireStateChanged(DeviceField.POWER, 1, 0);
+            }
+        }
+        EventLog.log(Level.INFO, "  ✓ ", deviceName, " is now OFF");
     }
     
     @Override
@@ -45,6 +176,64 @@ public abstract class SmartDevice implements ISmartDevice {
         return isOn;
     }
     
+    @Override
+    public void applyUpdate(StateUpdate update) {
+        long requested = update.getFields();
+        long changed = 0;
+        long rejected = 0;
+        synchronized (lock) {
+            for (long bits = requested; bits != 0; bits &= bits - 1) {
+                DeviceField field = StateUpdate.field(Long.numberOfTrailingZeros(bits));
+                double value = update.get(field);
+                if (!accepts(field, value)) {
+                    rejected |= bits & -bits;
+                } else if (readField(field) != value) {
+                    update.previous[field.ordinal()] = readField(field);
+                    changed |= bits & -bits;
+                }
+            }
+            if (changed != 0) {
+                beginWrite();
+                for (long bits = changed; bits != 0; bits &= bits - 1) {
+                    DeviceField field = StateUpdate.field(Long.numberOfTrailingZeros(bits));
+                    writeField(field, update.get(field));
+                }
+                endWrite();
+                // Settings before power, as if the setters had run in that order
+                for (long bits = changed; bits != 0; bits &= ~Long.highestOneBit(bits)) {
+                    DeviceField field = StateUpdate.field(63 - Long.numberOfLeadingZeros(bits));
+                    fireStateChanged(field, update.previous[field.ordinal()], update.get(field));
+                }
+            }
+        }
+        update.complete(changed, rejected);
+        if (changed != 0) {
+            EventLog.log(Level.INFO, "  ✓ ", deviceName, " updated, fields changed: ", Long.bitCount(changed), null);
+        }
+    }
+    
+    /**
+     * Check a value for applyUpdate; POWER is handled here, subclasses
+     * accept their own settable fields
+     */
+    protected boolean accepts(DeviceField field, double value) {
+        return field == DeviceField.POWER;
+    }
+    
+    /**
+     * Current value of a field accepted by accepts
+     */
+    protected double readField(DeviceField field) {
+        return isOn ? 1 : 0;
+    }
+    
+    /**
+     * Raw write for applyUpdate; called while holding lock inside beginWrite/endWrite
+     */
+    protected void writeField(DeviceField field, double value) {
+        isOn = value != 0;
+    }
+    
     @Override
     public String getDeviceId() {
         return deviceId;
@@ -59,44 +248,181 @@ public abstract class SmartDevice implements ISmartDevice {
     
     @Override
     public void addRole(IDeviceRole role) {
-        // Check if role already exists
-        if (!hasRole(role.getClass())) {
-            roles.add(role);
-            System.out.println("  ✓ " + deviceName + " gained role: " + role.getRoleName());
+        boolean added = false;
+        synchronized (lock) {
+            // add() refuses a second role of the same class
+            if (!roles.contains(role.getClass())) {
+                beginWrite();
+                added = roles.add(role);
+                endWrite();
+            }
+            if (added) {
+                // notified under the lock so listeners see changes in order
+                for (DeviceListener listener : listeners) {
+                    listener.roleAdded(this, role);
+                }
+            }
+        }
+        if (added) {
+            EventLog.log(Level.INFO, "  ✓ ", deviceName, " gained role: ", role.getRoleName(), null);
         } else {
-            System.out.println("  ⚠ " + deviceName + " already has role: " + role.getRoleName());
+            EventLog.log(Level.WARN, "  ⚠ ", deviceName, " already has role: ", role.getRoleName(), null);
         }
     }
     
     @Override
     public void removeRole(Class<? extends IDeviceRole> roleType) {
-        boolean removed = roles.removeIf(role -> role.getClass().equals(roleType));
-        if (removed) {
-            System.out.println("  ✓ " + deviceName + " lost role: " + roleType.getSimpleName());
+        IDeviceRole removed = null;
+        synchronized (lock) {
+            if (roles.contains(roleType)) {
+                beginWrite();
+                removed = roles.remove(roleType);
+                endWrite();
+            }
+            if (removed != null) {
+                for (DeviceListener listener : listeners) {
+                    listener.roleRemoved(this, removed);
+                }
+            }
+        }
+        if (removed != null) {
+            EventLog.log(Level.INFO, "  ✓ ", deviceName, " lost role: ", roleType.getSimpleName(), null);
         }
     }
     
     @Override
     public boolean hasRole(Class<? extends IDeviceRole> roleType) {
-        return roles.stream().anyMatch(role -> role.getClass().equals(roleType));
+        return roles.contains(roleType);
     }
     
     @Override
     public IDeviceRole getRole(Class<? extends IDeviceRole> roleType) {
-        return roles.stream()
-            .filter(role -> role.getClass().equals(roleType))
-            .findFirst()
-            .orElse(null);
+        return roles.get(roleType);
     }
     
     @Override
     public List<IDeviceRole> getAllRoles() {
-        return new ArrayList<>(roles); // Return copy to prevent external modification
+        return roles.asList(); // Read-only view, no copy
+    }
+    
+    /**
+     * Notify listeners that a numeric field changed; call while holding lock
+     */
+    protected final void fireStateChanged(DeviceField field, double oldValue, double newValue) {
+        for (DeviceListener listener : listeners) {
+            listener.stateChanged(this, field, oldValue, newValue);
+        }
+    }
+    
+    /**
+     * Notify listeners that a text field changed; call while holding lock
+     */
+    protected final void fireTextChanged(DeviceField field, String oldValue, String newValue) {
+        for (DeviceListener listener : listeners) {
+            listener.textChanged(this, field, oldValue, newValue);
+        }
+    }
+    
+    /**
+     * Notify listeners of an interaction, changed or not; call while holding lock
+     */
+    protected final void fireUsed() {
+        for (DeviceListener listener : listeners) {
+            listener.deviceUsed(this);
+        }
     }
     
     /**
-     * Abstract method - each device type must implement its own info string
+     * Add a role restored from persisted state, without logging
+     * Listeners are still notified so indexes stay consistent
+     * @param role The role to restore
      */
+    public void restoreRole(IDeviceRole role) {
+        synchronized (lock) {
+            if (roles.contains(role.getClass())) {
+                return;
+            }
+            beginWrite();
+            boolean added = roles.add(role);
+            endWrite();
+            if (added) {
+                for (DeviceListener listener : listeners) {
+                    listener.roleAdded(this, role);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Remove a role while restoring persisted state, without logging
+     * Listeners are still notified so indexes stay consistent
+     * @param roleType The class type of the role to remove
+     */
+    public void restoreRoleRemoval(Class<? extends IDeviceRole> roleType) {
+        synchronized (lock) {
+            if (!roles.contains(roleType)) {
+                return;
+            }
+            beginWrite();
+            IDeviceRole removed = roles.remove(roleType);
+            endWrite();
+            if (removed != null) {
+                for (DeviceListener listener : listeners) {
+                    listener.roleRemoved(this, removed);
+                }
+            }
+        }
+    }
+    
+    // ===== Listener Operations =====
+    
+    @Override
+    public void addDeviceListener(DeviceListener listener) {
+        synchronized (lock) {
+            DeviceListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+            updated[listeners.length] = listener;
+            listeners = updated;
+        }
+    }
+    
     @Override
-    public abstract String getDeviceInfo();
+    public void removeDeviceListener(DeviceListener listener) {
+        synchronized (lock) {
+            for (int i = 0; i < listeners.length; i++) {
+                if (listeners[i] == listener) {
+                    DeviceListener[] updated = new DeviceListener[listeners.length - 1];
+                    System.arraycopy(listeners, 0, updated, 0, i);
+                    System.arraycopy(listeners, i + 1, updated, i, updated.length - i);
+                    listeners = updated;
+                    return;
+                }
+            }
+        }
+    }
+    
+    @Override
+    public void withLock(Runnable action) {
+        synchronized (lock) {
+            action.run();
+        }
+    }
+    
+    /**
+     * Info string built from appendTo, which each device type implements
+     * Cached until the next mutation, so repeated reads of an unchanged
+     * device are a version comparison
+     */
+    @Override
+    public String getDeviceInfo() {
+        CachedInfo cached = cachedInfo;
+        if (cached != null && cached.version == version) {
+            return cached.text;
+        }
+        long stamp = beginRead();
+        String text = StatusFormat.render(this);
+        if (validateRead(stamp)) {
+            cachedInfo = new CachedInfo(stamp, text);
+        }
+        return text;
+    }
 }
\ No newline at end of file
@@ -1,10 +1,15 @@
 package devices;
 
+import logging.EventLog;
+import logging.Level;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 /**
  * Smart Light device with brightness control
  */
-public class SmartLight extends SmartDevice {
-    private int brightness; // 0-100
+public class SmartLight extends SmartDevice implements ISmartLight {
+    private volatile int brightness; // 0-100
     
     /**
      * Constructor for SmartLight
@@ -19,13 +24,57 @@ public class SmartLight extends SmartDevice {
     /**
      * Set the brightness level of the light
      * @param brightness Brightness level (0-100)
+     * @return false if the value was rejected as out of range
      */
-    public void setBrightness(int brightness) {
+    public boolean setBrightness(int brightness) {
         if (brightness >= 0 && brightness <= 100) {
-            this.brightness = brightness;
-            System.out.println("  ✓ " + deviceName + " brightness set to " + brightness + "%");
+            synchronized (lock) {
+                int previous = this.brightness;
+                if (previous != brightness) {
+                    beginWrite();
+                    this.brightness = brightness;
+                    endWrite();
+                    fireStateChanged(DeviceField.BRIGHTNESS, previous, brightness);
+                }
+                fireUsed();
+            }
+            EventLog.log(Level.INFO, "  ✓ ", deviceName, " brightness set to ", brightness, "%");
+            return true;
+        }
+        EventLog.log(Level.WARN, "  ⚠ Invalid brightness value. Must be 0-100");
+        return false;
+    }
+    
+    @Override
+    protected boolean accepts(DeviceField field, double value) {
+        return field == DeviceField.BRIGHTNESS ? value >= 0 && value <= 100 : super.accepts(field, value);
+    }
+    
+    @Override
+    protected double readField(DeviceField field) {
+        return field == DeviceField.BRIGHTNESS ? brightness : super.readField(field);
+    }
+    
+    @Override
+    protected void writeField(DeviceField field, double value) {
+        if (field == DeviceField.BRIGHTNESS) {
+            brightness = (int) value;
         } else {
-            System.out.println("  ⚠ Invalid brightness value. Must be 0-100");
+            super.writeField(field, value);
+        }
+    }
+    
+    /**
+     * Restore persisted state without validation or logging
+     * @param on Power state
+     * @param brightness Brightness level (0-100)
+     */
+    public void restoreState(boolean on, int brightness) {
+        synchronized (lock) {
+            beginWrite();
+            this.isOn = on;
+            this.brightness = brightness;
+            endWrite();
         }
     }
     
@@ -41,7 +90,7 @@ public class SmartLight extends SmartDevice {
      * Simulate flashing light (for security alerts, notifications)
      */
     public void flash() {
-        System.out.println("  💡 " + deviceName + " is FLASHING!");
+        EventLog.log(Level.INFO, "  💡 ", deviceName, " is FLASHING!");
     }
     
     /**
@@ -49,16 +98,42 @@ public class SmartLight extends SmartDevice {
      * @param color Color name
      */
     public void setColor(String color) {
-        System.out.println("  🎨 " + deviceName + " color changed to " + color);
+        EventLog.log(Level.INFO, "  🎨 ", deviceName, " color changed to ", color, null);
+    }
+    
+    @Override
+    public void appendTo(Appendable out) throws IOException {
+        boolean on;
+        int currentBrightness;
+        int roleCount;
+        long stamp;
+        do {
+            stamp = beginRead();
+            on = isOn;
+            currentBrightness = brightness;
+            roleCount = roles.size();
+        } while (!validateRead(stamp));
+        StatusFormat.appendHeader(out, "SmartLight", deviceId, deviceName, on);
+        out.append(", Brightness=");
+        StatusFormat.appendLong(out, currentBrightness);
+        out.append('%');
+        StatusFormat.appendRoles(out, roleCount);
     }
     
     @Override
-    public String getDeviceInfo() {
-        return String.format("SmartLight [ID=%s, Name='%s', Status=%s, Brightness=%d%%, Roles=%d]",
-            deviceId, 
-            deviceName, 
-            isOn ? "ON" : "OFF", 
-            brightness, 
-            roles.size());
+    public void writeStatus(ByteBuffer out) {
+        boolean on;
+        int currentBrightness;
+        int roleCount;
+        long mask;
+        long stamp;
+        do {
+            stamp = beginRead();
+            on = isOn;
+            currentBrightness = brightness;
+            roleCount = roles.size();
+            mask = roles.mask();
+        } while (!validateRead(stamp));
+        DeviceStatus.put(out, DeviceStatus.TYPE_LIGHT, on, false, roleCount, currentBrightness, 0, mask);
     }
 }
\ No newline at end of file
@@ -1,11 +1,16 @@
 package devices;
 
+import logging.EventLog;
+import logging.Level;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 /**
  * Smart Speaker device with audio control
  */
-public class SmartSpeaker extends SmartDevice {
-    private int volume; // 0-100
-    private String currentSound;
+public class SmartSpeaker extends SmartDevice implements ISmartSpeaker {
+    private volatile int volume; // 0-100
+    private volatile String currentSound;
     
     /**
      * Constructor for SmartSpeaker
@@ -21,13 +26,43 @@ public class SmartSpeaker extends SmartDevice {
     /**
      * Set the volume level
      * @param volume Volume level (0-100)
+     * @return false if the value was rejected as out of range
      */
-    public void setVolume(int volume) {
+    public boolean setVolume(int volume) {
         if (volume >= 0 && volume <= 100) {
-            this.volume = volume;
-            System.out.println("  ✓ " + deviceName + " volume set to " + volume + "%");
+            synchronized (lock) {
+                int previous = this.volume;
+                if (previous != volume) {
+                    beginWrite();
+                    this.volume = volume;
+                    endWrite();
+                    fireStateChanged(DeviceField.VOLUME, previous, volume);
+                }
+                fireUsed();
+            }
+            EventLog.log(Level.INFO, "  ✓ ", deviceName, " volume set to ", volume, "%");
+            return true;
+        }
+        EventLog.log(Level.WARN, "  ⚠ Invalid volume. Must be 0-100");
+        return false;
+    }
+    
+    @Override
+    protected boolean accepts(DeviceField field, double value) {
+        return field == DeviceField.VOLUME ? value >= 0 && value <= 100 : super.accepts(field, value);
+    }
+    
+    @Override
+    protected double readField(DeviceField field) {
+        return field == DeviceField.VOLUME ? volume : super.readField(field);
+    }
+    
+    @Override
+    protected void writeField(DeviceField field, double value) {
+        if (field == DeviceField.VOLUME) {
+            volume = (int) value;
         } else {
-            System.out.println("  ⚠ Invalid volume. Must be 0-100");
+            super.writeField(field, value);
         }
     }
     
@@ -39,25 +74,76 @@ public class SmartSpeaker extends SmartDevice {
         return volume;
     }
     
+    /**
+     * Get the sound currently playing
+     * @return Sound name, or "None"
+     */
+    public String getCurrentSound() {
+        return currentSound;
+    }
+    
+    /**
+     * Restore persisted state without validation or logging
+     * @param on Power state
+     * @param volume Volume level (0-100)
+     * @param currentSound Sound currently playing, or "None"
+     */
+    public void restoreState(boolean on, int volume, String currentSound) {
+        synchronized (lock) {
+            beginWrite();
+            this.isOn = on;
+            this.volume = volume;
+            this.currentSound = currentSound;
+            endWrite();
+        }
+    }
+    
     /**
      * Play a sound or message
      * @param sound Sound/message to play
+     * @return false if the speaker is off and nothing was played
      */
-    public void playSound(String sound) {
-        if (isOn) {
-            this.currentSound = sound;
-            System.out.println("  🔊 " + deviceName + " playing: \"" + sound + "\" at volume " + volume + "%");
+    public boolean playSound(String sound) {
+        boolean played;
+        int playedAt;
+        synchronized (lock) {
+            played = isOn;
+            playedAt = volume;
+            String previous = this.currentSound;
+            if (played && !previous.equals(sound)) {
+                beginWrite();
+                this.currentSound = sound;
+                endWrite();
+                fireTextChanged(DeviceField.SOUND, previous, sound);
+            }
+            if (played) {
+                fireUsed();
+            }
+        }
+        if (played) {
+            if (EventLog.isEnabled(Level.INFO)) {
+                EventLog.log(Level.INFO, "  🔊 " + deviceName + " playing: \"" + sound + "\" at volume " + playedAt + "%");
+            }
         } else {
-            System.out.println("  ⚠ " + deviceName + " is OFF. Cannot play sound.");
+            EventLog.log(Level.WARN, "  ⚠ ", deviceName, " is OFF. Cannot play sound.");
         }
+        return played;
     }
     
     /**
      * Stop playing current sound
      */
     public void stopSound() {
-        this.currentSound = "None";
-        System.out.println("  ⏹️ " + deviceName + " stopped playing");
+        synchronized (lock) {
+            String previous = this.currentSound;
+            if (!previous.equals("None")) {
+                beginWrite();
+                this.currentSound = "None";
+                endWrite();
+                fireTextChanged(DeviceField.SOUND, previous, "None");
+            }
+        }
+        EventLog.log(Level.INFO, "  ⏹️ ", deviceName, " stopped playing");
     }
     
     /**
@@ -79,17 +165,46 @@ public class SmartSpeaker extends SmartDevice {
      * @param message Message to announce
      */
     public void announce(String message) {
-        System.out.println("  📢 " + deviceName + " announcing: \"" + message + "\"");
+        EventLog.log(Level.INFO, "  📢 ", deviceName, " announcing: \"", message, "\"");
+    }
+    
+    @Override
+    public void appendTo(Appendable out) throws IOException {
+        boolean on;
+        int currentVolume;
+        String sound;
+        int roleCount;
+        long stamp;
+        do {
+            stamp = beginRead();
+            on = isOn;
+            currentVolume = volume;
+            sound = currentSound;
+            roleCount = roles.size();
+        } while (!validateRead(stamp));
+        StatusFormat.appendHeader(out, "SmartSpeaker", deviceId, deviceName, on);
+        out.append(", Volume=");
+        StatusFormat.appendLong(out, currentVolume);
+        out.append("%, Playing='").append(sound).append('\'');
+        StatusFormat.appendRoles(out, roleCount);
     }
     
     @Override
-    public String getDeviceInfo() {
-        return String.format("SmartSpeaker [ID=%s, Name='%s', Status=%s, Volume=%d%%, Playing='%s', Roles=%d]",
-            deviceId, 
-            deviceName, 
-            isOn ? "ON" : "OFF", 
-            volume,
-            currentSound,
-            roles.size());
+    public void writeStatus(ByteBuffer out) {
+        boolean on;
+        int currentVolume;
+        String sound;
+        int roleCount;
+        long mask;
+        long stamp;
+        do {
+            stamp = beginRead();
+            on = isOn;
+            currentVolume = volume;
+            sound = currentSound;
+            roleCount = roles.size();
+            mask = roles.mask();
+        } while (!validateRead(stamp));
+        DeviceStatus.put(out, DeviceStatus.TYPE_SPEAKER, on, !"None".equals(sound), roleCount, currentVolume, 0, mask);
     }
 }
\ No newline at end of file
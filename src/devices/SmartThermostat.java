@@ -1,11 +1,16 @@
 package devices;
 
+import logging.EventLog;
+import logging.Level;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 /**
  * Smart Thermostat device with temperature control
  */
-public class SmartThermostat extends SmartDevice {
-    private double targetTemperature; // in Celsius
-    private double currentTemperature; // simulated current temperature
+public class SmartThermostat extends SmartDevice implements ISmartThermostat {
+    private volatile double targetTemperature; // in Celsius
+    private volatile double currentTemperature; // simulated current temperature
     
     /**
      * Constructor for SmartThermostat
@@ -21,13 +26,43 @@ public class SmartThermostat extends SmartDevice {
     /**
      * Set the target temperature
      * @param temperature Target temperature in Celsius
+     * @return false if the value was rejected as out of range
      */
-    public void setTemperature(double temperature) {
+    public boolean setTemperature(double temperature) {
         if (temperature >= 10.0 && temperature <= 35.0) {
-            this.targetTemperature = temperature;
-            System.out.println("  ✓ " + deviceName + " target temperature set to " + temperature + "°C");
+            synchronized (lock) {
+                double previous = this.targetTemperature;
+                if (previous != temperature) {
+                    beginWrite();
+                    this.targetTemperature = temperature;
+                    endWrite();
+                    fireStateChanged(DeviceField.TARGET_TEMPERATURE, previous, temperature);
+                }
+            }
+            EventLog.log(Level.INFO, "  ✓ ", deviceName, " target temperature set to ", temperature, "°C");
+            return true;
+        }
+        EventLog.log(Level.WARN, "  ⚠ Invalid temperature. Must be between 10°C and 35°C");
+        return false;
+    }
+    
+    @Override
+    protected boolean accepts(DeviceField field, double value) {
+        return field == DeviceField.TARGET_TEMPERATURE
+            ? value >= 10.0 && value <= 35.0 : super.accepts(field, value);
+    }
+    
+    @Override
+    protected double readField(DeviceField field) {
+        return field == DeviceField.TARGET_TEMPERATURE ? targetTemperature : super.readField(field);
+    }
+    
+    @Override
+    protected void writeField(DeviceField field, double value) {
+        if (field == DeviceField.TARGET_TEMPERATURE) {
+            targetTemperature = value;
         } else {
-            System.out.println("  ⚠ Invalid temperature. Must be between 10°C and 35°C");
+            super.writeField(field, value);
         }
     }
     
@@ -47,33 +82,95 @@ public class SmartThermostat extends SmartDevice {
         return currentTemperature;
     }
     
+    /**
+     * Restore persisted state without validation or logging
+     * @param on Power state
+     * @param targetTemperature Target temperature in Celsius
+     * @param currentTemperature Last read temperature in Celsius
+     */
+    public void restoreState(boolean on, double targetTemperature, double currentTemperature) {
+        synchronized (lock) {
+            beginWrite();
+            this.isOn = on;
+            this.targetTemperature = targetTemperature;
+            this.currentTemperature = currentTemperature;
+            endWrite();
+        }
+    }
+    
     /**
      * Simulate reading current temperature
      */
     public void readTemperature() {
         // Simulate temperature reading (random variation)
-        currentTemperature = targetTemperature + (Math.random() * 4 - 2);
-        System.out.println("  🌡️ " + deviceName + " current temperature: " + 
-                         String.format("%.1f", currentTemperature) + "°C");
+        double reading;
+        double variation = nextRandom() * 4 - 2; // drawn before taking the stripe lock
+        synchronized (lock) {
+            double previous = currentTemperature;
+            beginWrite();
+            reading = targetTemperature + variation;
+            currentTemperature = reading;
+            endWrite();
+            fireStateChanged(DeviceField.CURRENT_TEMPERATURE, previous, reading);
+        }
+        if (EventLog.isEnabled(Level.INFO)) {
+            EventLog.log(Level.INFO, "  🌡️ ", deviceName, " current temperature: ",
+                         String.format("%.1f", reading), "°C");
+        }
     }
     
     /**
      * Enable energy-saving mode (lower temperature)
      */
     public void enableEcoMode() {
-        double ecoTemp = targetTemperature - 2.0;
-        setTemperature(ecoTemp);
-        System.out.println("  🌿 " + deviceName + " ECO mode enabled");
+        // Held across read and write so two concurrent calls lower it twice, not once
+        synchronized (lock) {
+            double ecoTemp = targetTemperature - 2.0;
+            setTemperature(ecoTemp);
+        }
+        EventLog.log(Level.INFO, "  🌿 ", deviceName, " ECO mode enabled");
+    }
+    
+    @Override
+    public void appendTo(Appendable out) throws IOException {
+        boolean on;
+        double target;
+        double current;
+        int roleCount;
+        long stamp;
+        do {
+            stamp = beginRead();
+            on = isOn;
+            target = targetTemperature;
+            current = currentTemperature;
+            roleCount = roles.size();
+        } while (!validateRead(stamp));
+        StatusFormat.appendHeader(out, "SmartThermostat", deviceId, deviceName, on);
+        out.append(", Target=");
+        StatusFormat.appendTenths(out, target);
+        out.append("°C, Current=");
+        StatusFormat.appendTenths(out, current);
+        out.append("°C");
+        StatusFormat.appendRoles(out, roleCount);
     }
     
     @Override
-    public String getDeviceInfo() {
-        return String.format("SmartThermostat [ID=%s, Name='%s', Status=%s, Target=%.1f°C, Current=%.1f°C, Roles=%d]",
-            deviceId, 
-            deviceName, 
-            isOn ? "ON" : "OFF", 
-            targetTemperature,
-            currentTemperature,
-            roles.size());
+    public void writeStatus(ByteBuffer out) {
+        boolean on;
+        double target;
+        double current;
+        int roleCount;
+        long mask;
+        long stamp;
+        do {
+            stamp = beginRead();
+            on = isOn;
+            target = targetTemperature;
+            current = currentTemperature;
+            roleCount = roles.size();
+            mask = roles.mask();
+        } while (!validateRead(stamp));
+        DeviceStatus.put(out, DeviceStatus.TYPE_THERMOSTAT, on, false, roleCount,
+                         DeviceStatus.hundredths(target), DeviceStatus.hundredths(current), mask);
     }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package devices;
+
+/**
+ * Target values for several numeric fields of one device, applied in one step
+ * See ISmartDevice.applyUpdate. After applying, the update reports which
+ * fields changed and which were rejected; the rest already had the value.
+ * Reusable through clear(); not thread-safe.
+ */
+public final class StateUpdate {
+    private static final DeviceField[] FIELDS = DeviceField.values();
+
+    private final double[] values = new double[FIELDS.length];
+    final double[] previous = new double[FIELDS.length]; // scratch for the applying device
+    private long fields;
+    private long changed;
+    private long rejected;
+
+    /**
+     * Set the target value of a field, replacing any earlier value for it
+     * POWER is stored as 1 or 0, BRIGHTNESS and VOLUME use the integer part
+     * @return this update, for chaining
+     * @throws IllegalArgumentException for SOUND, which is not numeric
+     */
+    public StateUpdate set(DeviceField field, double value) {
+        switch (field) {
+            case POWER:
+                value = value != 0 ? 1 : 0;
+                break;
+            case BRIGHTNESS:
+            case VOLUME:
+                value = (int) value;
+                break;
+            case SOUND:
+                throw new IllegalArgumentException("SOUND is not a numeric field");
+            default:
+                break;
+        }
+        values[field.ordinal()] = value;
+        fields |= 1L << field.ordinal();
+        return this;
+    }
+
+    public boolean has(DeviceField field) {
+        return (fields & (1L << field.ordinal())) != 0;
+    }
+
+    /**
+     * Target value of a field; only meaningful if has(field)
+     */
+    public double get(DeviceField field) {
+        return values[field.ordinal()];
+    }
+
+    /**
+     * Number of fields with a target value
+     */
+    public int getFieldCount() {
+        return Long.bitCount(fields);
+    }
+
+    /**
+     * Bitmask of fields with a target value, bit i = DeviceField ordinal i
+     */
+    public long getFields() {
+        return fields;
+    }
+
+    /**
+     * Fields the last apply changed
+     */
+    public long getChanged() {
+        return changed;
+    }
+
+    /**
+     * Fields the last apply rejected: out of range or not a field of the device
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Remove every target value and result so the update can be reused
+     */
+    public void clear() {
+        fields = 0;
+        changed = 0;
+        rejected = 0;
+    }
+
+    void complete(long changed, long rejected) {
+        this.changed = changed;
+        this.rejected = rejected;
+    }
+
+    static DeviceField field(int ordinal) {
+        return FIELDS[ordinal];
+    }
+}
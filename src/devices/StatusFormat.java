@@ -0,0 +1,102 @@
+package devices;
+
+import java.io.IOException;
+
+/**
+ * Helpers that render device status into an Appendable without String.format
+ * Output matches the getDeviceInfo format character for character.
+ */
+final class StatusFormat {
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+        1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+        10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L,
+        10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+    
+    private StatusFormat() {
+    }
+    
+    /**
+     * Append the common prefix: Type [ID=id, Name='name', Status=ON|OFF
+     */
+    static void appendHeader(Appendable out, String type, String id, String name, boolean on) throws IOException {
+        out.append(type).append(" [ID=").append(id)
+           .append(", Name='").append(name)
+           .append("', Status=").append(on ? "ON" : "OFF");
+    }
+    
+    /**
+     * Append the common suffix: , Roles=n]
+     */
+    static void appendRoles(Appendable out, int roleCount) throws IOException {
+        out.append(", Roles=");
+        appendLong(out, roleCount);
+        out.append(']');
+    }
+    
+    /**
+     * Append a decimal integer without creating a String
+     */
+    static void appendLong(Appendable out, long value) throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(value);
+            return;
+        }
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                out.append(Long.toString(value));
+                return;
+            }
+            out.append('-');
+            value = -value;
+        }
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        for (int i = digits - 1; i >= 0; i--) {
+            long power = POWERS_OF_TEN[i];
+            out.append((char) ('0' + value / power));
+            value %= power;
+        }
+    }
+    
+    /**
+     * Append a value with one decimal, exactly like %.1f
+     * %.1f rounds the shortest decimal form of the value half up, so 0.15
+     * gives 0.2 and 31.549999999999997 gives 31.5. Scaling by ten cannot tell
+     * those apart, so values within a hair of a half go through String.format.
+     */
+    static void appendTenths(Appendable out, double value) throws IOException {
+        if (!(Math.abs(value) < 1e9)) {
+            out.append(String.format("%.1f", value)); // NaN, infinities and huge values
+            return;
+        }
+        double scaled = Math.abs(value) * 10;
+        double fraction = scaled - Math.floor(scaled);
+        if (Math.abs(fraction - 0.5) < 1e-5) {
+            out.append(String.format("%.1f", value)); // near a half: let the formatter decide
+            return;
+        }
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            out.append('-');
+        }
+        long tenths = Math.round(scaled);
+        appendLong(out, tenths / 10);
+        out.append('.').append((char) ('0' + tenths % 10));
+    }
+    
+    /**
+     * Render a device through its appendTo method
+     */
+    static String render(ISmartDevice device) {
+        StringBuilder text = new StringBuilder(96);
+        try {
+            device.appendTo(text);
+        } catch (IOException e) {
+            throw new AssertionError("StringBuilder does not throw", e);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,18 @@
+package energy;
+
+import devices.ISmartDevice;
+
+/**
+ * One power-reducing step the LoadShedder may take on a device
+ */
+public interface Curtailment {
+    /**
+     * Watts the step would save if applied now; 0 if it would not help
+     */
+    double savedWatts(ISmartDevice device);
+
+    /**
+     * Apply the step through the device's normal setters
+     */
+    void apply(ISmartDevice device);
+}
@@ -0,0 +1,354 @@
+package energy;
+
+import devices.DeviceField;
+import devices.ISmartDevice;
+import devices.ISmartLight;
+import devices.ISmartSpeaker;
+import devices.ISmartThermostat;
+import logging.EventLog;
+import logging.Level;
+import mediator.HomeListener;
+import mediator.SmartHomeController;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Incremental energy accounting for the whole home
+ *
+ * Each device's draw comes from the PowerModel registered for its class,
+ * the nearest superclass or an interface it implements, and is
+ * re-evaluated only when the device reports a state change. Draw is
+ * piecewise constant between changes, so energy is integrated at each
+ * change and current-draw totals per device, room and home are adjusted by
+ * the difference. No query or change ever scans the fleet.
+ *
+ * Change callbacks arrive under the changing device's lock, so they take
+ * only that device's meter and update room and home totals through
+ * adders: mutations of different devices never wait for one another.
+ * A total is kept as W = sum of draws and A = sum of (energy - draw x
+ * since), so its energy at time t is A + W x t and a change only adds
+ * to both. Totals read while devices change may mix values from just
+ * before and just after a change.
+ *
+ * When applyEnergySaving runs, the draw before and after is captured in a
+ * SavingsReport.
+ */
+public class EnergyMeter implements HomeListener {
+    /** Room of devices that were never assigned one */
+    public static final String UNASSIGNED = "Unassigned";
+    private static final double MILLIS_PER_HOUR = 3_600_000.0;
+
+    private final SmartHomeController controller;
+    private final LongSupplier clock;
+    private final long start; // times are kept relative to this, so totals keep their precision
+    private final TypeTable<PowerModel> models = new TypeTable<>();
+    private final Map<String, Meter> meters = new ConcurrentHashMap<>();
+    private final Map<String, Total> rooms = new ConcurrentSkipListMap<>();
+    private final Total home = new Total();
+    // Guarded by this
+    private Map<String, Double> roomsBeforeSaving;
+    private double homeBeforeSaving;
+    private SavingsReport lastSavings;
+
+    private EnergyMeter(SmartHomeController controller, LongSupplier clock) {
+        this.controller = controller;
+        this.clock = clock;
+        this.start = clock.getAsLong();
+        models.put(ISmartLight.class, d -> lightWatts(d.isOn(), ((ISmartLight) d).getBrightness()));
+        models.put(ISmartSpeaker.class, d -> speakerWatts(d.isOn(), ((ISmartSpeaker) d).getVolume()));
+        models.put(ISmartThermostat.class, d -> heatingWatts(d.isOn(), ((ISmartThermostat) d).getTargetTemperature(),
+                                                                      ((ISmartThermostat) d).getCurrentTemperature()));
+    }
+
+    static double lightWatts(boolean on, int brightness) {
+        return PowerModel.light(on, brightness, PowerModel.LIGHT_MAX_WATTS);
+    }
+
+    static double speakerWatts(boolean on, int volume) {
+        return PowerModel.speaker(on, volume, PowerModel.SPEAKER_IDLE_WATTS, PowerModel.SPEAKER_MAX_WATTS);
+    }
+
+    static double heatingWatts(boolean on, double target, double current) {
+        return PowerModel.heating(on, target, current, PowerModel.HEATER_WATTS, PowerModel.HEATER_FULL_POWER_DELTA);
+    }
+
+    /**
+     * Start metering every device registered with the controller, now and later
+     * @param controller Controller to observe
+     * @return The meter; call detach() to stop
+     */
+    public static EnergyMeter attach(SmartHomeController controller) {
+        return attach(controller, System::currentTimeMillis);
+    }
+
+    /**
+     * @param controller Controller to observe
+     * @param clock Time source in milliseconds used for energy integration
+     */
+    public static EnergyMeter attach(SmartHomeController controller, LongSupplier clock) {
+        EnergyMeter meter = new EnergyMeter(controller, clock);
+        controller.addHomeListener(meter); // not under the meter lock: devices fire while holding their own
+        for (ISmartDevice device : controller.getAllDevices()) {
+            meter.deviceRegistered(device);
+        }
+        return meter;
+    }
+
+    /**
+     * Stop metering; totals stay readable but no longer change
+     */
+    public void detach() {
+        controller.removeHomeListener(this);
+    }
+
+    /**
+     * Use a custom power model for a device class or interface
+     * Applies to subtypes that have no model of their own. Devices already
+     * metered keep their model until they are re-registered
+     */
+    public void setPowerModel(Class<? extends ISmartDevice> deviceType, PowerModel model) {
+        models.put(deviceType, model);
+    }
+
+    /**
+     * Power model used for a device, or null if neither its class nor its supertypes have one
+     */
+    public PowerModel modelFor(ISmartDevice device) {
+        return models.get(device.getClass());
+    }
+
+    /**
+     * Put a device in a room; its draw moves to the new room's total
+     */
+    public void assignRoom(ISmartDevice device, String room) {
+        Meter meter = meters.get(device.getDeviceId());
+        if (meter == null) {
+            return;
+        }
+        synchronized (meter) {
+            if (meter.closed || meter.room.equals(room)) {
+                return;
+            }
+            long now = now();
+            room(meter.room).change(meter.watts, 0, now);
+            room(room).change(0, meter.watts, now);
+            meter.room = room;
+        }
+    }
+
+    // ===== Listener Callbacks =====
+
+    @Override
+    public void deviceRegistered(ISmartDevice device) {
+        PowerModel model = modelFor(device);
+        if (model == null || meters.containsKey(device.getDeviceId())) {
+            return; // unknown device type, or already metered
+        }
+        Meter meter = new Meter(model, UNASSIGNED, now());
+        if (meters.putIfAbsent(device.getDeviceId(), meter) == null) {
+            update(meter, device);
+        }
+    }
+
+    @Override
+    public void deviceUnregistered(ISmartDevice device) {
+        Meter meter = meters.remove(device.getDeviceId());
+        if (meter != null) {
+            synchronized (meter) {
+                set(meter, 0);
+                meter.closed = true;
+            }
+        }
+    }
+
+    @Override
+    public void stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+        Meter meter = meters.get(device.getDeviceId());
+        if (meter != null) {
+            update(meter, device);
+        }
+    }
+
+    @Override
+    public synchronized void energySavingStarted() {
+        homeBeforeSaving = home.watts();
+        roomsBeforeSaving = new HashMap<>();
+        for (Map.Entry<String, Total> room : rooms.entrySet()) {
+            roomsBeforeSaving.put(room.getKey(), room.getValue().watts());
+        }
+    }
+
+    @Override
+    public void energySavingFinished() {
+        SavingsReport report;
+        synchronized (this) {
+            if (roomsBeforeSaving == null) {
+                return;
+            }
+            Map<String, double[]> byRoom = new LinkedHashMap<>();
+            for (Map.Entry<String, Total> room : rooms.entrySet()) {
+                byRoom.put(room.getKey(), new double[] {
+                    roomsBeforeSaving.getOrDefault(room.getKey(), 0.0), room.getValue().watts()});
+            }
+            report = new SavingsReport(homeBeforeSaving, home.watts(), byRoom);
+            roomsBeforeSaving = null;
+            lastSavings = report;
+        }
+        EventLog.log(Level.INFO, "⚡ Energy: ", report, "");
+    }
+
+    /**
+     * Re-evaluate a device's draw and apply it to its room and home totals - O(1)
+     */
+    private void update(Meter meter, ISmartDevice device) {
+        synchronized (meter) {
+            if (!meter.closed) {
+                set(meter, meter.model.watts(device));
+            }
+        }
+    }
+
+    /**
+     * Caller holds the meter's monitor
+     */
+    private void set(Meter meter, double watts) {
+        long now = now();
+        double before = meter.watts;
+        meter.integrate(now);
+        meter.watts = watts;
+        room(meter.room).change(before, watts, now);
+        home.change(before, watts, now);
+    }
+
+    private Total room(String room) {
+        Total total = rooms.get(room);
+        return total != null ? total : rooms.computeIfAbsent(room, r -> new Total());
+    }
+
+    private long now() {
+        return clock.getAsLong() - start;
+    }
+
+    // ===== Queries =====
+
+    /**
+     * Current draw of one device in watts, 0 if it is not metered
+     */
+    public double getDeviceWatts(String deviceId) {
+        Meter meter = meters.get(deviceId);
+        if (meter == null) {
+            return 0;
+        }
+        synchronized (meter) {
+            return meter.watts;
+        }
+    }
+
+    /**
+     * Current draw of one room in watts
+     */
+    public double getRoomWatts(String room) {
+        Total total = rooms.get(room);
+        return total == null ? 0 : total.watts();
+    }
+
+    /**
+     * Current draw of the whole home in watts
+     */
+    public double getHomeWatts() {
+        return home.watts();
+    }
+
+    /**
+     * Energy used by one device since it was metered, in watt-hours
+     */
+    public double getDeviceEnergyWh(String deviceId) {
+        Meter meter = meters.get(deviceId);
+        if (meter == null) {
+            return 0;
+        }
+        synchronized (meter) {
+            return meter.energyWh(now());
+        }
+    }
+
+    /**
+     * Energy used by one room since metering started, in watt-hours
+     */
+    public double getRoomEnergyWh(String room) {
+        Total total = rooms.get(room);
+        return total == null ? 0 : total.energyWh(now());
+    }
+
+    /**
+     * Energy used by the home since metering started, in watt-hours
+     */
+    public double getHomeEnergyWh() {
+        return home.energyWh(now());
+    }
+
+    /**
+     * Report of the most recent applyEnergySaving run, or null if none ran
+     */
+    public synchronized SavingsReport getLastSavings() {
+        return lastSavings;
+    }
+
+    /**
+     * Running draw and energy of one device; guarded by its own monitor
+     */
+    private static final class Meter {
+        final PowerModel model;
+        String room;
+        double watts;
+        double energyWh;
+        long since; // time energyWh was last brought up to date
+        boolean closed; // unregistered; later changes are ignored
+
+        Meter(PowerModel model, String room, long since) {
+            this.model = model;
+            this.room = room;
+            this.since = since;
+        }
+
+        void integrate(long now) {
+            energyWh += watts * (now - since) / MILLIS_PER_HOUR;
+            since = now;
+        }
+
+        double energyWh(long now) {
+            return energyWh + watts * (now - since) / MILLIS_PER_HOUR;
+        }
+    }
+
+    /**
+     * Draw and energy of a room or the home, summed from device changes without a lock
+     */
+    private static final class Total {
+        private final DoubleAdder watts = new DoubleAdder();
+        private final DoubleAdder offsetWattMillis = new DoubleAdder(); // A: energy at time t is A + W x t
+
+        /**
+         * A member's draw went from before to after at time now
+         */
+        void change(double before, double after, long now) {
+            if (before != after) {
+                watts.add(after - before);
+                offsetWattMillis.add((before - after) * now);
+            }
+        }
+
+        double watts() {
+            return watts.sum();
+        }
+
+        double energyWh(long now) {
+            return (offsetWattMillis.sum() + watts.sum() * now) / MILLIS_PER_HOUR;
+        }
+    }
+}
\ No newline at end of file
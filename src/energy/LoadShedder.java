@@ -0,0 +1,321 @@
+package energy;
+
+import devices.DeviceField;
+import devices.ISmartDevice;
+import devices.ISmartLight;
+import devices.ISmartSpeaker;
+import devices.ISmartThermostat;
+import devices.SmartThermostat;
+import mediator.HomeListener;
+import mediator.SmartHomeController;
+import roles.EnergyManagementRole;
+import roles.IDeviceRole;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses which devices to curtail to keep the home under a power budget
+ *
+ * Every device holding EnergyManagementRole is a candidate, ranked by watts
+ * saved per unit of comfort cost (priority x comfort weight). Change
+ * callbacks arrive under the changing device's lock, so they only queue
+ * the device as dirty; the next plan re-ranks the dirty devices, O(log n)
+ * each, and never rescans the fleet.
+ *
+ * A plan takes the ranking greedily until the excess over the budget is
+ * covered, then drops every pick that the others already cover, least
+ * efficient first. No single reduction in the result can be left out,
+ * but the set is not guaranteed to have the lowest possible comfort
+ * cost: that is a knapsack problem, and the greedy pass keeps planning
+ * at O(k) for k reductions.
+ *
+ * Default curtailments match EnergyManagementRole: lights to 30%, speakers
+ * to 20% and thermostats to ECO mode. They are registered for the device
+ * interfaces, so compact store views are curtailed too.
+ */
+public class LoadShedder implements HomeListener {
+    private static final Comparator<Candidate> BY_SCORE = (a, b) -> {
+        int order = Double.compare(b.score, a.score); // best saving per comfort cost first
+        return order != 0 ? order : Long.compare(a.order, b.order);
+    };
+
+    private final SmartHomeController controller;
+    private final EnergyMeter meter;
+    private final TypeTable<Curtailment> curtailments = new TypeTable<>();
+    private final Map<String, Candidate> candidates = new ConcurrentHashMap<>();
+    private final Map<String, Double> comfortCosts = new ConcurrentHashMap<>();
+    private final Queue<Candidate> dirty = new ConcurrentLinkedQueue<>();
+    private final AtomicLong nextOrder = new AtomicLong();
+    // Guarded by this
+    private final TreeSet<Candidate> ranked = new TreeSet<>(BY_SCORE);
+
+    private LoadShedder(SmartHomeController controller, EnergyMeter meter) {
+        this.controller = controller;
+        this.meter = meter;
+        curtailments.put(ISmartLight.class, new Curtailment() {
+            @Override
+            public double savedWatts(ISmartDevice d) {
+                ISmartLight light = (ISmartLight) d;
+                return EnergyMeter.lightWatts(light.isOn(), light.getBrightness())
+                     - EnergyMeter.lightWatts(light.isOn(), Math.min(light.getBrightness(), 30));
+            }
+            @Override
+            public void apply(ISmartDevice d) {
+                ((ISmartLight) d).setBrightness(Math.min(((ISmartLight) d).getBrightness(), 30));
+            }
+        });
+        curtailments.put(ISmartSpeaker.class, new Curtailment() {
+            @Override
+            public double savedWatts(ISmartDevice d) {
+                ISmartSpeaker speaker = (ISmartSpeaker) d;
+                return EnergyMeter.speakerWatts(speaker.isOn(), speaker.getVolume())
+                     - EnergyMeter.speakerWatts(speaker.isOn(), Math.min(speaker.getVolume(), 20));
+            }
+            @Override
+            public void apply(ISmartDevice d) {
+                ((ISmartSpeaker) d).setVolume(Math.min(((ISmartSpeaker) d).getVolume(), 20));
+            }
+        });
+        curtailments.put(ISmartThermostat.class, new Curtailment() {
+            @Override
+            public double savedWatts(ISmartDevice d) {
+                return ecoSavedWatts((ISmartThermostat) d);
+            }
+            @Override
+            public void apply(ISmartDevice d) {
+                ISmartThermostat thermostat = (ISmartThermostat) d;
+                thermostat.setTemperature(thermostat.getTargetTemperature() - 2.0);
+            }
+        });
+        curtailments.put(SmartThermostat.class, new Curtailment() {
+            @Override
+            public double savedWatts(ISmartDevice d) {
+                return ecoSavedWatts((ISmartThermostat) d);
+            }
+            @Override
+            public void apply(ISmartDevice d) {
+                ((SmartThermostat) d).enableEcoMode(); // reads and lowers the target under the device lock
+            }
+        });
+    }
+
+    private static double ecoSavedWatts(ISmartThermostat thermostat) {
+        double target = thermostat.getTargetTemperature();
+        if (target - 2.0 < 10.0) {
+            return 0; // ECO mode would be rejected below 10°C
+        }
+        double current = thermostat.getCurrentTemperature();
+        return EnergyMeter.heatingWatts(thermostat.isOn(), target, current)
+             - EnergyMeter.heatingWatts(thermostat.isOn(), target - 2.0, current);
+    }
+
+    /**
+     * Start ranking the controller's energy-managed devices
+     * @param controller Controller to observe
+     * @param meter Meter supplying the current home draw
+     * @return The shedder; call detach() to stop
+     */
+    public static LoadShedder attach(SmartHomeController controller, EnergyMeter meter) {
+        LoadShedder shedder = new LoadShedder(controller, meter);
+        controller.addHomeListener(shedder);
+        for (ISmartDevice device : controller.getAllDevices()) {
+            if (device.hasRole(EnergyManagementRole.class)) {
+                shedder.track(device);
+            }
+        }
+        return shedder;
+    }
+
+    /**
+     * Stop tracking changes; plans made afterwards use a stale ranking
+     */
+    public void detach() {
+        controller.removeHomeListener(this);
+    }
+
+    /**
+     * Use a custom curtailment for a device class or interface
+     * Applies to subtypes that have no curtailment of their own; devices
+     * already tracked keep theirs until they are tracked again
+     */
+    public void setCurtailment(Class<? extends ISmartDevice> deviceType, Curtailment curtailment) {
+        curtailments.put(deviceType, curtailment);
+    }
+
+    /**
+     * Set how much curtailing a device costs in comfort
+     * Devices with a higher cost are curtailed later; the default cost is 1
+     * @param device Device to configure
+     * @param priority Importance of the device, 1 or more
+     * @param comfortWeight Comfort impact of its curtailment, above 0
+     */
+    public void setComfort(ISmartDevice device, int priority, double comfortWeight) {
+        if (priority < 1 || comfortWeight <= 0) {
+            throw new IllegalArgumentException("Priority must be at least 1 and comfort weight above 0");
+        }
+        comfortCosts.put(device.getDeviceId(), priority * comfortWeight);
+        Candidate candidate = candidates.get(device.getDeviceId());
+        if (candidate != null) {
+            markDirty(candidate);
+        }
+    }
+
+    // ===== Listener Callbacks =====
+
+    @Override
+    public void roleAdded(ISmartDevice device, IDeviceRole role) {
+        if (role instanceof EnergyManagementRole) {
+            track(device);
+        }
+    }
+
+    @Override
+    public void roleRemoved(ISmartDevice device, IDeviceRole role) {
+        if (role instanceof EnergyManagementRole) {
+            untrack(device);
+        }
+    }
+
+    @Override
+    public void stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+        Candidate candidate = candidates.get(device.getDeviceId());
+        if (candidate != null) {
+            markDirty(candidate);
+        }
+    }
+
+    @Override
+    public void deviceUnregistered(ISmartDevice device) {
+        untrack(device);
+    }
+
+    private void track(ISmartDevice device) {
+        Curtailment curtailment = curtailments.get(device.getClass());
+        if (curtailment == null || candidates.containsKey(device.getDeviceId())) {
+            return;
+        }
+        Candidate candidate = new Candidate(device, curtailment, nextOrder.getAndIncrement());
+        if (candidates.putIfAbsent(device.getDeviceId(), candidate) == null) {
+            markDirty(candidate);
+        }
+    }
+
+    private void untrack(ISmartDevice device) {
+        Candidate candidate = candidates.remove(device.getDeviceId());
+        if (candidate != null) {
+            candidate.removed = true;
+            markDirty(candidate);
+        }
+    }
+
+    private void markDirty(Candidate candidate) {
+        if (candidate.queued.compareAndSet(false, true)) {
+            dirty.add(candidate);
+        }
+    }
+
+    /**
+     * Re-rank every device that changed since the last call; caller holds this
+     */
+    private void refresh() {
+        Candidate candidate;
+        while ((candidate = dirty.poll()) != null) {
+            candidate.queued.set(false); // a change from here on queues it again
+            ranked.remove(candidate); // must be removed before its score changes
+            if (candidate.removed) {
+                continue;
+            }
+            candidate.saving = candidate.curtailment.savedWatts(candidate.device);
+            candidate.score = candidate.saving / comfortCosts.getOrDefault(candidate.device.getDeviceId(), 1.0);
+            if (candidate.saving > 0) {
+                ranked.add(candidate);
+            }
+        }
+    }
+
+    // ===== Planning =====
+
+    /**
+     * Pick curtailments that bring the home under budget, best saving per comfort cost first
+     * Picks that the rest already cover are dropped again, so every planned
+     * reduction is needed. If even curtailing every candidate is not enough,
+     * all of them are planned and the plan reports it is over budget
+     * @param budgetWatts Home-wide power budget in watts
+     * @return The plan; nothing is changed until execute is called
+     */
+    public synchronized SheddingPlan plan(double budgetWatts) {
+        refresh();
+        double home = meter.getHomeWatts();
+        double excess = home - budgetWatts;
+        List<Candidate> chosen = new ArrayList<>();
+        double saved = 0;
+        for (Candidate candidate : ranked) {
+            if (saved >= excess) {
+                break;
+            }
+            chosen.add(candidate);
+            saved += candidate.saving;
+        }
+        if (saved >= excess) {
+            // A later, larger saving may cover earlier picks; drop the least efficient first
+            for (int i = chosen.size() - 1; i >= 0; i--) {
+                double saving = chosen.get(i).saving;
+                if (saved - saving >= excess) {
+                    chosen.remove(i);
+                    saved -= saving;
+                }
+            }
+        }
+        List<ISmartDevice> reductions = new ArrayList<>(chosen.size());
+        for (Candidate candidate : chosen) {
+            reductions.add(candidate.device);
+        }
+        return new SheddingPlan(budgetWatts, home, home - saved, reductions);
+    }
+
+    /**
+     * Apply the curtailments of a plan
+     * Runs outside the shedder lock; each device queues itself for re-ranking as it changes
+     */
+    public void execute(SheddingPlan plan) {
+        for (ISmartDevice device : plan.getReductions()) {
+            Curtailment curtailment = curtailments.get(device.getClass());
+            if (curtailment != null) {
+                curtailment.apply(device);
+            }
+        }
+    }
+
+    /**
+     * Number of devices that could currently save power
+     */
+    public synchronized int getCandidateCount() {
+        refresh();
+        return ranked.size();
+    }
+
+    private static final class Candidate {
+        final ISmartDevice device;
+        final Curtailment curtailment;
+        final long order; // tie-breaker so equal scores stay distinct in the ranking
+        final AtomicBoolean queued = new AtomicBoolean();
+        volatile boolean removed;
+        // Guarded by the shedder
+        double saving;
+        double score;
+
+        Candidate(ISmartDevice device, Curtailment curtailment, long order) {
+            this.device = device;
+            this.curtailment = curtailment;
+            this.order = order;
+        }
+    }
+}
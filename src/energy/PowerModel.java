@@ -0,0 +1,52 @@
+package energy;
+
+import devices.ISmartDevice;
+
+/**
+ * Instantaneous power draw of a device as a function of its state
+ * Models are evaluated after every state change, so they must be cheap
+ * and must not call back into the controller.
+ */
+@FunctionalInterface
+public interface PowerModel {
+    /** Draw of any device that is switched off */
+    double STANDBY_WATTS = 0.5;
+    /** Default device ratings used by EnergyMeter and LoadShedder */
+    double LIGHT_MAX_WATTS = 9.0;
+    double SPEAKER_IDLE_WATTS = 4.0;
+    double SPEAKER_MAX_WATTS = 30.0;
+    double HEATER_WATTS = 1500.0;
+    double HEATER_FULL_POWER_DELTA = 2.0;
+
+    /**
+     * @param device Device to evaluate
+     * @return Current draw in watts
+     */
+    double watts(ISmartDevice device);
+
+    /**
+     * LED light: linear in brightness up to maxWatts
+     */
+    static double light(boolean on, int brightness, double maxWatts) {
+        return on ? STANDBY_WATTS + maxWatts * brightness / 100.0 : STANDBY_WATTS;
+    }
+
+    /**
+     * Speaker: idle amplifier draw plus a share proportional to volume
+     */
+    static double speaker(boolean on, int volume, double idleWatts, double maxWatts) {
+        return on ? idleWatts + (maxWatts - idleWatts) * volume / 100.0 : STANDBY_WATTS;
+    }
+
+    /**
+     * Thermostat-controlled heater: full power once the room is fullPowerDelta
+     * degrees below target, proportional below that, idle once at target
+     */
+    static double heating(boolean on, double target, double current, double heaterWatts, double fullPowerDelta) {
+        if (!on) {
+            return STANDBY_WATTS;
+        }
+        double demand = Math.max(0, Math.min(1, (target - current) / fullPowerDelta));
+        return 2.0 + heaterWatts * demand; // 2 W for the controller itself
+    }
+}
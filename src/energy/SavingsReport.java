@@ -0,0 +1,70 @@
+package energy;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Current draw before and after one run of applyEnergySaving
+ */
+public final class SavingsReport {
+    private final double beforeWatts;
+    private final double afterWatts;
+    private final Map<String, double[]> rooms; // room -> {before, after}
+
+    SavingsReport(double beforeWatts, double afterWatts, Map<String, double[]> rooms) {
+        this.beforeWatts = beforeWatts;
+        this.afterWatts = afterWatts;
+        this.rooms = Collections.unmodifiableMap(rooms);
+    }
+
+    public double getBeforeWatts() {
+        return beforeWatts;
+    }
+
+    public double getAfterWatts() {
+        return afterWatts;
+    }
+
+    /**
+     * Reduction in home draw; negative if the draw went up
+     */
+    public double getSavedWatts() {
+        return beforeWatts - afterWatts;
+    }
+
+    /**
+     * Reduction as a percentage of the draw before, 0 if nothing was drawn
+     */
+    public double getSavedPercent() {
+        return beforeWatts == 0 ? 0 : 100 * getSavedWatts() / beforeWatts;
+    }
+
+    /**
+     * Draw of one room before the run, 0 for unknown rooms
+     */
+    public double getRoomBeforeWatts(String room) {
+        double[] watts = rooms.get(room);
+        return watts == null ? 0 : watts[0];
+    }
+
+    /**
+     * Draw of one room after the run, 0 for unknown rooms
+     */
+    public double getRoomAfterWatts(String room) {
+        double[] watts = rooms.get(room);
+        return watts == null ? 0 : watts[1];
+    }
+
+    /**
+     * Rooms present before or after the run
+     */
+    public Iterable<String> getRooms() {
+        return rooms.keySet();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SavingsReport [before=%.1f W, after=%.1f W, saved=%.1f W (%.1f%%)]",
+            beforeWatts, afterWatts, getSavedWatts(), getSavedPercent());
+    }
+}
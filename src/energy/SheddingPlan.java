@@ -0,0 +1,60 @@
+package energy;
+
+import devices.ISmartDevice;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Devices the LoadShedder chose to curtail to bring the home under a power budget
+ */
+public final class SheddingPlan {
+    private final double budgetWatts;
+    private final double homeWatts;
+    private final double projectedWatts;
+    private final List<ISmartDevice> reductions;
+
+    SheddingPlan(double budgetWatts, double homeWatts, double projectedWatts, List<ISmartDevice> reductions) {
+        this.budgetWatts = budgetWatts;
+        this.homeWatts = homeWatts;
+        this.projectedWatts = projectedWatts;
+        this.reductions = Collections.unmodifiableList(reductions);
+    }
+
+    public double getBudgetWatts() {
+        return budgetWatts;
+    }
+
+    /**
+     * Home draw when the plan was made
+     */
+    public double getHomeWatts() {
+        return homeWatts;
+    }
+
+    /**
+     * Expected home draw once every reduction is applied
+     */
+    public double getProjectedWatts() {
+        return projectedWatts;
+    }
+
+    /**
+     * Devices to curtail, most saving per unit of comfort first
+     */
+    public List<ISmartDevice> getReductions() {
+        return reductions;
+    }
+
+    /**
+     * Whether the reductions are enough to meet the budget
+     */
+    public boolean isWithinBudget() {
+        return projectedWatts <= budgetWatts;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SheddingPlan [budget=%.1f W, home=%.1f W, projected=%.1f W, reductions=%d%s]",
+            budgetWatts, homeWatts, projectedWatts, reductions.size(), isWithinBudget() ? "" : ", over budget");
+    }
+}
@@ -0,0 +1,67 @@
+package energy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Values registered per device class or interface, looked up for concrete classes
+ * A lookup takes the exact class, then the nearest superclass, then the
+ * interfaces of the class and its superclasses, nearest first - the order
+ * RoleDispatch resolves handlers in. Results are cached per class until
+ * the next registration. Thread-safe.
+ */
+final class TypeTable<V> {
+    private static final Object NONE = new Object();
+
+    private final Map<Class<?>, V> registered = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Object> resolved = new ConcurrentHashMap<>();
+
+    void put(Class<?> type, V value) {
+        registered.put(type, value);
+        resolved.clear();
+    }
+
+    /**
+     * Value for a concrete class, or null if neither it nor a supertype has one
+     */
+    @SuppressWarnings("unchecked")
+    V get(Class<?> type) {
+        Object value = resolved.get(type);
+        if (value == null) {
+            value = resolved.computeIfAbsent(type, this::resolve);
+        }
+        return value == NONE ? null : (V) value;
+    }
+
+    private Object resolve(Class<?> concrete) {
+        for (Class<?> type = concrete; type != null; type = type.getSuperclass()) {
+            V value = registered.get(type);
+            if (value != null) {
+                return value;
+            }
+        }
+        for (Class<?> type = concrete; type != null; type = type.getSuperclass()) {
+            V value = resolveInterfaces(type.getInterfaces());
+            if (value != null) {
+                return value;
+            }
+        }
+        return NONE;
+    }
+
+    private V resolveInterfaces(Class<?>[] contracts) {
+        for (Class<?> contract : contracts) {
+            V value = registered.get(contract);
+            if (value != null) {
+                return value;
+            }
+        }
+        for (Class<?> contract : contracts) {
+            V value = resolveInterfaces(contract.getInterfaces());
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,151 @@
+package events;
+
+import devices.DeviceField;
+import devices.ISmartDevice;
+import mediator.Scenario;
+import roles.IDeviceRole;
+
+/**
+ * One change to one device, as delivered by DeviceEventBus
+ * Which accessors are meaningful depends on the kind:
+ *   STATE_CHANGED   field, oldValue, newValue
+ *   TEXT_CHANGED    field, oldText, newText
+ *   ROLE_ADDED      role
+ *   ROLE_REMOVED    role
+ *   REGISTERED, UNREGISTERED   device only
+ *   SCENARIO_APPLIED   scenario; home-level, so getDevice() is null
+ */
+public final class DeviceEvent {
+    /**
+     * What changed
+     */
+    public enum Kind {
+        STATE_CHANGED,
+        TEXT_CHANGED,
+        ROLE_ADDED,
+        ROLE_REMOVED,
+        REGISTERED,
+        UNREGISTERED,
+        SCENARIO_APPLIED
+    }
+
+    private final Kind kind;
+    private final ISmartDevice device;
+    private final DeviceField field;
+    private final double oldValue;
+    private final double newValue;
+    private final String oldText;
+    private final String newText;
+    private final IDeviceRole role;
+    private final Scenario scenario;
+
+    private DeviceEvent(Kind kind, ISmartDevice device, DeviceField field, double oldValue, double newValue,
+                        String oldText, String newText, IDeviceRole role, Scenario scenario) {
+        this.kind = kind;
+        this.device = device;
+        this.field = field;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+        this.oldText = oldText;
+        this.newText = newText;
+        this.role = role;
+        this.scenario = scenario;
+    }
+
+    static DeviceEvent stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+        return new DeviceEvent(Kind.STATE_CHANGED, device, field, oldValue, newValue, null, null, null, null);
+    }
+
+    static DeviceEvent textChanged(ISmartDevice device, DeviceField field, String oldText, String newText) {
+        return new DeviceEvent(Kind.TEXT_CHANGED, device, field, Double.NaN, Double.NaN, oldText, newText, null, null);
+    }
+
+    static DeviceEvent role(Kind kind, ISmartDevice device, IDeviceRole role) {
+        return new DeviceEvent(kind, device, null, Double.NaN, Double.NaN, null, null, role, null);
+    }
+
+    static DeviceEvent membership(Kind kind, ISmartDevice device) {
+        return new DeviceEvent(kind, device, null, Double.NaN, Double.NaN, null, null, null, null);
+    }
+
+    static DeviceEvent scenarioApplied(Scenario scenario) {
+        return new DeviceEvent(Kind.SCENARIO_APPLIED, null, null, Double.NaN, Double.NaN, null, null, null, scenario);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return Device that changed, or null for SCENARIO_APPLIED
+     */
+    public ISmartDevice getDevice() {
+        return device;
+    }
+
+    /**
+     * @return Changed field, or null for role and registration events
+     */
+    public DeviceField getField() {
+        return field;
+    }
+
+    /**
+     * @return Previous numeric value, NaN unless STATE_CHANGED
+     */
+    public double getOldValue() {
+        return oldValue;
+    }
+
+    /**
+     * @return New numeric value, NaN unless STATE_CHANGED
+     */
+    public double getNewValue() {
+        return newValue;
+    }
+
+    /**
+     * @return Previous text, null unless TEXT_CHANGED
+     */
+    public String getOldText() {
+        return oldText;
+    }
+
+    /**
+     * @return New text, null unless TEXT_CHANGED
+     */
+    public String getNewText() {
+        return newText;
+    }
+
+    /**
+     * @return Added or removed role, null unless ROLE_ADDED or ROLE_REMOVED
+     */
+    public IDeviceRole getRole() {
+        return role;
+    }
+
+    /**
+     * @return Applied scenario, null unless SCENARIO_APPLIED
+     */
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case STATE_CHANGED:
+                return device.getDeviceId() + " " + field + " " + oldValue + " -> " + newValue;
+            case TEXT_CHANGED:
+                return device.getDeviceId() + " " + field + " '" + oldText + "' -> '" + newText + "'";
+            case ROLE_ADDED:
+            case ROLE_REMOVED:
+                return device.getDeviceId() + " " + kind + " " + role.getRoleName();
+            case SCENARIO_APPLIED:
+                return kind + " " + scenario.getDisplayName();
+            default:
+                return device.getDeviceId() + " " + kind;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package events;
+
+import java.util.List;
+
+/**
+ * Receives the events collected since the previous tick
+ * Called from DeviceEventBus.flush on the flushing thread, without any
+ * device lock held. The list is reused after the call returns; copy it
+ * to keep events.
+ */
+@FunctionalInterface
+public interface DeviceEventBatchListener {
+    void onEvents(List<DeviceEvent> events);
+}
@@ -0,0 +1,301 @@
+package events;
+
+import devices.DeviceField;
+import devices.ISmartDevice;
+import mediator.HomeListener;
+import mediator.Scenario;
+import mediator.SmartHomeController;
+import roles.IDeviceRole;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Typed delta events for every device registered with the controller,
+ * plus the scenarios it applies
+ *
+ * Subscribers choose a filter and either immediate delivery, on the
+ * thread that made the change, or batched delivery: events are queued per
+ * subscriber and handed over as one list each time flush() is called, so
+ * a UI can redraw once per tick for everything that changed since the
+ * last one. Each batched subscriber queues at most maxPending events
+ * between flushes; further events are dropped and counted, so a bus whose
+ * flush() is never called cannot grow without bound.
+ *
+ * The subscriber table is copy-on-write and iterated as a plain array;
+ * publishing never copies or locks it. An event object is only built when
+ * at least one filter accepts it.
+ */
+public class DeviceEventBus implements HomeListener {
+    public static final int DEFAULT_MAX_PENDING = 65_536;
+
+    private static final Subscription[] NO_SUBSCRIBERS = new Subscription[0];
+
+    private final SmartHomeController controller;
+    private volatile Subscription[] subscribers = NO_SUBSCRIBERS;
+    private final Object flushLock = new Object();
+
+    /**
+     * A registered subscriber; close() to stop receiving events
+     */
+    public final class Subscription implements AutoCloseable {
+        private final DeviceEventFilter filter;
+        private final DeviceEventListener listener;       // immediate, or null
+        private final DeviceEventBatchListener batchListener; // batched, or null
+        private final int maxPending;
+        // Batched only, guarded by this: events since the last flush and the list being delivered, swapped on flush
+        private List<DeviceEvent> pending;
+        private List<DeviceEvent> spare;
+        private long dropped;
+
+        private Subscription(DeviceEventFilter filter, DeviceEventListener listener,
+                             DeviceEventBatchListener batchListener, int maxPending) {
+            this.filter = filter;
+            this.listener = listener;
+            this.batchListener = batchListener;
+            this.maxPending = maxPending;
+            if (batchListener != null) {
+                pending = new ArrayList<>();
+                spare = new ArrayList<>();
+            }
+        }
+
+        private void deliver(DeviceEvent event) {
+            if (listener != null) {
+                listener.onEvent(event);
+            } else {
+                synchronized (this) {
+                    if (pending.size() < maxPending) {
+                        pending.add(event);
+                    } else {
+                        dropped++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Hand over queued events; flushLock is held
+         */
+        private void flush() {
+            List<DeviceEvent> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = spare;
+                spare = null;
+            }
+            try {
+                batchListener.onEvents(Collections.unmodifiableList(batch));
+            } finally {
+                batch.clear();
+                synchronized (this) {
+                    spare = batch;
+                }
+            }
+        }
+
+        /**
+         * Number of events waiting for the next flush (0 for immediate subscribers)
+         */
+        public synchronized int pendingCount() {
+            return pending == null ? 0 : pending.size();
+        }
+
+        /**
+         * Events discarded because maxPending were already waiting for a flush
+         * A batched subscriber that sees this grow has missed changes and
+         * should re-read the devices it shows
+         */
+        public synchronized long droppedCount() {
+            return dropped;
+        }
+
+        @Override
+        public void close() {
+            unsubscribe(this);
+        }
+    }
+
+    private DeviceEventBus(SmartHomeController controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Start publishing events for the controller's devices
+     * @param controller Controller to observe
+     * @return The bus; call detach() to stop
+     */
+    public static DeviceEventBus attach(SmartHomeController controller) {
+        DeviceEventBus bus = new DeviceEventBus(controller);
+        controller.addHomeListener(bus);
+        return bus;
+    }
+
+    /**
+     * Stop publishing; subscriptions stay registered but receive nothing more
+     */
+    public void detach() {
+        controller.removeHomeListener(this);
+    }
+
+    // ===== Subscribing =====
+
+    /**
+     * Receive matching events as they happen
+     * @param filter Events to receive
+     * @param listener Called on the changing thread, see DeviceEventListener
+     * @return Subscription to close when done
+     */
+    public Subscription subscribe(DeviceEventFilter filter, DeviceEventListener listener) {
+        return add(new Subscription(filter, listener, null, 0));
+    }
+
+    /**
+     * Receive matching events in one list per flush(), queueing at most DEFAULT_MAX_PENDING
+     * @param filter Events to receive
+     * @param listener Called from flush(), see DeviceEventBatchListener
+     * @return Subscription to close when done
+     */
+    public Subscription subscribeBatched(DeviceEventFilter filter, DeviceEventBatchListener listener) {
+        return subscribeBatched(filter, listener, DEFAULT_MAX_PENDING);
+    }
+
+    /**
+     * Receive matching events in one list per flush()
+     * @param filter Events to receive
+     * @param listener Called from flush(), see DeviceEventBatchListener
+     * @param maxPending Events queued between flushes before new ones are dropped
+     * @return Subscription to close when done
+     */
+    public Subscription subscribeBatched(DeviceEventFilter filter, DeviceEventBatchListener listener, int maxPending) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("maxPending must be positive");
+        }
+        return add(new Subscription(filter, null, listener, maxPending));
+    }
+
+    private synchronized Subscription add(Subscription subscription) {
+        Subscription[] current = subscribers;
+        Subscription[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = subscription;
+        subscribers = updated;
+        return subscription;
+    }
+
+    private synchronized void unsubscribe(Subscription subscription) {
+        Subscription[] current = subscribers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                Subscription[] updated = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, updated.length - i);
+                subscribers = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Deliver everything queued for batched subscribers since the last flush
+     * Meant to be called once per tick, e.g. from a Swing timer or the
+     * Scheduler; batches are delivered on the calling thread
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            for (Subscription subscription : subscribers) {
+                if (subscription.batchListener != null) {
+                    subscription.flush();
+                }
+            }
+        }
+    }
+
+    // ===== Publishing (HomeListener) =====
+
+    @Override
+    public void stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+        DeviceEvent event = null;
+        for (Subscription subscription : subscribers) {
+            if (subscription.filter.accepts(DeviceEvent.Kind.STATE_CHANGED, device, field)) {
+                if (event == null) {
+                    event = DeviceEvent.stateChanged(device, field, oldValue, newValue);
+                }
+                subscription.deliver(event);
+            }
+        }
+    }
+
+    @Override
+    public void textChanged(ISmartDevice device, DeviceField field, String oldValue, String newValue) {
+        DeviceEvent event = null;
+        for (Subscription subscription : subscribers) {
+            if (subscription.filter.accepts(DeviceEvent.Kind.TEXT_CHANGED, device, field)) {
+                if (event == null) {
+                    event = DeviceEvent.textChanged(device, field, oldValue, newValue);
+                }
+                subscription.deliver(event);
+            }
+        }
+    }
+
+    @Override
+    public void roleAdded(ISmartDevice device, IDeviceRole role) {
+        publishRole(DeviceEvent.Kind.ROLE_ADDED, device, role);
+    }
+
+    @Override
+    public void roleRemoved(ISmartDevice device, IDeviceRole role) {
+        publishRole(DeviceEvent.Kind.ROLE_REMOVED, device, role);
+    }
+
+    @Override
+    public void deviceRegistered(ISmartDevice device) {
+        publishMembership(DeviceEvent.Kind.REGISTERED, device);
+    }
+
+    @Override
+    public void deviceUnregistered(ISmartDevice device) {
+        publishMembership(DeviceEvent.Kind.UNREGISTERED, device);
+    }
+
+    @Override
+    public void scenarioApplied(Scenario scenario) {
+        DeviceEvent event = null;
+        for (Subscription subscription : subscribers) {
+            if (subscription.filter.accepts(DeviceEvent.Kind.SCENARIO_APPLIED, null, null)) {
+                if (event == null) {
+                    event = DeviceEvent.scenarioApplied(scenario);
+                }
+                subscription.deliver(event);
+            }
+        }
+    }
+
+    private void publishRole(DeviceEvent.Kind kind, ISmartDevice device, IDeviceRole role) {
+        DeviceEvent event = null;
+        for (Subscription subscription : subscribers) {
+            if (subscription.filter.accepts(kind, device, null)) {
+                if (event == null) {
+                    event = DeviceEvent.role(kind, device, role);
+                }
+                subscription.deliver(event);
+            }
+        }
+    }
+
+    private void publishMembership(DeviceEvent.Kind kind, ISmartDevice device) {
+        DeviceEvent event = null;
+        for (Subscription subscription : subscribers) {
+            if (subscription.filter.accepts(kind, device, null)) {
+                if (event == null) {
+                    event = DeviceEvent.membership(kind, device);
+                }
+                subscription.deliver(event);
+            }
+        }
+    }
+}
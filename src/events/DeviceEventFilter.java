@@ -0,0 +1,58 @@
+package events;
+
+import devices.DeviceField;
+import devices.ISmartDevice;
+import java.util.EnumSet;
+
+/**
+ * Decides which events a subscriber receives
+ * Evaluated before the event object is built, so events nobody wants
+ * cost a filter call and nothing else.
+ */
+@FunctionalInterface
+public interface DeviceEventFilter {
+    /**
+     * @param kind Kind of the pending event
+     * @param device Device that changed, or null for scenario events
+     * @param field Changed field, or null for role and registration events
+     * @return true to deliver the event to this subscriber
+     */
+    boolean accepts(DeviceEvent.Kind kind, ISmartDevice device, DeviceField field);
+
+    /**
+     * Both filters must accept
+     */
+    default DeviceEventFilter and(DeviceEventFilter other) {
+        return (kind, device, field) -> accepts(kind, device, field) && other.accepts(kind, device, field);
+    }
+
+    /**
+     * Every event
+     */
+    static DeviceEventFilter all() {
+        return (kind, device, field) -> true;
+    }
+
+    /**
+     * Events of the given kinds
+     */
+    static DeviceEventFilter kinds(DeviceEvent.Kind first, DeviceEvent.Kind... rest) {
+        EnumSet<DeviceEvent.Kind> wanted = EnumSet.of(first, rest);
+        return (kind, device, field) -> wanted.contains(kind);
+    }
+
+    /**
+     * State and text changes of the given fields
+     */
+    static DeviceEventFilter fields(DeviceField first, DeviceField... rest) {
+        EnumSet<DeviceField> wanted = EnumSet.of(first, rest);
+        return (kind, device, field) -> field != null && wanted.contains(field);
+    }
+
+    /**
+     * Events of one device
+     */
+    static DeviceEventFilter device(ISmartDevice target) {
+        return (kind, device, field) -> target.equals(device);
+    }
+}
@@ -0,0 +1,11 @@
+package events;
+
+/**
+ * Receives each event as it happens
+ * Called on the thread that changed the device, while the device lock is
+ * held: keep it short and do not change other devices from here.
+ */
+@FunctionalInterface
+public interface DeviceEventListener {
+    void onEvent(DeviceEvent event);
+}
@@ -0,0 +1,641 @@
+package events;
+
+import devices.DeviceField;
+import devices.ISmartDevice;
+import logging.EventLog;
+import logging.Level;
+import mediator.HomeListener;
+import mediator.Scenario;
+import mediator.SmartHomeController;
+import roles.IDeviceRole;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reactive-streams view of the home: a Flow.Publisher of device and
+ * scenario events with per-subscriber backpressure
+ *
+ * Device callbacks run on the thread changing the device, under its lock,
+ * so they only offer the event to a bounded dispatch queue and return. A
+ * dispatch thread copies each event into every subscriber's bounded
+ * buffer according to that subscriber's OverflowPolicy, and deliveries run
+ * on an executor, serially per subscriber and only against requested
+ * demand. BLOCK subscriptions get their own inbox and feeder thread, and
+ * only that feeder ever waits for room. A slow subscriber therefore delays
+ * nobody but itself: triggerSecurityAlert and every other mutator finish
+ * at full speed, and other subscribers keep receiving events. If the
+ * dispatch queue itself fills up, new events are dropped and counted in
+ * getQueueOverflows.
+ */
+public class HomeEventPublisher implements Flow.Publisher<DeviceEvent>, HomeListener, AutoCloseable {
+    public static final int DEFAULT_BUFFER_CAPACITY = 256;
+    public static final int DEFAULT_QUEUE_CAPACITY = 16_384;
+
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+    private static final AtomicInteger PUBLISHER_IDS = new AtomicInteger();
+
+    private final SmartHomeController controller;
+    private final BlockingQueue<DeviceEvent> queue;
+    private final int queueCapacity;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor; // null when the caller supplied one
+    private final Thread dispatcher;
+    private volatile Subscription[] subscriptions = NO_SUBSCRIPTIONS;
+    private volatile boolean closed;
+    private final LongAdder queueOverflows = new LongAdder();
+
+    private HomeEventPublisher(SmartHomeController controller, int queueCapacity, Executor executor) {
+        int id = PUBLISHER_IDS.incrementAndGet();
+        this.controller = controller;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.queueCapacity = queueCapacity;
+        if (executor == null) {
+            AtomicInteger threads = new AtomicInteger();
+            ownedExecutor = Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "home-events-" + id + "-delivery-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor = ownedExecutor;
+        } else {
+            ownedExecutor = null;
+            this.executor = executor;
+        }
+        this.dispatcher = new Thread(this::dispatchLoop, "home-events-" + id + "-dispatch");
+        dispatcher.setDaemon(true);
+    }
+
+    /**
+     * Start publishing the controller's device and scenario events
+     * @param controller Controller to observe
+     * @return The publisher; close() to complete all subscribers
+     */
+    public static HomeEventPublisher attach(SmartHomeController controller) {
+        return attach(controller, DEFAULT_QUEUE_CAPACITY, null);
+    }
+
+    /**
+     * Start publishing the controller's device and scenario events
+     * @param controller Controller to observe
+     * @param queueCapacity Events the dispatch thread may fall behind by before new ones are dropped
+     * @param executor Runs subscriber callbacks, or null for a private daemon pool
+     * @return The publisher; close() to complete all subscribers
+     */
+    public static HomeEventPublisher attach(SmartHomeController controller, int queueCapacity, Executor executor) {
+        HomeEventPublisher publisher = new HomeEventPublisher(controller, queueCapacity, executor);
+        publisher.dispatcher.start();
+        controller.addHomeListener(publisher);
+        return publisher;
+    }
+
+    // ===== Subscribing =====
+
+    /**
+     * Subscribe with a DEFAULT_BUFFER_CAPACITY buffer that drops the oldest event on overflow
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super DeviceEvent> subscriber) {
+        subscribe(subscriber, DEFAULT_BUFFER_CAPACITY, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Subscribe with an explicit buffer size and overflow policy
+     * The subscriber receives onSubscribe first and then only as many
+     * events as it requests
+     * @param subscriber Subscriber to add
+     * @param bufferCapacity Events buffered for this subscriber while it has no demand
+     * @param policy What to do when the buffer is full
+     */
+    public void subscribe(Flow.Subscriber<? super DeviceEvent> subscriber, int bufferCapacity, OverflowPolicy policy) {
+        if (bufferCapacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be positive: " + bufferCapacity);
+        }
+        Subscription subscription = new Subscription(subscriber, bufferCapacity, policy);
+        synchronized (this) {
+            for (Subscription existing : subscriptions) {
+                if (existing.subscriber == subscriber) {
+                    subscription.fail(new IllegalStateException("Already subscribed"));
+                    return;
+                }
+            }
+            if (closed) {
+                subscription.complete();
+            } else {
+                Subscription[] current = subscriptions;
+                Subscription[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = subscription;
+                subscriptions = updated;
+                subscription.start();
+            }
+        }
+        subscription.signal(); // delivers onSubscribe on the executor
+    }
+
+    private synchronized void remove(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                Subscription[] updated = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, updated.length - i);
+                subscriptions = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Number of current subscribers
+     */
+    public int getSubscriberCount() {
+        return subscriptions.length;
+    }
+
+    /**
+     * Events dropped because the dispatch thread fell a whole queue behind
+     */
+    public long getQueueOverflows() {
+        return queueOverflows.sum();
+    }
+
+    /**
+     * Stop observing the controller and complete every subscriber once its
+     * buffered events have been delivered
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        controller.removeHomeListener(this);
+        dispatcher.interrupt();
+    }
+
+    // ===== Dispatch =====
+
+    private void dispatchLoop() {
+        try {
+            while (true) {
+                dispatch(queue.take());
+            }
+        } catch (InterruptedException e) {
+            // closed; hand over what is already queued, then complete
+        }
+        DeviceEvent event;
+        while ((event = queue.poll()) != null) {
+            dispatch(event);
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.finish();
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown(); // running and queued deliveries still finish
+        }
+    }
+
+    private void dispatch(DeviceEvent event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    private void publish(DeviceEvent event) {
+        if (!queue.offer(event)) {
+            queueOverflows.increment(); // never wait here: the caller may hold a device lock
+        }
+    }
+
+    // ===== HomeListener =====
+
+    @Override
+    public void stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+        if (subscriptions.length != 0) {
+            publish(DeviceEvent.stateChanged(device, field, oldValue, newValue));
+        }
+    }
+
+    @Override
+    public void textChanged(ISmartDevice device, DeviceField field, String oldValue, String newValue) {
+        if (subscriptions.length != 0) {
+            publish(DeviceEvent.textChanged(device, field, oldValue, newValue));
+        }
+    }
+
+    @Override
+    public void roleAdded(ISmartDevice device, IDeviceRole role) {
+        if (subscriptions.length != 0) {
+            publish(DeviceEvent.role(DeviceEvent.Kind.ROLE_ADDED, device, role));
+        }
+    }
+
+    @Override
+    public void roleRemoved(ISmartDevice device, IDeviceRole role) {
+        if (subscriptions.length != 0) {
+            publish(DeviceEvent.role(DeviceEvent.Kind.ROLE_REMOVED, device, role));
+        }
+    }
+
+    @Override
+    public void deviceRegistered(ISmartDevice device) {
+        if (subscriptions.length != 0) {
+            publish(DeviceEvent.membership(DeviceEvent.Kind.REGISTERED, device));
+        }
+    }
+
+    @Override
+    public void deviceUnregistered(ISmartDevice device) {
+        if (subscriptions.length != 0) {
+            publish(DeviceEvent.membership(DeviceEvent.Kind.UNREGISTERED, device));
+        }
+    }
+
+    @Override
+    public void scenarioApplied(Scenario scenario) {
+        if (subscriptions.length != 0) {
+            publish(DeviceEvent.scenarioApplied(scenario));
+        }
+    }
+
+    // ===== Conflation =====
+
+    /**
+     * What a pending event may be merged with: same device (or scenario), kind and field
+     * Role events are told apart by role type, so adding two roles keeps both
+     */
+    private static Object conflationKey(DeviceEvent event) {
+        Object source = event.getDevice() != null ? event.getDevice() : event.getScenario();
+        Object detail = event.getRole() != null ? event.getRole().getClass() : event.getField();
+        return new ConflationKey(source, event.getKind(), detail);
+    }
+
+    /**
+     * Fold a newer event into a pending one for the same key
+     * Value changes keep the first old value and the last new value, so the
+     * merged event still spans the whole change; other kinds keep the newer event
+     */
+    private static DeviceEvent merge(DeviceEvent pending, DeviceEvent newer) {
+        switch (newer.getKind()) {
+            case STATE_CHANGED:
+                return DeviceEvent.stateChanged(newer.getDevice(), newer.getField(),
+                                                pending.getOldValue(), newer.getNewValue());
+            case TEXT_CHANGED:
+                return DeviceEvent.textChanged(newer.getDevice(), newer.getField(),
+                                               pending.getOldText(), newer.getNewText());
+            default:
+                return newer;
+        }
+    }
+
+    private static final class ConflationKey {
+        private final Object source;
+        private final DeviceEvent.Kind kind;
+        private final Object detail; // field, role type or null
+
+        ConflationKey(Object source, DeviceEvent.Kind kind, Object detail) {
+            this.source = source;
+            this.kind = kind;
+            this.detail = detail;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ConflationKey)) {
+                return false;
+            }
+            ConflationKey key = (ConflationKey) other;
+            return source.equals(key.source) && kind == key.kind && Objects.equals(detail, key.detail);
+        }
+
+        @Override
+        public int hashCode() {
+            return (source.hashCode() * 31 + kind.hashCode()) * 31 + Objects.hashCode(detail);
+        }
+    }
+
+    // ===== Subscription =====
+
+    /**
+     * One subscriber's buffer, demand and delivery state
+     * Subscribers can cast the Flow.Subscription they receive to read the
+     * overflow counters. Buffer and demand are guarded by the subscription's
+     * monitor; signals to the subscriber run in drain(), which the wip
+     * counter keeps to one executor task at a time.
+     */
+    public final class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super DeviceEvent> subscriber;
+        private final int capacity;
+        private final OverflowPolicy policy;
+        private final ArrayDeque<DeviceEvent> buffer;              // DROP_OLDEST and BLOCK
+        private final LinkedHashMap<Object, DeviceEvent> latest;   // CONFLATE_PER_DEVICE, see conflationKey
+        private final BlockingQueue<DeviceEvent> inbox;            // BLOCK: filled by dispatch, emptied by feeder
+        private final Thread feeder;                               // BLOCK: the only thread that waits for room
+        private final AtomicInteger wip = new AtomicInteger();
+
+        // Guarded by this
+        private long demand;
+        private boolean subscribed;  // onSubscribe delivered
+        private boolean completing;  // no more events; onComplete once the buffer is empty
+        private boolean terminated;  // cancelled, completed or failed
+        private Throwable error;
+        private long dropped;
+        private long conflated;
+
+        private Subscription(Flow.Subscriber<? super DeviceEvent> subscriber, int capacity, OverflowPolicy policy) {
+            this.subscriber = subscriber;
+            this.capacity = capacity;
+            this.policy = policy;
+            if (policy == OverflowPolicy.CONFLATE_PER_DEVICE) {
+                buffer = null;
+                latest = new LinkedHashMap<>();
+            } else {
+                buffer = new ArrayDeque<>(Math.min(capacity, 1024));
+                latest = null;
+            }
+            if (policy == OverflowPolicy.BLOCK) {
+                inbox = new ArrayBlockingQueue<>(queueCapacity);
+                feeder = new Thread(this::feedLoop, dispatcher.getName().replace("dispatch", "block-feeder"));
+                feeder.setDaemon(true);
+            } else {
+                inbox = null;
+                feeder = null;
+            }
+        }
+
+        private void start() {
+            if (feeder != null) {
+                feeder.start();
+            }
+        }
+
+        /**
+         * Buffer an event; called from the dispatch thread only, never waits
+         */
+        void offer(DeviceEvent event) {
+            if (inbox != null) {
+                if (!inbox.offer(event)) {
+                    synchronized (this) {
+                        dropped++; // even the inbox is full
+                    }
+                }
+                return;
+            }
+            synchronized (this) {
+                if (terminated || completing) {
+                    return;
+                }
+                switch (policy) {
+                    case CONFLATE_PER_DEVICE:
+                        Object key = conflationKey(event);
+                        DeviceEvent pending = latest.get(key);
+                        if (pending != null) {
+                            latest.put(key, merge(pending, event)); // replacing keeps the original position
+                            conflated++;
+                            break;
+                        }
+                        if (latest.size() == capacity) {
+                            Iterator<DeviceEvent> oldest = latest.values().iterator();
+                            oldest.next();
+                            oldest.remove();
+                            dropped++;
+                        }
+                        latest.put(key, event);
+                        break;
+                    default:
+                        if (buffer.size() == capacity) {
+                            buffer.poll();
+                            dropped++;
+                        }
+                        buffer.add(event);
+                        break;
+                }
+            }
+            signal();
+        }
+
+        /**
+         * BLOCK: move events from the inbox to the buffer, waiting for room
+         */
+        private void feedLoop() {
+            try {
+                while (true) {
+                    DeviceEvent event = inbox.take();
+                    synchronized (this) {
+                        while (buffer.size() == capacity && !terminated) {
+                            wait();
+                        }
+                        if (terminated) {
+                            return;
+                        }
+                        buffer.add(event);
+                    }
+                    signal();
+                }
+            } catch (InterruptedException e) {
+                // closing or cancelled
+            }
+            DeviceEvent event;
+            while ((event = inbox.poll()) != null) {
+                synchronized (this) {
+                    if (terminated) {
+                        return;
+                    }
+                    if (buffer.size() == capacity) {
+                        dropped++; // closing: nothing will make room any more
+                        continue;
+                    }
+                    buffer.add(event);
+                }
+            }
+            complete();
+        }
+
+        /**
+         * No more events will be offered; complete once buffered events are delivered
+         */
+        void finish() {
+            if (feeder != null) {
+                feeder.interrupt(); // the feeder completes after emptying its inbox
+            } else {
+                complete();
+            }
+        }
+
+        void complete() {
+            synchronized (this) {
+                completing = true;
+            }
+            signal();
+        }
+
+        void fail(Throwable cause) {
+            synchronized (this) {
+                error = cause;
+            }
+            signal();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    error = new IllegalArgumentException("Non-positive request: " + n);
+                } else {
+                    demand += n;
+                    if (demand < 0) {
+                        demand = Long.MAX_VALUE; // effectively unbounded
+                    }
+                }
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                terminate();
+            }
+            remove(this);
+            if (feeder != null) {
+                feeder.interrupt();
+            }
+        }
+
+        // Called with the monitor held
+        private void terminate() {
+            terminated = true;
+            if (buffer != null) {
+                buffer.clear();
+            } else {
+                latest.clear();
+            }
+            notifyAll(); // release a waiting feeder
+        }
+
+        private DeviceEvent pollLocked() {
+            if (latest != null) {
+                Iterator<DeviceEvent> first = latest.values().iterator();
+                if (!first.hasNext()) {
+                    return null;
+                }
+                DeviceEvent event = first.next();
+                first.remove();
+                return event;
+            }
+            DeviceEvent event = buffer.poll();
+            if (event != null && policy == OverflowPolicy.BLOCK) {
+                notifyAll();
+            }
+            return event;
+        }
+
+        private boolean isEmptyLocked() {
+            return latest != null ? latest.isEmpty() : buffer.isEmpty();
+        }
+
+        void signal() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    drain(); // executor shut down; finish on this thread
+                }
+            }
+        }
+
+        /**
+         * Deliver onSubscribe, then events up to demand, then a terminal signal
+         */
+        private void drain() {
+            int missed = 1;
+            do {
+                while (true) {
+                    boolean first = false;
+                    Throwable failure = null;
+                    boolean done = false;
+                    DeviceEvent event = null;
+                    synchronized (this) {
+                        if (terminated && error == null && !completing) {
+                            break; // cancelled
+                        }
+                        if (!subscribed) {
+                            subscribed = true;
+                            first = true;
+                        } else if (terminated) {
+                            break;
+                        } else if (error != null) {
+                            failure = error;
+                            terminate();
+                        } else if (demand > 0 && (event = pollLocked()) != null) {
+                            if (demand != Long.MAX_VALUE) {
+                                demand--;
+                            }
+                        } else if (completing && isEmptyLocked()) {
+                            done = true;
+                            terminate();
+                        } else {
+                            break;
+                        }
+                    }
+                    try {
+                        if (first) {
+                            subscriber.onSubscribe(this);
+                        } else if (failure != null) {
+                            remove(this);
+                            subscriber.onError(failure);
+                        } else if (done) {
+                            remove(this);
+                            subscriber.onComplete();
+                        } else {
+                            subscriber.onNext(event);
+                        }
+                    } catch (Throwable t) {
+                        // A throwing subscriber is treated as cancelled (reactive-streams rule 2.13)
+                        EventLog.log(Level.WARN, "Event subscriber failed and was cancelled: ", t, null);
+                        cancel();
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        public OverflowPolicy getPolicy() {
+            return policy;
+        }
+
+        /**
+         * Events lost to a full buffer
+         */
+        public synchronized long getDropped() {
+            return dropped;
+        }
+
+        /**
+         * Events merged into a pending event for the same device and field (CONFLATE_PER_DEVICE)
+         */
+        public synchronized long getConflated() {
+            return conflated;
+        }
+
+        /**
+         * Events buffered and not yet delivered
+         */
+        public synchronized int getBuffered() {
+            return latest != null ? latest.size() : buffer.size();
+        }
+    }
+}
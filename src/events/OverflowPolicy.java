@@ -0,0 +1,26 @@
+package events;
+
+/**
+ * What a HomeEventPublisher subscription does when its buffer is full
+ */
+public enum OverflowPolicy {
+    /**
+     * Discard the oldest buffered event to make room; counted as dropped
+     */
+    DROP_OLDEST,
+    /**
+     * Keep one pending event per device, event kind and field, in the position
+     * of the first one. Repeated changes of a field merge into one event from
+     * the first old value to the last new value; role events are kept per role
+     * type and scenario events per scenario. If the buffer still fills up with
+     * distinct keys, the oldest is dropped
+     */
+    CONFLATE_PER_DEVICE,
+    /**
+     * Lose nothing while the subscriber keeps up on average: a feeder thread
+     * for this subscription waits for room, with events queued in its inbox
+     * meanwhile. Neither the controller nor other subscribers wait; only if
+     * the inbox (the publisher's queue capacity) fills are events dropped
+     */
+    BLOCK
+}
@@ -0,0 +1,141 @@
+package logging;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous sink backed by a pre-allocated lock-free ring buffer
+ * Producers claim a slot with a CAS and copy the event into it; a single
+ * background writer renders and prints the events in batches. Publishing
+ * never blocks: when the ring is full the event is dropped and counted.
+ *
+ * Subjects and values other than strings, boxed primitives and enums are
+ * rendered when the event is published, on the caller's thread, so mutable
+ * arguments print the state they had at the call and their toString runs
+ * under whatever locks the caller holds.
+ */
+public class AsyncRingBufferSink implements EventSink {
+    private static final long IDLE_PARK_NANOS = 100_000; // 0.1 ms
+
+    private final LogEvent[] slots;
+    private final AtomicLongArray sequences; // per-slot publish sequence
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // next sequence to claim
+    private volatile long head;                       // next sequence to drain
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final PrintStream out;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * Create a sink writing to System.out
+     * @param capacity Ring size, rounded up to a power of two
+     */
+    public AsyncRingBufferSink(int capacity) {
+        this(capacity, System.out);
+    }
+
+    /**
+     * @param capacity Ring size, rounded up to a power of two
+     * @param out Stream the background writer prints to
+     */
+    public AsyncRingBufferSink(int capacity, PrintStream out) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new LogEvent[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new LogEvent();
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.out = out;
+        this.writer = new Thread(this::drainLoop, "event-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void publish(LogEvent event) {
+        // Rendered before a slot is claimed, so a slow or failing toString never stalls the writer
+        Object subject = LogEvent.render(event.subject);
+        Object value = event.valueKind == LogEvent.OBJECT_VALUE ? LogEvent.render(event.objectValue) : null;
+        while (true) {
+            long sequence = tail.get();
+            int index = (int) (sequence & mask);
+            long available = sequences.get(index);
+            if (available == sequence) {
+                if (tail.compareAndSet(sequence, sequence + 1)) {
+                    LogEvent slot = slots[index];
+                    slot.copyFrom(event);
+                    slot.subject = subject;
+                    slot.objectValue = value;
+                    sequences.lazySet(index, sequence + 1); // hand the slot to the writer
+                    return;
+                }
+            } else if (available < sequence) {
+                dropped.incrementAndGet(); // ring full - never block the caller
+                return;
+            }
+            // another producer claimed this sequence, retry
+        }
+    }
+
+    /**
+     * Number of events dropped because the ring was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void flush() {
+        long target = tail.get();
+        while (head < target && writer.isAlive()) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        flush();
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        StringBuilder batch = new StringBuilder(4096);
+        while (running || head < tail.get()) {
+            long next = head;
+            while (true) {
+                int index = (int) (next & mask);
+                if (sequences.get(index) != next + 1) {
+                    break; // not published yet
+                }
+                LogEvent event = slots[index];
+                event.appendTo(batch).append(System.lineSeparator());
+                event.clear();
+                sequences.lazySet(index, next + slots.length); // free the slot for the next lap
+                next++;
+            }
+            if (batch.length() > 0) {
+                out.print(batch);
+                batch.setLength(0);
+            }
+            if (next == head) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            } else {
+                head = next;
+            }
+        }
+        out.flush();
+    }
+}
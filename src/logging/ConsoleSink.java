@@ -0,0 +1,39 @@
+package logging;
+
+import java.io.PrintStream;
+
+/**
+ * Synchronous sink that prints each event on its own line
+ * Produces exactly the console output of the original demo
+ */
+public class ConsoleSink implements EventSink {
+    private final PrintStream out; // null means whatever System.out currently is
+    private final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(StringBuilder::new);
+    
+    /**
+     * Create a sink writing to System.out
+     */
+    public ConsoleSink() {
+        this(null);
+    }
+    
+    public ConsoleSink(PrintStream out) {
+        this.out = out;
+    }
+    
+    @Override
+    public void publish(LogEvent event) {
+        StringBuilder line = buffer.get();
+        line.setLength(0);
+        stream().println(event.appendTo(line));
+    }
+    
+    @Override
+    public void flush() {
+        stream().flush();
+    }
+    
+    private PrintStream stream() {
+        return out != null ? out : System.out;
+    }
+}
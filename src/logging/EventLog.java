@@ -0,0 +1,124 @@
+package logging;
+
+/**
+ * Level-filtered event log used by devices, roles and the controller
+ * Messages are passed as parts (text, subject, text, value, text) instead of
+ * concatenated strings. When the level is disabled a call returns after one
+ * comparison, without building strings or boxing values.
+ */
+public final class EventLog {
+    private static volatile Level threshold = Level.INFO;
+    private static volatile EventSink sink = new ConsoleSink();
+    private static final ThreadLocal<LogEvent> SCRATCH = ThreadLocal.withInitial(LogEvent::new);
+    
+    private EventLog() {
+    }
+    
+    // ===== Configuration =====
+    
+    /**
+     * Set the minimum level that reaches the sink
+     * @param level New threshold; Level.OFF disables all events
+     */
+    public static void setLevel(Level level) {
+        threshold = level;
+    }
+    
+    public static Level getLevel() {
+        return threshold;
+    }
+    
+    /**
+     * Replace the active sink; the previous sink is flushed first
+     * @param newSink Sink that receives subsequent events
+     * @return The previous sink
+     */
+    public static EventSink setSink(EventSink newSink) {
+        EventSink previous = sink;
+        previous.flush();
+        sink = newSink;
+        return previous;
+    }
+    
+    public static EventSink getSink() {
+        return sink;
+    }
+    
+    /**
+     * Check if events at a level would be published
+     * Use to guard messages that need formatting before logging
+     */
+    public static boolean isEnabled(Level level) {
+        return level.isAtLeast(threshold);
+    }
+    
+    /**
+     * Wait until the active sink has written everything accepted so far
+     */
+    public static void flush() {
+        sink.flush();
+    }
+    
+    // ===== Logging =====
+    
+    public static void log(Level level, String text) {
+        if (isEnabled(level)) {
+            LogEvent event = prepare(level, text, null, null, null);
+            event.valueKind = LogEvent.NO_VALUE;
+            publish(event);
+        }
+    }
+    
+    public static void log(Level level, String prefix, Object subject, String suffix) {
+        if (isEnabled(level)) {
+            LogEvent event = prepare(level, prefix, subject, null, suffix);
+            event.valueKind = LogEvent.NO_VALUE;
+            publish(event);
+        }
+    }
+    
+    public static void log(Level level, String prefix, Object subject, String middle, Object value, String suffix) {
+        if (isEnabled(level)) {
+            LogEvent event = prepare(level, prefix, subject, middle, suffix);
+            event.valueKind = LogEvent.OBJECT_VALUE;
+            event.objectValue = value;
+            publish(event);
+        }
+    }
+    
+    public static void log(Level level, String prefix, Object subject, String middle, long value, String suffix) {
+        if (isEnabled(level)) {
+            LogEvent event = prepare(level, prefix, subject, middle, suffix);
+            event.valueKind = LogEvent.LONG_VALUE;
+            event.longValue = value;
+            publish(event);
+        }
+    }
+    
+    public static void log(Level level, String prefix, Object subject, String middle, double value, String suffix) {
+        if (isEnabled(level)) {
+            LogEvent event = prepare(level, prefix, subject, middle, suffix);
+            event.valueKind = LogEvent.DOUBLE_VALUE;
+            event.doubleValue = value;
+            publish(event);
+        }
+    }
+    
+    // ===== Internals =====
+    
+    private static LogEvent prepare(Level level, String prefix, Object subject, String middle, String suffix) {
+        LogEvent event = SCRATCH.get();
+        event.level = level;
+        event.timestampNanos = System.nanoTime();
+        event.prefix = prefix;
+        event.subject = subject;
+        event.middle = middle;
+        event.suffix = suffix;
+        return event;
+    }
+    
+    private static void publish(LogEvent event) {
+        sink.publish(event);
+        event.clear();
+    }
+}
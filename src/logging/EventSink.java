@@ -0,0 +1,27 @@
+package logging;
+
+/**
+ * Destination for structured events
+ */
+public interface EventSink {
+    /**
+     * Accept one event
+     * The event object is reused by the caller, so implementations must copy
+     * or render it before returning
+     * @param event Event to publish
+     */
+    void publish(LogEvent event);
+    
+    /**
+     * Block until every accepted event has been written
+     */
+    default void flush() {
+    }
+    
+    /**
+     * Flush and release resources
+     */
+    default void close() {
+        flush();
+    }
+}
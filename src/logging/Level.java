@@ -0,0 +1,20 @@
+package logging;
+
+/**
+ * Severity levels for device and controller events
+ * A sink only receives events at or above the configured threshold
+ */
+public enum Level {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF; // threshold only - disables all events
+    
+    /**
+     * Check if an event at this level passes the given threshold
+     */
+    public boolean isAtLeast(Level threshold) {
+        return ordinal() >= threshold.ordinal();
+    }
+}
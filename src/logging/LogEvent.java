@@ -0,0 +1,112 @@
+package logging;
+
+/**
+ * Structured event passed from EventLog to a sink
+ * The message is kept as unrendered parts - text, subject, text, value, text -
+ * so callers never concatenate strings and sinks decide when to render.
+ * Instances are reused; a sink must copy what it needs before publish returns.
+ */
+public final class LogEvent {
+    static final byte NO_VALUE = 0;
+    static final byte OBJECT_VALUE = 1;
+    static final byte LONG_VALUE = 2;
+    static final byte DOUBLE_VALUE = 3;
+    
+    Level level;
+    long timestampNanos;
+    String prefix;
+    Object subject;
+    String middle;
+    byte valueKind;
+    Object objectValue;
+    long longValue;
+    double doubleValue;
+    String suffix;
+    
+    public Level getLevel() {
+        return level;
+    }
+    
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+    
+    /**
+     * Copy all fields from another event into this one
+     */
+    public void copyFrom(LogEvent other) {
+        level = other.level;
+        timestampNanos = other.timestampNanos;
+        prefix = other.prefix;
+        subject = other.subject;
+        middle = other.middle;
+        valueKind = other.valueKind;
+        objectValue = other.objectValue;
+        longValue = other.longValue;
+        doubleValue = other.doubleValue;
+        suffix = other.suffix;
+    }
+    
+    /**
+     * Freeze a message part that may still change
+     * Strings, boxed primitives and enums are returned as they are; anything
+     * else is rendered to a String now, on the calling thread
+     */
+    static Object render(Object part) {
+        if (part == null || part instanceof String || part instanceof Enum || part instanceof Integer
+                || part instanceof Long || part instanceof Double || part instanceof Boolean) {
+            return part;
+        }
+        return String.valueOf(part);
+    }
+    
+    /**
+     * Drop object references so a reused slot does not keep them alive
+     */
+    public void clear() {
+        prefix = null;
+        subject = null;
+        middle = null;
+        objectValue = null;
+        suffix = null;
+    }
+    
+    /**
+     * Render the human-readable message
+     * @param out Builder to append to
+     * @return the same builder
+     */
+    public StringBuilder appendTo(StringBuilder out) {
+        if (prefix != null) {
+            out.append(prefix);
+        }
+        if (subject != null) {
+            out.append(subject);
+        }
+        if (middle != null) {
+            out.append(middle);
+        }
+        switch (valueKind) {
+            case OBJECT_VALUE:
+                out.append(objectValue);
+                break;
+            case LONG_VALUE:
+                out.append(longValue);
+                break;
+            case DOUBLE_VALUE:
+                out.append(doubleValue);
+                break;
+            default:
+                break;
+        }
+        if (suffix != null) {
+            out.append(suffix);
+        }
+        return out;
+    }
+    
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+}
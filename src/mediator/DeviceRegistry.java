@@ -0,0 +1,150 @@
+package mediator;
+
+import devices.ISmartDevice;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indexed device registry used by the controller
+ * Devices are stored in a dense list and indexed by ID and by name,
+ * so register, unregister and lookup are all O(1)
+ *
+ * Safe for concurrent use: changes are serialized on the registry,
+ * lookups read concurrent maps without locking, and iteration goes over
+ * an immutable snapshot that is rebuilt lazily after the next change.
+ */
+public class DeviceRegistry {
+    // Guarded by this
+    private final List<ISmartDevice> devices = new ArrayList<>();
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final Map<String, List<ISmartDevice>> sharingName = new HashMap<>(); // registration order
+    // Written under this, read without locking
+    private final Map<String, ISmartDevice> byId = new ConcurrentHashMap<>();
+    private final Map<String, ISmartDevice> byName = new ConcurrentHashMap<>();
+    private volatile List<ISmartDevice> snapshot = Collections.emptyList(); // null after a change
+    private volatile int size;
+
+    /**
+     * Add a device to the registry
+     * @param device Device to add
+     * @return true if added, false if a device with the same ID is already registered
+     */
+    public synchronized boolean add(ISmartDevice device) {
+        String id = device.getDeviceId();
+        if (slotById.containsKey(id)) {
+            return false;
+        }
+        slotById.put(id, devices.size());
+        devices.add(device);
+        byId.put(id, device);
+        // First device registered under a name keeps the name lookup
+        List<ISmartDevice> named = sharingName.computeIfAbsent(device.getDeviceName(), name -> new ArrayList<>(1));
+        named.add(device);
+        if (named.size() == 1) {
+            byName.put(device.getDeviceName(), device);
+        }
+        changed();
+        return true;
+    }
+
+    /**
+     * Remove a device from the registry
+     * The last device is moved into the freed slot, so removal is O(1)
+     * @param device Device to remove
+     * @return true if the device was registered and has been removed
+     */
+    public synchronized boolean remove(ISmartDevice device) {
+        Integer slot = slotById.get(device.getDeviceId());
+        if (slot == null || !devices.get(slot).equals(device)) {
+            return false;
+        }
+        int last = devices.size() - 1;
+        ISmartDevice moved = devices.remove(last);
+        if (slot != last) {
+            devices.set(slot, moved);
+            slotById.put(moved.getDeviceId(), slot);
+        }
+        slotById.remove(device.getDeviceId());
+        byId.remove(device.getDeviceId());
+        removeName(device);
+        changed();
+        return true;
+    }
+
+    /**
+     * Hand the name lookup to the next device registered under the name, if any
+     */
+    private void removeName(ISmartDevice device) {
+        String name = device.getDeviceName();
+        List<ISmartDevice> named = sharingName.get(name);
+        named.remove(device);
+        if (named.isEmpty()) {
+            sharingName.remove(name);
+            byName.remove(name);
+        } else {
+            byName.put(name, named.get(0));
+        }
+    }
+
+    private void changed() {
+        size = devices.size();
+        snapshot = null;
+    }
+
+    /**
+     * Check if a device is registered
+     */
+    public boolean contains(ISmartDevice device) {
+        ISmartDevice registered = byId.get(device.getDeviceId());
+        return registered != null && registered.equals(device);
+    }
+
+    /**
+     * Find a device by its unique ID
+     * @return The device, or null if not found
+     */
+    public ISmartDevice findById(String deviceId) {
+        return byId.get(deviceId);
+    }
+
+    /**
+     * Find a device by its name
+     * If several devices share the name, the earliest registered one still present is returned
+     * @return The device, or null if not found
+     */
+    public ISmartDevice findByName(String deviceName) {
+        return byName.get(deviceName);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Immutable snapshot of all registered devices
+     * The same list is returned until the registry changes, so repeated
+     * calls do not copy; later registrations never show up in a list
+     * already handed out
+     */
+    public List<ISmartDevice> asList() {
+        List<ISmartDevice> current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = Collections.unmodifiableList(Arrays.asList(devices.toArray(new ISmartDevice[0])));
+            }
+            return snapshot;
+        }
+    }
+}
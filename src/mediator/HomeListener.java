@@ -0,0 +1,41 @@
+package mediator;
+
+import devices.DeviceListener;
+import devices.ISmartDevice;
+
+/**
+ * Listener for the whole home
+ * Receives the device callbacks of every registered device plus
+ * controller-level events. All methods have empty defaults.
+ */
+public interface HomeListener extends DeviceListener {
+    /**
+     * Called after a device was registered with the controller
+     */
+    default void deviceRegistered(ISmartDevice device) {
+    }
+    
+    /**
+     * Called after a device was unregistered from the controller
+     */
+    default void deviceUnregistered(ISmartDevice device) {
+    }
+    
+    /**
+     * Called when a mode change starts, before any device is changed
+     */
+    default void scenarioApplied(Scenario scenario) {
+    }
+    
+    /**
+     * Called when applyEnergySaving starts, before any device is changed
+     */
+    default void energySavingStarted() {
+    }
+    
+    /**
+     * Called when applyEnergySaving has executed every EnergyManagementRole
+     */
+    default void energySavingFinished() {
+    }
+}
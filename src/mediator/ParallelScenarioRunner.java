@@ -0,0 +1,74 @@
+package mediator;
+
+import devices.ISmartDevice;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Applies a scenario to a device snapshot with a fork-join partitioned sweep
+ * The snapshot is split in halves until a chunk is small enough to run
+ * sequentially, so the work spreads over all pool threads
+ */
+public class ParallelScenarioRunner {
+    private static final int SEQUENTIAL_THRESHOLD = 1024;
+    
+    private final ForkJoinPool pool;
+    
+    /**
+     * Create a runner on the common fork-join pool
+     */
+    public ParallelScenarioRunner() {
+        this(ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Create a runner on a specific pool
+     * @param pool Pool that executes the sweep
+     */
+    public ParallelScenarioRunner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * Apply a scenario to every device in the snapshot
+     * @param scenario Scenario to apply
+     * @param snapshot Devices to visit; not modified
+     * @return Future completed with the timing report once every device was visited
+     */
+    public CompletableFuture<ScenarioResult> run(Scenario scenario, ISmartDevice[] snapshot) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            pool.invoke(new Sweep(scenario, snapshot, 0, snapshot.length));
+            return new ScenarioResult(scenario, snapshot.length, pool.getParallelism(), System.nanoTime() - start);
+        }, pool);
+    }
+    
+    private static final class Sweep extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // never serialized; ForkJoinTask is Serializable
+        
+        private final Scenario scenario;
+        private final ISmartDevice[] devices;
+        private final int from;
+        private final int to;
+        
+        Sweep(Scenario scenario, ISmartDevice[] devices, int from, int to) {
+            this.scenario = scenario;
+            this.devices = devices;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    scenario.applyTo(devices[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Sweep(scenario, devices, from, mid), new Sweep(scenario, devices, mid, to));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package mediator;
+
+import devices.DeviceListener;
+import devices.ISmartDevice;
+import roles.IDeviceRole;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live index from role type to the registered devices holding that role
+ * Kept up to date through device listener callbacks, so scenario triggers
+ * only visit participating devices.
+ * Safe for concurrent role changes: writers lock one of several stripes
+ * per role, and readers get an immutable snapshot that is rebuilt lazily
+ * after the member set changes.
+ */
+public class RoleIndex implements DeviceListener {
+    private final Map<Class<? extends IDeviceRole>, Members> membersByRole = new ConcurrentHashMap<>();
+    
+    /**
+     * Start tracking a device and index the roles it already holds
+     */
+    public void track(ISmartDevice device) {
+        // Role changes fire under the device lock, so none can fall between
+        // the subscription and the scan and leave a stale entry
+        device.withLock(() -> {
+            device.addDeviceListener(this);
+            for (IDeviceRole role : device.getAllRoles()) {
+                roleAdded(device, role);
+            }
+        });
+    }
+    
+    /**
+     * Stop tracking a device and drop it from every role set
+     */
+    public void untrack(ISmartDevice device) {
+        device.withLock(() -> {
+            device.removeDeviceListener(this);
+            for (IDeviceRole role : device.getAllRoles()) {
+                roleRemoved(device, role);
+            }
+        });
+    }
+    
+    /**
+     * Devices currently holding the given role type
+     * @return Immutable snapshot in the order the role was gained
+     */
+    public List<ISmartDevice> devicesWith(Class<? extends IDeviceRole> roleType) {
+        Members members = membersByRole.get(roleType);
+        return members == null ? Collections.emptyList() : members.snapshot();
+    }
+    
+    @Override
+    public void roleAdded(ISmartDevice device, IDeviceRole role) {
+        membersByRole.computeIfAbsent(role.getClass(), type -> new Members()).add(device);
+    }
+    
+    @Override
+    public void roleRemoved(ISmartDevice device, IDeviceRole role) {
+        Members members = membersByRole.get(role.getClass());
+        if (members != null) {
+            members.remove(device);
+        }
+    }
+    
+    /**
+     * Devices holding one role type
+     * Members are spread over stripes by device hash so parallel sweeps
+     * gaining the same role rarely contend on one monitor. Each entry keeps
+     * a sequence number taken under its stripe lock; snapshots merge the
+     * stripes by sequence, which restores the order the role was gained.
+     */
+    private static final class Members {
+        private static final int STRIPES = 16; // power of two
+        
+        private final Stripe[] stripes = new Stripe[STRIPES];
+        private final AtomicLong sequence = new AtomicLong();
+        private volatile boolean dirty;
+        private List<ISmartDevice> snapshot = Collections.emptyList(); // guarded by this
+        
+        Members() {
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe();
+            }
+        }
+        
+        private Stripe stripeOf(ISmartDevice device) {
+            int hash = device.hashCode() * 0x9E3779B9;
+            return stripes[(hash >>> 16) & (STRIPES - 1)];
+        }
+        
+        void add(ISmartDevice device) {
+            Stripe stripe = stripeOf(device);
+            synchronized (stripe) {
+                if (stripe.devices.putIfAbsent(device, sequence.getAndIncrement()) == null) {
+                    dirty = true;
+                }
+            }
+        }
+        
+        void remove(ISmartDevice device) {
+            Stripe stripe = stripeOf(device);
+            synchronized (stripe) {
+                if (stripe.devices.remove(device) != null) {
+                    dirty = true;
+                }
+            }
+        }
+        
+        synchronized List<ISmartDevice> snapshot() {
+            if (!dirty) {
+                return snapshot;
+            }
+            dirty = false; // cleared first: a change racing with the rebuild marks it again
+            ISmartDevice[][] devices = new ISmartDevice[STRIPES][];
+            long[][] sequences = new long[STRIPES][];
+            int total = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                Stripe stripe = stripes[i];
+                synchronized (stripe) {
+                    int size = stripe.devices.size();
+                    devices[i] = new ISmartDevice[size];
+                    sequences[i] = new long[size];
+                    int j = 0;
+                    for (Map.Entry<ISmartDevice, Long> entry : stripe.devices.entrySet()) {
+                        devices[i][j] = entry.getKey();
+                        sequences[i][j++] = entry.getValue();
+                    }
+                    total += size;
+                }
+            }
+            // Each stripe is already in sequence order; merge them
+            ISmartDevice[] merged = new ISmartDevice[total];
+            int[] cursors = new int[STRIPES];
+            for (int k = 0; k < total; k++) {
+                int best = -1;
+                for (int i = 0; i < STRIPES; i++) {
+                    if (cursors[i] < sequences[i].length
+                        && (best < 0 || sequences[i][cursors[i]] < sequences[best][cursors[best]])) {
+                        best = i;
+                    }
+                }
+                merged[k] = devices[best][cursors[best]++];
+            }
+            snapshot = Collections.unmodifiableList(Arrays.asList(merged));
+            return snapshot;
+        }
+    }
+    
+    private static final class Stripe {
+        final Map<ISmartDevice, Long> devices = new LinkedHashMap<>(); // guarded by this, in sequence order
+    }
+}
\ No newline at end of file
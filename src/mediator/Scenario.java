@@ -0,0 +1,41 @@
+package mediator;
+
+import devices.ISmartDevice;
+import roles.EnergyManagementRole;
+import roles.RoleRegistry;
+import roles.SecurityModeRole;
+import roles.VacationModeRole;
+import java.util.function.Consumer;
+
+/**
+ * Mode changes the controller can fan out over every registered device
+ * Each scenario is a per-device action, so it can be applied in any order
+ * and on any thread
+ */
+public enum Scenario {
+    ACTIVATE_SECURITY("Security Mode activation", device -> device.addRole(RoleRegistry.shared(SecurityModeRole.class))),
+    DEACTIVATE_SECURITY("Security Mode deactivation", device -> device.removeRole(SecurityModeRole.class)),
+    ACTIVATE_VACATION("Vacation Mode activation", device -> device.addRole(RoleRegistry.shared(VacationModeRole.class))),
+    DEACTIVATE_VACATION("Vacation Mode deactivation", device -> device.removeRole(VacationModeRole.class)),
+    ACTIVATE_ENERGY_MANAGEMENT("Energy Management Mode activation", device -> device.addRole(RoleRegistry.shared(EnergyManagementRole.class))),
+    DEACTIVATE_ENERGY_MANAGEMENT("Energy Management Mode deactivation", device -> device.removeRole(EnergyManagementRole.class));
+    
+    private final String displayName;
+    private final Consumer<ISmartDevice> action;
+    
+    Scenario(String displayName, Consumer<ISmartDevice> action) {
+        this.displayName = displayName;
+        this.action = action;
+    }
+    
+    /**
+     * Apply this scenario to a single device
+     */
+    public void applyTo(ISmartDevice device) {
+        action.accept(device);
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+}
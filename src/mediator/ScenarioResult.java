@@ -0,0 +1,47 @@
+package mediator;
+
+/**
+ * Completion report of a scenario fan-out
+ */
+public class ScenarioResult {
+    private final Scenario scenario;
+    private final int devicesProcessed;
+    private final int parallelism;
+    private final long elapsedNanos;
+    
+    public ScenarioResult(Scenario scenario, int devicesProcessed, int parallelism, long elapsedNanos) {
+        this.scenario = scenario;
+        this.devicesProcessed = devicesProcessed;
+        this.parallelism = parallelism;
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    public Scenario getScenario() {
+        return scenario;
+    }
+    
+    public int getDevicesProcessed() {
+        return devicesProcessed;
+    }
+    
+    /**
+     * Number of worker threads available to the sweep
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    public double getElapsedMillis() {
+        return elapsedNanos / 1_000_000.0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s: %d devices in %.3f ms (parallelism=%d)",
+            scenario.getDisplayName(), devicesProcessed, getElapsedMillis(), parallelism);
+    }
+}
@@ -1,9 +1,26 @@
 package mediator;
 
+import commands.BatchResult;
+import commands.CommandBatch;
+import commands.CommandPipeline;
+import energy.EnergyMeter;
+import energy.LoadShedder;
+import energy.SheddingPlan;
+import events.HomeEventPublisher;
 import devices.ISmartDevice;
+import devices.RenderCache;
 import roles.*;
-import java.util.ArrayList;
+import logging.EventLog;
+import logging.Level;
+import persistence.HomeSnapshot;
+import scheduling.Scheduler;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class SmartHomeController {
     
@@ -13,16 +30,27 @@ public class SmartHomeController {
     - 'private' prevents external access 
     */ 
     private static SmartHomeController instance; 
+    private static final int LIST_CHUNK_CHARS = 8192; // listAllDevices hands text to its sink in chunks this size
     
     // ===== MEDIATOR PATTERN =====
-    private final List<ISmartDevice> devices = new ArrayList<>();
+    private final DeviceRegistry registry = new DeviceRegistry();
+    private final Object membership = new Object(); // orders registrations against listener changes
+    private final RoleIndex roleIndex = new RoleIndex();
+    private final ParallelScenarioRunner parallelRunner = new ParallelScenarioRunner();
+    private CommandPipeline commandPipeline; // created on first use
+    private EnergyMeter energyMeter;         // created on first use
+    private LoadShedder loadShedder;         // created on first use
+    private Scheduler scheduler;             // created on first use
+    private HomeEventPublisher eventPublisher; // created on first use
+    private final List<HomeListener> homeListeners = new CopyOnWriteArrayList<>();
+    private final RenderCache roleListings = new RenderCache(SmartHomeController::renderRoleListing);
     
     /**
      * Private constructor prevents external instantiation (Singleton pattern)
      * Only way to get instance is through getInstance()
      */
     private SmartHomeController() {
-        System.out.println("✓ SmartHomeController initialized (Singleton)\n");
+        EventLog.log(Level.INFO, "✓ SmartHomeController initialized (Singleton)\n");
     }
     
     /**
@@ -44,12 +72,37 @@ public class SmartHomeController {
      * Register a device with the smart home system
      */
     public void registerDevice(ISmartDevice device) {
-        if (!devices.contains(device)) {
-            devices.add(device);
-            System.out.println("✓ Controller: Registered '" + device.getDeviceName() + "'");
+        boolean added;
+        synchronized (membership) {
+            added = registry.add(device);
+            if (added) {
+                attach(device);
+            }
+        }
+        if (added) {
+            EventLog.log(Level.INFO, "✓ Controller: Registered '", device.getDeviceName(), "'");
         } else {
-            System.out.println("⚠ Controller: '" + device.getDeviceName() + "' already registered");
+            EventLog.log(Level.WARN, "⚠ Controller: '", device.getDeviceName(), "' already registered");
+        }
+    }
+    
+    /**
+     * Register many devices at once, logging a single summary line
+     * @param newDevices Devices to register; already registered ones are skipped
+     * @return Number of devices newly registered
+     */
+    public int registerAll(Collection<? extends ISmartDevice> newDevices) {
+        int added = 0;
+        synchronized (membership) {
+            for (ISmartDevice device : newDevices) {
+                if (registry.add(device)) {
+                    attach(device);
+                    added++;
+                }
+            }
         }
+        EventLog.log(Level.INFO, "✓ Controller: Registered ", added, " devices");
+        return added;
     }
     
     /**
@@ -57,8 +110,68 @@ public class SmartHomeController {
      * @param device Device to unregister
      */
     public void unregisterDevice(ISmartDevice device) {
-        if (devices.remove(device)) {
-            System.out.println("✓ Controller: Unregistered '" + device.getDeviceName() + "'");
+        boolean removed;
+        synchronized (membership) {
+            removed = registry.remove(device);
+            if (removed) {
+                detach(device);
+            }
+        }
+        if (removed) {
+            EventLog.log(Level.INFO, "✓ Controller: Unregistered '", device.getDeviceName(), "'");
+        }
+    }
+    
+    private void attach(ISmartDevice device) {
+        roleIndex.track(device);
+        for (HomeListener listener : homeListeners) {
+            device.addDeviceListener(listener);
+            listener.deviceRegistered(device);
+        }
+    }
+    
+    private void detach(ISmartDevice device) {
+        roleIndex.untrack(device);
+        roleListings.forget(device);
+        for (HomeListener listener : homeListeners) {
+            device.removeDeviceListener(listener);
+            listener.deviceUnregistered(device);
+        }
+    }
+    
+    // ===== HOME LISTENERS =====
+    
+    /**
+     * Subscribe to every registered device and to controller events
+     * The listener is attached to devices registered now and later
+     * @param listener Listener to add
+     */
+    public void addHomeListener(HomeListener listener) {
+        synchronized (membership) {
+            homeListeners.add(listener);
+            for (ISmartDevice device : registry.asList()) {
+                device.addDeviceListener(listener);
+            }
+        }
+    }
+    
+    /**
+     * Unsubscribe a listener added with addHomeListener
+     * @param listener Listener to remove
+     */
+    public void removeHomeListener(HomeListener listener) {
+        synchronized (membership) {
+            if (homeListeners.remove(listener)) {
+                for (ISmartDevice device : registry.asList()) {
+                    device.removeDeviceListener(listener);
+                }
+            }
+        }
+    }
+    
+    private void fireScenarioApplied(Scenario scenario) {
+        for (HomeListener listener : homeListeners) {
+            listener.scenarioApplied(scenario);
         }
     }
     
@@ -69,14 +182,16 @@ public class SmartHomeController {
      * Demonstrates: Mediator coordinating role assignment across multiple devices
      */
     public void activateSecurityMode() {
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        System.out.println("🔒 ACTIVATING SECURITY MODE");
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "🔒 ACTIVATING SECURITY MODE");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        fireScenarioApplied(Scenario.ACTIVATE_SECURITY);
          // Mediator loops through ALL devices
-        for (ISmartDevice device : devices) {
-            device.addRole(new SecurityModeRole());
+        SecurityModeRole role = RoleRegistry.shared(SecurityModeRole.class); // one instance for the whole fleet
+        for (ISmartDevice device : registry.asList()) {
+            device.addRole(role);
         }
-        System.out.println("✓ Security Mode activated on all devices\n");
+        EventLog.log(Level.INFO, "✓ Security Mode activated on all devices\n");
     }
     
     /**
@@ -84,13 +199,14 @@ public class SmartHomeController {
      * Demonstrates: Dynamic role removal through mediator
      */
     public void deactivateSecurityMode() {
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        System.out.println("🔓 DEACTIVATING SECURITY MODE");
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        for (ISmartDevice device : devices) {
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "🔓 DEACTIVATING SECURITY MODE");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        fireScenarioApplied(Scenario.DEACTIVATE_SECURITY);
+        for (ISmartDevice device : registry.asList()) {
             device.removeRole(SecurityModeRole.class);
         }
-        System.out.println("✓ Security Mode deactivated\n");
+        EventLog.log(Level.INFO, "✓ Security Mode deactivated\n");
     }
     
     /**
@@ -98,109 +214,171 @@ public class SmartHomeController {
      * Demonstrates: Using devices through role interface
      */
     public void triggerSecurityAlert() {
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        System.out.println("🚨 SECURITY ALERT TRIGGERED!");
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "🚨 SECURITY ALERT TRIGGERED!");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
         
         boolean alertExecuted = false;
-        for (ISmartDevice device : devices) {
-            if (device.hasRole(SecurityModeRole.class)) {
-                IDeviceRole role = device.getRole(SecurityModeRole.class);
+        // Only devices holding the role are visited
+        for (ISmartDevice device : roleIndex.devicesWith(SecurityModeRole.class)) {
+            IDeviceRole role = device.getRole(SecurityModeRole.class);
+            if (role != null) {
                 role.execute(device);
                 alertExecuted = true;
             }
         }
         
         if (!alertExecuted) {
-            System.out.println("⚠ No devices with SecurityModeRole available");
+            EventLog.log(Level.WARN, "⚠ No devices with SecurityModeRole available");
         }
-        System.out.println();
+        EventLog.log(Level.INFO, "");
     }
     
     /**
      * Activate Vacation Mode - assigns VacationModeRole to all devices
      */
     public void activateVacationMode() {
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        System.out.println("✈️ ACTIVATING VACATION MODE");
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        for (ISmartDevice device : devices) {
-            device.addRole(new VacationModeRole());
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "✈️ ACTIVATING VACATION MODE");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        fireScenarioApplied(Scenario.ACTIVATE_VACATION);
+        VacationModeRole role = RoleRegistry.shared(VacationModeRole.class); // one instance for the whole fleet
+        for (ISmartDevice device : registry.asList()) {
+            device.addRole(role);
         }
-        System.out.println("✓ Vacation Mode activated\n");
+        EventLog.log(Level.INFO, "✓ Vacation Mode activated\n");
     }
     
     /**
      * Deactivate Vacation Mode
      */
     public void deactivateVacationMode() {
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        System.out.println("🏠 DEACTIVATING VACATION MODE");
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        for (ISmartDevice device : devices) {
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "🏠 DEACTIVATING VACATION MODE");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        fireScenarioApplied(Scenario.DEACTIVATE_VACATION);
+        for (ISmartDevice device : registry.asList()) {
             device.removeRole(VacationModeRole.class);
         }
-        System.out.println("✓ Vacation Mode deactivated\n");
+        EventLog.log(Level.INFO, "✓ Vacation Mode deactivated\n");
     }
     
     /**
      * Simulate vacation presence - executes VacationModeRole
      */
     public void simulatePresence() {
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        System.out.println("🏡 Simulating presence...");
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "🏡 Simulating presence...");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
         
-        for (ISmartDevice device : devices) {
-            if (device.hasRole(VacationModeRole.class)) {
-                IDeviceRole role = device.getRole(VacationModeRole.class);
+        for (ISmartDevice device : roleIndex.devicesWith(VacationModeRole.class)) {
+            IDeviceRole role = device.getRole(VacationModeRole.class);
+            if (role != null) {
                 role.execute(device);
             }
         }
-        System.out.println();
+        EventLog.log(Level.INFO, "");
     }
     
     /**
      * Activate Energy Management Mode
      */
     public void activateEnergyManagementMode() {
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        System.out.println("⚡ ACTIVATING ENERGY MANAGEMENT MODE");
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        for (ISmartDevice device : devices) {
-            device.addRole(new EnergyManagementRole());
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "⚡ ACTIVATING ENERGY MANAGEMENT MODE");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        fireScenarioApplied(Scenario.ACTIVATE_ENERGY_MANAGEMENT);
+        EnergyManagementRole role = RoleRegistry.shared(EnergyManagementRole.class); // one instance for the whole fleet
+        for (ISmartDevice device : registry.asList()) {
+            device.addRole(role);
         }
-        System.out.println("✓ Energy Management Mode activated\n");
+        EventLog.log(Level.INFO, "✓ Energy Management Mode activated\n");
     }
     
     /**
      * Deactivate Energy Management Mode
      */
     public void deactivateEnergyManagementMode() {
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        System.out.println("💡 DEACTIVATING ENERGY MANAGEMENT MODE");
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        for (ISmartDevice device : devices) {
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "💡 DEACTIVATING ENERGY MANAGEMENT MODE");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        fireScenarioApplied(Scenario.DEACTIVATE_ENERGY_MANAGEMENT);
+        for (ISmartDevice device : registry.asList()) {
             device.removeRole(EnergyManagementRole.class);
         }
-        System.out.println("✓ Energy Management Mode deactivated\n");
+        EventLog.log(Level.INFO, "✓ Energy Management Mode deactivated\n");
     }
     
     /**
      * Apply energy-saving measures - executes EnergyManagementRole
      */
     public void applyEnergySaving() {
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        System.out.println("🌿 Applying energy-saving measures...");
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "🌿 Applying energy-saving measures...");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        for (HomeListener listener : homeListeners) {
+            listener.energySavingStarted();
+        }
         
-        for (ISmartDevice device : devices) {
-            if (device.hasRole(EnergyManagementRole.class)) {
-                IDeviceRole role = device.getRole(EnergyManagementRole.class);
+        for (ISmartDevice device : roleIndex.devicesWith(EnergyManagementRole.class)) {
+            IDeviceRole role = device.getRole(EnergyManagementRole.class);
+            if (role != null) {
                 role.execute(device);
             }
         }
-        System.out.println();
+        for (HomeListener listener : homeListeners) {
+            listener.energySavingFinished();
+        }
+        EventLog.log(Level.INFO, "");
+    }
+    
+    /**
+     * Apply energy-saving measures only where needed to meet a power budget
+     * Instead of the fixed cut on every energy-managed device, curtails the
+     * devices that save the most power for the least comfort until the
+     * projected home draw is within the budget
+     * @param budgetWatts Home-wide power budget in watts
+     * @return The plan that was applied
+     */
+    public SheddingPlan applyEnergySaving(double budgetWatts) {
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        if (EventLog.isEnabled(Level.INFO)) {
+            EventLog.log(Level.INFO, "🌿 Applying power budget of ", String.format("%.1f", budgetWatts), " W");
+        }
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        LoadShedder shedder = getLoadShedder();
+        for (HomeListener listener : homeListeners) {
+            listener.energySavingStarted();
+        }
+        SheddingPlan plan = shedder.plan(budgetWatts);
+        shedder.execute(plan);
+        for (HomeListener listener : homeListeners) {
+            listener.energySavingFinished();
+        }
+        EventLog.log(plan.isWithinBudget() ? Level.INFO : Level.WARN, "✓ Controller: ", plan, "\n");
+        return plan;
+    }
+    
+    /**
+     * Get the energy meter tracking the draw of every registered device
+     * Created on first use; energy is counted from that point on
+     */
+    public synchronized EnergyMeter getEnergyMeter() {
+        if (energyMeter == null) {
+            energyMeter = EnergyMeter.attach(this);
+        }
+        return energyMeter;
+    }
+    
+    /**
+     * Get the load shedder used by applyEnergySaving(double)
+     * Created on first use together with the energy meter
+     */
+    public synchronized LoadShedder getLoadShedder() {
+        if (loadShedder == null) {
+            loadShedder = LoadShedder.attach(this, getEnergyMeter());
+        }
+        return loadShedder;
     }
     
     /**
@@ -208,23 +386,82 @@ public class SmartHomeController {
      * Demonstrates: Checking for role and using specific role interface
      */
     public void sendNotification(String message) {
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        System.out.println("📢 Sending notification: \"" + message + "\"");
-        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        EventLog.log(Level.INFO, "📢 Sending notification: \"", message, "\"");
+        EventLog.log(Level.INFO, "━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
         
         boolean notificationSent = false;
-        for (ISmartDevice device : devices) {
-            if (device.hasRole(NotificationRole.class)) {
-                IDeviceRole role = device.getRole(NotificationRole.class);
+        for (ISmartDevice device : roleIndex.devicesWith(NotificationRole.class)) {
+            IDeviceRole role = device.getRole(NotificationRole.class);
+            if (role != null) {
                 role.execute(device);
                 notificationSent = true;
             }
         }
         
         if (!notificationSent) {
-            System.out.println("⚠ No devices with NotificationRole available");
+            EventLog.log(Level.WARN, "⚠ No devices with NotificationRole available");
         }
-        System.out.println();
+        EventLog.log(Level.INFO, "");
+    }
+    
+    /**
+     * Run a mode change over all devices in parallel
+     * The device list is snapshotted first, then swept by a fork-join pool
+     * @param scenario Mode change to apply
+     * @return Future completed with per-scenario timing once all devices are done
+     */
+    public CompletableFuture<ScenarioResult> runScenarioInParallel(Scenario scenario) {
+        ISmartDevice[] snapshot = registry.asList().toArray(new ISmartDevice[0]);
+        fireScenarioApplied(scenario);
+        return parallelRunner.run(scenario, snapshot);
+    }
+    
+    /**
+     * Get the command pipeline used by concurrent producers (UI, schedulers, sensors)
+     * Created on first use with one partition per available core
+     */
+    public synchronized CommandPipeline getCommandPipeline() {
+        if (commandPipeline == null) {
+            commandPipeline = new CommandPipeline(Runtime.getRuntime().availableProcessors(), 1024);
+        }
+        return commandPipeline;
+    }
+    
+    /**
+     * Get the scheduler for timed scenarios and device actions
+     * Created and started on first use
+     */
+    public synchronized Scheduler getScheduler() {
+        if (scheduler == null) {
+            scheduler = new Scheduler();
+            scheduler.start();
+        }
+        return scheduler;
+    }
+    
+    /**
+     * Get the Flow.Publisher of device and scenario events
+     * Each subscriber has its own bounded buffer and overflow policy; slow
+     * subscribers never hold up the controller
+     */
+    public synchronized HomeEventPublisher getEventPublisher() {
+        if (eventPublisher == null) {
+            eventPublisher = HomeEventPublisher.attach(this);
+        }
+        return eventPublisher;
+    }
+    
+    /**
+     * Apply a batch of device commands, collapsed to one write per device field
+     * Commands that are superseded or would not change the device are not applied
+     * @param batch Commands collected during one tick
+     * @return Counts of applied, coalesced and skipped writes
+     */
+    public BatchResult applyBatch(CommandBatch batch) {
+        BatchResult result = batch.apply();
+        EventLog.log(Level.DEBUG, "Controller: ", result, null);
+        return result;
     }
     
     /**
@@ -232,13 +469,54 @@ public class SmartHomeController {
      * Demonstrates: Targeted role assignment through mediator
      */
     public void assignRoleToDevice(String deviceName, IDeviceRole role) {
-        for (ISmartDevice device : devices) {
-            if (device.getDeviceName().equals(deviceName)) {
-                device.addRole(role);
-                return;
-            }
+        ISmartDevice device = registry.findByName(deviceName);
+        if (device != null) {
+            device.addRole(role);
+            return;
         }
-        System.out.println("⚠ Device '" + deviceName + "' not found");
+        EventLog.log(Level.WARN, "⚠ Device '", deviceName, "' not found");
+    }
+    
+    /**
+     * Find a registered device by its unique ID
+     * @param deviceId Device ID
+     * @return The device, or null if not registered
+     */
+    public ISmartDevice findById(String deviceId) {
+        return registry.findById(deviceId);
+    }
+    
+    /**
+     * Find a registered device by its name
+     * @param deviceName Device name
+     * @return The device, or null if not registered
+     */
+    public ISmartDevice findByName(String deviceName) {
+        return registry.findByName(deviceName);
+    }
+    
+    // ===== PERSISTENCE =====
+    
+    /**
+     * Save every registered device, its state and its roles to a snapshot file
+     * @param file Target file
+     * @throws IOException if the file cannot be written
+     */
+    public void saveSnapshot(Path file) throws IOException {
+        List<ISmartDevice> devices = registry.asList();
+        HomeSnapshot.write(devices, file);
+        EventLog.log(Level.INFO, "✓ Controller: Saved snapshot of ", devices.size(), " devices");
+    }
+    
+    /**
+     * Load devices from a snapshot file and register them
+     * Restores state and roles directly, without replaying scenarios
+     * @param file Snapshot file
+     * @return Number of devices registered
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public int restoreSnapshot(Path file) throws IOException {
+        return registerAll(HomeSnapshot.read(file));
     }
     
     // ===== UTILITY METHODS =====
@@ -247,41 +525,76 @@ public class SmartHomeController {
      * List all registered devices and their current roles
      */
     public void listAllDevices() {
-        System.out.println("\n╔════════════════════════════════════════════════════════╗");
-        System.out.println("║          REGISTERED DEVICES & ROLES                    ║");
-        System.out.println("╚════════════════════════════════════════════════════════╝");
+        EventLog.flush(); // print the report after any queued events
+        try {
+            listAllDevices(System.out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // PrintStream reports errors through checkError instead
+        }
+    }
+    
+    /**
+     * Stream the device and role listing to a sink
+     * Text is staged in one reusable buffer and handed over every few
+     * kilobytes, so the full listing is never held in memory.
+     * Info strings and role lines are cached per device version, so
+     * unchanged devices are copied rather than formatted again
+     * @param out Sink to write to (a PrintStream, Writer, StringBuilder...)
+     * @throws IOException if the sink fails
+     */
+    public void listAllDevices(Appendable out) throws IOException {
+        List<ISmartDevice> devices = registry.asList();
+        StringBuilder chunk = new StringBuilder(LIST_CHUNK_CHARS + 1024);
+        chunk.append("\n╔════════════════════════════════════════════════════════╗\n")
+             .append("║          REGISTERED DEVICES & ROLES                    ║\n")
+             .append("╚════════════════════════════════════════════════════════╝\n");
         
         if (devices.isEmpty()) {
-            System.out.println("  No devices registered.");
+            chunk.append("  No devices registered.\n");
         } else {
             for (ISmartDevice device : devices) {
-                System.out.println("\n📱 " + device.getDeviceInfo());
-                System.out.println("   Active Roles:");
-                
-                if (device.getAllRoles().isEmpty()) {
-                    System.out.println("     • No roles assigned");
-                } else {
-                    for (IDeviceRole role : device.getAllRoles()) {
-                        System.out.println("     • " + role.getRoleName());
-                        System.out.println("       ↳ " + role.getDescription());
-                    }
+                chunk.append("\n📱 ").append(device.getDeviceInfo())
+                     .append("\n   Active Roles:\n")
+                     .append(roleListings.get(device));
+                if (chunk.length() >= LIST_CHUNK_CHARS) {
+                    out.append(chunk);
+                    chunk.setLength(0);
                 }
             }
         }
-        System.out.println();
+        chunk.append('\n');
+        out.append(chunk);
+    }
+    
+    /**
+     * Role lines of one device in the listAllDevices format
+     */
+    private static String renderRoleListing(ISmartDevice device) {
+        List<IDeviceRole> roles = device.getAllRoles();
+        if (roles.isEmpty()) {
+            return "     • No roles assigned\n";
+        }
+        StringBuilder text = new StringBuilder(128 * roles.size());
+        for (IDeviceRole role : roles) {
+            text.append("     • ").append(role.getRoleName()).append('\n');
+            text.append("       ↳ ").append(role.getDescription()).append('\n');
+        }
+        return text.toString();
     }
     
     /**
      * Get count of registered devices
      */
     public int getDeviceCount() {
-        return devices.size();
+        return registry.size();
     }
     
     /**
-     * Get all devices (returns copy to prevent external modification)
+     * Get all devices
+     * Immutable snapshot, safe to iterate from any thread; the same list is
+     * shared by every caller until the next registration change
      */
     public List<ISmartDevice> getAllDevices() {
-        return new ArrayList<>(devices);
+        return registry.asList();
     }
 }
\ No newline at end of file
@@ -0,0 +1,617 @@
+package persistence;
+
+import devices.DeviceField;
+import devices.ISmartDevice;
+import devices.ISmartLight;
+import devices.ISmartSpeaker;
+import devices.ISmartThermostat;
+import devices.SmartDevice;
+import devices.SmartLight;
+import devices.SmartSpeaker;
+import devices.SmartThermostat;
+import logging.EventLog;
+import logging.Level;
+import mediator.HomeListener;
+import mediator.Scenario;
+import mediator.SmartHomeController;
+import roles.IDeviceRole;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead event log of every device and role mutation
+ *
+ * Mutations are encoded into an in-memory buffer as they happen and written
+ * by a background thread in groups: one write and one fsync per flush
+ * interval, however many mutations arrived. When the current segment grows
+ * past a threshold it is folded into a HomeSnapshot in the background.
+ *
+ * Listener callbacks run under device locks, so they only copy the record
+ * into the active buffer; a full buffer is queued for the flusher and a
+ * fresh one takes its place. All file I/O happens on the flusher,
+ * compaction or closing thread, serialized by a separate I/O lock that
+ * also decides which segment is live.
+ *
+ * Directory layout: snapshot-N.bin holds the state at the start of
+ * journal-N.log. Recovery loads the newest snapshot and replays every
+ * journal segment with an equal or higher number. Records carry absolute
+ * values, so replaying a record that the snapshot already includes is harmless.
+ *
+ * Record: int body length, body, int CRC32 of body. Body: byte kind, string
+ * device id, then kind-specific payload. A torn or corrupt record ends replay
+ * of its segment. Role records carry the role class name; ROLE_ADD follows it
+ * with a byte has-parameter and the role's getParameter text, and records
+ * written before that was added, which end after the class name, replay as
+ * the shared instance.
+ */
+public class EventJournal implements HomeListener, AutoCloseable {
+    private static final byte REGISTER = 1;
+    private static final byte UNREGISTER = 2;
+    private static final byte FIELD = 3;
+    private static final byte TEXT = 4;
+    private static final byte ROLE_ADD = 5;
+    private static final byte ROLE_REMOVE = 6;
+    private static final byte SCENARIO = 7;
+
+    private static final DeviceField[] FIELDS = DeviceField.values();
+    private static final Scenario[] SCENARIOS = Scenario.values();
+    private static final int BUFFER_SIZE = 256 << 10;
+    private static final int MAX_RECORD_SIZE = 3 * (2 + 0xFFFF) + 32;
+
+    private final Path directory;
+    private final SmartHomeController controller;
+    private final long flushIntervalNanos;
+    private final long compactThresholdBytes;
+
+    // Guarded by this; held only to encode records, never during I/O
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ArrayDeque<ByteBuffer> filled = new ArrayDeque<>(); // full buffers waiting for the flusher
+    private final ArrayDeque<ByteBuffer> spares = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+    private long appended;
+
+    // Guarded by io
+    private final Object io = new Object();
+    private final List<ByteBuffer> writing = new ArrayList<>();
+    private FileChannel segment;
+    private long segmentIndex;
+    private volatile long segmentBytes;
+
+    private volatile long durable;
+    private volatile long syncCount;
+    private volatile boolean running = true;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final Thread flusher;
+
+    private EventJournal(Path directory, SmartHomeController controller,
+                         long flushIntervalMillis, long compactThresholdBytes) {
+        this.directory = directory;
+        this.controller = controller;
+        this.flushIntervalNanos = flushIntervalMillis * 1_000_000L;
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.flusher = new Thread(this::flushLoop, "event-journal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    // ===== Opening and Recovery =====
+
+    /**
+     * Open a journal with default settings: 5 ms group commit, compaction at 64 MB
+     * @see #open(Path, SmartHomeController, long, long)
+     */
+    public static EventJournal open(Path directory, SmartHomeController controller) throws IOException {
+        return open(directory, controller, 5, 64L << 20);
+    }
+
+    /**
+     * Recover the home from a journal directory, then start journaling
+     * Loads the newest snapshot, replays the journal tail, registers the
+     * recovered devices with the controller and subscribes to all further
+     * changes. Use on a controller with no devices registered yet.
+     * @param directory Journal directory, created if missing
+     * @param controller Controller to restore into and observe
+     * @param flushIntervalMillis Group commit interval
+     * @param compactThresholdBytes Segment size that triggers compaction
+     * @return The open journal
+     * @throws IOException if the directory cannot be read or written
+     */
+    public static EventJournal open(Path directory, SmartHomeController controller,
+                                    long flushIntervalMillis, long compactThresholdBytes) throws IOException {
+        Files.createDirectories(directory);
+        EventJournal journal = new EventJournal(directory, controller, flushIntervalMillis, compactThresholdBytes);
+        long next = journal.recover();
+        journal.openSegment(next);
+        controller.addHomeListener(journal);
+        journal.flusher.start();
+        return journal;
+    }
+
+    private long recover() throws IOException {
+        TreeSet<Long> snapshots = new TreeSet<>();
+        TreeSet<Long> segments = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("snapshot-") && name.endsWith(".bin")) {
+                    snapshots.add(Long.parseLong(name.substring(9, name.length() - 4)));
+                } else if (name.startsWith("journal-") && name.endsWith(".log")) {
+                    segments.add(Long.parseLong(name.substring(8, name.length() - 4)));
+                }
+            }
+        }
+        Map<String, ISmartDevice> recovered = new LinkedHashMap<>();
+        long base = 0;
+        if (!snapshots.isEmpty()) {
+            base = snapshots.last();
+            for (ISmartDevice device : HomeSnapshot.read(snapshotFile(base))) {
+                recovered.put(device.getDeviceId(), device);
+            }
+        }
+        Replay replay = new Replay(recovered);
+        long records = 0;
+        for (long index : segments.tailSet(base)) {
+            records += replay.segment(segmentFile(index));
+        }
+        controller.registerAll(recovered.values());
+        EventLog.log(Level.INFO, "✓ Journal: ", directory, " replayed, records: ", records, null);
+        long highest = Math.max(base, segments.isEmpty() ? 0 : segments.last());
+        return segments.contains(highest) ? highest + 1 : highest; // never append to a segment with a torn tail
+    }
+
+    private void openSegment(long index) throws IOException {
+        segment = FileChannel.open(segmentFile(index), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentIndex = index;
+        segmentBytes = segment.size();
+    }
+
+    private Path snapshotFile(long index) {
+        return directory.resolve("snapshot-" + index + ".bin");
+    }
+
+    private Path segmentFile(long index) {
+        return directory.resolve("journal-" + index + ".log");
+    }
+
+    // ===== Listener Callbacks =====
+
+    @Override
+    public void deviceRegistered(ISmartDevice device) {
+        byte type = typeOf(device);
+        if (type < 0) {
+            return; // only the built-in device types can be replayed
+        }
+        synchronized (this) {
+            int body = begin(REGISTER, device);
+            buffer.put(type);
+            putString(device.getDeviceName());
+            end(body);
+            // Record the full current state so replay does not depend on defaults
+            appendField(device, DeviceField.POWER, device.isOn() ? 1 : 0);
+            if (device instanceof ISmartLight) {
+                appendField(device, DeviceField.BRIGHTNESS, ((ISmartLight) device).getBrightness());
+            } else if (device instanceof ISmartThermostat) {
+                ISmartThermostat thermostat = (ISmartThermostat) device;
+                appendField(device, DeviceField.TARGET_TEMPERATURE, thermostat.getTargetTemperature());
+                appendField(device, DeviceField.CURRENT_TEMPERATURE, thermostat.getCurrentTemperature());
+            } else {
+                ISmartSpeaker speaker = (ISmartSpeaker) device;
+                appendField(device, DeviceField.VOLUME, speaker.getVolume());
+                textChanged(device, DeviceField.SOUND, null, speaker.getCurrentSound());
+            }
+            for (IDeviceRole role : device.getAllRoles()) {
+                roleAdded(device, role);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void deviceUnregistered(ISmartDevice device) {
+        end(begin(UNREGISTER, device));
+    }
+
+    @Override
+    public synchronized void stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+        appendField(device, field, newValue);
+    }
+
+    @Override
+    public synchronized void textChanged(ISmartDevice device, DeviceField field, String oldValue, String newValue) {
+        int body = begin(TEXT, device);
+        buffer.put((byte) field.ordinal());
+        putString(newValue);
+        end(body);
+    }
+
+    @Override
+    public synchronized void roleAdded(ISmartDevice device, IDeviceRole role) {
+        int body = begin(ROLE_ADD, device);
+        putString(role.getClass().getName());
+        String parameter = role.getParameter();
+        buffer.put((byte) (parameter != null ? 1 : 0));
+        if (parameter != null) {
+            putString(parameter);
+        }
+        end(body);
+    }
+
+    @Override
+    public synchronized void roleRemoved(ISmartDevice device, IDeviceRole role) {
+        int body = begin(ROLE_REMOVE, device);
+        putString(role.getClass().getName());
+        end(body);
+    }
+
+    @Override
+    public synchronized void scenarioApplied(Scenario scenario) {
+        ensureCapacity();
+        int body = buffer.position() + 4;
+        buffer.position(body);
+        buffer.put(SCENARIO);
+        putString("");
+        buffer.put((byte) scenario.ordinal());
+        end(body);
+    }
+
+    private void appendField(ISmartDevice device, DeviceField field, double value) {
+        int body = begin(FIELD, device);
+        buffer.put((byte) field.ordinal());
+        buffer.putDouble(value);
+        end(body);
+    }
+
+    // ===== Encoding (callers hold this) =====
+
+    private int begin(byte kind, ISmartDevice device) {
+        ensureCapacity();
+        int body = buffer.position() + 4; // length is patched in end()
+        buffer.position(body);
+        buffer.put(kind);
+        putString(device.getDeviceId());
+        return body;
+    }
+
+    private void end(int body) {
+        int length = buffer.position() - body;
+        buffer.putInt(body - 4, length);
+        crc.reset();
+        crc.update(buffer.array(), body, length);
+        buffer.putInt((int) crc.getValue());
+        appended++;
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void ensureCapacity() {
+        if (buffer.remaining() < MAX_RECORD_SIZE) {
+            // Full before the next group commit: hand it to the flusher, never write here
+            filled.add(buffer);
+            ByteBuffer spare = spares.poll();
+            buffer = spare != null ? spare : ByteBuffer.allocate(BUFFER_SIZE);
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    /**
+     * Move every encoded record into writing; caller holds io
+     * @return Records appended up to the handover
+     */
+    private long takeBuffers() {
+        synchronized (this) {
+            writing.addAll(filled);
+            filled.clear();
+            if (buffer.position() > 0) {
+                writing.add(buffer);
+                ByteBuffer spare = spares.poll();
+                buffer = spare != null ? spare : ByteBuffer.allocate(BUFFER_SIZE);
+            }
+            return appended;
+        }
+    }
+
+    /**
+     * Write the handed-over buffers to the live segment; caller holds io
+     */
+    private void writeBuffers() throws IOException {
+        try {
+            for (ByteBuffer full : writing) {
+                full.flip();
+                while (full.hasRemaining()) {
+                    segmentBytes += segment.write(full);
+                }
+            }
+        } finally {
+            synchronized (this) {
+                for (ByteBuffer done : writing) {
+                    if (spares.size() < 2) {
+                        spares.add(done.clear());
+                    }
+                }
+            }
+            writing.clear();
+        }
+    }
+
+    // ===== Group Commit =====
+
+    /**
+     * Block until every mutation recorded so far is on disk
+     */
+    public void awaitDurable() {
+        long target;
+        synchronized (this) {
+            target = appended;
+        }
+        while (durable < target && flusher.isAlive()) {
+            LockSupport.unpark(flusher);
+            LockSupport.parkNanos(flushIntervalNanos / 4 + 1);
+        }
+    }
+
+    /**
+     * Records appended since the journal was opened
+     */
+    public synchronized long getAppendedCount() {
+        return appended;
+    }
+
+    /**
+     * Number of fsyncs performed; appended / syncs is the average group size
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    private void flushLoop() {
+        while (running) {
+            LockSupport.parkNanos(flushIntervalNanos);
+            try {
+                sync();
+            } catch (IOException | UncheckedIOException e) {
+                EventLog.log(Level.ERROR, "✗ Journal: flush failed: ", e.getMessage(), null);
+            }
+            if (segmentBytes > compactThresholdBytes && compacting.compareAndSet(false, true)) {
+                Thread compactor = new Thread(this::compactQuietly, "event-journal-compactor");
+                compactor.setDaemon(true);
+                compactor.start();
+            }
+        }
+    }
+
+    private void sync() throws IOException {
+        synchronized (io) {
+            long target = takeBuffers();
+            writeBuffers();
+            if (target > durable) {
+                segment.force(false); // mutators keep appending to the next buffer meanwhile
+                durable = target;
+                syncCount++;
+            }
+        }
+    }
+
+    // ===== Compaction =====
+
+    /**
+     * Fold the journal into a new snapshot and delete the segments it covers
+     * Runs automatically in the background when a segment passes the threshold
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void compact() throws IOException {
+        long covered;
+        long next;
+        synchronized (io) {
+            long target = takeBuffers();
+            writeBuffers();
+            segment.force(false);
+            durable = target;
+            segment.close();
+            covered = segmentIndex;
+            next = segmentIndex + 1;
+            openSegment(next);
+        }
+        // Changes made while the snapshot is written also go to the new segment,
+        // and replaying them on top of the snapshot gives the same state
+        HomeSnapshot.write(controller.getAllDevices(), snapshotFile(next)); // replaces the file atomically
+        for (long index = covered; index >= 0; index--) {
+            boolean removed = Files.deleteIfExists(segmentFile(index));
+            removed |= Files.deleteIfExists(snapshotFile(index));
+            if (!removed && index < covered) {
+                break;
+            }
+        }
+        EventLog.log(Level.INFO, "✓ Journal: ", directory, " compacted into snapshot ", next, null);
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | UncheckedIOException e) {
+            EventLog.log(Level.ERROR, "✗ Journal: compaction failed: ", e.getMessage(), null);
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    /**
+     * Stop journaling, flush and fsync everything recorded
+     */
+    @Override
+    public void close() throws IOException {
+        controller.removeHomeListener(this);
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (io) {
+            sync();
+            segment.close();
+        }
+    }
+
+    /**
+     * Record type of a device; compact views are journaled like their
+     * heap counterparts and come back as SmartLight, SmartThermostat or SmartSpeaker
+     */
+    static byte typeOf(ISmartDevice device) {
+        if (device instanceof ISmartLight) {
+            return HomeSnapshot.TYPE_LIGHT;
+        } else if (device instanceof ISmartThermostat) {
+            return HomeSnapshot.TYPE_THERMOSTAT;
+        } else if (device instanceof ISmartSpeaker) {
+            return HomeSnapshot.TYPE_SPEAKER;
+        }
+        return -1;
+    }
+
+    // ===== Replay =====
+
+    /**
+     * Applies journal records to recovered devices without logging
+     */
+    private final class Replay {
+        private final Map<String, ISmartDevice> recovered;
+        private final Map<String, IDeviceRole> roles = new HashMap<>();
+        private final CRC32 check = new CRC32();
+
+        Replay(Map<String, ISmartDevice> recovered) {
+            this.recovered = recovered;
+        }
+
+        long segment(Path file) throws IOException {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+            long count = 0;
+            while (in.remaining() >= 4) {
+                int length = in.getInt();
+                if (length <= 0 || in.remaining() < length + 4) {
+                    break; // torn tail
+                }
+                check.reset();
+                check.update(in.array(), in.position(), length);
+                if ((int) check.getValue() != in.getInt(in.position() + length)) {
+                    EventLog.log(Level.WARN, "⚠ Journal: corrupt record in ", file.getFileName(), ", stopping replay");
+                    break;
+                }
+                ByteBuffer body = in.slice();
+                body.limit(length);
+                apply(body);
+                in.position(in.position() + length + 4);
+                count++;
+            }
+            return count;
+        }
+
+        private void apply(ByteBuffer body) throws IOException {
+            byte kind = body.get();
+            String id = HomeSnapshot.getString(body);
+            if (kind == SCENARIO) {
+                return; // marker only; the role changes that followed are journaled
+            }
+            if (kind == REGISTER) {
+                byte type = body.get();
+                String name = HomeSnapshot.getString(body);
+                if (!recovered.containsKey(id)) {
+                    recovered.put(id, type == HomeSnapshot.TYPE_LIGHT ? new SmartLight(id, name)
+                        : type == HomeSnapshot.TYPE_THERMOSTAT ? new SmartThermostat(id, name)
+                        : new SmartSpeaker(id, name));
+                }
+                return;
+            }
+            if (kind == UNREGISTER) {
+                recovered.remove(id);
+                return;
+            }
+            SmartDevice device = (SmartDevice) recovered.get(id);
+            if (device == null) {
+                return; // device was unregistered later
+            }
+            switch (kind) {
+                case FIELD:
+                    applyField(device, FIELDS[body.get()], body.getDouble());
+                    break;
+                case TEXT:
+                    DeviceField field = FIELDS[body.get()];
+                    if (field == DeviceField.SOUND && device instanceof SmartSpeaker) {
+                        SmartSpeaker speaker = (SmartSpeaker) device;
+                        speaker.restoreState(speaker.isOn(), speaker.getVolume(), HomeSnapshot.getString(body));
+                    }
+                    break;
+                case ROLE_ADD:
+                    String className = HomeSnapshot.getString(body);
+                    String parameter = body.hasRemaining() && body.get() != 0 ? HomeSnapshot.getString(body) : null;
+                    device.restoreRole(role(className, parameter));
+                    break;
+                case ROLE_REMOVE:
+                    device.restoreRoleRemoval(roleType(HomeSnapshot.getString(body)));
+                    break;
+                default:
+                    throw new IOException("Unknown journal record kind " + kind);
+            }
+        }
+
+        private IDeviceRole role(String className, String parameter) throws IOException {
+            String key = parameter == null ? className : className + '\0' + parameter;
+            IDeviceRole role = roles.get(key);
+            if (role == null) {
+                role = HomeSnapshot.instantiateRole(className, parameter);
+                roles.put(key, role);
+            }
+            return role;
+        }
+
+        /**
+         * Role class for a removal; configured roles need no instance to be removed
+         */
+        private Class<? extends IDeviceRole> roleType(String className) throws IOException {
+            try {
+                return Class.forName(className).asSubclass(IDeviceRole.class);
+            } catch (ClassNotFoundException | ClassCastException e) {
+                throw new IOException("Cannot restore role " + className, e);
+            }
+        }
+
+        private void applyField(SmartDevice device, DeviceField field, double value) {
+            if (device instanceof SmartLight) {
+                SmartLight light = (SmartLight) device;
+                boolean on = field == DeviceField.POWER ? value != 0 : light.isOn();
+                int brightness = field == DeviceField.BRIGHTNESS ? (int) value : light.getBrightness();
+                light.restoreState(on, brightness);
+            } else if (device instanceof SmartThermostat) {
+                SmartThermostat thermostat = (SmartThermostat) device;
+                boolean on = field == DeviceField.POWER ? value != 0 : thermostat.isOn();
+                double target = field == DeviceField.TARGET_TEMPERATURE ? value : thermostat.getTargetTemperature();
+                double current = field == DeviceField.CURRENT_TEMPERATURE ? value : thermostat.getCurrentTemperature();
+                thermostat.restoreState(on, target, current);
+            } else if (device instanceof SmartSpeaker) {
+                SmartSpeaker speaker = (SmartSpeaker) device;
+                boolean on = field == DeviceField.POWER ? value != 0 : speaker.isOn();
+                int volume = field == DeviceField.VOLUME ? (int) value : speaker.getVolume();
+                speaker.restoreState(on, volume, speaker.getCurrentSound());
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package persistence;
+
+import devices.ISmartDevice;
+import devices.ISmartLight;
+import devices.ISmartSpeaker;
+import devices.ISmartThermostat;
+import devices.SmartDevice;
+import devices.SmartLight;
+import devices.SmartSpeaker;
+import devices.SmartThermostat;
+import roles.IDeviceRole;
+import roles.RoleRegistry;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary snapshot of the full home state, written and read through
+ * a memory-mapped file
+ *
+ * Layout (big-endian):
+ *   int magic, short format version, int device count,
+ *   short role count, then per role: string class name, byte has-parameter,
+ *               and if set the role's getParameter text as a string
+ *   per device: byte type, byte flags (bit 0 = on), string id, string name,
+ *               long role bitmask (bit i = role i of the table),
+ *               then typed state:
+ *                 light      int brightness
+ *                 thermostat double target, double current
+ *                 speaker    int volume, string current sound
+ *   strings are an unsigned short byte length followed by UTF-8 bytes
+ *
+ * Roles are restored through RoleRegistry.restore: roles without a
+ * parameter as the shared instance live mode changes hand out, configured
+ * roles rebuilt from their parameter. The table has one entry per distinct
+ * (role class, parameter) pair. Version 1 files, whose table holds class
+ * names only, are still read.
+ *
+ * Compact store views are written like the heap device of the same kind
+ * and read back as SmartLight, SmartThermostat or SmartSpeaker; the
+ * snapshot does not record which store a device lived in.
+ */
+public final class HomeSnapshot {
+    private static final int MAGIC = 0x53485331; // "SHS1"
+    private static final short FORMAT_VERSION = 2;
+    private static final short FORMAT_VERSION_CLASS_NAMES = 1; // role table without parameters
+    private static final int MAX_ROLE_TYPES = 64;
+
+    static final byte TYPE_LIGHT = 0;
+    static final byte TYPE_THERMOSTAT = 1;
+    static final byte TYPE_SPEAKER = 2;
+    private static final byte FLAG_ON = 1;
+    private static final ThreadLocal<byte[]> STRING_SCRATCH = ThreadLocal.withInitial(() -> new byte[256]);
+
+    private HomeSnapshot() {
+    }
+
+    // ===== Writing =====
+
+    /**
+     * Write a snapshot of the given devices, replacing the file if it exists
+     * The snapshot goes to a temporary file next to the target, which is
+     * forced and then moved over it atomically, so a crash leaves either
+     * the old file or the complete new one.
+     * Devices may change while the snapshot is written; each record holds a
+     * recent value of every field, and roles gained after the role table
+     * was built are left out
+     * @param devices Devices to persist (lights, thermostats or speakers, heap or compact)
+     * @param file Target file
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException for unsupported device types or more than 64 distinct roles
+     */
+    public static void write(Collection<? extends ISmartDevice> devices, Path file) throws IOException {
+        Map<Object, Integer> roleIndex = new HashMap<>();
+        List<IDeviceRole> roleTable = new ArrayList<>();
+        // The collection may be live; both passes and the count work on one copy,
+        // and variable-length fields are captured once so the passes agree on the size
+        ISmartDevice[] snapshot = devices.toArray(new ISmartDevice[0]);
+        String[] sounds = new String[snapshot.length];
+        long size = 4 + 2 + 4 + 2;
+        for (int i = 0; i < snapshot.length; i++) {
+            ISmartDevice device = snapshot[i];
+            if (device instanceof ISmartSpeaker) {
+                sounds[i] = ((ISmartSpeaker) device).getCurrentSound();
+            }
+            size += recordSize(device, sounds[i]);
+            for (IDeviceRole role : device.getAllRoles()) {
+                Object key = roleKey(role);
+                if (!roleIndex.containsKey(key)) {
+                    if (roleTable.size() == MAX_ROLE_TYPES) {
+                        throw new IllegalArgumentException("Snapshots support at most " + MAX_ROLE_TYPES + " distinct roles");
+                    }
+                    roleIndex.put(key, roleTable.size());
+                    roleTable.add(role);
+                    size += 2 + utf8Length(role.getClass().getName()) + 1;
+                    if (role.getParameter() != null) {
+                        size += 2 + utf8Length(role.getParameter());
+                    }
+                }
+            }
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Snapshot larger than 2 GB is not supported");
+        }
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName() + ".", ".tmp");
+        try {
+            writeMapped(temporary, size, snapshot, roleTable, roleIndex, sounds);
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary); // only still there if writing or moving failed
+        }
+    }
+
+    private static void writeMapped(Path file, long size, ISmartDevice[] snapshot, List<IDeviceRole> roleTable,
+                                    Map<Object, Integer> roleIndex, String[] sounds) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC);
+            out.putShort(FORMAT_VERSION);
+            out.putInt(snapshot.length);
+            out.putShort((short) roleTable.size());
+            for (IDeviceRole role : roleTable) {
+                putString(out, role.getClass().getName());
+                String parameter = role.getParameter();
+                out.put((byte) (parameter != null ? 1 : 0));
+                if (parameter != null) {
+                    putString(out, parameter);
+                }
+            }
+            for (int i = 0; i < snapshot.length; i++) {
+                writeRecord(out, snapshot[i], roleIndex, sounds[i]);
+            }
+            out.force();
+        }
+    }
+
+    private static long recordSize(ISmartDevice device, String sound) {
+        long size = 1 + 1 + 2 + utf8Length(device.getDeviceId()) + 2 + utf8Length(device.getDeviceName()) + 8;
+        if (device instanceof ISmartLight) {
+            return size + 4;
+        } else if (device instanceof ISmartThermostat) {
+            return size + 16;
+        } else if (device instanceof ISmartSpeaker) {
+            return size + 4 + 2 + utf8Length(sound);
+        }
+        throw new IllegalArgumentException("Unsupported device type: " + device.getClass().getName());
+    }
+
+    /**
+     * Table key of a role: its class, or class and parameter for configured roles
+     */
+    private static Object roleKey(IDeviceRole role) {
+        String parameter = role.getParameter();
+        return parameter == null ? role.getClass() : List.of(role.getClass(), parameter);
+    }
+
+    private static void writeRecord(ByteBuffer out, ISmartDevice device, Map<Object, Integer> roleIndex, String sound) {
+        byte type = device instanceof ISmartLight ? TYPE_LIGHT
+            : device instanceof ISmartThermostat ? TYPE_THERMOSTAT : TYPE_SPEAKER;
+        out.put(type);
+        out.put(device.isOn() ? FLAG_ON : 0);
+        putString(out, device.getDeviceId());
+        putString(out, device.getDeviceName());
+        long mask = 0;
+        for (IDeviceRole role : device.getAllRoles()) {
+            Integer index = roleIndex.get(roleKey(role));
+            if (index != null) {
+                mask |= 1L << index;
+            }
+        }
+        out.putLong(mask);
+        switch (type) {
+            case TYPE_LIGHT:
+                out.putInt(((ISmartLight) device).getBrightness());
+                break;
+            case TYPE_THERMOSTAT:
+                ISmartThermostat thermostat = (ISmartThermostat) device;
+                out.putDouble(thermostat.getTargetTemperature());
+                out.putDouble(thermostat.getCurrentTemperature());
+                break;
+            default:
+                ISmartSpeaker speaker = (ISmartSpeaker) device;
+                out.putInt(speaker.getVolume());
+                putString(out, sound);
+                break;
+        }
+    }
+
+    // ===== Reading =====
+
+    /**
+     * Load every device from a snapshot
+     * Devices are created with their saved state and roles; nothing is logged
+     * and no scenario is replayed
+     * @param file Snapshot file
+     * @return Devices in the order they were written
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static List<ISmartDevice> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(in);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated snapshot: " + file, e);
+        }
+    }
+
+    static List<ISmartDevice> decode(ByteBuffer in) throws IOException {
+        if (in.remaining() < 12 || in.getInt() != MAGIC) {
+            throw new IOException("Not a smart home snapshot");
+        }
+        short version = in.getShort();
+        if (version != FORMAT_VERSION && version != FORMAT_VERSION_CLASS_NAMES) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        int count = in.getInt();
+        IDeviceRole[] roleTable = new IDeviceRole[in.getShort()];
+        for (int i = 0; i < roleTable.length; i++) {
+            String className = getString(in);
+            String parameter = version != FORMAT_VERSION_CLASS_NAMES && in.get() != 0 ? getString(in) : null;
+            roleTable[i] = instantiateRole(className, parameter);
+        }
+        List<ISmartDevice> devices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            devices.add(readRecord(in, roleTable));
+        }
+        return devices;
+    }
+
+    private static SmartDevice readRecord(ByteBuffer in, IDeviceRole[] roleTable) throws IOException {
+        byte type = in.get();
+        boolean on = (in.get() & FLAG_ON) != 0;
+        String id = getString(in);
+        String name = getString(in);
+        long mask = in.getLong();
+        SmartDevice device;
+        switch (type) {
+            case TYPE_LIGHT:
+                SmartLight light = new SmartLight(id, name);
+                light.restoreState(on, in.getInt());
+                device = light;
+                break;
+            case TYPE_THERMOSTAT:
+                SmartThermostat thermostat = new SmartThermostat(id, name);
+                thermostat.restoreState(on, in.getDouble(), in.getDouble());
+                device = thermostat;
+                break;
+            case TYPE_SPEAKER:
+                SmartSpeaker speaker = new SmartSpeaker(id, name);
+                speaker.restoreState(on, in.getInt(), getString(in));
+                device = speaker;
+                break;
+            default:
+                throw new IOException("Unknown device type " + type + " for device " + id);
+        }
+        while (mask != 0) {
+            int index = Long.numberOfTrailingZeros(mask);
+            if (index >= roleTable.length) {
+                throw new IOException("Unknown role index " + index + " for device " + id);
+            }
+            device.restoreRole(roleTable[index]);
+            mask &= mask - 1;
+        }
+        return device;
+    }
+
+    static IDeviceRole instantiateRole(String className, String parameter) throws IOException {
+        try {
+            return RoleRegistry.restore(className, parameter);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Cannot restore role " + className
+                + (parameter != null ? " with parameter " + parameter : ""), e);
+        }
+    }
+
+    // ===== Strings =====
+
+    static void putString(ByteBuffer out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    static String getString(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        byte[] bytes = STRING_SCRATCH.get();
+        if (bytes.length < length) {
+            bytes = new byte[length];
+            STRING_SCRATCH.set(bytes);
+        }
+        in.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * UTF-8 encoded length without encoding the string
+     * Matches String.getBytes(UTF_8), which encodes an unpaired surrogate as '?' 
+     * @throws IllegalArgumentException if the string does not fit the 64 KB string limit
+     */
+    static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                       && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++; // replaced by '?'
+            } else {
+                length += 3;
+            }
+        }
+        if (length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long for snapshot: " + value.substring(0, 32) + "...");
+        }
+        return length;
+    }
+}
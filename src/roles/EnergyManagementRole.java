@@ -1,35 +1,51 @@
 package roles;
 
+import devices.CompactDeviceStore;
 import devices.ISmartDevice;
 import devices.SmartLight;
 import devices.SmartSpeaker;
 import devices.SmartThermostat;
+import logging.EventLog;
+import logging.Level;
 
 /**
  * EnergyManagementRole - Enables devices to operate in power-saving mode
  */
 public class EnergyManagementRole implements IDeviceRole {
     
-    @Override
-    public void execute(ISmartDevice device) {
-        System.out.println("  [Energy] " + device.getDeviceName() + " applying energy-saving measures...");
-        
-        // Different devices save energy differently
-        if (device instanceof SmartLight) {
-            SmartLight light = (SmartLight) device;
+    // Different devices save energy differently
+    static {
+        RoleDispatch.registerDefault(EnergyManagementRole.class, SmartLight.class, (role, light) -> {
             light.setBrightness(30); // Reduce to 30%
-            System.out.println("    → Light: Reduced brightness to 30% to save energy");
-            
-        } else if (device instanceof SmartSpeaker) {
-            SmartSpeaker speaker = (SmartSpeaker) device;
+            EventLog.log(Level.INFO, "    → Light: Reduced brightness to 30% to save energy");
+        });
+        RoleDispatch.registerDefault(EnergyManagementRole.class, SmartSpeaker.class, (role, speaker) -> {
             speaker.setVolume(20); // Lower volume
-            System.out.println("    → Speaker: Reduced volume to 20% for energy efficiency");
-            
-        } else if (device instanceof SmartThermostat) {
-            SmartThermostat thermostat = (SmartThermostat) device;
+            EventLog.log(Level.INFO, "    → Speaker: Reduced volume to 20% for energy efficiency");
+        });
+        RoleDispatch.registerDefault(EnergyManagementRole.class, SmartThermostat.class, (role, thermostat) -> {
             thermostat.enableEcoMode();
-            System.out.println("    → Thermostat: Enabled ECO mode");
-        }
+            EventLog.log(Level.INFO, "    → Thermostat: Enabled ECO mode");
+        });
+        
+        RoleDispatch.registerDefault(EnergyManagementRole.class, CompactDeviceStore.LightView.class, (role, light) -> {
+            light.setBrightness(30);
+            EventLog.log(Level.INFO, "    → Light: Reduced brightness to 30% to save energy");
+        });
+        RoleDispatch.registerDefault(EnergyManagementRole.class, CompactDeviceStore.SpeakerView.class, (role, speaker) -> {
+            speaker.setVolume(20);
+            EventLog.log(Level.INFO, "    → Speaker: Reduced volume to 20% for energy efficiency");
+        });
+        RoleDispatch.registerDefault(EnergyManagementRole.class, CompactDeviceStore.ThermostatView.class, (role, thermostat) -> {
+            thermostat.setTemperature(thermostat.getTargetTemperature() - 2.0);
+            EventLog.log(Level.INFO, "    → Thermostat: Enabled ECO mode");
+        });
+    }
+    
+    @Override
+    public void execute(ISmartDevice device) {
+        EventLog.log(Level.INFO, "  [Energy] ", device.getDeviceName(), " applying energy-saving measures...");
+        RoleDispatch.dispatch(this, device);
     }
     
     @Override
@@ -24,4 +24,14 @@ public interface IDeviceRole {
      * @return Role description as String
      */
     String getDescription();
+    
+    /**
+     * Get the configuration this instance was built with, as text
+     * Persisted with the role and handed back to the reader registered through
+     * RoleRegistry.restorable, so configured roles survive a restart
+     * @return Parameter text, or null for roles without configuration
+     */
+    default String getParameter() {
+        return null;
+    }
 }
\ No newline at end of file
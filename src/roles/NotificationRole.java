@@ -1,37 +1,51 @@
 package roles;
 
+import devices.CompactDeviceStore;
 import devices.ISmartDevice;
 import devices.SmartLight;
 import devices.SmartSpeaker;
 import devices.SmartThermostat;
+import logging.EventLog;
+import logging.Level;
 
 /**
  * NotificationRole - Enables devices to notify users of events
  */
 public class NotificationRole implements IDeviceRole {
     
-    @Override
-    public void execute(ISmartDevice device) {
-        System.out.println("  [Notification] " + device.getDeviceName() + " sending notification...");
-        
-        // Different devices notify in different ways
-        if (device instanceof SmartLight) {
-            SmartLight light = (SmartLight) device;
+    // Different devices notify in different ways
+    static {
+        RoleDispatch.registerDefault(NotificationRole.class, SmartLight.class, (role, light) -> {
             light.turnOn();
             light.setColor("Blue");
             light.flash();
-            System.out.println("    → Light: Flashing BLUE for notification");
-            
-        } else if (device instanceof SmartSpeaker) {
-            SmartSpeaker speaker = (SmartSpeaker) device;
+            EventLog.log(Level.INFO, "    → Light: Flashing BLUE for notification");
+        });
+        RoleDispatch.registerDefault(NotificationRole.class, SmartSpeaker.class, (role, speaker) -> {
             speaker.turnOn();
             speaker.playNotification();
-            System.out.println("    → Speaker: Playing notification sound");
-            
-        } else if (device instanceof SmartThermostat) {
-            SmartThermostat thermostat = (SmartThermostat) device;
-            System.out.println("    → Thermostat: Displaying notification on screen");
-        }
+            EventLog.log(Level.INFO, "    → Speaker: Playing notification sound");
+        });
+        RoleDispatch.registerDefault(NotificationRole.class, SmartThermostat.class, (role, thermostat) ->
+            EventLog.log(Level.INFO, "    → Thermostat: Displaying notification on screen"));
+        
+        RoleDispatch.registerDefault(NotificationRole.class, CompactDeviceStore.LightView.class, (role, light) -> {
+            light.turnOn();
+            EventLog.log(Level.INFO, "    → Light: Turned on for notification");
+        });
+        RoleDispatch.registerDefault(NotificationRole.class, CompactDeviceStore.SpeakerView.class, (role, speaker) -> {
+            speaker.turnOn();
+            speaker.playSound("🔔 NOTIFICATION ALERT");
+            EventLog.log(Level.INFO, "    → Speaker: Playing notification sound");
+        });
+        RoleDispatch.registerDefault(NotificationRole.class, CompactDeviceStore.ThermostatView.class, (role, thermostat) ->
+            EventLog.log(Level.INFO, "    → Thermostat: Displaying notification on screen"));
+    }
+    
+    @Override
+    public void execute(ISmartDevice device) {
+        EventLog.log(Level.INFO, "  [Notification] ", device.getDeviceName(), " sending notification...");
+        RoleDispatch.dispatch(this, device);
     }
     
     @Override
@@ -0,0 +1,184 @@
+package roles;
+
+import devices.ISmartDevice;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dispatch table from (role type, device type) to a RoleHandler
+ *
+ * Roles register one handler per device type instead of testing the device
+ * with an instanceof chain. The handler for a concrete device class is
+ * resolved once - exact registration first, then the nearest registered
+ * superclass, then interface - and cached, so a dispatch is two short
+ * identity scans and one call through the handler. That call is
+ * megamorphic across a mixed fleet, which makes a dispatch slower than a
+ * fully inlined instanceof chain; the table buys open registration.
+ *
+ * New device types plug in by registering handlers for the existing roles:
+ *   RoleDispatch.register(SecurityModeRole.class, SmartLock.class, (role, lock) -> lock.lock());
+ * Built-in roles register with registerDefault, which never replaces a
+ * handler, so application overrides win whenever they are registered.
+ * Devices with no matching handler are left untouched.
+ */
+public final class RoleDispatch {
+    private static final RoleHandler<IDeviceRole, ISmartDevice> NO_HANDLER = (role, device) -> { };
+
+    private static final ClassCache<Entry> ROLES = new ClassCache<Entry>() {
+        @Override
+        protected Entry computeValue(Class<?> roleType) {
+            return new Entry();
+        }
+    };
+
+    private RoleDispatch() {
+    }
+
+    /**
+     * Register the behaviour of a role on a device type, replacing any earlier one
+     * Handlers registered for a superclass or interface apply to its subtypes
+     * unless they have their own. The role class is initialized first, so its
+     * built-in handlers are in place before this one replaces them.
+     * @param roleType Role class
+     * @param deviceType Device class or interface
+     * @param handler Behaviour to run
+     */
+    public static <R extends IDeviceRole, D extends ISmartDevice> void register(
+            Class<R> roleType, Class<D> deviceType, RoleHandler<? super R, ? super D> handler) {
+        initialize(roleType);
+        put(roleType, deviceType, handler, true);
+    }
+
+    /**
+     * Register a role's built-in behaviour on a device type unless one is already registered
+     * Called from role static initializers, so a handler registered earlier by
+     * application code is never overwritten when the role class loads
+     * @param roleType Role class
+     * @param deviceType Device class or interface
+     * @param handler Behaviour to run
+     */
+    public static <R extends IDeviceRole, D extends ISmartDevice> void registerDefault(
+            Class<R> roleType, Class<D> deviceType, RoleHandler<? super R, ? super D> handler) {
+        put(roleType, deviceType, handler, false);
+    }
+
+    private static void put(Class<?> roleType, Class<?> deviceType, RoleHandler<?, ?> handler, boolean replace) {
+        Entry entry = ROLES.lookup(roleType);
+        synchronized (entry) {
+            if (!replace && entry.table.registered.containsKey(deviceType)) {
+                return;
+            }
+            Map<Class<?>, RoleHandler<?, ?>> updated = new HashMap<>(entry.table.registered);
+            updated.put(deviceType, handler);
+            entry.table = new Table(updated); // fresh cache, resolved again on demand
+        }
+    }
+
+    /**
+     * Run a role class's static initializer, where its built-in handlers are registered
+     * A no-op when the class is already initialized or being initialized by this thread
+     */
+    private static void initialize(Class<?> roleType) {
+        try {
+            Class.forName(roleType.getName(), true, roleType.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new AssertionError("Loaded class not found: " + roleType.getName(), e);
+        }
+    }
+
+    /**
+     * Run the role's handler for the device's type
+     * @return true if a handler was registered for the device type
+     */
+    @SuppressWarnings("unchecked")
+    public static boolean dispatch(IDeviceRole role, ISmartDevice device) {
+        RoleHandler<IDeviceRole, ISmartDevice> handler =
+            (RoleHandler<IDeviceRole, ISmartDevice>) ROLES.lookup(role.getClass()).table.resolved.lookup(device.getClass());
+        handler.handle(role, device);
+        return handler != NO_HANDLER;
+    }
+
+    /**
+     * Whether a role has behaviour for a device type
+     */
+    public static boolean handles(Class<? extends IDeviceRole> roleType, Class<? extends ISmartDevice> deviceType) {
+        initialize(roleType);
+        return ROLES.lookup(roleType).table.resolved.lookup(deviceType) != NO_HANDLER;
+    }
+
+    /**
+     * Registrations of one role type; replaced as a whole on every registration
+     */
+    private static final class Entry {
+        volatile Table table = new Table(new HashMap<>());
+    }
+
+    private static final class Table {
+        final Map<Class<?>, RoleHandler<?, ?>> registered;
+        final ClassCache<RoleHandler<?, ?>> resolved = new ClassCache<RoleHandler<?, ?>>() {
+            @Override
+            protected RoleHandler<?, ?> computeValue(Class<?> deviceType) {
+                return resolve(deviceType);
+            }
+        };
+
+        Table(Map<Class<?>, RoleHandler<?, ?>> registered) {
+            this.registered = registered;
+        }
+
+        private RoleHandler<?, ?> resolve(Class<?> deviceType) {
+            for (Class<?> type = deviceType; type != null; type = type.getSuperclass()) {
+                RoleHandler<?, ?> handler = registered.get(type);
+                if (handler != null) {
+                    return handler;
+                }
+            }
+            for (Class<?> type = deviceType; type != null; type = type.getSuperclass()) {
+                for (Class<?> contract : type.getInterfaces()) {
+                    RoleHandler<?, ?> handler = registered.get(contract);
+                    if (handler != null) {
+                        return handler;
+                    }
+                }
+            }
+            return NO_HANDLER;
+        }
+    }
+
+    /**
+     * ClassValue fronted by a few recently used classes compared by identity
+     * A fleet has a handful of role and device classes, and scanning a few
+     * class pointers is cheaper than a ClassValue lookup on every dispatch.
+     * Classes past the first RECENT_TYPES are only in the ClassValue.
+     */
+    private abstract static class ClassCache<V> extends ClassValue<V> {
+        private static final int RECENT_TYPES = 8;
+
+        // Class at even indexes, its value at the next one; replaced as a whole
+        private volatile Object[] recent = new Object[0];
+
+        @SuppressWarnings("unchecked")
+        V lookup(Class<?> type) {
+            Object[] entries = recent;
+            for (int i = 0; i < entries.length; i += 2) {
+                if (entries[i] == type) {
+                    return (V) entries[i + 1];
+                }
+            }
+            return remember(type);
+        }
+
+        private synchronized V remember(Class<?> type) {
+            V value = get(type);
+            Object[] entries = recent;
+            if (entries.length < 2 * RECENT_TYPES && !Arrays.asList(entries).contains(type)) {
+                Object[] updated = Arrays.copyOf(entries, entries.length + 2);
+                updated[entries.length] = type;
+                updated[entries.length + 1] = value;
+                recent = updated;
+            }
+            return value;
+        }
+    }
+}
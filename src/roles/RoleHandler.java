@@ -0,0 +1,13 @@
+package roles;
+
+import devices.ISmartDevice;
+
+/**
+ * Behaviour of one role on one device type
+ * @param <R> Role type, passed in so handlers can read role parameters
+ * @param <D> Device type the handler was registered for
+ */
+@FunctionalInterface
+public interface RoleHandler<R extends IDeviceRole, D extends ISmartDevice> {
+    void handle(R role, D device);
+}
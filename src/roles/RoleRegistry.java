@@ -0,0 +1,151 @@
+package roles;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Canonical role instances shared by every device that holds the role
+ *
+ * The built-in roles keep no state of their own - everything they touch is
+ * passed in through execute(device) - so one instance per role class is
+ * enough for a whole fleet, and turning a mode on for a million devices no
+ * longer creates a million role objects.
+ *
+ * Roles that need configuration are interned by parameter instead: every
+ * device asking for the same (role class, parameter) pair gets the same
+ * instance. The parameter should come from a small set (a preset, a target
+ * level); state that is truly per device belongs on the device itself,
+ * where the role's handler can read it. A configured role reports its
+ * parameter through getParameter and registers how to rebuild itself from
+ * it with restorable, so persisted roles come back with their configuration.
+ */
+public final class RoleRegistry {
+    // Not a ClassValue: computeValue may run twice and the canonical instance must be unique
+    private static final ConcurrentMap<Class<?>, IDeviceRole> SHARED = new ConcurrentHashMap<>();
+
+    private static final ClassValue<ConcurrentMap<Object, IDeviceRole>> PARAMETERIZED =
+        new ClassValue<ConcurrentMap<Object, IDeviceRole>>() {
+            @Override
+            protected ConcurrentMap<Object, IDeviceRole> computeValue(Class<?> roleType) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+
+    private static final ConcurrentMap<Class<?>, Function<String, ? extends IDeviceRole>> READERS =
+        new ConcurrentHashMap<>();
+
+    private RoleRegistry() {
+    }
+
+    /**
+     * Get the shared instance of a stateless role
+     * Created on first use with the role's no-arg constructor
+     * @param roleType Role class
+     * @return The same instance on every call
+     * @throws IllegalArgumentException if the role has no accessible no-arg constructor
+     */
+    public static <R extends IDeviceRole> R shared(Class<R> roleType) {
+        return roleType.cast(SHARED.computeIfAbsent(roleType, RoleRegistry::instantiate));
+    }
+
+    /**
+     * Get the shared instance of a role for one parameter value
+     * @param roleType Role class
+     * @param parameter Configuration the role is built from; must implement equals and hashCode
+     * @param factory Builds the role the first time the parameter is seen
+     * @return The same instance for equal parameters
+     */
+    public static <R extends IDeviceRole, P> R parameterized(Class<R> roleType, P parameter,
+                                                             Function<? super P, ? extends R> factory) {
+        IDeviceRole role = PARAMETERIZED.get(roleType).computeIfAbsent(parameter, key -> {
+            R created = factory.apply(parameter);
+            if (created.getClass() != roleType) {
+                throw new IllegalArgumentException("Factory for " + roleType.getName()
+                    + " returned " + created.getClass().getName());
+            }
+            return created;
+        });
+        return roleType.cast(role);
+    }
+
+    /**
+     * Get the shared instance of a stateless role by class name
+     * Used when restoring roles from persisted state
+     * @param className Fully qualified role class name
+     * @return Shared role instance
+     * @throws IllegalArgumentException if the class is missing, is not a role or cannot be created
+     */
+    public static IDeviceRole shared(String className) {
+        return SHARED.computeIfAbsent(roleClass(className), RoleRegistry::instantiate);
+    }
+
+    /**
+     * Register how a configured role is rebuilt from its getParameter text
+     * Usually called from the role's static initializer, which restore
+     * triggers by loading the class. The reader should go through
+     * parameterized so restored roles are interned like live ones.
+     * @param roleType Role class
+     * @param reader Builds the role from its parameter text
+     */
+    public static <R extends IDeviceRole> void restorable(Class<R> roleType, Function<String, ? extends R> reader) {
+        READERS.put(roleType, reader);
+    }
+
+    /**
+     * Get a role from its persisted form
+     * @param className Fully qualified role class name
+     * @param parameter The role's getParameter text, or null for the shared instance
+     * @return Shared instance when parameter is null, otherwise the role the registered reader builds
+     * @throws IllegalArgumentException if the class is missing, is not a role, cannot be created,
+     *         has no reader for a parameter, or the reader rejects it
+     */
+    public static IDeviceRole restore(String className, String parameter) {
+        if (parameter == null) {
+            return shared(className);
+        }
+        Class<?> type = roleClass(className);
+        Function<String, ? extends IDeviceRole> reader = READERS.get(type);
+        if (reader == null) {
+            throw new IllegalArgumentException(className + " has no registered parameter reader");
+        }
+        IDeviceRole role = reader.apply(parameter);
+        if (role.getClass() != type) {
+            throw new IllegalArgumentException("Reader for " + className + " returned " + role.getClass().getName());
+        }
+        return role;
+    }
+
+    /**
+     * Check whether a role is the shared instance of its class
+     * Parameterized instances are not included
+     * @param role Role to check
+     * @return true if the role came from shared()
+     */
+    public static boolean isShared(IDeviceRole role) {
+        return SHARED.get(role.getClass()) == role;
+    }
+
+    private static Class<?> roleClass(String className) {
+        Class<?> type;
+        try {
+            type = Class.forName(className); // initializes the class, running its registrations
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown role class " + className, e);
+        }
+        if (!IDeviceRole.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(className + " is not a device role");
+        }
+        return type;
+    }
+
+    private static IDeviceRole instantiate(Class<?> roleType) {
+        try {
+            return (IDeviceRole) roleType.getDeclaredConstructor().newInstance();
+        } catch (NoSuchMethodException | InstantiationException | IllegalAccessException
+                 | InvocationTargetException e) {
+            throw new IllegalArgumentException("Cannot create shared instance of " + roleType.getName(), e);
+        }
+    }
+}
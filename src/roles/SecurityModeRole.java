@@ -1,39 +1,55 @@
 package roles;
 
+import devices.CompactDeviceStore;
 import devices.ISmartDevice;
 import devices.SmartLight;
 import devices.SmartSpeaker;
 import devices.SmartThermostat;
+import logging.EventLog;
+import logging.Level;
 
 /**
  * SecurityModeRole - Enables devices to participate in security alerts
  */
 public class SecurityModeRole implements IDeviceRole {
     
-    @Override
-    public void execute(ISmartDevice device) {
-        System.out.println("  [Security] " + device.getDeviceName() + " executing security protocol...");
-        
-        // Different devices react differently in security mode
-        if (device instanceof SmartLight) {
-            SmartLight light = (SmartLight) device;
+    // Different devices react differently in security mode
+    static {
+        RoleDispatch.registerDefault(SecurityModeRole.class, SmartLight.class, (role, light) -> {
             light.turnOn();
             light.setBrightness(100);
             light.setColor("Red");
             light.flash();
-            System.out.println("    → Light: Full brightness, flashing RED alert!");
-            
-        } else if (device instanceof SmartSpeaker) {
-            SmartSpeaker speaker = (SmartSpeaker) device;
+            EventLog.log(Level.INFO, "    → Light: Full brightness, flashing RED alert!");
+        });
+        RoleDispatch.registerDefault(SecurityModeRole.class, SmartSpeaker.class, (role, speaker) -> {
             speaker.turnOn();
             speaker.setVolume(100);
             speaker.playAlarm();
-            System.out.println("    → Speaker: Playing loud security alarm!");
-            
-        } else if (device instanceof SmartThermostat) {
-            SmartThermostat thermostat = (SmartThermostat) device;
-            System.out.println("    → Thermostat: Logging security event with timestamp");
-        }
+            EventLog.log(Level.INFO, "    → Speaker: Playing loud security alarm!");
+        });
+        RoleDispatch.registerDefault(SecurityModeRole.class, SmartThermostat.class, (role, thermostat) ->
+            EventLog.log(Level.INFO, "    → Thermostat: Logging security event with timestamp"));
+        
+        RoleDispatch.registerDefault(SecurityModeRole.class, CompactDeviceStore.LightView.class, (role, light) -> {
+            light.turnOn();
+            light.setBrightness(100);
+            EventLog.log(Level.INFO, "    → Light: Full brightness alert!");
+        });
+        RoleDispatch.registerDefault(SecurityModeRole.class, CompactDeviceStore.SpeakerView.class, (role, speaker) -> {
+            speaker.turnOn();
+            speaker.setVolume(100);
+            speaker.playSound("🚨 ALARM! ALARM! ALARM!");
+            EventLog.log(Level.INFO, "    → Speaker: Playing loud security alarm!");
+        });
+        RoleDispatch.registerDefault(SecurityModeRole.class, CompactDeviceStore.ThermostatView.class, (role, thermostat) ->
+            EventLog.log(Level.INFO, "    → Thermostat: Logging security event with timestamp"));
+    }
+    
+    @Override
+    public void execute(ISmartDevice device) {
+        EventLog.log(Level.INFO, "  [Security] ", device.getDeviceName(), " executing security protocol...");
+        RoleDispatch.dispatch(this, device);
     }
     
     @Override
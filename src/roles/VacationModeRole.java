@@ -1,43 +1,69 @@
 package roles;
 
+import devices.CompactDeviceStore;
 import devices.ISmartDevice;
 import devices.SmartLight;
 import devices.SmartSpeaker;
 import devices.SmartThermostat;
+import logging.EventLog;
+import logging.Level;
 
 /**
  * VacationModeRole - Simulates presence when residents are away
+ * Random choices come from each device's own stream (see RandomSource),
+ * so the role holds no state and seeded runs are reproducible
  */
 public class VacationModeRole implements IDeviceRole {
     
-    @Override
-    public void execute(ISmartDevice device) {
-        System.out.println("  [Vacation] " + device.getDeviceName() + " simulating presence...");
-        
-        if (device instanceof SmartLight) {
-            SmartLight light = (SmartLight) device;
+    static {
+        RoleDispatch.registerDefault(VacationModeRole.class, SmartLight.class, (role, light) -> {
             // Random on/off to simulate someone is home
-            if (Math.random() > 0.5) {
+            if (light.nextRandom() > 0.5) {
                 light.turnOn();
-                light.setBrightness((int)(Math.random() * 50 + 50)); // 50-100%
-                System.out.println("    → Light: Turned ON at random brightness (simulating presence)");
+                light.setBrightness((int)(light.nextRandom() * 50 + 50)); // 50-100%
+                EventLog.log(Level.INFO, "    → Light: Turned ON at random brightness (simulating presence)");
             } else {
                 light.turnOff();
-                System.out.println("    → Light: Turned OFF (simulating presence)");
+                EventLog.log(Level.INFO, "    → Light: Turned OFF (simulating presence)");
             }
-            
-        } else if (device instanceof SmartSpeaker) {
-            SmartSpeaker speaker = (SmartSpeaker) device;
-            if (Math.random() > 0.7) {
+        });
+        RoleDispatch.registerDefault(VacationModeRole.class, SmartSpeaker.class, (role, speaker) -> {
+            if (speaker.nextRandom() > 0.7) {
                 speaker.playSound("TV sounds");
-                System.out.println("    → Speaker: Playing ambient sounds (simulating presence)");
+                EventLog.log(Level.INFO, "    → Speaker: Playing ambient sounds (simulating presence)");
             }
-            
-        } else if (device instanceof SmartThermostat) {
-            SmartThermostat thermostat = (SmartThermostat) device;
+        });
+        RoleDispatch.registerDefault(VacationModeRole.class, SmartThermostat.class, (role, thermostat) -> {
             thermostat.setTemperature(18.0); // Lower temp while away
-            System.out.println("    → Thermostat: Maintaining minimal temperature");
-        }
+            EventLog.log(Level.INFO, "    → Thermostat: Maintaining minimal temperature");
+        });
+        
+        RoleDispatch.registerDefault(VacationModeRole.class, CompactDeviceStore.LightView.class, (role, light) -> {
+            if (light.nextRandom() > 0.5) {
+                light.turnOn();
+                light.setBrightness((int)(light.nextRandom() * 50 + 50)); // 50-100%
+                EventLog.log(Level.INFO, "    → Light: Turned ON at random brightness (simulating presence)");
+            } else {
+                light.turnOff();
+                EventLog.log(Level.INFO, "    → Light: Turned OFF (simulating presence)");
+            }
+        });
+        RoleDispatch.registerDefault(VacationModeRole.class, CompactDeviceStore.SpeakerView.class, (role, speaker) -> {
+            if (speaker.nextRandom() > 0.7) {
+                speaker.playSound("TV sounds");
+                EventLog.log(Level.INFO, "    → Speaker: Playing ambient sounds (simulating presence)");
+            }
+        });
+        RoleDispatch.registerDefault(VacationModeRole.class, CompactDeviceStore.ThermostatView.class, (role, thermostat) -> {
+            thermostat.setTemperature(18.0);
+            EventLog.log(Level.INFO, "    → Thermostat: Maintaining minimal temperature");
+        });
+    }
+    
+    @Override
+    public void execute(ISmartDevice device) {
+        EventLog.log(Level.INFO, "  [Vacation] ", device.getDeviceName(), " simulating presence...");
+        RoleDispatch.dispatch(this, device);
     }
     
     @Override
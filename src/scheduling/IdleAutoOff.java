@@ -0,0 +1,226 @@
+package scheduling;
+
+import devices.DeviceField;
+import devices.ISmartDevice;
+import devices.ISmartLight;
+import devices.ISmartSpeaker;
+import logging.EventLog;
+import logging.Level;
+import mediator.HomeListener;
+import mediator.SmartHomeController;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Switches lights and speakers off after a period without interaction
+ *
+ * Interactions (turning on, brightness, volume, playing a sound) only
+ * update a last-activity time, read from the scheduler's clock so a
+ * simulated clock drives the monitor too. They arrive through
+ * DeviceListener.deviceUsed, so a call that repeats the current value
+ * still counts as use. A timer is armed when a device
+ * turns on; when it fires, the device is switched off if it has really
+ * been idle for the whole period, otherwise the timer is re-armed for
+ * lastActivity + idle period. Only devices that are on ever have a timer,
+ * and no periodic scan of the fleet is needed.
+ */
+public class IdleAutoOff implements HomeListener {
+    private final SmartHomeController controller;
+    private final Scheduler scheduler;
+    private final long idleMillis;
+    private final Map<String, Activity> activity = new ConcurrentHashMap<>();
+
+    // ===== Metrics =====
+    private final LongAdder armed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder turnedOff = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+
+    /**
+     * Activity of one light or speaker
+     */
+    private static final class Activity {
+        final ISmartDevice device;
+        volatile long lastMillis;
+        ScheduledAction timer; // guarded by this
+
+        Activity(ISmartDevice device, long lastMillis) {
+            this.device = device;
+            this.lastMillis = lastMillis;
+        }
+    }
+
+    private IdleAutoOff(SmartHomeController controller, Scheduler scheduler, long idleMillis) {
+        this.controller = controller;
+        this.scheduler = scheduler;
+        this.idleMillis = idleMillis;
+    }
+
+    /**
+     * Start auto-off for every light and speaker registered with the controller
+     * Devices already on count as active from now
+     * @param controller Controller to observe
+     * @param scheduler Scheduler that runs the expiry checks and supplies the time
+     * @param idle Period without interaction before a device is switched off
+     * @param unit Unit of idle
+     * @return The monitor; call detach() to stop
+     */
+    public static IdleAutoOff attach(SmartHomeController controller, Scheduler scheduler, long idle, TimeUnit unit) {
+        IdleAutoOff monitor = new IdleAutoOff(controller, scheduler, unit.toMillis(idle));
+        controller.addHomeListener(monitor);
+        for (ISmartDevice device : controller.getAllDevices()) {
+            if (device.isOn() && watched(device)) {
+                monitor.arm(monitor.touch(device));
+            }
+        }
+        return monitor;
+    }
+
+    /**
+     * Stop switching devices off and cancel all pending timers
+     */
+    public void detach() {
+        controller.removeHomeListener(this);
+        for (Activity entry : activity.values()) {
+            cancel(entry);
+        }
+        activity.clear();
+    }
+
+    @Override
+    public void stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+        if (!watched(device)) {
+            return;
+        }
+        if (field == DeviceField.POWER && newValue != 0) {
+            arm(touch(device));
+        }
+    }
+
+    @Override
+    public void deviceUsed(ISmartDevice device) {
+        if (watched(device)) {
+            touch(device);
+        }
+    }
+
+    @Override
+    public void deviceUnregistered(ISmartDevice device) {
+        Activity entry = activity.remove(device.getDeviceId());
+        if (entry != null) {
+            cancel(entry);
+        }
+    }
+
+    private static boolean watched(ISmartDevice device) {
+        return device instanceof ISmartLight || device instanceof ISmartSpeaker;
+    }
+
+    private Activity touch(ISmartDevice device) {
+        long now = scheduler.millis();
+        Activity entry = activity.get(device.getDeviceId());
+        if (entry == null) {
+            entry = activity.computeIfAbsent(device.getDeviceId(), id -> new Activity(device, now));
+        }
+        entry.lastMillis = now;
+        return entry;
+    }
+
+    private void arm(Activity entry) {
+        armAt(entry, entry.lastMillis + idleMillis);
+    }
+
+    private void armAt(Activity entry, long deadlineMillis) {
+        synchronized (entry) {
+            if (entry.timer != null) {
+                return; // the pending timer re-checks activity when it fires
+            }
+            armed.increment();
+            long delay = Math.max(0, deadlineMillis - scheduler.millis());
+            entry.timer = scheduler.schedule("idle-off " + entry.device.getDeviceId(),
+                () -> expire(entry), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancel(Activity entry) {
+        synchronized (entry) {
+            if (entry.timer != null) {
+                entry.timer.cancel();
+                entry.timer = null;
+            }
+        }
+    }
+
+    private void expire(Activity entry) {
+        synchronized (entry) {
+            entry.timer = null;
+        }
+        expired.increment();
+        ISmartDevice device = entry.device;
+        if (!device.isOn() || activity.get(device.getDeviceId()) != entry) {
+            return; // off already, or unregistered since the timer was armed
+        }
+        long lastActivity = entry.lastMillis;
+        if (scheduler.millis() - lastActivity >= idleMillis) {
+            device.turnOff();
+            turnedOff.increment();
+            EventLog.log(Level.INFO, "  💤 ", device.getDeviceName(), " switched off after inactivity");
+        } else {
+            deferred.increment(); // used since the timer was armed
+            armAt(entry, lastActivity + idleMillis);
+        }
+    }
+
+    // ===== Metrics =====
+
+    /**
+     * Timers armed so far, including re-arms after activity
+     */
+    public long getArmedCount() {
+        return armed.sum();
+    }
+
+    /**
+     * Timers that fired
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * Devices switched off for inactivity
+     */
+    public long getTurnedOffCount() {
+        return turnedOff.sum();
+    }
+
+    /**
+     * Timers that found recent activity and were re-armed
+     */
+    public long getDeferredCount() {
+        return deferred.sum();
+    }
+
+    /**
+     * Devices with a pending idle timer
+     */
+    public int getPendingCount() {
+        int pending = 0;
+        for (Activity entry : activity.values()) {
+            synchronized (entry) {
+                if (entry.timer != null) {
+                    pending++;
+                }
+            }
+        }
+        return pending;
+    }
+
+    @Override
+    public String toString() {
+        return "IdleAutoOff [pending=" + getPendingCount() + ", armed=" + getArmedCount() + ", expired="
+            + getExpiredCount() + ", turnedOff=" + getTurnedOffCount() + ", deferred=" + getDeferredCount() + "]";
+    }
+}
@@ -0,0 +1,80 @@
+package scheduling;
+
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Handle for a one-shot or recurring action registered with a Scheduler
+ */
+public final class ScheduledAction {
+    private final Scheduler scheduler;
+    private final String name;
+    final Runnable action;
+    final LongUnaryOperator nextRun; // previous deadline -> next deadline, or -1 when done
+    private Timeout timeout;         // guarded by this
+    private boolean cancelled;       // guarded by this
+    private volatile long runCount; // written under this
+
+    ScheduledAction(Scheduler scheduler, String name, Runnable action, LongUnaryOperator nextRun) {
+        this.scheduler = scheduler;
+        this.name = name;
+        this.action = action;
+        this.nextRun = nextRun;
+    }
+
+    /**
+     * Stop the action; a run already in progress completes
+     * @return true if it was still scheduled
+     */
+    public synchronized boolean cancel() {
+        if (cancelled) {
+            return false;
+        }
+        cancelled = true;
+        return timeout != null && timeout.cancel();
+    }
+
+    /**
+     * Arm the next run unless cancelled
+     * @return false if there is no next run
+     */
+    synchronized boolean arm(long deadlineMillis) {
+        if (cancelled || deadlineMillis < 0) {
+            timeout = null;
+            return false;
+        }
+        timeout = scheduler.wheel().schedule(deadlineMillis, () -> scheduler.fire(this));
+        return true;
+    }
+
+    synchronized void ran() {
+        runCount++;
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Time of the next run in epoch milliseconds, or -1 if none is scheduled
+     */
+    public synchronized long getNextRunMillis() {
+        return timeout != null && timeout.isPending() ? timeout.getDeadlineMillis() : -1;
+    }
+
+    public long getRunCount() {
+        return runCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    synchronized long currentDeadline() {
+        return timeout == null ? -1 : timeout.getDeadlineMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduledAction [" + name + ", runs=" + runCount + ", next=" + getNextRunMillis() + "]";
+    }
+}
@@ -0,0 +1,254 @@
+package scheduling;
+
+import devices.RandomSource;
+import logging.EventLog;
+import logging.Level;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Scheduler for one-shot and recurring home automation
+ *
+ * Pending runs are kept in a TimingWheel, so millions of them can be
+ * pending with O(1) insert and cancel. A ticker thread advances the wheel
+ * once per tick and hands due actions to an executor, one thread by
+ * default so actions never overlap. Recurring actions are re-armed from
+ * their scheduled time, not from when they finished, so they do not drift.
+ *
+ * Actions drive the home through the controller's public API, for example:
+ *   scheduler.scheduleWithJitter("presence", controller::simulatePresence, 7, 20, TimeUnit.MINUTES);
+ *   scheduler.scheduleDaily("lights out", LocalTime.of(23, 0), Scheduler.EVERY_DAY, light::turnOff);
+ *   scheduler.scheduleDaily("eco", LocalTime.of(8, 0), Scheduler.WEEKDAYS, controller::applyEnergySaving);
+ */
+public class Scheduler implements AutoCloseable {
+    public static final Set<DayOfWeek> EVERY_DAY = Collections.unmodifiableSet(EnumSet.allOf(DayOfWeek.class));
+    public static final Set<DayOfWeek> WEEKDAYS = Collections.unmodifiableSet(
+        EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY));
+    public static final Set<DayOfWeek> WEEKENDS = Collections.unmodifiableSet(
+        EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY));
+
+    private final Clock clock;
+    private final TimingWheel wheel;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor; // null when the caller supplied one
+    private final SplittableRandom random = RandomSource.getDefault().forKey("scheduler");
+    private final List<Timeout> due = new ArrayList<>(); // ticker thread only
+    private volatile Thread ticker;
+    private volatile boolean running;
+
+    /**
+     * Scheduler on the system clock with 100 ms resolution, running actions on its own thread
+     */
+    public Scheduler() {
+        this(Clock.systemDefaultZone(), 100, null);
+    }
+
+    /**
+     * @param clock Time source; its zone is used for daily schedules
+     * @param tickMillis Timing resolution
+     * @param executor Runs due actions; null for a dedicated single thread.
+     *                 Use Runnable::run to run them on the thread calling advance()
+     */
+    public Scheduler(Clock clock, long tickMillis, Executor executor) {
+        this.clock = clock;
+        this.wheel = new TimingWheel(tickMillis, clock.millis());
+        if (executor == null) {
+            this.ownedExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "scheduler-actions");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor = ownedExecutor;
+        } else {
+            this.ownedExecutor = null;
+            this.executor = executor;
+        }
+    }
+
+    // ===== Scheduling =====
+
+    /**
+     * Run an action once after a delay
+     */
+    public ScheduledAction schedule(String name, Runnable action, long delay, TimeUnit unit) {
+        return start(name, action, clock.millis() + unit.toMillis(delay), previous -> -1);
+    }
+
+    /**
+     * Run an action repeatedly at a fixed period, first after one period
+     */
+    public ScheduledAction scheduleAtFixedRate(String name, Runnable action, long period, TimeUnit unit) {
+        long periodMillis = positive(unit.toMillis(period));
+        return start(name, action, clock.millis() + periodMillis, previous -> previous + periodMillis);
+    }
+
+    /**
+     * Run an action repeatedly with a random gap between min and max (inclusive)
+     * e.g. presence simulation every 7 to 20 minutes
+     */
+    public ScheduledAction scheduleWithJitter(String name, Runnable action, long minDelay, long maxDelay, TimeUnit unit) {
+        long min = positive(unit.toMillis(minDelay));
+        long max = unit.toMillis(maxDelay);
+        if (max < min) {
+            throw new IllegalArgumentException("maxDelay must not be less than minDelay");
+        }
+        return start(name, action, clock.millis() + nextGap(min, max), previous -> previous + nextGap(min, max));
+    }
+
+    /**
+     * Run an action every day at a local time, on the given days of the week
+     * e.g. turn off at 23:00, or eco mode on weekdays
+     */
+    public ScheduledAction scheduleDaily(String name, LocalTime time, Set<DayOfWeek> days, Runnable action) {
+        if (days.isEmpty()) {
+            throw new IllegalArgumentException("At least one day is required");
+        }
+        EnumSet<DayOfWeek> on = EnumSet.copyOf(days);
+        return start(name, action, nextDaily(clock.millis(), time, on), previous -> nextDaily(previous, time, on));
+    }
+
+    private ScheduledAction start(String name, Runnable action, long firstRun, LongUnaryOperator next) {
+        ScheduledAction scheduled = new ScheduledAction(this, name, action, next);
+        scheduled.arm(firstRun);
+        return scheduled;
+    }
+
+    private long nextGap(long min, long max) {
+        synchronized (random) {
+            return min + random.nextLong(max - min + 1);
+        }
+    }
+
+    private long nextDaily(long afterMillis, LocalTime time, Set<DayOfWeek> days) {
+        ZonedDateTime after = ZonedDateTime.ofInstant(Instant.ofEpochMilli(afterMillis), clock.getZone());
+        ZonedDateTime candidate = after.with(time);
+        if (!candidate.isAfter(after)) {
+            candidate = candidate.plusDays(1).with(time);
+        }
+        while (!days.contains(candidate.getDayOfWeek())) {
+            candidate = candidate.plusDays(1).with(time);
+        }
+        return candidate.toInstant().toEpochMilli();
+    }
+
+    private static long positive(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        return millis;
+    }
+
+    // ===== Running =====
+
+    /**
+     * Start the ticker thread that advances the wheel in real time
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        running = true;
+        ticker = new Thread(this::tickLoop, "scheduler-ticker");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * Run everything due at the clock's current time
+     * Called by the ticker thread; call it directly when driving the
+     * scheduler from a simulated clock without start()
+     * @return Number of actions that were due
+     */
+    public int advance() {
+        synchronized (due) {
+            int count = wheel.advanceTo(clock.millis(), due);
+            for (Timeout timeout : due) {
+                timeout.getTask().run(); // re-arms, then hands the action to the executor
+            }
+            due.clear();
+            return count;
+        }
+    }
+
+    void fire(ScheduledAction scheduled) {
+        long deadline = scheduled.currentDeadline();
+        scheduled.arm(scheduled.nextRun.applyAsLong(deadline));
+        executor.execute(() -> {
+            try {
+                scheduled.action.run();
+            } catch (RuntimeException e) {
+                EventLog.log(Level.ERROR, "✗ Scheduler: '", scheduled.getName(), "' failed: ", e, null);
+            } finally {
+                scheduled.ran();
+            }
+        });
+    }
+
+    private void tickLoop() {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(wheel.getTickMillis());
+        while (running) {
+            LockSupport.parkNanos(tickNanos);
+            advance();
+        }
+    }
+
+    TimingWheel wheel() {
+        return wheel;
+    }
+
+    /**
+     * Current time of the scheduler's clock
+     * Subsystems measuring delays for this scheduler read time here, so a
+     * simulated clock drives them too
+     * @return Epoch milliseconds
+     */
+    public long millis() {
+        return clock.millis();
+    }
+
+    /**
+     * Number of pending runs
+     */
+    public int getPendingCount() {
+        return wheel.size();
+    }
+
+    /**
+     * Stop the ticker and the scheduler's own action thread
+     * Pending actions are not run
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = ticker;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+}
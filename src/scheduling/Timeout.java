@@ -0,0 +1,47 @@
+package scheduling;
+
+/**
+ * A pending entry of a TimingWheel
+ * Entries are linked into their wheel slot, so cancelling is O(1).
+ */
+public final class Timeout {
+    final TimingWheel wheel;
+    final Runnable task;
+    final long deadlineMillis;
+    final long deadlineTick;
+    Timeout prev;
+    Timeout next;
+    int slot = -1; // index into the wheel's slot table, -1 once removed
+
+    Timeout(TimingWheel wheel, Runnable task, long deadlineMillis, long deadlineTick) {
+        this.wheel = wheel;
+        this.task = task;
+        this.deadlineMillis = deadlineMillis;
+        this.deadlineTick = deadlineTick;
+    }
+
+    /**
+     * Remove the entry so it never fires - O(1)
+     * @return true if it was still pending
+     */
+    public boolean cancel() {
+        return wheel.cancel(this);
+    }
+
+    /**
+     * Whether the entry is still waiting in the wheel
+     */
+    public boolean isPending() {
+        synchronized (wheel) {
+            return slot >= 0;
+        }
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public Runnable getTask() {
+        return task;
+    }
+}
@@ -0,0 +1,158 @@
+package scheduling;
+
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel
+ *
+ * Time is cut into ticks. Level 0 has one slot per tick for the next 256
+ * ticks, level 1 one slot per 256 ticks, and so on for 7 levels (2^56
+ * ticks). A timeout is linked into the coarsest slot that still separates
+ * it from now, and is moved down a level each time the wheel reaches that
+ * slot. Insert and cancel are O(1); each tick touches only the timeouts
+ * that expire or move down a level.
+ *
+ * Timeouts never fire early: a deadline inside a tick fires at the end of it.
+ * The wheel does not keep time itself; advanceTo is called with the current time.
+ */
+public final class TimingWheel {
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 7;
+
+    private final long tickMillis;
+    private final Timeout[] slots = new Timeout[LEVELS * SLOTS]; // list head per slot
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis Resolution of the wheel in milliseconds
+     * @param startMillis Current time
+     */
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /**
+     * Add a timeout - O(1)
+     * @param deadlineMillis When the task is due; past deadlines fire on the next tick
+     * @param task Task handed back by advanceTo once due
+     * @return Handle for cancelling
+     */
+    public synchronized Timeout schedule(long deadlineMillis, Runnable task) {
+        long deadlineTick = -Math.floorDiv(-deadlineMillis, tickMillis); // round up
+        Timeout timeout = new Timeout(this, task, deadlineMillis, Math.max(deadlineTick, currentTick + 1));
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    synchronized boolean cancel(Timeout timeout) {
+        if (timeout.slot < 0) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Advance the wheel and collect every timeout that is due
+     * @param nowMillis Current time; going backwards is ignored
+     * @param expired Receives the due timeouts in deadline tick order
+     * @return Number of timeouts collected
+     */
+    public synchronized int advanceTo(long nowMillis, List<Timeout> expired) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        int collected = 0;
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick; // nothing to cascade or fire
+                break;
+            }
+            currentTick++;
+            if ((currentTick & MASK) == 0) {
+                cascade();
+            }
+            int slot = (int) (currentTick & MASK);
+            Timeout timeout = slots[slot];
+            slots[slot] = null;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                timeout.slot = -1;
+                expired.add(timeout);
+                timeout = next;
+                collected++;
+            }
+        }
+        size -= collected;
+        return collected;
+    }
+
+    /**
+     * Move the timeouts of the higher-level slots that were just reached down a level
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int index = (int) ((currentTick >>> (level * SLOT_BITS)) & MASK);
+            int slot = level * SLOTS + index;
+            Timeout timeout = slots[slot];
+            slots[slot] = null;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                place(timeout);
+                timeout = next;
+            }
+            if (index != 0) {
+                break; // higher levels only turn when this one wraps
+            }
+        }
+    }
+
+    private void place(Timeout timeout) {
+        long delta = Math.max(0, timeout.deadlineTick - currentTick);
+        int level = delta < SLOTS ? 0 : Math.min(LEVELS - 1, (63 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS);
+        int slot = level * SLOTS + (int) ((timeout.deadlineTick >>> (level * SLOT_BITS)) & MASK);
+        Timeout head = slots[slot];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        slots[slot] = timeout;
+        timeout.slot = slot;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.slot = -1;
+    }
+
+    /**
+     * Number of pending timeouts
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+}
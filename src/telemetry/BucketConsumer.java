@@ -0,0 +1,16 @@
+package telemetry;
+
+/**
+ * Receives rollup buckets from a range query without boxing
+ */
+@FunctionalInterface
+public interface BucketConsumer {
+    /**
+     * @param startMillis Start of the bucket
+     * @param min Lowest sample in the bucket
+     * @param max Highest sample in the bucket
+     * @param sum Sum of the samples, divide by count for the average
+     * @param count Number of samples
+     */
+    void accept(long startMillis, double min, double max, double sum, long count);
+}
@@ -0,0 +1,73 @@
+package telemetry;
+
+/**
+ * Immutable block of Gorilla-encoded samples produced by GorillaEncoder.seal
+ */
+public final class GorillaBlock {
+    private final long[] words;
+    private final int count;
+    private final int sizeInBytes;
+    private final long firstTimestamp;
+    private final long lastTimestamp;
+
+    GorillaBlock(long[] words, int count, int sizeInBytes, long firstTimestamp, long lastTimestamp) {
+        this.words = words;
+        this.count = count;
+        this.sizeInBytes = sizeInBytes;
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    /**
+     * New streaming decoder positioned before the first sample
+     */
+    public GorillaDecoder decoder() {
+        return new GorillaDecoder(words, count);
+    }
+
+    /**
+     * Visit the samples with from <= timestamp <= to
+     * Stops decoding as soon as a sample is past the range
+     * @return Number of samples visited
+     */
+    public int scan(long fromMillis, long toMillis, SampleConsumer consumer) {
+        if (count == 0 || lastTimestamp < fromMillis || firstTimestamp > toMillis) {
+            return 0;
+        }
+        return scan(decoder(), fromMillis, toMillis, consumer);
+    }
+
+    static int scan(GorillaDecoder decoder, long fromMillis, long toMillis, SampleConsumer consumer) {
+        int visited = 0;
+        while (decoder.next()) {
+            long timestamp = decoder.timestamp();
+            if (timestamp > toMillis) {
+                break;
+            }
+            if (timestamp >= fromMillis) {
+                consumer.accept(timestamp, decoder.value());
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Encoded size in bytes, excluding object headers
+     */
+    public int sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+}
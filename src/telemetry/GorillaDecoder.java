@@ -0,0 +1,102 @@
+package telemetry;
+
+/**
+ * Streaming decoder for a Gorilla-encoded block
+ * Samples are decoded one at a time with no allocation:
+ *
+ *   while (decoder.next()) { use decoder.timestamp(), decoder.value() }
+ *
+ * @see GorillaEncoder for the bit layout
+ */
+public final class GorillaDecoder {
+    private final long[] words;
+    private final int count;
+    private long position; // bit offset
+    private int decoded;
+    private long timestamp;
+    private long delta;
+    private long valueBits;
+    private int leading;
+    private int trailing;
+
+    GorillaDecoder(long[] words, int count) {
+        this.words = words;
+        this.count = count;
+    }
+
+    /**
+     * Advance to the next sample
+     * @return false when the block is exhausted
+     */
+    public boolean next() {
+        if (decoded == count) {
+            return false;
+        }
+        if (decoded == 0) {
+            timestamp = readBits(64);
+            valueBits = readBits(64);
+        } else {
+            delta += readDeltaOfDelta();
+            timestamp += delta;
+            readValue();
+        }
+        decoded++;
+        return true;
+    }
+
+    public long timestamp() {
+        return timestamp;
+    }
+
+    public double value() {
+        return Double.longBitsToDouble(valueBits);
+    }
+
+    /**
+     * Samples not yet returned by next()
+     */
+    public int remaining() {
+        return count - decoded;
+    }
+
+    private long readDeltaOfDelta() {
+        if (readBits(1) == 0) {
+            return 0;
+        } else if (readBits(1) == 0) {
+            return readBits(7) - 63;
+        } else if (readBits(1) == 0) {
+            return readBits(9) - 255;
+        } else if (readBits(1) == 0) {
+            return readBits(12) - 2047;
+        }
+        return readBits(64);
+    }
+
+    private void readValue() {
+        if (readBits(1) == 0) {
+            return; // unchanged
+        }
+        if (readBits(1) == 1) {
+            leading = (int) readBits(5);
+            int meaningful = (int) readBits(6) + 1;
+            trailing = 64 - leading - meaningful;
+        }
+        int meaningful = 64 - leading - trailing;
+        valueBits ^= readBits(meaningful) << trailing;
+    }
+
+    private long readBits(int n) {
+        int word = (int) (position >>> 6);
+        int used = (int) (position & 63);
+        int available = 64 - used;
+        long result;
+        if (n <= available) {
+            result = (words[word] << used) >>> (64 - n);
+        } else {
+            int rest = n - available;
+            result = ((words[word] << used) >>> (64 - n)) | (words[word + 1] >>> (64 - rest));
+        }
+        position += n;
+        return result;
+    }
+}
@@ -0,0 +1,168 @@
+package telemetry;
+
+import java.util.Arrays;
+
+/**
+ * Streaming encoder for (timestamp, value) samples in the Gorilla format
+ *
+ * Timestamps are stored as delta-of-deltas: a regular sampling interval
+ * costs one bit per sample. Values are XORed with the previous value and
+ * only the meaningful bits are stored: an unchanged value costs one bit,
+ * a small change usually a dozen or two.
+ *
+ * Bit layout per sample after the first (first sample is two raw 64-bit words):
+ *   timestamp  '0'                       delta-of-delta 0
+ *              '10'   + 7 bits           in [-63, 64]
+ *              '110'  + 9 bits           in [-255, 256]
+ *              '1110' + 12 bits          in [-2047, 2048]
+ *              '1111' + 64 bits          anything else
+ *   value      '0'                       same as previous
+ *              '10' + meaningful bits    fits the previous leading/trailing zero window
+ *              '11' + 5 bits leading zeros + 6 bits length - 1 + meaningful bits
+ *
+ * Timestamps must not go backwards; an older timestamp is encoded as the
+ * latest one. Not thread-safe.
+ */
+public final class GorillaEncoder {
+    private long[] words = new long[8];
+    private long bitCount;
+    private int count;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long lastDelta;
+    private long lastValueBits;
+    private int lastLeading = -1; // no window yet
+    private int lastTrailing;
+
+    /**
+     * Append one sample
+     * @param timestampMillis Sample time
+     * @param value Sample value
+     */
+    public void append(long timestampMillis, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        if (count == 0) {
+            writeBits(timestampMillis, 64);
+            writeBits(bits, 64);
+            firstTimestamp = timestampMillis;
+            lastTimestamp = timestampMillis;
+            lastValueBits = bits;
+            count = 1;
+            return;
+        }
+        long timestamp = Math.max(timestampMillis, lastTimestamp);
+        long delta = timestamp - lastTimestamp;
+        writeDeltaOfDelta(delta - lastDelta);
+        lastDelta = delta;
+        lastTimestamp = timestamp;
+        writeValue(bits);
+        count++;
+    }
+
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            writeBits(0, 1);
+        } else if (dod >= -63 && dod <= 64) {
+            writeBits(0b10, 2);
+            writeBits(dod + 63, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            writeBits(0b110, 3);
+            writeBits(dod + 255, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            writeBits(0b1110, 4);
+            writeBits(dod + 2047, 12);
+        } else {
+            writeBits(0b1111, 4);
+            writeBits(dod, 64);
+        }
+    }
+
+    private void writeValue(long bits) {
+        long xor = bits ^ lastValueBits;
+        lastValueBits = bits;
+        if (xor == 0) {
+            writeBits(0, 1);
+            return;
+        }
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31); // 5-bit field
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (lastLeading >= 0 && leading >= lastLeading && trailing >= lastTrailing) {
+            writeBits(0b10, 2);
+            writeBits(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+        } else {
+            int meaningful = 64 - leading - trailing;
+            writeBits(0b11, 2);
+            writeBits(leading, 5);
+            writeBits(meaningful - 1, 6);
+            writeBits(xor >>> trailing, meaningful);
+            lastLeading = leading;
+            lastTrailing = trailing;
+        }
+    }
+
+    private void writeBits(long value, int n) {
+        int word = (int) (bitCount >>> 6);
+        if (word + 1 >= words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        if (n < 64) {
+            value &= (1L << n) - 1;
+        }
+        int free = 64 - (int) (bitCount & 63);
+        if (n <= free) {
+            words[word] |= value << (free - n);
+        } else {
+            int rest = n - free;
+            words[word] |= value >>> rest;
+            words[word + 1] |= value << (64 - rest);
+        }
+        bitCount += n;
+    }
+
+    // ===== State =====
+
+    /**
+     * Number of samples appended since creation or the last seal
+     */
+    public int count() {
+        return count;
+    }
+
+    public long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Encoded size so far, rounded up to whole bytes
+     */
+    public int sizeInBytes() {
+        return (int) ((bitCount + 7) >>> 3);
+    }
+
+    /**
+     * Decoder over the samples appended so far
+     * The decoder reads the live buffer; do not append while it is in use
+     */
+    public GorillaDecoder decoder() {
+        return new GorillaDecoder(words, count);
+    }
+
+    /**
+     * Finish the current block and reset the encoder for the next one
+     * @return The encoded block, trimmed to its size
+     */
+    public GorillaBlock seal() {
+        long[] data = Arrays.copyOf(words, (int) ((bitCount + 63) >>> 6));
+        GorillaBlock block = new GorillaBlock(data, count, sizeInBytes(), firstTimestamp, lastTimestamp);
+        Arrays.fill(words, 0);
+        bitCount = 0;
+        count = 0;
+        lastDelta = 0;
+        lastLeading = -1;
+        return block;
+    }
+}
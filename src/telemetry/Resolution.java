@@ -0,0 +1,38 @@
+package telemetry;
+
+/**
+ * Rollup resolutions kept by every TimeSeries
+ */
+public enum Resolution {
+    MINUTE(60_000L, 120),    // last 2 hours
+    HOUR(3_600_000L, 168);   // last 7 days
+
+    private final long millis;
+    private final int buckets;
+
+    Resolution(long millis, int buckets) {
+        this.millis = millis;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Bucket width in milliseconds
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Number of buckets retained; older buckets are overwritten
+     */
+    public int getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Start of the bucket containing a timestamp
+     */
+    public long bucketStart(long timestampMillis) {
+        return Math.floorDiv(timestampMillis, millis) * millis;
+    }
+}
@@ -0,0 +1,49 @@
+package telemetry;
+
+/**
+ * Min, max and average over a time range
+ */
+public final class RollupStats {
+    private final double min;
+    private final double max;
+    private final double sum;
+    private final long count;
+
+    RollupStats(double min, double max, double sum, long count) {
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+        this.count = count;
+    }
+
+    /**
+     * Lowest sample, or NaN if the range had no samples
+     */
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * Highest sample, or NaN if the range had no samples
+     */
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Average sample, or NaN if the range had no samples
+     */
+    public double getAverage() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RollupStats [count=%d, min=%.2f, max=%.2f, avg=%.2f]",
+            count, getMin(), getMax(), getAverage());
+    }
+}
@@ -0,0 +1,9 @@
+package telemetry;
+
+/**
+ * Receives samples from a range query without boxing
+ */
+@FunctionalInterface
+public interface SampleConsumer {
+    void accept(long timestampMillis, double value);
+}
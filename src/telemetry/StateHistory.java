@@ -0,0 +1,147 @@
+package telemetry;
+
+import devices.DeviceField;
+import devices.ISmartDevice;
+import mediator.HomeListener;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Compressed history of every numeric device field
+ * Register with SmartHomeController.addHomeListener. Each change of power,
+ * brightness, volume or temperature is appended to a Gorilla-encoded block
+ * for that device and field; full blocks are sealed and the oldest sealed
+ * blocks are dropped past the retention limit.
+ */
+public class StateHistory implements HomeListener {
+    private static final int FIELD_COUNT = DeviceField.values().length;
+
+    private final Map<String, FieldHistory[]> histories = new ConcurrentHashMap<>();
+    private final int samplesPerBlock;
+    private final int maxBlocks;
+    private final LongSupplier clock;
+
+    /**
+     * @param samplesPerBlock Samples encoded before a block is sealed
+     * @param maxBlocks Sealed blocks retained per device field
+     */
+    public StateHistory(int samplesPerBlock, int maxBlocks) {
+        this(samplesPerBlock, maxBlocks, System::currentTimeMillis);
+    }
+
+    /**
+     * @param samplesPerBlock Samples encoded before a block is sealed
+     * @param maxBlocks Sealed blocks retained per device field
+     * @param clock Source of sample timestamps in epoch milliseconds
+     */
+    public StateHistory(int samplesPerBlock, int maxBlocks, LongSupplier clock) {
+        this.samplesPerBlock = samplesPerBlock;
+        this.maxBlocks = maxBlocks;
+        this.clock = clock;
+    }
+
+    @Override
+    public void stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+        FieldHistory[] fields = histories.get(device.getDeviceId());
+        if (fields == null) {
+            fields = histories.computeIfAbsent(device.getDeviceId(), id -> new FieldHistory[FIELD_COUNT]);
+        }
+        FieldHistory history;
+        synchronized (fields) {
+            history = fields[field.ordinal()];
+            if (history == null) {
+                history = new FieldHistory();
+                fields[field.ordinal()] = history;
+            }
+        }
+        history.append(clock.getAsLong(), newValue);
+    }
+
+    @Override
+    public void deviceUnregistered(ISmartDevice device) {
+        histories.remove(device.getDeviceId());
+    }
+
+    /**
+     * Visit the recorded samples of one device field with from <= timestamp <= to, oldest first
+     * Blocks outside the range are skipped without decoding
+     * @return Number of samples visited
+     */
+    public int scan(String deviceId, DeviceField field, long fromMillis, long toMillis, SampleConsumer consumer) {
+        FieldHistory history = find(deviceId, field);
+        return history == null ? 0 : history.scan(fromMillis, toMillis, consumer);
+    }
+
+    /**
+     * Number of samples retained for one device field
+     */
+    public int sampleCount(String deviceId, DeviceField field) {
+        FieldHistory history = find(deviceId, field);
+        return history == null ? 0 : history.sampleCount();
+    }
+
+    /**
+     * Encoded bytes retained for one device field
+     */
+    public long encodedBytes(String deviceId, DeviceField field) {
+        FieldHistory history = find(deviceId, field);
+        return history == null ? 0 : history.encodedBytes();
+    }
+
+    private FieldHistory find(String deviceId, DeviceField field) {
+        FieldHistory[] fields = histories.get(deviceId);
+        if (fields == null) {
+            return null;
+        }
+        synchronized (fields) {
+            return fields[field.ordinal()];
+        }
+    }
+
+    /**
+     * Sealed blocks plus the block being encoded for one device field
+     */
+    private final class FieldHistory {
+        private final ArrayDeque<GorillaBlock> sealed = new ArrayDeque<>();
+        private final GorillaEncoder open = new GorillaEncoder();
+
+        synchronized void append(long timestampMillis, double value) {
+            open.append(timestampMillis, value);
+            if (open.count() == samplesPerBlock) {
+                sealed.addLast(open.seal());
+                if (sealed.size() > maxBlocks) {
+                    sealed.removeFirst();
+                }
+            }
+        }
+
+        synchronized int scan(long fromMillis, long toMillis, SampleConsumer consumer) {
+            int visited = 0;
+            for (GorillaBlock block : sealed) {
+                visited += block.scan(fromMillis, toMillis, consumer);
+            }
+            if (open.count() > 0 && open.getLastTimestamp() >= fromMillis && open.getFirstTimestamp() <= toMillis) {
+                visited += GorillaBlock.scan(open.decoder(), fromMillis, toMillis, consumer);
+            }
+            return visited;
+        }
+
+        synchronized int sampleCount() {
+            int samples = open.count();
+            for (GorillaBlock block : sealed) {
+                samples += block.count();
+            }
+            return samples;
+        }
+
+        synchronized long encodedBytes() {
+            long bytes = open.sizeInBytes();
+            for (GorillaBlock block : sealed) {
+                bytes += block.sizeInBytes();
+            }
+            return bytes;
+        }
+    }
+}
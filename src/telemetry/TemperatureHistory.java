@@ -0,0 +1,76 @@
+package telemetry;
+
+import devices.DeviceField;
+import devices.ISmartDevice;
+import mediator.HomeListener;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps a TimeSeries of temperature readings for every thermostat
+ * Register with SmartHomeController.addHomeListener; each reading from
+ * SmartThermostat.readTemperature is appended to that device's series.
+ * A series is created on the first reading and released when the device
+ * is unregistered, so memory is bounded by thermostats x footprint(capacity).
+ */
+public class TemperatureHistory implements HomeListener {
+    private final Map<String, TimeSeries> series = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final LongSupplier clock;
+
+    /**
+     * @param capacity Raw readings retained per thermostat
+     */
+    public TemperatureHistory(int capacity) {
+        this(capacity, System::currentTimeMillis);
+    }
+
+    /**
+     * @param capacity Raw readings retained per thermostat
+     * @param clock Source of reading timestamps in epoch milliseconds
+     */
+    public TemperatureHistory(int capacity, LongSupplier clock) {
+        this.capacity = capacity;
+        this.clock = clock;
+    }
+
+    @Override
+    public void stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+        if (field != DeviceField.CURRENT_TEMPERATURE) {
+            return;
+        }
+        TimeSeries readings = series.get(device.getDeviceId());
+        if (readings == null) {
+            readings = series.computeIfAbsent(device.getDeviceId(), id -> new TimeSeries(capacity));
+        }
+        readings.append(clock.getAsLong(), newValue);
+    }
+
+    @Override
+    public void deviceUnregistered(ISmartDevice device) {
+        series.remove(device.getDeviceId());
+    }
+
+    /**
+     * Reading history of one thermostat
+     * @return The series, or null if the device has not reported a reading
+     */
+    public TimeSeries get(String deviceId) {
+        return series.get(deviceId);
+    }
+
+    /**
+     * Number of thermostats with a history
+     */
+    public int size() {
+        return series.size();
+    }
+
+    /**
+     * Off-heap memory held by all series
+     */
+    public long getOffHeapBytes() {
+        return series.size() * TimeSeries.footprint(capacity);
+    }
+}
@@ -0,0 +1,213 @@
+package telemetry;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed-capacity time series of (timestamp, value) samples stored off-heap
+ *
+ * Raw samples live in a ring in a direct buffer; once full, each append
+ * overwrites the oldest sample. Every append also updates one bucket per
+ * Resolution, so min/max/avg rollups never rescan raw samples and cover
+ * more history than the raw ring does. Memory is fixed at construction:
+ * 16 bytes per raw sample plus 40 bytes per rollup bucket.
+ *
+ * Timestamps must not go backwards; an older timestamp is recorded as the
+ * latest one so the ring stays sorted for range queries.
+ */
+public final class TimeSeries {
+    private static final int SAMPLE_BYTES = 16;  // long timestamp, double value
+    private static final int BUCKET_BYTES = 40;  // long start, double min, max, sum, long count
+    private static final Resolution[] RESOLUTIONS = Resolution.values();
+
+    private final ByteBuffer memory;
+    private final int capacity;
+    private final int[] bucketBase; // byte offset of each resolution's bucket ring
+    private long appended;          // total samples ever appended
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    /**
+     * @param capacity Number of raw samples retained
+     */
+    public TimeSeries(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.bucketBase = new int[RESOLUTIONS.length];
+        long bytes = (long) capacity * SAMPLE_BYTES;
+        for (Resolution resolution : RESOLUTIONS) {
+            bucketBase[resolution.ordinal()] = (int) bytes;
+            bytes += (long) resolution.getBuckets() * BUCKET_BYTES;
+        }
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Capacity too large: " + capacity);
+        }
+        this.memory = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+        for (Resolution resolution : RESOLUTIONS) {
+            for (int i = 0; i < resolution.getBuckets(); i++) {
+                memory.putLong(bucketOffset(resolution, i), Long.MIN_VALUE); // empty bucket
+            }
+        }
+    }
+
+    /**
+     * Bytes of off-heap memory needed for a series of the given capacity
+     */
+    public static long footprint(int capacity) {
+        long bytes = (long) capacity * SAMPLE_BYTES;
+        for (Resolution resolution : RESOLUTIONS) {
+            bytes += (long) resolution.getBuckets() * BUCKET_BYTES;
+        }
+        return bytes;
+    }
+
+    // ===== Appending =====
+
+    /**
+     * Append a sample and update the rollups - O(1)
+     * @param timestampMillis Sample time in epoch milliseconds
+     * @param value Sample value
+     */
+    public synchronized void append(long timestampMillis, double value) {
+        long timestamp = Math.max(timestampMillis, lastTimestamp);
+        int offset = (int) (appended % capacity) * SAMPLE_BYTES;
+        memory.putLong(offset, timestamp);
+        memory.putDouble(offset + 8, value);
+        appended++;
+        lastTimestamp = timestamp;
+        for (Resolution resolution : RESOLUTIONS) {
+            long start = resolution.bucketStart(timestamp);
+            int bucket = bucketOffset(resolution, slotOf(resolution, start));
+            if (memory.getLong(bucket) != start) {
+                memory.putLong(bucket, start); // bucket from an earlier lap, start over
+                memory.putDouble(bucket + 8, value);
+                memory.putDouble(bucket + 16, value);
+                memory.putDouble(bucket + 24, value);
+                memory.putLong(bucket + 32, 1);
+            } else {
+                memory.putDouble(bucket + 8, Math.min(memory.getDouble(bucket + 8), value));
+                memory.putDouble(bucket + 16, Math.max(memory.getDouble(bucket + 16), value));
+                memory.putDouble(bucket + 24, memory.getDouble(bucket + 24) + value);
+                memory.putLong(bucket + 32, memory.getLong(bucket + 32) + 1);
+            }
+        }
+    }
+
+    // ===== Raw Samples =====
+
+    /**
+     * Number of raw samples currently retained
+     */
+    public synchronized int size() {
+        return (int) Math.min(appended, capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Latest sample value, or NaN if nothing was appended
+     */
+    public synchronized double latest() {
+        if (appended == 0) {
+            return Double.NaN;
+        }
+        return memory.getDouble((int) ((appended - 1) % capacity) * SAMPLE_BYTES + 8);
+    }
+
+    /**
+     * Visit the retained samples with from <= timestamp <= to, oldest first
+     * Locates the start with a binary search, so cost is O(log n + matches)
+     * @param fromMillis Inclusive range start
+     * @param toMillis Inclusive range end
+     * @param consumer Receives each sample
+     * @return Number of samples visited
+     */
+    public synchronized int range(long fromMillis, long toMillis, SampleConsumer consumer) {
+        long oldest = Math.max(0, appended - capacity);
+        long low = oldest;
+        long high = appended;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (timestampAt(middle) < fromMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int visited = 0;
+        for (long i = low; i < appended; i++) {
+            int offset = (int) (i % capacity) * SAMPLE_BYTES;
+            long timestamp = memory.getLong(offset);
+            if (timestamp > toMillis) {
+                break;
+            }
+            consumer.accept(timestamp, memory.getDouble(offset + 8));
+            visited++;
+        }
+        return visited;
+    }
+
+    private long timestampAt(long sequence) {
+        return memory.getLong((int) (sequence % capacity) * SAMPLE_BYTES);
+    }
+
+    // ===== Rollups =====
+
+    /**
+     * Visit the retained rollup buckets overlapping [from, to], oldest first
+     * @param resolution Bucket width
+     * @param fromMillis Inclusive range start
+     * @param toMillis Inclusive range end
+     * @param consumer Receives each non-empty bucket
+     * @return Number of buckets visited
+     */
+    public synchronized int buckets(Resolution resolution, long fromMillis, long toMillis, BucketConsumer consumer) {
+        if (appended == 0) {
+            return 0;
+        }
+        long width = resolution.getMillis();
+        long newest = resolution.bucketStart(lastTimestamp);
+        long first = Math.max(resolution.bucketStart(fromMillis), newest - (resolution.getBuckets() - 1) * width);
+        long last = Math.min(resolution.bucketStart(toMillis), newest);
+        int visited = 0;
+        for (long start = first; start <= last; start += width) {
+            int bucket = bucketOffset(resolution, slotOf(resolution, start));
+            if (memory.getLong(bucket) == start) {
+                consumer.accept(start, memory.getDouble(bucket + 8), memory.getDouble(bucket + 16),
+                                memory.getDouble(bucket + 24), memory.getLong(bucket + 32));
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Combined min, max and average of the rollup buckets overlapping [from, to]
+     * Whole buckets are counted, so the range is widened to bucket boundaries
+     * @param resolution Bucket width
+     * @param fromMillis Inclusive range start
+     * @param toMillis Inclusive range end
+     * @return The combined statistics; count is 0 if no bucket matched
+     */
+    public RollupStats rollup(Resolution resolution, long fromMillis, long toMillis) {
+        double[] totals = {Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0, 0};
+        buckets(resolution, fromMillis, toMillis, (start, min, max, sum, count) -> {
+            totals[0] = Math.min(totals[0], min);
+            totals[1] = Math.max(totals[1], max);
+            totals[2] += sum;
+            totals[3] += count;
+        });
+        return new RollupStats(totals[0], totals[1], totals[2], (long) totals[3]);
+    }
+
+    private int slotOf(Resolution resolution, long bucketStart) {
+        return (int) Math.floorMod(bucketStart / resolution.getMillis(), (long) resolution.getBuckets());
+    }
+
+    private int bucketOffset(Resolution resolution, int slot) {
+        return bucketBase[resolution.ordinal()] + slot * BUCKET_BYTES;
+    }
+}
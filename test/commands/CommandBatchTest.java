@@ -0,0 +1,109 @@
+package commands;
+
+import devices.CompactDeviceStore;
+import devices.DeviceField;
+import devices.DeviceListener;
+import devices.ISmartDevice;
+import devices.ISmartLight;
+import devices.SmartLight;
+import devices.SmartThermostat;
+import testing.Tests;
+import java.util.ArrayList;
+import java.util.List;
+
+import static testing.Tests.checkEquals;
+
+public class CommandBatchTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("CommandBatchTest");
+        tests.test("commands collapse to one write of the final state", CommandBatchTest::finalStateOnly);
+        tests.test("several changed fields are one version step", CommandBatchTest::oneVersionStep);
+        tests.test("rejected values count as failed", CommandBatchTest::rejectedValues);
+        tests.test("compact views take the same single write", CommandBatchTest::compactViews);
+    }
+
+    /**
+     * Records "FIELD old->new" for every change
+     */
+    static List<String> record(ISmartDevice device) {
+        List<String> changes = new ArrayList<>();
+        device.addDeviceListener(new DeviceListener() {
+            @Override
+            public void stateChanged(ISmartDevice changed, DeviceField field, double oldValue, double newValue) {
+                changes.add(field + " " + oldValue + "->" + newValue);
+            }
+        });
+        return changes;
+    }
+
+    static void finalStateOnly() {
+        SmartLight light = new SmartLight("batch", "Batch"); // off at 100%
+        List<String> changes = record(light);
+        long version = light.getVersion();
+        BatchResult result = new CommandBatch()
+            .add(CommandType.TURN_ON, light, 0)
+            .add(CommandType.SET_BRIGHTNESS, light, 100)
+            .add(CommandType.SET_BRIGHTNESS, light, 30)
+            .add(CommandType.TURN_OFF, light, 0)
+            .apply();
+        checkEquals(List.of("BRIGHTNESS 100.0->30.0"), changes, "changes");
+        checkEquals(version + 2, light.getVersion(), "version");
+        checkEquals(4, result.getReceived(), "received");
+        checkEquals(1, result.getDeviceWrites(), "device writes");
+        checkEquals(1, result.getApplied(), "applied");
+        checkEquals(1, result.getSkipped(), "skipped (power already off)");
+        checkEquals(2, result.getCoalesced(), "coalesced");
+        checkEquals(0, result.getFailed(), "failed");
+    }
+
+    static void oneVersionStep() {
+        SmartLight light = new SmartLight("batch-on", "Batch on");
+        List<String> changes = record(light);
+        long version = light.getVersion();
+        BatchResult result = new CommandBatch()
+            .add(CommandType.SET_BRIGHTNESS, light, 45)
+            .add(CommandType.TURN_ON, light, 0)
+            .apply();
+        checkEquals(List.of("BRIGHTNESS 100.0->45.0", "POWER 0.0->1.0"), changes, "settings before power");
+        checkEquals(version + 2, light.getVersion(), "one version step for two fields");
+        checkEquals(2, result.getApplied(), "applied");
+        checkEquals(1, result.getDeviceWrites(), "device writes");
+    }
+
+    static void rejectedValues() {
+        SmartLight light = new SmartLight("batch-bad", "Batch bad");
+        SmartThermostat thermostat = new SmartThermostat("batch-t", "Batch thermostat");
+        BatchResult result = new CommandBatch()
+            .add(CommandType.SET_BRIGHTNESS, light, 150)
+            .add(CommandType.SET_VOLUME, light, 10)
+            .add(CommandType.TURN_ON, light, 0)
+            .add(CommandType.SET_TEMPERATURE, thermostat, 40)
+            .apply();
+        checkEquals(3, result.getFailed(), "two out of range, one unsupported field");
+        checkEquals(1, result.getApplied(), "power still applied");
+        checkEquals(100, light.getBrightness(), "brightness unchanged");
+        checkEquals(20.0, thermostat.getTargetTemperature(), "temperature unchanged");
+        checkEquals(result.getReceived(),
+            result.getApplied() + result.getSkipped() + result.getFailed() + result.getCoalesced(), "counts add up");
+    }
+
+    static void compactViews() {
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartLight view = (ISmartLight) store.view(store.addLight("batch-view", "Batch view"));
+        List<String> changes = record(view);
+        long version = view.getVersion();
+        new CommandBatch()
+            .add(CommandType.TURN_ON, view, 0)
+            .add(CommandType.SET_BRIGHTNESS, view, 60)
+            .add(CommandType.SET_BRIGHTNESS, view, 20)
+            .apply();
+        checkEquals(List.of("BRIGHTNESS 100.0->20.0", "POWER 0.0->1.0"), changes, "changes");
+        checkEquals(version + 2, view.getVersion(), "version");
+    }
+}
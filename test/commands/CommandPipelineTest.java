@@ -0,0 +1,142 @@
+package commands;
+
+import devices.CompactDeviceStore;
+import devices.DeviceField;
+import devices.DeviceListener;
+import devices.ISmartDevice;
+import devices.ISmartLight;
+import devices.SmartLight;
+import devices.SmartThermostat;
+import testing.Tests;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+import static testing.Tests.checkThrows;
+
+public class CommandPipelineTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("CommandPipelineTest");
+        tests.test("commands for one device apply in publish order", CommandPipelineTest::publishOrder);
+        tests.test("rejected values fail the future", CommandPipelineTest::rejectionFailsFuture);
+        tests.test("an Error fails its command, not the writer", CommandPipelineTest::errorKeepsWriter);
+        tests.test("commands racing close are applied or refused", CommandPipelineTest::closeRace);
+    }
+
+    static void publishOrder() throws Exception {
+        try (CommandPipeline pipeline = new CommandPipeline(2, 16)) {
+            SmartLight light = new SmartLight("pipe", "Pipe");
+            CompactDeviceStore store = new CompactDeviceStore();
+            ISmartLight view = (ISmartLight) store.view(store.addLight("pipe-view", "Pipe view"));
+            long last = 0;
+            for (int i = 0; i <= 100; i++) {
+                last = pipeline.publish(CommandType.SET_BRIGHTNESS, light, i); // wraps the 16-slot ring
+            }
+            pipeline.awaitApplied(last);
+            checkEquals(100, light.getBrightness(), "last brightness wins");
+            pipeline.submit(CommandType.SET_BRIGHTNESS, view, 25).get(10, TimeUnit.SECONDS);
+            checkEquals(25, view.getBrightness(), "compact views take commands");
+        }
+    }
+
+    static void rejectionFailsFuture() throws Exception {
+        try (CommandPipeline pipeline = new CommandPipeline(1, 16)) {
+            SmartLight light = new SmartLight("reject", "Reject");
+            SmartThermostat thermostat = new SmartThermostat("reject-t", "Reject thermostat");
+            CompletableFuture<Void> brightness = pipeline.submit(CommandType.SET_BRIGHTNESS, light, 150);
+            CompletableFuture<Void> temperature = pipeline.submit(CommandType.SET_TEMPERATURE, thermostat, 50);
+            CompletableFuture<Void> wrongDevice = pipeline.submit(CommandType.SET_VOLUME, light, 10);
+            for (CompletableFuture<Void> future : List.of(brightness, temperature, wrongDevice)) {
+                ExecutionException e = checkThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+                check(e.getCause() instanceof IllegalArgumentException, "cause: " + e.getCause());
+            }
+            checkEquals(3L, pipeline.getFailedCount(), "failed");
+            checkEquals(100, light.getBrightness(), "brightness unchanged");
+            pipeline.submit(CommandType.SET_BRIGHTNESS, light, 40).get(10, TimeUnit.SECONDS);
+            checkEquals(40, light.getBrightness(), "valid command still applies");
+        }
+    }
+
+    static void errorKeepsWriter() throws Exception {
+        try (CommandPipeline pipeline = new CommandPipeline(1, 4)) {
+            SmartLight light = new SmartLight("error", "Error");
+            light.addDeviceListener(new DeviceListener() {
+                @Override
+                public void stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+                    if (newValue == 13) {
+                        throw new StackOverflowError("listener failed");
+                    }
+                }
+            });
+            CompletableFuture<Void> failing = pipeline.submit(CommandType.SET_BRIGHTNESS, light, 13);
+            ExecutionException e = checkThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+            check(e.getCause() instanceof StackOverflowError, "cause: " + e.getCause());
+            long last = 0;
+            for (int i = 0; i < 20; i++) {
+                last = pipeline.publish(CommandType.SET_BRIGHTNESS, light, 20 + i); // more than the ring holds
+            }
+            pipeline.awaitApplied(last);
+            checkEquals(39, light.getBrightness(), "writer kept applying");
+            checkEquals(1L, pipeline.getFailedCount(), "failed");
+        }
+    }
+
+    static void closeRace() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            CommandPipeline pipeline = new CommandPipeline(2, 8);
+            SmartLight light = new SmartLight("race-" + round, "Race");
+            CountDownLatch started = new CountDownLatch(4);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<List<Long>> tickets = new ArrayList<>();
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                List<Long> published = new ArrayList<>();
+                tickets.add(published);
+                Thread producer = new Thread(() -> {
+                    started.countDown();
+                    try {
+                        for (int i = 0; i < 100_000; i++) {
+                            published.add(pipeline.publish(CommandType.SET_BRIGHTNESS, light, i % 101));
+                        }
+                    } catch (IllegalStateException expected) {
+                        // closed while publishing
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                producer.start();
+                producers.add(producer);
+            }
+            started.await();
+            pipeline.close();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            if (failure.get() != null) {
+                throw new AssertionError("producer failed", failure.get());
+            }
+            long published = 0;
+            for (List<Long> list : tickets) {
+                for (long ticket : list) {
+                    check(pipeline.isApplied(ticket), "ticket " + ticket + " applied");
+                    pipeline.awaitApplied(ticket); // returns instead of spinning
+                }
+                published += list.size();
+            }
+            checkEquals(published, pipeline.getAppliedCount(), "applied every published command");
+            checkThrows(IllegalStateException.class, () -> pipeline.publish(CommandType.TURN_ON, light, 0));
+        }
+    }
+}
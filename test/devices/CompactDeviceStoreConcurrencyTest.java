@@ -0,0 +1,115 @@
+package devices;
+
+import roles.DimmerRole;
+import roles.EnergyManagementRole;
+import roles.IDeviceRole;
+import roles.RoleRegistry;
+import roles.SecurityModeRole;
+import roles.VacationModeRole;
+import testing.Tests;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static devices.SmartDeviceConcurrencyTest.race;
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class CompactDeviceStoreConcurrencyTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("CompactDeviceStoreConcurrencyTest");
+        tests.test("power bits sharing a word are never lost", CompactDeviceStoreConcurrencyTest::powerBitsAreAtomic);
+        tests.test("every view change is counted in the version", CompactDeviceStoreConcurrencyTest::versionCountsChanges);
+        tests.test("role and listener tables survive racing views", CompactDeviceStoreConcurrencyTest::sideTablesRace);
+    }
+
+    static void powerBitsAreAtomic() throws Exception {
+        CompactDeviceStore store = new CompactDeviceStore();
+        int devices = 256; // four words of power bits, each shared by all threads
+        for (int i = 0; i < devices; i++) {
+            store.addLight("bit-" + i, "Bit " + i);
+        }
+        int threads = 4;
+        race(threads, t -> {
+            for (int round = 0; round < 500; round++) {
+                for (int handle = t; handle < devices; handle += threads) {
+                    store.setOn(handle, round % 2 == 0);
+                }
+            }
+            for (int handle = t; handle < devices; handle += threads) {
+                store.view(handle).turnOn();
+            }
+        });
+        for (int handle = 0; handle < devices; handle++) {
+            check(store.isOn(handle), "device " + handle + " left on");
+        }
+    }
+
+    static void versionCountsChanges() throws Exception {
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartLight light = (ISmartLight) store.view(store.addLight("versioned", "Versioned"));
+        AtomicLong changes = new AtomicLong();
+        light.addDeviceListener(new DeviceListener() {
+            @Override
+            public void stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+                changes.incrementAndGet(); // fired under the stripe lock, once per change
+            }
+        });
+        long start = light.getVersion();
+        race(4, t -> {
+            for (int i = 0; i < 20_000; i++) {
+                light.setBrightness((i * 7 + t) % 101);
+                if (i % 100 == 0) {
+                    light.turnOn();
+                    light.turnOff();
+                }
+            }
+        });
+        checkEquals(start + 2 * changes.get(), light.getVersion(), "version");
+    }
+
+    static void sideTablesRace() throws Exception {
+        CompactDeviceStore store = new CompactDeviceStore();
+        int devices = 64;
+        for (int i = 0; i < devices; i++) {
+            store.addLight("side-" + i, "Side " + i);
+        }
+        List<IDeviceRole> shared = List.of(RoleRegistry.shared(SecurityModeRole.class),
+            RoleRegistry.shared(VacationModeRole.class), RoleRegistry.shared(EnergyManagementRole.class));
+        AtomicLong roleEvents = new AtomicLong();
+        DeviceListener counter = new DeviceListener() {
+            @Override
+            public void roleAdded(ISmartDevice device, IDeviceRole role) {
+                roleEvents.incrementAndGet();
+            }
+        };
+        int threads = 4;
+        race(threads, t -> {
+            for (int handle = t; handle < devices; handle += threads) {
+                ISmartDevice view = store.view(handle);
+                view.addDeviceListener(counter);
+                view.addRole(DimmerRole.of(handle)); // a distinct instance per device
+                for (int i = 0; i < 200; i++) {
+                    IDeviceRole role = shared.get(i % shared.size());
+                    view.addRole(role);
+                    view.removeRole(role.getClass());
+                }
+                view.addRole(shared.get(handle % shared.size()));
+                ((CompactDeviceStore.LightView) view).nextRandom();
+            }
+        });
+        checkEquals((long) devices * (200 + 2), roleEvents.get(), "role added events");
+        for (int handle = 0; handle < devices; handle++) {
+            ISmartDevice view = store.view(handle);
+            IDeviceRole dimmer = view.getRole(DimmerRole.class);
+            check(dimmer == DimmerRole.of(handle), "device " + handle + " keeps its own dimmer");
+            checkEquals(2, view.getAllRoles().size(), "roles of device " + handle);
+            check(view.hasRole(shared.get(handle % shared.size()).getClass()), "device " + handle + " keeps its last role");
+        }
+    }
+}
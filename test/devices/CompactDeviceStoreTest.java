@@ -0,0 +1,135 @@
+package devices;
+
+import events.DeviceEvent;
+import events.DeviceEventBus;
+import events.DeviceEventFilter;
+import mediator.SmartHomeController;
+import roles.DimmerRole;
+import roles.RoleRegistry;
+import roles.SecurityModeRole;
+import testing.Tests;
+import java.util.ArrayList;
+import java.util.List;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class CompactDeviceStoreTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("CompactDeviceStoreTest");
+        tests.test("view mutators notify listeners like SmartDevice", CompactDeviceStoreTest::viewsNotify);
+        tests.test("rejected values notify nobody", CompactDeviceStoreTest::rejectedValuesAreSilent);
+        tests.test("registered views reach home listeners", CompactDeviceStoreTest::viewsReachHomeListeners);
+        tests.test("each view keeps the role instance it was given", CompactDeviceStoreTest::perHandleRoles);
+    }
+
+    /**
+     * Records every field change as "FIELD old->new"
+     */
+    static final class Recorder implements DeviceListener {
+        final List<String> changes = new ArrayList<>();
+
+        @Override
+        public void stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+            changes.add(field + " " + oldValue + "->" + newValue);
+        }
+
+        @Override
+        public void textChanged(ISmartDevice device, DeviceField field, String oldValue, String newValue) {
+            changes.add(field + " " + oldValue + "->" + newValue);
+        }
+    }
+
+    static void viewsNotify() {
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartLight light = (ISmartLight) store.view(store.addLight("cl", "Compact light"));
+        ISmartSpeaker speaker = (ISmartSpeaker) store.view(store.addSpeaker("cs", "Compact speaker"));
+        ISmartThermostat thermostat = (ISmartThermostat) store.view(store.addThermostat("ct", "Compact thermostat"));
+        Recorder recorder = new Recorder();
+        light.addDeviceListener(recorder);
+        speaker.addDeviceListener(recorder);
+        thermostat.addDeviceListener(recorder);
+
+        light.turnOn();
+        light.setBrightness(40);
+        speaker.turnOn();
+        speaker.setVolume(70);
+        speaker.playSound("Jazz");
+        speaker.stopSound();
+        thermostat.setTemperature(22.5);
+        light.turnOff();
+
+        checkEquals(List.of(
+            "POWER 0.0->1.0",
+            "BRIGHTNESS 100.0->40.0",
+            "POWER 0.0->1.0",
+            "VOLUME 50.0->70.0",
+            "SOUND None->Jazz",
+            "SOUND Jazz->None",
+            "TARGET_TEMPERATURE 20.0->22.5",
+            "POWER 1.0->0.0"), recorder.changes, "changes");
+    }
+
+    static void rejectedValuesAreSilent() {
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartLight light = (ISmartLight) store.view(store.addLight("cl", "Compact light"));
+        ISmartSpeaker speaker = (ISmartSpeaker) store.view(store.addSpeaker("cs", "Compact speaker"));
+        Recorder recorder = new Recorder();
+        light.addDeviceListener(recorder);
+        speaker.addDeviceListener(recorder);
+        long version = light.getVersion();
+        light.setBrightness(150);
+        speaker.playSound("Off, so not played");
+        checkEquals(List.of(), recorder.changes, "changes");
+        checkEquals(version, light.getVersion(), "version after rejected write");
+    }
+
+    static void viewsReachHomeListeners() {
+        SmartHomeController controller = SmartHomeController.getInstance();
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartLight light = (ISmartLight) store.view(store.addLight("compact-home", "Compact home light"));
+        DeviceEventBus bus = DeviceEventBus.attach(controller);
+        List<DeviceEvent> events = new ArrayList<>();
+        bus.subscribe(DeviceEventFilter.device(light), events::add);
+        controller.registerDevice(light);
+        try {
+            light.turnOn();
+            light.setBrightness(10);
+            check(events.size() >= 3, "registration and two changes delivered, got " + events);
+            DeviceEvent last = events.get(events.size() - 1);
+            checkEquals(DeviceField.BRIGHTNESS, last.getField(), "last field");
+            checkEquals(10.0, last.getNewValue(), "last value");
+        } finally {
+            bus.detach();
+            controller.unregisterDevice(light);
+        }
+    }
+
+    static void perHandleRoles() {
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartDevice low = store.view(store.addLight("low", "Low"));
+        ISmartDevice high = store.view(store.addLight("high", "High"));
+        ISmartDevice plain = store.view(store.addLight("plain", "Plain"));
+        low.addRole(DimmerRole.of(20));
+        high.addRole(DimmerRole.of(80));
+        high.addRole(RoleRegistry.shared(SecurityModeRole.class));
+        plain.addRole(DimmerRole.of(20));
+        check(low.getRole(DimmerRole.class) == DimmerRole.of(20), "low");
+        check(high.getRole(DimmerRole.class) == DimmerRole.of(80), "high");
+        check(plain.getRole(DimmerRole.class) == DimmerRole.of(20), "plain shares the prototype");
+        check(high.getAllRoles().contains(DimmerRole.of(80)), "role list of high");
+
+        high.removeRole(DimmerRole.class);
+        high.addRole(DimmerRole.of(20));
+        check(high.getRole(DimmerRole.class) == DimmerRole.of(20), "replaced by the prototype");
+        high.removeRole(DimmerRole.class);
+        high.addRole(DimmerRole.of(55));
+        check(high.getRole(DimmerRole.class) == DimmerRole.of(55), "replaced by another level");
+    }
+}
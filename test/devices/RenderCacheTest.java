@@ -0,0 +1,100 @@
+package devices;
+
+import roles.RoleRegistry;
+import roles.SecurityModeRole;
+import testing.Tests;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static devices.SmartDeviceConcurrencyTest.race;
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class RenderCacheTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("RenderCacheTest");
+        tests.test("unchanged devices reuse their render", RenderCacheTest::reusesRender);
+        tests.test("a version change invalidates the entry", RenderCacheTest::versionChangeInvalidates);
+        tests.test("a render overlapping a write is not kept", RenderCacheTest::overlappingWriteNotKept);
+        tests.test("concurrent readers never see a stale render", RenderCacheTest::neverStaleUnderWrites);
+    }
+
+    static void reusesRender() {
+        AtomicInteger renders = new AtomicInteger();
+        RenderCache cache = new RenderCache(d -> d.getDeviceName() + " #" + renders.incrementAndGet());
+        SmartLight light = new SmartLight("RC-1", "Lamp");
+        checkEquals("Lamp #1", cache.get(light), "first render");
+        checkEquals("Lamp #1", cache.get(light), "cached render");
+        checkEquals(1, renders.get(), "renders");
+        light.turnOn();
+        checkEquals("Lamp #2", cache.get(light), "render after a change");
+        cache.forget(light);
+        checkEquals("Lamp #3", cache.get(light), "render after forget");
+        cache.clear();
+        checkEquals("Lamp #4", cache.get(light), "render after clear");
+    }
+
+    static void versionChangeInvalidates() {
+        RenderCache cache = new RenderCache(d -> d.isOn() + " " + ((ISmartLight) d).getBrightness() + " " + d.hasRole(SecurityModeRole.class));
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartLight[] lights = {new SmartLight("RC-2", "Lamp"), (ISmartLight) store.view(store.addLight("RC-3", "Lamp"))};
+        for (ISmartLight light : lights) {
+            checkEquals("false 100 false", cache.get(light), "initial");
+            light.turnOn();
+            checkEquals("true 100 false", cache.get(light), "after turnOn");
+            light.setBrightness(40);
+            checkEquals("true 40 false", cache.get(light), "after setBrightness");
+            light.addRole(RoleRegistry.shared(SecurityModeRole.class));
+            checkEquals("true 40 true", cache.get(light), "after addRole");
+            light.removeRole(SecurityModeRole.class);
+            checkEquals("true 40 false", cache.get(light), "after removeRole");
+        }
+    }
+
+    static void overlappingWriteNotKept() {
+        AtomicBoolean writeDuringRender = new AtomicBoolean(true);
+        RenderCache cache = new RenderCache(d -> {
+            ISmartLight light = (ISmartLight) d;
+            String text = String.valueOf(light.getBrightness());
+            if (writeDuringRender.getAndSet(false)) {
+                light.setBrightness(70); // lands after the read, like a racing writer
+            }
+            return text;
+        });
+        SmartLight light = new SmartLight("RC-4", "Lamp");
+        checkEquals("100", cache.get(light), "the overlapping render is returned once");
+        checkEquals("70", cache.get(light), "but not cached");
+        checkEquals("70", cache.get(light), "the fresh render is cached");
+    }
+
+    static void neverStaleUnderWrites() throws Exception {
+        RenderCache cache = new RenderCache(d -> String.valueOf(((ISmartLight) d).getBrightness()));
+        for (int round = 0; round < 50; round++) {
+            SmartLight light = new SmartLight("RC-race-" + round, "Lamp");
+            light.setBrightness(0);
+            AtomicBoolean done = new AtomicBoolean();
+            race(3, t -> {
+                if (t == 0) {
+                    for (int brightness = 1; brightness <= 100; brightness++) {
+                        light.setBrightness(brightness);
+                    }
+                    done.set(true);
+                    return;
+                }
+                // Brightness only grows, so a render older than a value seen before the read is stale
+                while (!done.get()) {
+                    int seen = light.getBrightness();
+                    int rendered = Integer.parseInt(cache.get(light));
+                    check(rendered >= seen, "rendered " + rendered + " after seeing " + seen);
+                }
+            });
+            checkEquals("100", cache.get(light), "final render in round " + round);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package devices;
+
+import roles.EnergyManagementRole;
+import roles.IDeviceRole;
+import roles.RoleRegistry;
+import roles.SecurityModeRole;
+import roles.VacationModeRole;
+import testing.Tests;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class SmartDeviceConcurrencyTest {
+    private static final Pattern TEMPERATURES = Pattern.compile("Target=([0-9.]+)°C, Current=([0-9.]+)°C");
+
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("SmartDeviceConcurrencyTest");
+        tests.test("every change is counted in the version", SmartDeviceConcurrencyTest::versionCountsChanges);
+        tests.test("lock-free reads never see a torn state", SmartDeviceConcurrencyTest::noTornReads);
+        tests.test("role changes race role iteration", SmartDeviceConcurrencyTest::rolesRaceIteration);
+        tests.test("read-modify-write holds the stripe lock", SmartDeviceConcurrencyTest::ecoModeIsAtomic);
+    }
+
+    /**
+     * Run body on threads started together
+     */
+    static void race(int threads, ThrowingIntConsumer body) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> started = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    body.accept(index);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            thread.start();
+            started.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : started) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("concurrent access failed", failure.get());
+        }
+    }
+
+    interface ThrowingIntConsumer {
+        void accept(int value) throws Exception;
+    }
+
+    static void versionCountsChanges() throws Exception {
+        SmartLight light = new SmartLight("versioned", "Versioned");
+        AtomicLong changes = new AtomicLong();
+        light.addDeviceListener(new DeviceListener() {
+            @Override
+            public void stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+                changes.incrementAndGet(); // fired under the device lock, once per change
+            }
+        });
+        long start = light.getVersion();
+        race(4, t -> {
+            for (int i = 0; i < 20_000; i++) {
+                light.setBrightness((i * 7 + t) % 101);
+                if (i % 100 == 0) {
+                    light.turnOn();
+                    light.turnOff();
+                }
+            }
+        });
+        long version = light.getVersion();
+        checkEquals(0L, version & 1, "no write left open");
+        checkEquals(start + 2 * changes.get(), version, "version");
+    }
+
+    static void noTornReads() throws Exception {
+        SmartThermostat thermostat = new SmartThermostat("torn", "Torn");
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        race(3, t -> {
+            if (t == 0) {
+                try {
+                    for (int i = 0; i < 200_000; i++) {
+                        double value = 10 + i % 250 / 10.0;
+                        thermostat.restoreState(i % 2 == 0, value, value);
+                    }
+                } finally {
+                    writing.set(false);
+                }
+            } else {
+                while (writing.get()) {
+                    String info = thermostat.getDeviceInfo();
+                    Matcher matcher = TEMPERATURES.matcher(info);
+                    check(matcher.find(), "info format: " + info);
+                    checkEquals(matcher.group(1), matcher.group(2), "target and current in " + info);
+                    reads.incrementAndGet();
+                }
+            }
+        });
+        check(reads.get() > 0, "readers ran");
+    }
+
+    static void rolesRaceIteration() throws Exception {
+        SmartSpeaker speaker = new SmartSpeaker("roles", "Roles");
+        List<IDeviceRole> roles = List.of(RoleRegistry.shared(SecurityModeRole.class),
+            RoleRegistry.shared(VacationModeRole.class), RoleRegistry.shared(EnergyManagementRole.class));
+        AtomicBoolean writing = new AtomicBoolean(true);
+        race(4, t -> {
+            if (t < 3) {
+                IDeviceRole role = roles.get(t);
+                for (int i = 0; i < 20_000; i++) {
+                    speaker.addRole(role);
+                    speaker.removeRole(role.getClass());
+                }
+                if (t == 0) {
+                    writing.set(false);
+                }
+            } else {
+                while (writing.get()) {
+                    int count = 0;
+                    for (IDeviceRole role : speaker.getAllRoles()) {
+                        check(role != null, "no empty slot");
+                        count++;
+                    }
+                    check(count <= roles.size(), "at most one role of each type, got " + count);
+                }
+            }
+        });
+        checkEquals(0, speaker.getAllRoles().size(), "roles left");
+        checkEquals(0L, speaker.getVersion() & 1, "no write left open");
+    }
+
+    static void ecoModeIsAtomic() throws Exception {
+        SmartThermostat thermostat = new SmartThermostat("eco", "Eco");
+        thermostat.setTemperature(35);
+        race(10, t -> thermostat.enableEcoMode());
+        checkEquals(15.0, thermostat.getTargetTemperature(), "each call lowers by two degrees");
+    }
+}
@@ -0,0 +1,91 @@
+package devices;
+
+import roles.RoleRegistry;
+import roles.SecurityModeRole;
+import roles.VacationModeRole;
+import testing.Tests;
+import java.util.List;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class SmartDeviceTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("SmartDeviceTest");
+        tests.test("unchanged writes keep the version and notify nobody", SmartDeviceTest::unchangedWritesAreSilent);
+        tests.test("changes bump the version by two", SmartDeviceTest::changesBumpVersion);
+        tests.test("seeded streams repeat per device", SmartDeviceTest::seededStreams);
+        tests.test("random draws do not take the stripe lock", SmartDeviceTest::drawsSkipStripeLock);
+    }
+
+    static void unchangedWritesAreSilent() {
+        SmartLight light = new SmartLight("same-light", "Same light");
+        SmartSpeaker speaker = new SmartSpeaker("same-speaker", "Same speaker");
+        light.turnOn();
+        speaker.turnOn();
+        speaker.playSound("Jazz");
+        light.addRole(RoleRegistry.shared(SecurityModeRole.class));
+        CompactDeviceStoreTest.Recorder recorder = new CompactDeviceStoreTest.Recorder();
+        light.addDeviceListener(recorder);
+        speaker.addDeviceListener(recorder);
+        long lightVersion = light.getVersion();
+        long speakerVersion = speaker.getVersion();
+
+        light.turnOn();
+        light.setBrightness(100);
+        light.addRole(RoleRegistry.shared(SecurityModeRole.class));
+        light.removeRole(VacationModeRole.class);
+        light.restoreRole(RoleRegistry.shared(SecurityModeRole.class));
+        light.restoreRoleRemoval(VacationModeRole.class);
+        speaker.setVolume(50);
+        speaker.playSound("Jazz");
+
+        checkEquals(List.of(), recorder.changes, "changes");
+        checkEquals(lightVersion, light.getVersion(), "light version");
+        checkEquals(speakerVersion, speaker.getVersion(), "speaker version");
+    }
+
+    static void changesBumpVersion() {
+        SmartThermostat thermostat = new SmartThermostat("bump", "Bump");
+        long version = thermostat.getVersion();
+        thermostat.setTemperature(21);
+        checkEquals(version + 2, thermostat.getVersion(), "after a change");
+        thermostat.setTemperature(21);
+        checkEquals(version + 2, thermostat.getVersion(), "after the same value again");
+        thermostat.turnOff();
+        checkEquals(version + 2, thermostat.getVersion(), "turning off a device that is off");
+    }
+
+    static void seededStreams() {
+        SmartLight first = new SmartLight("seeded", "Seeded");
+        SmartLight second = new SmartLight("seeded", "Seeded again");
+        SmartLight other = new SmartLight("other", "Other");
+        first.setRandomSource(new RandomSource(42));
+        second.setRandomSource(new RandomSource(42));
+        other.setRandomSource(new RandomSource(42));
+        boolean differs = false;
+        for (int i = 0; i < 10; i++) {
+            double value = first.nextRandom();
+            checkEquals(value, second.nextRandom(), "draw " + i);
+            differs |= value != other.nextRandom();
+        }
+        check(differs, "another device ID gives another stream");
+    }
+
+    static void drawsSkipStripeLock() throws Exception {
+        SmartLight light = new SmartLight("draw", "Draw");
+        double[] drawn = {-1};
+        Thread drawer = new Thread(() -> drawn[0] = light.nextRandom());
+        synchronized (light.lock) { // as if another device on the same stripe were being written
+            drawer.start();
+            drawer.join(10_000);
+        }
+        check(drawn[0] >= 0 && drawn[0] < 1, "draw completed while the stripe lock was held");
+    }
+}
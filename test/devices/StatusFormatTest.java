@@ -0,0 +1,86 @@
+package devices;
+
+import testing.Tests;
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import static testing.Tests.checkEquals;
+
+public class StatusFormatTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("StatusFormatTest");
+        tests.test("tenths match %.1f on known halves", StatusFormatTest::knownHalves);
+        tests.test("tenths match %.1f across a dense sweep", StatusFormatTest::denseSweep);
+        tests.test("tenths match %.1f after eco-mode steps", StatusFormatTest::ecoSteps);
+        tests.test("thermostat status matches String.format", StatusFormatTest::thermostatStatus);
+    }
+
+    private static String tenths(double value) throws IOException {
+        StringBuilder out = new StringBuilder();
+        StatusFormat.appendTenths(out, value);
+        return out.toString();
+    }
+
+    private static void checkTenths(double value) throws IOException {
+        checkEquals(String.format("%.1f", value), tenths(value), "tenths of " + value);
+    }
+
+    static void knownHalves() throws IOException {
+        double[] values = {
+            31.549999999999997, 30.349999999999998, 7.1499999999999995, 0.15, 0.25, 0.35, 0.05, 2.675,
+            -0.04, -0.05, -0.15, -31.549999999999997, 0.0, -0.0, 0.95, 9.95, 99.95, 1e9, 1e15, 1e300,
+            Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE
+        };
+        for (double value : values) {
+            checkTenths(value);
+        }
+    }
+
+    static void denseSweep() throws IOException {
+        // accumulated steps produce the neighbours of every half between 10 and 35
+        for (int i = 1_000; i <= 3_500; i++) {
+            double base = i / 100.0;
+            checkTenths(base);
+            checkTenths(Math.nextUp(base));
+            checkTenths(Math.nextDown(base));
+            checkTenths(i * 0.01);
+            checkTenths(-base);
+        }
+        double sum = 10;
+        for (int i = 0; i < 2_500; i++) {
+            sum += 0.01;
+            checkTenths(sum);
+        }
+        SplittableRandom random = new SplittableRandom(22);
+        for (int i = 0; i < 100_000; i++) {
+            checkTenths(10 + random.nextDouble() * 25);
+        }
+    }
+
+    static void ecoSteps() throws IOException {
+        for (int i = 1_200; i <= 3_500; i++) {
+            double target = i * 0.01;
+            for (int step = 0; step < 5; step++) {
+                checkTenths(target);
+                target -= 2.0;
+            }
+        }
+    }
+
+    static void thermostatStatus() {
+        SmartThermostat thermostat = new SmartThermostat("fmt", "Format");
+        thermostat.setTemperature(21.55);
+        thermostat.enableEcoMode();
+        double target = thermostat.getTargetTemperature();
+        double current = thermostat.getCurrentTemperature();
+        String expected = String.format("SmartThermostat [ID=fmt, Name='Format', Status=OFF, Target=%.1f°C, Current=%.1f°C, Roles=0]",
+            target, current);
+        checkEquals(expected, StatusFormat.render(thermostat), "status");
+    }
+}
@@ -0,0 +1,211 @@
+package energy;
+
+import devices.CompactDeviceStore;
+import devices.ISmartDevice;
+import devices.ISmartLight;
+import devices.SmartLight;
+import devices.SmartSpeaker;
+import mediator.SmartHomeController;
+import testing.Tests;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class EnergyMeterTest {
+    private static final long HOUR = 3_600_000L;
+
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("EnergyMeterTest");
+        tests.test("compact views are metered", EnergyMeterTest::compactViews);
+        tests.test("models resolve through superclasses and interfaces", EnergyMeterTest::modelResolution);
+        tests.test("room and home energy follow draw changes", EnergyMeterTest::roomEnergy);
+        tests.test("a slow model holds up only its own device", EnergyMeterTest::perDeviceMeters);
+        tests.test("concurrent changes keep totals consistent", EnergyMeterTest::concurrentTotals);
+    }
+
+    /**
+     * Light subclass with no model of its own
+     */
+    static final class DimmableLight extends SmartLight {
+        DimmableLight(String deviceId, String deviceName) {
+            super(deviceId, deviceName);
+        }
+    }
+
+    static void compactViews() {
+        SmartHomeController controller = SmartHomeController.getInstance();
+        AtomicLong clock = new AtomicLong();
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartLight view = (ISmartLight) store.view(store.addLight("meter-view", "Metered view"));
+        controller.registerDevice(view);
+        EnergyMeter meter = EnergyMeter.attach(controller, clock::get);
+        try {
+            checkEquals(PowerModel.STANDBY_WATTS, meter.getDeviceWatts("meter-view"), 1e-6, "standby draw");
+            view.turnOn();
+            view.setBrightness(50);
+            checkEquals(EnergyMeter.lightWatts(true, 50), meter.getDeviceWatts("meter-view"), 1e-6, "draw after changes");
+            clock.addAndGet(HOUR);
+            checkEquals(EnergyMeter.lightWatts(true, 50), meter.getDeviceEnergyWh("meter-view"), 1e-6, "one hour of energy");
+        } finally {
+            meter.detach();
+            controller.unregisterDevice(view);
+        }
+    }
+
+    static void modelResolution() {
+        SmartHomeController controller = SmartHomeController.getInstance();
+        EnergyMeter meter = EnergyMeter.attach(controller, () -> 0);
+        try {
+            DimmableLight dimmable = new DimmableLight("dimmable", "Dimmable");
+            CompactDeviceStore store = new CompactDeviceStore();
+            ISmartDevice view = store.view(store.addLight("model-view", "View"));
+            check(meter.modelFor(dimmable) != null, "subclass uses the light model");
+            check(meter.modelFor(dimmable) == meter.modelFor(view), "heap and compact lights share the interface model");
+
+            PowerModel constant = d -> 42;
+            meter.setPowerModel(SmartLight.class, constant);
+            check(meter.modelFor(dimmable) == constant, "nearest superclass wins over the interface");
+            check(meter.modelFor(view) != constant, "views keep the interface model");
+            PowerModel exact = d -> 7;
+            meter.setPowerModel(DimmableLight.class, exact);
+            check(meter.modelFor(dimmable) == exact, "exact class wins");
+        } finally {
+            meter.detach();
+        }
+    }
+
+    static void roomEnergy() {
+        SmartHomeController controller = SmartHomeController.getInstance();
+        AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+        EnergyMeter meter = EnergyMeter.attach(controller, clock::get);
+        SmartLight light = new SmartLight("room-light", "Room light");
+        SmartSpeaker speaker = new SmartSpeaker("room-speaker", "Room speaker");
+        controller.registerAll(List.of(light, speaker));
+        try {
+            light.turnOn(); // 9.5 W
+            meter.assignRoom(light, "Kitchen");
+            clock.addAndGet(HOUR);
+            light.setBrightness(0); // 0.5 W from here on
+            clock.addAndGet(HOUR);
+            meter.assignRoom(light, "Hall");
+            clock.addAndGet(2 * HOUR);
+            double lit = EnergyMeter.lightWatts(true, 100);
+            double dark = EnergyMeter.lightWatts(true, 0);
+            checkEquals(lit + dark, meter.getRoomEnergyWh("Kitchen"), 1e-6, "kitchen keeps its share");
+            checkEquals(2 * dark, meter.getRoomEnergyWh("Hall"), 1e-6, "hall since the move");
+            checkEquals(lit + 3 * dark, meter.getDeviceEnergyWh("room-light"), 1e-6, "light");
+            checkEquals(4 * PowerModel.STANDBY_WATTS, meter.getRoomEnergyWh(EnergyMeter.UNASSIGNED), 1e-6, "speaker in standby");
+            checkEquals(lit + 3 * dark + 4 * PowerModel.STANDBY_WATTS, meter.getHomeEnergyWh(), 1e-6, "home");
+            checkEquals(0.0, meter.getRoomWatts("Kitchen"), 1e-6, "kitchen draw");
+            checkEquals(dark, meter.getRoomWatts("Hall"), 1e-6, "hall draw");
+
+            controller.unregisterDevice(light);
+            clock.addAndGet(HOUR);
+            checkEquals(PowerModel.STANDBY_WATTS, meter.getHomeWatts(), 1e-6, "draw without the light");
+            checkEquals(2 * dark, meter.getRoomEnergyWh("Hall"), 1e-6, "hall stops growing");
+        } finally {
+            meter.detach();
+            controller.unregisterDevice(light);
+            controller.unregisterDevice(speaker);
+        }
+    }
+
+    static void perDeviceMeters() throws Exception {
+        SmartHomeController controller = SmartHomeController.getInstance();
+        EnergyMeter meter = EnergyMeter.attach(controller, () -> 0);
+        CountDownLatch inModel = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        meter.setPowerModel(SmartSpeaker.class, d -> {
+            if (d.isOn()) {
+                inModel.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return 1;
+        });
+        SmartSpeaker speaker = new SmartSpeaker("slow-speaker", "Slow speaker");
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartLight view = (ISmartLight) store.view(store.addLight("fast-view", "Fast view"));
+        controller.registerAll(List.of(speaker, view));
+        Thread slow = new Thread(speaker::turnOn);
+        try {
+            slow.start();
+            check(inModel.await(10, TimeUnit.SECONDS), "speaker change reached its model");
+            view.turnOn(); // would wait for the speaker if metering were one lock
+            checkEquals(EnergyMeter.lightWatts(true, 100), meter.getDeviceWatts("fast-view"), 1e-6, "view metered meanwhile");
+        } finally {
+            release.countDown();
+            slow.join();
+            meter.detach();
+            controller.unregisterDevice(speaker);
+            controller.unregisterDevice(view);
+        }
+    }
+
+    static void concurrentTotals() throws Exception {
+        SmartHomeController controller = SmartHomeController.getInstance();
+        EnergyMeter meter = EnergyMeter.attach(controller, () -> 0);
+        List<SmartLight> lights = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            lights.add(new SmartLight("total-" + i, "Total " + i));
+        }
+        controller.registerAll(lights);
+        try {
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int offset = t;
+                threads.add(new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 5_000; i++) {
+                            SmartLight light = lights.get((i * 7 + offset) % lights.size());
+                            light.turnOn();
+                            light.setBrightness((i + offset) % 101);
+                            meter.assignRoom(light, i % 2 == 0 ? "Even" : "Odd");
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (failure.get() != null) {
+                throw new AssertionError("concurrent metering failed", failure.get());
+            }
+            double expected = 0;
+            for (SmartLight light : lights) {
+                double watts = EnergyMeter.lightWatts(light.isOn(), light.getBrightness());
+                checkEquals(watts, meter.getDeviceWatts(light.getDeviceId()), 1e-6, light.getDeviceId());
+                expected += watts;
+            }
+            checkEquals(expected, meter.getHomeWatts(), 1e-6, "home draw");
+            checkEquals(expected, meter.getRoomWatts("Even") + meter.getRoomWatts("Odd")
+                + meter.getRoomWatts(EnergyMeter.UNASSIGNED), 1e-6, "sum of rooms");
+        } finally {
+            meter.detach();
+            for (SmartLight light : lights) {
+                controller.unregisterDevice(light);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package energy;
+
+import devices.CompactDeviceStore;
+import devices.ISmartLight;
+import devices.SmartLight;
+import devices.SmartThermostat;
+import mediator.SmartHomeController;
+import roles.EnergyManagementRole;
+import roles.RoleRegistry;
+import testing.Tests;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class LoadShedderTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("LoadShedderTest");
+        tests.test("picks the others already cover are dropped", LoadShedderTest::redundantPicksDropped);
+        tests.test("compact views are curtailed", LoadShedderTest::compactViews);
+        tests.test("device changes never wait for a plan", LoadShedderTest::changesDoNotWaitForPlans);
+    }
+
+    private static EnergyManagementRole role() {
+        return RoleRegistry.shared(EnergyManagementRole.class);
+    }
+
+    static void redundantPicksDropped() {
+        SmartHomeController controller = SmartHomeController.getInstance();
+        SmartLight light = new SmartLight("shed-light", "Shed light");
+        SmartThermostat thermostat = new SmartThermostat("shed-heat", "Shed heater");
+        light.turnOn();
+        thermostat.turnOn();
+        thermostat.setTemperature(21); // half power, ECO mode drops it to idle
+        light.addRole(role());
+        thermostat.addRole(role());
+        controller.registerAll(List.of(light, thermostat));
+        EnergyMeter meter = EnergyMeter.attach(controller, () -> 0);
+        LoadShedder shedder = LoadShedder.attach(controller, meter);
+        try {
+            shedder.setComfort(thermostat, 10, 100); // light first by saving per comfort cost
+            SheddingPlan plan = shedder.plan(meter.getHomeWatts() - 100);
+            checkEquals(List.of(thermostat), plan.getReductions(), "the heater alone covers the excess");
+            check(plan.isWithinBudget(), "within budget");
+
+            SheddingPlan small = shedder.plan(meter.getHomeWatts() - 1);
+            checkEquals(List.of(light), small.getReductions(), "the light alone covers a small excess");
+            checkEquals(0, shedder.plan(meter.getHomeWatts() + 1).getReductions().size(), "nothing under budget");
+        } finally {
+            shedder.detach();
+            meter.detach();
+            controller.unregisterDevice(light);
+            controller.unregisterDevice(thermostat);
+        }
+    }
+
+    static void compactViews() {
+        SmartHomeController controller = SmartHomeController.getInstance();
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartLight view = (ISmartLight) store.view(store.addLight("shed-view", "Shed view"));
+        view.turnOn();
+        view.addRole(role());
+        controller.registerDevice(view);
+        EnergyMeter meter = EnergyMeter.attach(controller, () -> 0);
+        LoadShedder shedder = LoadShedder.attach(controller, meter);
+        try {
+            checkEquals(1, shedder.getCandidateCount(), "view is a candidate");
+            SheddingPlan plan = shedder.plan(meter.getHomeWatts() - 1);
+            checkEquals(List.of(view), plan.getReductions(), "view planned");
+            shedder.execute(plan);
+            checkEquals(30, view.getBrightness(), "view dimmed");
+            checkEquals(0, shedder.getCandidateCount(), "nothing left to save");
+        } finally {
+            shedder.detach();
+            meter.detach();
+            controller.unregisterDevice(view);
+        }
+    }
+
+    static void changesDoNotWaitForPlans() throws Exception {
+        SmartHomeController controller = SmartHomeController.getInstance();
+        SmartLight light = new SmartLight("shed-busy", "Busy light");
+        light.turnOn();
+        light.addRole(role());
+        controller.registerDevice(light);
+        EnergyMeter meter = EnergyMeter.attach(controller, () -> 0);
+        LoadShedder shedder = LoadShedder.attach(controller, meter);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread planner = new Thread(() -> {
+            synchronized (shedder) { // stands in for a long plan
+                held.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        try {
+            planner.start();
+            check(held.await(10, TimeUnit.SECONDS), "planner holds the shedder");
+            light.setBrightness(20); // callbacks must not need the shedder lock
+            light.removeRole(EnergyManagementRole.class);
+            light.addRole(role());
+            release.countDown();
+            planner.join();
+            checkEquals(0, shedder.getCandidateCount(), "re-ranked: a light at 20% saves nothing");
+            light.setBrightness(90);
+            checkEquals(1, shedder.getCandidateCount(), "re-ranked after brightening");
+        } finally {
+            release.countDown();
+            planner.join();
+            shedder.detach();
+            meter.detach();
+            controller.unregisterDevice(light);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package events;
+
+import devices.DeviceField;
+import devices.SmartLight;
+import devices.SmartSpeaker;
+import mediator.SmartHomeController;
+import testing.Tests;
+import java.util.ArrayList;
+import java.util.List;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class DeviceEventBusTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("DeviceEventBusTest");
+        tests.test("filters match kind, field and device", DeviceEventBusTest::filters);
+        tests.test("immediate subscribers get events on the changing thread", DeviceEventBusTest::immediate);
+        tests.test("batched subscribers get one list per flush", DeviceEventBusTest::batched);
+        tests.test("events during a flush wait for the next one", DeviceEventBusTest::flushSwapsLists);
+        tests.test("pending events are capped and drops counted", DeviceEventBusTest::pendingCapped);
+    }
+
+    /**
+     * New values of the state events, in delivery order
+     */
+    private static List<Double> values(List<DeviceEvent> events) {
+        List<Double> values = new ArrayList<>();
+        for (DeviceEvent event : events) {
+            values.add(event.getNewValue());
+        }
+        return values;
+    }
+
+    static void filters() {
+        SmartLight light = new SmartLight("filter-light", "Filter light");
+        SmartSpeaker speaker = new SmartSpeaker("filter-speaker", "Filter speaker");
+        DeviceEventFilter power = DeviceEventFilter.fields(DeviceField.POWER);
+        DeviceEventFilter roles = DeviceEventFilter.kinds(DeviceEvent.Kind.ROLE_ADDED, DeviceEvent.Kind.ROLE_REMOVED);
+        DeviceEventFilter lightOnly = DeviceEventFilter.device(light);
+
+        check(power.accepts(DeviceEvent.Kind.STATE_CHANGED, light, DeviceField.POWER), "field matches");
+        check(!power.accepts(DeviceEvent.Kind.STATE_CHANGED, light, DeviceField.BRIGHTNESS), "other field");
+        check(!power.accepts(DeviceEvent.Kind.ROLE_ADDED, light, null), "events without a field");
+        check(roles.accepts(DeviceEvent.Kind.ROLE_REMOVED, speaker, null), "kind matches");
+        check(!roles.accepts(DeviceEvent.Kind.REGISTERED, speaker, null), "other kind");
+        check(lightOnly.accepts(DeviceEvent.Kind.REGISTERED, light, null), "device matches");
+        check(!lightOnly.accepts(DeviceEvent.Kind.REGISTERED, speaker, null), "other device");
+        check(!lightOnly.accepts(DeviceEvent.Kind.SCENARIO_APPLIED, null, null), "scenario events have no device");
+        DeviceEventFilter lightPower = lightOnly.and(power);
+        check(lightPower.accepts(DeviceEvent.Kind.STATE_CHANGED, light, DeviceField.POWER), "both accept");
+        check(!lightPower.accepts(DeviceEvent.Kind.STATE_CHANGED, speaker, DeviceField.POWER), "device rejects");
+        check(!lightPower.accepts(DeviceEvent.Kind.STATE_CHANGED, light, DeviceField.VOLUME), "field rejects");
+        check(DeviceEventFilter.all().accepts(DeviceEvent.Kind.SCENARIO_APPLIED, null, null), "all");
+    }
+
+    static void immediate() {
+        SmartHomeController controller = SmartHomeController.getInstance();
+        DeviceEventBus bus = DeviceEventBus.attach(controller);
+        SmartLight light = new SmartLight("bus-light", "Bus light");
+        SmartSpeaker speaker = new SmartSpeaker("bus-speaker", "Bus speaker");
+        controller.registerAll(List.of(light, speaker));
+        try {
+            List<DeviceEvent> received = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            bus.subscribe(DeviceEventFilter.device(light).and(DeviceEventFilter.fields(DeviceField.BRIGHTNESS)), event -> {
+                received.add(event);
+                threads.add(Thread.currentThread());
+            });
+            light.turnOn();
+            light.setBrightness(40);
+            speaker.setVolume(70);
+            light.setBrightness(60);
+            checkEquals(List.of(40.0, 60.0), values(received), "brightness changes of the light only");
+            checkEquals(100.0, received.get(0).getOldValue(), "old value");
+            check(received.get(0).getDevice() == light, "device");
+            checkEquals(List.of(Thread.currentThread(), Thread.currentThread()), threads, "delivered on the changing thread");
+        } finally {
+            bus.detach();
+            controller.unregisterDevice(light);
+            controller.unregisterDevice(speaker);
+        }
+    }
+
+    static void batched() {
+        SmartHomeController controller = SmartHomeController.getInstance();
+        DeviceEventBus bus = DeviceEventBus.attach(controller);
+        SmartLight light = new SmartLight("batch-light", "Batch light");
+        controller.registerDevice(light);
+        try {
+            List<List<DeviceEvent>> batches = new ArrayList<>();
+            DeviceEventBus.Subscription subscription = bus.subscribeBatched(
+                DeviceEventFilter.fields(DeviceField.BRIGHTNESS), events -> batches.add(new ArrayList<>(events)));
+            light.setBrightness(10);
+            light.setBrightness(20);
+            checkEquals(0, batches.size(), "nothing before flush");
+            checkEquals(2, subscription.pendingCount(), "pending");
+            bus.flush();
+            checkEquals(1, batches.size(), "one batch");
+            checkEquals(List.of(10.0, 20.0), values(batches.get(0)), "batch in change order");
+            checkEquals(0, subscription.pendingCount(), "pending after flush");
+            bus.flush();
+            checkEquals(1, batches.size(), "an empty flush delivers nothing");
+            subscription.close();
+            light.setBrightness(30);
+            bus.flush();
+            checkEquals(1, batches.size(), "closed subscription gets nothing");
+        } finally {
+            bus.detach();
+            controller.unregisterDevice(light);
+        }
+    }
+
+    static void flushSwapsLists() {
+        DeviceEventBus bus = DeviceEventBus.attach(SmartHomeController.getInstance());
+        try {
+            SmartLight light = new SmartLight("swap", "Swap");
+            List<List<Double>> batches = new ArrayList<>();
+            int[] pendingDuringFlush = new int[1];
+            DeviceEventBus.Subscription[] subscription = new DeviceEventBus.Subscription[1];
+            subscription[0] = bus.subscribeBatched(DeviceEventFilter.all(), events -> {
+                int size = events.size();
+                if (batches.isEmpty()) {
+                    bus.stateChanged(light, DeviceField.BRIGHTNESS, 2, 3); // arrives while this batch is delivered
+                    pendingDuringFlush[0] = subscription[0].pendingCount();
+                }
+                checkEquals(size, events.size(), "batch unchanged by a concurrent event");
+                batches.add(values(events));
+            });
+            bus.stateChanged(light, DeviceField.BRIGHTNESS, 0, 1);
+            bus.stateChanged(light, DeviceField.BRIGHTNESS, 1, 2);
+            bus.flush();
+            checkEquals(1, pendingDuringFlush[0], "new event queued in the swapped-in list");
+            bus.flush();
+            bus.stateChanged(light, DeviceField.BRIGHTNESS, 3, 4);
+            bus.flush();
+            checkEquals(List.of(List.of(1.0, 2.0), List.of(3.0), List.of(4.0)), batches, "batches");
+        } finally {
+            bus.detach();
+        }
+    }
+
+    static void pendingCapped() {
+        DeviceEventBus bus = DeviceEventBus.attach(SmartHomeController.getInstance());
+        try {
+            SmartLight light = new SmartLight("capped", "Capped");
+            List<List<Double>> batches = new ArrayList<>();
+            DeviceEventBus.Subscription subscription =
+                bus.subscribeBatched(DeviceEventFilter.all(), events -> batches.add(values(events)), 3);
+            for (int i = 1; i <= 5; i++) {
+                bus.stateChanged(light, DeviceField.BRIGHTNESS, i - 1, i);
+            }
+            checkEquals(3, subscription.pendingCount(), "pending capped");
+            checkEquals(2L, subscription.droppedCount(), "dropped");
+            bus.flush();
+            bus.stateChanged(light, DeviceField.BRIGHTNESS, 5, 6);
+            bus.flush();
+            checkEquals(List.of(List.of(1.0, 2.0, 3.0), List.of(6.0)), batches, "batches");
+        } finally {
+            bus.detach();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package events;
+
+import devices.DeviceField;
+import devices.SmartLight;
+import mediator.SmartHomeController;
+import testing.Tests;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+
+import static testing.Tests.await;
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class HomeEventPublisherTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("HomeEventPublisherTest");
+        tests.test("DROP_OLDEST keeps the newest events", HomeEventPublisherTest::dropOldest);
+        tests.test("CONFLATE_PER_DEVICE keeps the latest per device", HomeEventPublisherTest::conflate);
+        tests.test("CONFLATE_PER_DEVICE keeps each field of a device", HomeEventPublisherTest::conflatePerField);
+        tests.test("a BLOCK subscriber holds up nobody and loses nothing", HomeEventPublisherTest::blockIsolated);
+        tests.test("close completes after buffered events", HomeEventPublisherTest::closeCompletes);
+    }
+
+    /**
+     * Subscriber that records events and requests only when told to
+     */
+    static final class Recorder implements Flow.Subscriber<DeviceEvent> {
+        final List<DeviceEvent> events = new CopyOnWriteArrayList<>();
+        private final long initialDemand;
+        volatile Flow.Subscription subscription;
+        volatile boolean completed;
+
+        Recorder(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+        }
+
+        @Override
+        public void onNext(DeviceEvent item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throw new AssertionError("unexpected error", throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        List<Double> values() {
+            List<Double> values = new ArrayList<>();
+            for (DeviceEvent event : events) {
+                values.add(event.getNewValue());
+            }
+            return values;
+        }
+    }
+
+    private static HomeEventPublisher.Subscription subscribe(HomeEventPublisher publisher, Recorder recorder,
+                                                             int capacity, OverflowPolicy policy) throws Exception {
+        publisher.subscribe(recorder, capacity, policy);
+        await(() -> recorder.subscription != null, 10_000, "onSubscribe");
+        return (HomeEventPublisher.Subscription) recorder.subscription;
+    }
+
+    static void dropOldest() throws Exception {
+        try (HomeEventPublisher publisher = HomeEventPublisher.attach(SmartHomeController.getInstance(), 1024, null)) {
+            Recorder recorder = new Recorder(0);
+            HomeEventPublisher.Subscription subscription = subscribe(publisher, recorder, 4, OverflowPolicy.DROP_OLDEST);
+            SmartLight light = new SmartLight("drop", "Drop");
+            for (int i = 0; i < 10; i++) {
+                publisher.stateChanged(light, DeviceField.BRIGHTNESS, i - 1, i);
+            }
+            await(() -> subscription.getDropped() == 6, 10_000, "six dropped");
+            checkEquals(4, subscription.getBuffered(), "buffered");
+            subscription.request(100);
+            await(() -> recorder.events.size() == 4, 10_000, "four delivered");
+            checkEquals(List.of(6.0, 7.0, 8.0, 9.0), recorder.values(), "newest four");
+        }
+    }
+
+    static void conflate() throws Exception {
+        try (HomeEventPublisher publisher = HomeEventPublisher.attach(SmartHomeController.getInstance(), 1024, null)) {
+            Recorder recorder = new Recorder(0);
+            HomeEventPublisher.Subscription subscription = subscribe(publisher, recorder, 8, OverflowPolicy.CONFLATE_PER_DEVICE);
+            SmartLight[] lights = {new SmartLight("c0", "C0"), new SmartLight("c1", "C1"), new SmartLight("c2", "C2")};
+            for (int round = 0; round < 5; round++) {
+                for (int d = 0; d < lights.length; d++) {
+                    publisher.stateChanged(lights[d], DeviceField.BRIGHTNESS, 0, d * 10 + round);
+                }
+            }
+            await(() -> subscription.getConflated() == 12, 10_000, "twelve conflated");
+            subscription.request(100);
+            await(() -> recorder.events.size() == 3, 10_000, "one per device");
+            checkEquals(List.of(4.0, 14.0, 24.0), recorder.values(), "latest value per device, first-seen order");
+            checkEquals(0L, subscription.getDropped(), "dropped");
+        }
+    }
+
+    static void conflatePerField() throws Exception {
+        try (HomeEventPublisher publisher = HomeEventPublisher.attach(SmartHomeController.getInstance(), 1024, null)) {
+            Recorder recorder = new Recorder(0);
+            HomeEventPublisher.Subscription subscription = subscribe(publisher, recorder, 2, OverflowPolicy.CONFLATE_PER_DEVICE);
+            SmartLight light = new SmartLight("fields", "Fields");
+            publisher.stateChanged(light, DeviceField.POWER, 0, 1);
+            for (int i = 1; i <= 5; i++) {
+                publisher.stateChanged(light, DeviceField.BRIGHTNESS, 100 - (i - 1) * 10, 100 - i * 10);
+            }
+            await(() -> subscription.getConflated() == 4, 10_000, "four brightness changes merged");
+            checkEquals(2, subscription.getBuffered(), "buffer full with one event per field");
+            subscription.request(100);
+            await(() -> recorder.events.size() == 2, 10_000, "one per field");
+            DeviceEvent power = recorder.events.get(0);
+            DeviceEvent brightness = recorder.events.get(1);
+            checkEquals(DeviceField.POWER, power.getField(), "first field");
+            checkEquals(1.0, power.getNewValue(), "power kept under later brightness changes");
+            checkEquals(DeviceField.BRIGHTNESS, brightness.getField(), "second field");
+            checkEquals(100.0, brightness.getOldValue(), "first old value");
+            checkEquals(50.0, brightness.getNewValue(), "last new value");
+            checkEquals(0L, subscription.getDropped(), "dropped");
+        }
+    }
+
+    static void blockIsolated() throws Exception {
+        int events = 1_000;
+        try (HomeEventPublisher publisher = HomeEventPublisher.attach(SmartHomeController.getInstance(), 2_048, null)) {
+            Recorder slow = new Recorder(0);
+            Recorder fast = new Recorder(Long.MAX_VALUE);
+            HomeEventPublisher.Subscription blocked = subscribe(publisher, slow, 8, OverflowPolicy.BLOCK);
+            HomeEventPublisher.Subscription unaffected = subscribe(publisher, fast, events, OverflowPolicy.DROP_OLDEST);
+            SmartLight light = new SmartLight("block", "Block");
+            long start = System.nanoTime();
+            for (int i = 0; i < events; i++) {
+                publisher.stateChanged(light, DeviceField.BRIGHTNESS, i - 1, i);
+            }
+            check(System.nanoTime() - start < 5_000_000_000L, "publishing never waits for the slow subscriber");
+            await(() -> fast.events.size() == events, 10_000, "fast subscriber gets every event");
+            checkEquals(0L, unaffected.getDropped(), "fast subscriber dropped");
+            checkEquals(0, slow.events.size(), "slow subscriber has no demand");
+            slow.subscription.request(Long.MAX_VALUE);
+            await(() -> slow.events.size() == events, 10_000, "slow subscriber catches up");
+            checkEquals(0L, blocked.getDropped(), "nothing dropped");
+            for (int i = 0; i < events; i++) {
+                checkEquals((double) i, slow.events.get(i).getNewValue(), "order at " + i);
+            }
+        }
+    }
+
+    static void closeCompletes() throws Exception {
+        HomeEventPublisher publisher = HomeEventPublisher.attach(SmartHomeController.getInstance(), 1024, null);
+        Recorder recorder = new Recorder(0);
+        HomeEventPublisher.Subscription subscription = subscribe(publisher, recorder, 16, OverflowPolicy.BLOCK);
+        SmartLight light = new SmartLight("close", "Close");
+        for (int i = 0; i < 5; i++) {
+            publisher.stateChanged(light, DeviceField.BRIGHTNESS, i - 1, i);
+        }
+        await(() -> subscription.getBuffered() == 5, 10_000, "buffered before close");
+        publisher.close();
+        Thread.sleep(50);
+        check(!recorder.completed, "no completion while events are undelivered");
+        subscription.request(5);
+        await(() -> recorder.completed, 10_000, "completed after delivering the buffer");
+        checkEquals(5, recorder.events.size(), "delivered");
+        Recorder late = new Recorder(1);
+        publisher.subscribe(late);
+        await(() -> late.completed, 10_000, "late subscriber completes at once");
+        checkEquals(0, publisher.getSubscriberCount(), "subscribers left");
+    }
+}
@@ -0,0 +1,161 @@
+package logging;
+
+import testing.Tests;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class AsyncRingBufferSinkTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("AsyncRingBufferSinkTest");
+        tests.test("events below the level never reach the sink", AsyncRingBufferSinkTest::levelFiltering);
+        tests.test("a full ring drops and counts events", AsyncRingBufferSinkTest::overflowDrops);
+        tests.test("close drains every accepted event in order", AsyncRingBufferSinkTest::closeDrains);
+        tests.test("mutable arguments print their state at the call", AsyncRingBufferSinkTest::rendersAtPublish);
+    }
+
+    /**
+     * Output stream that holds up the writer until released
+     */
+    static final class GatedStream extends OutputStream {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (bytes) {
+                bytes.write(b, off, len);
+            }
+        }
+
+        List<String> lines() {
+            synchronized (bytes) {
+                return lines(bytes.toString(StandardCharsets.UTF_8));
+            }
+        }
+
+        static List<String> lines(String text) {
+            List<String> lines = new ArrayList<>();
+            for (String line : text.split(System.lineSeparator())) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * Run body with the given sink and level installed, restoring both afterwards
+     */
+    private static void withSink(EventSink sink, Level level, Runnable body) {
+        Level previousLevel = EventLog.getLevel();
+        EventSink previous = EventLog.setSink(sink);
+        EventLog.setLevel(level);
+        try {
+            body.run();
+        } finally {
+            EventLog.setLevel(previousLevel);
+            EventLog.setSink(previous);
+            sink.close();
+        }
+    }
+
+    static void levelFiltering() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AsyncRingBufferSink sink = new AsyncRingBufferSink(16, new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        withSink(sink, Level.WARN, () -> {
+            EventLog.log(Level.DEBUG, "debug");
+            EventLog.log(Level.INFO, "info ", "subject", null);
+            EventLog.log(Level.WARN, "warn ", "subject", ": ", 3L, "");
+            EventLog.log(Level.ERROR, "error");
+            EventLog.flush();
+        });
+        checkEquals(List.of("warn subject: 3", "error"),
+                    GatedStream.lines(bytes.toString(StandardCharsets.UTF_8)), "printed");
+    }
+
+    static void overflowDrops() throws Exception {
+        GatedStream stream = new GatedStream();
+        AsyncRingBufferSink sink = new AsyncRingBufferSink(4, new PrintStream(stream, false, StandardCharsets.UTF_8));
+        withSink(sink, Level.INFO, () -> {
+            try {
+                EventLog.log(Level.INFO, "event ", "0", null);
+                check(stream.entered.await(10, TimeUnit.SECONDS), "writer is printing the first event");
+                for (int i = 1; i <= 7; i++) {
+                    EventLog.log(Level.INFO, "event ", String.valueOf(i), null); // four fit, three do not
+                }
+                checkEquals(3L, sink.getDroppedCount(), "dropped");
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            } finally {
+                stream.release.countDown();
+            }
+            EventLog.flush();
+        });
+        checkEquals(List.of("event 0", "event 1", "event 2", "event 3", "event 4"), stream.lines(), "printed");
+    }
+
+    static void closeDrains() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AsyncRingBufferSink sink = new AsyncRingBufferSink(1024, new PrintStream(bytes, false, StandardCharsets.UTF_8));
+        List<String> expected = new ArrayList<>();
+        withSink(sink, Level.INFO, () -> {
+            for (int i = 0; i < 500; i++) {
+                EventLog.log(Level.INFO, "line ", null, null, i, null);
+                expected.add("line " + i);
+            }
+        }); // restoring the previous sink closes this one without an explicit flush
+        checkEquals(0L, sink.getDroppedCount(), "dropped");
+        checkEquals(expected, GatedStream.lines(bytes.toString(StandardCharsets.UTF_8)), "printed");
+    }
+
+    static void rendersAtPublish() throws Exception {
+        GatedStream stream = new GatedStream();
+        AsyncRingBufferSink sink = new AsyncRingBufferSink(8, new PrintStream(stream, false, StandardCharsets.UTF_8));
+        StringBuilder plan = new StringBuilder("plan A");
+        List<String> reductions = new ArrayList<>(List.of("lamp"));
+        withSink(sink, Level.INFO, () -> {
+            try {
+                EventLog.log(Level.INFO, "first");
+                check(stream.entered.await(10, TimeUnit.SECONDS), "writer is busy");
+                EventLog.log(Level.INFO, "", plan, " cuts ", reductions, null);
+                plan.setLength(0);
+                plan.append("plan B");
+                reductions.add("speaker");
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            } finally {
+                stream.release.countDown();
+            }
+            EventLog.flush();
+        });
+        checkEquals(List.of("first", "plan A cuts [lamp]"), stream.lines(), "printed");
+    }
+}
@@ -0,0 +1,192 @@
+package mediator;
+
+import devices.DeviceField;
+import devices.ISmartDevice;
+import devices.SmartLight;
+import roles.RoleRegistry;
+import roles.SecurityModeRole;
+import testing.Tests;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class DeviceRegistryTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("DeviceRegistryTest");
+        tests.test("add, find and swap-remove", DeviceRegistryTest::addFindRemove);
+        tests.test("a shared name passes to the next device on removal", DeviceRegistryTest::sharedNames);
+        tests.test("snapshots are stable and shared until a change", DeviceRegistryTest::snapshots);
+        tests.test("concurrent changes while iterating", DeviceRegistryTest::concurrentChanges);
+        tests.test("listener added during registration is attached once", DeviceRegistryTest::listenerAttachedOnce);
+    }
+
+    static void addFindRemove() {
+        DeviceRegistry registry = new DeviceRegistry();
+        SmartLight a = new SmartLight("A", "Alpha");
+        SmartLight b = new SmartLight("B", "Beta");
+        SmartLight c = new SmartLight("C", "Gamma");
+        check(registry.add(a) && registry.add(b) && registry.add(c), "first add succeeds");
+        check(!registry.add(new SmartLight("A", "Other")), "duplicate ID is refused");
+        checkEquals(b, registry.findById("B"), "findById");
+        checkEquals(c, registry.findByName("Gamma"), "findByName");
+        check(registry.remove(a), "remove registered device");
+        check(!registry.remove(a), "second remove is refused");
+        checkEquals(null, registry.findById("A"), "removed device lookup");
+        checkEquals(2, registry.size(), "size");
+        checkEquals(List.of(c, b), registry.asList(), "last device moved into the freed slot");
+        check(registry.contains(c) && !registry.contains(a), "contains");
+    }
+
+    static void sharedNames() {
+        DeviceRegistry registry = new DeviceRegistry();
+        SmartLight first = new SmartLight("L1", "Lamp");
+        SmartLight second = new SmartLight("L2", "Lamp");
+        SmartLight third = new SmartLight("L3", "Lamp");
+        registry.add(first);
+        registry.add(second);
+        registry.add(third);
+        checkEquals(first, registry.findByName("Lamp"), "earliest registration wins");
+        registry.remove(first);
+        checkEquals(second, registry.findByName("Lamp"), "next device after the first is removed");
+        registry.remove(third);
+        checkEquals(second, registry.findByName("Lamp"), "removing a later device keeps the lookup");
+        registry.remove(second);
+        checkEquals(null, registry.findByName("Lamp"), "name gone with its last device");
+        registry.add(third);
+        checkEquals(third, registry.findByName("Lamp"), "name usable again");
+
+        SmartHomeController controller = SmartHomeController.getInstance();
+        SmartLight kept = new SmartLight("shared-kept", "Shared lamp");
+        SmartLight gone = new SmartLight("shared-gone", "Shared lamp");
+        controller.registerDevice(gone);
+        controller.registerDevice(kept);
+        try {
+            controller.unregisterDevice(gone);
+            controller.assignRoleToDevice("Shared lamp", RoleRegistry.shared(SecurityModeRole.class));
+            check(kept.hasRole(SecurityModeRole.class), "role reaches the remaining device");
+        } finally {
+            controller.unregisterDevice(kept);
+        }
+    }
+
+    static void snapshots() {
+        DeviceRegistry registry = new DeviceRegistry();
+        registry.add(new SmartLight("A", "Alpha"));
+        List<ISmartDevice> first = registry.asList();
+        check(first == registry.asList(), "unchanged registry hands out the same list");
+        registry.add(new SmartLight("B", "Beta"));
+        checkEquals(1, first.size(), "earlier snapshot does not see later registrations");
+        checkEquals(2, registry.asList().size(), "new snapshot does");
+        check(first != registry.asList(), "a change builds a new snapshot");
+    }
+
+    static void concurrentChanges() throws Exception {
+        DeviceRegistry registry = new DeviceRegistry();
+        int writers = 4;
+        int perWriter = 5_000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perWriter; i++) {
+                        SmartLight light = new SmartLight("W" + writer + "-" + i, "light");
+                        registry.add(light);
+                        if (i % 2 == 1) {
+                            registry.remove(light); // odd devices come and go
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        AtomicInteger iterations = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            try {
+                start.await();
+                while (registry.size() < writers * perWriter / 2) {
+                    List<ISmartDevice> snapshot = registry.asList();
+                    int count = 0;
+                    for (ISmartDevice device : snapshot) {
+                        check(device != null, "snapshot holds no empty slots");
+                        count++;
+                    }
+                    checkEquals(snapshot.size(), count, "snapshot size matches its contents");
+                    iterations.incrementAndGet();
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        threads.add(reader);
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("concurrent access failed", failure.get());
+        }
+        checkEquals(writers * perWriter / 2, registry.size(), "size");
+        checkEquals(writers * perWriter / 2, registry.asList().size(), "snapshot size");
+        for (int w = 0; w < writers; w++) {
+            checkEquals(null, registry.findById("W" + w + "-1"), "removed device is gone");
+            check(registry.findById("W" + w + "-0") != null, "kept device is found");
+        }
+    }
+
+    static void listenerAttachedOnce() throws Exception {
+        SmartHomeController controller = SmartHomeController.getInstance();
+        List<SmartLight> lights = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            lights.add(new SmartLight("attach-" + i, "attach " + i));
+        }
+        ConcurrentHashMap<ISmartDevice, AtomicInteger> events = new ConcurrentHashMap<>();
+        HomeListener listener = new HomeListener() {
+            @Override
+            public void stateChanged(ISmartDevice device, DeviceField field, double oldValue, double newValue) {
+                events.computeIfAbsent(device, d -> new AtomicInteger()).incrementAndGet();
+            }
+        };
+        Thread registrar = new Thread(() -> {
+            for (SmartLight light : lights) {
+                controller.registerDevice(light);
+            }
+        });
+        registrar.start();
+        controller.addHomeListener(listener);
+        registrar.join();
+        try {
+            for (SmartLight light : lights) {
+                light.turnOn();
+            }
+            for (SmartLight light : lights) {
+                AtomicInteger count = events.get(light);
+                checkEquals(1, count == null ? 0 : count.get(), "events for " + light.getDeviceId());
+            }
+        } finally {
+            controller.removeHomeListener(listener);
+            for (SmartLight light : lights) {
+                controller.unregisterDevice(light);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package mediator;
+
+import devices.ISmartDevice;
+import devices.SmartLight;
+import devices.SmartSpeaker;
+import roles.RoleRegistry;
+import roles.SecurityModeRole;
+import testing.Tests;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class ParallelScenarioRunnerTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("ParallelScenarioRunnerTest");
+        tests.test("role index keeps the order roles were gained", ParallelScenarioRunnerTest::indexOrder);
+        tests.test("parallel sweep reaches every device and the index", ParallelScenarioRunnerTest::parallelSweep);
+    }
+
+    static void indexOrder() {
+        RoleIndex index = new RoleIndex();
+        List<ISmartDevice> devices = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ISmartDevice device = i % 2 == 0 ? new SmartLight("order-" + i, "light") : new SmartSpeaker("order-" + i, "speaker");
+            index.track(device);
+            devices.add(device);
+        }
+        SecurityModeRole role = RoleRegistry.shared(SecurityModeRole.class);
+        for (int i = devices.size() - 1; i >= 0; i--) {
+            devices.get(i).addRole(role);
+        }
+        List<ISmartDevice> expected = new ArrayList<>(devices);
+        Collections.reverse(expected);
+        checkEquals(expected, index.devicesWith(SecurityModeRole.class), "gain order");
+
+        ISmartDevice moved = devices.get(50);
+        moved.removeRole(SecurityModeRole.class);
+        moved.addRole(role);
+        expected.remove(moved);
+        expected.add(moved);
+        checkEquals(expected, index.devicesWith(SecurityModeRole.class), "regained role goes last");
+        List<ISmartDevice> snapshot = index.devicesWith(SecurityModeRole.class);
+        check(snapshot == index.devicesWith(SecurityModeRole.class), "unchanged index reuses its snapshot");
+    }
+
+    static void parallelSweep() throws Exception {
+        ISmartDevice[] devices = new ISmartDevice[20_000];
+        RoleIndex index = new RoleIndex();
+        for (int i = 0; i < devices.length; i++) {
+            devices[i] = new SmartLight("sweep-" + i, "light " + i);
+            index.track(devices[i]);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelScenarioRunner runner = new ParallelScenarioRunner(pool);
+            ScenarioResult result = runner.run(Scenario.ACTIVATE_SECURITY, devices).get(30, TimeUnit.SECONDS);
+            checkEquals(devices.length, result.getDevicesProcessed(), "devices visited");
+            for (ISmartDevice device : devices) {
+                check(device.hasRole(SecurityModeRole.class), device.getDeviceId() + " has the role");
+            }
+            checkEquals(devices.length, index.devicesWith(SecurityModeRole.class).size(), "indexed devices");
+            runner.run(Scenario.DEACTIVATE_SECURITY, devices).get(30, TimeUnit.SECONDS);
+            checkEquals(0, index.devicesWith(SecurityModeRole.class).size(), "indexed devices after removal");
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
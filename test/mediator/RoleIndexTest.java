@@ -0,0 +1,121 @@
+package mediator;
+
+import devices.CompactDeviceStore;
+import devices.ISmartDevice;
+import devices.SmartLight;
+import roles.EnergyManagementRole;
+import roles.RoleRegistry;
+import roles.SecurityModeRole;
+import testing.Tests;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class RoleIndexTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("RoleIndexTest");
+        tests.test("track indexes the roles a device already holds", RoleIndexTest::trackExisting);
+        tests.test("role changes on tracked devices update the index", RoleIndexTest::followsChanges);
+        tests.test("untrack drops the device and stops listening", RoleIndexTest::untrackDrops);
+        tests.test("track racing with role changes leaves no stale entry", RoleIndexTest::trackRacesRoleChanges);
+    }
+
+    static void trackExisting() {
+        RoleIndex index = new RoleIndex();
+        SmartLight a = new SmartLight("RI-1", "Alpha");
+        SmartLight b = new SmartLight("RI-2", "Beta");
+        a.addRole(RoleRegistry.shared(SecurityModeRole.class));
+        b.addRole(RoleRegistry.shared(SecurityModeRole.class));
+        b.addRole(RoleRegistry.shared(EnergyManagementRole.class));
+        index.track(a);
+        index.track(b);
+        checkEquals(List.of(a, b), index.devicesWith(SecurityModeRole.class), "security members");
+        checkEquals(List.of(b), index.devicesWith(EnergyManagementRole.class), "energy members");
+    }
+
+    static void followsChanges() {
+        RoleIndex index = new RoleIndex();
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartDevice compact = store.view(store.addSpeaker("RI-3", "Gamma"));
+        SmartLight light = new SmartLight("RI-4", "Delta");
+        index.track(compact);
+        index.track(light);
+        checkEquals(List.of(), index.devicesWith(SecurityModeRole.class), "nothing indexed yet");
+        light.addRole(RoleRegistry.shared(SecurityModeRole.class));
+        compact.addRole(RoleRegistry.shared(SecurityModeRole.class));
+        checkEquals(List.of(light, compact), index.devicesWith(SecurityModeRole.class), "order the role was gained");
+        light.removeRole(SecurityModeRole.class);
+        checkEquals(List.of(compact), index.devicesWith(SecurityModeRole.class), "after removal");
+    }
+
+    static void untrackDrops() {
+        RoleIndex index = new RoleIndex();
+        SmartLight light = new SmartLight("RI-5", "Epsilon");
+        light.addRole(RoleRegistry.shared(SecurityModeRole.class));
+        light.addRole(RoleRegistry.shared(EnergyManagementRole.class));
+        index.track(light);
+        index.untrack(light);
+        checkEquals(List.of(), index.devicesWith(SecurityModeRole.class), "security members");
+        checkEquals(List.of(), index.devicesWith(EnergyManagementRole.class), "energy members");
+        light.removeRole(SecurityModeRole.class);
+        light.addRole(RoleRegistry.shared(SecurityModeRole.class));
+        checkEquals(List.of(), index.devicesWith(SecurityModeRole.class), "untracked device not indexed again");
+    }
+
+    static void trackRacesRoleChanges() throws Exception {
+        CompactDeviceStore store = new CompactDeviceStore();
+        for (int round = 0; round < 2_000; round++) {
+            RoleIndex index = new RoleIndex();
+            ISmartDevice device = round % 2 == 0
+                ? new SmartLight("RI-race-" + round, "Race")
+                : store.view(store.addLight("RI-race-" + round, "Race"));
+            device.addRole(RoleRegistry.shared(SecurityModeRole.class));
+            boolean removeFirst = round % 4 < 2;
+            race(
+                () -> index.track(device),
+                () -> {
+                    if (removeFirst) {
+                        device.removeRole(SecurityModeRole.class);
+                    } else {
+                        device.removeRole(SecurityModeRole.class);
+                        device.addRole(RoleRegistry.shared(SecurityModeRole.class));
+                    }
+                });
+            boolean indexed = index.devicesWith(SecurityModeRole.class).contains(device);
+            checkEquals(device.hasRole(SecurityModeRole.class), indexed, "indexed matches the device in round " + round);
+        }
+    }
+
+    private static void race(Runnable first, Runnable second) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[2];
+        Runnable[] bodies = {first, second};
+        for (int i = 0; i < 2; i++) {
+            Runnable body = bodies[i];
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    body.run();
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        check(failure.get() == null, "racing threads failed: " + failure.get());
+    }
+}
@@ -0,0 +1,215 @@
+package persistence;
+
+import devices.CompactDeviceStore;
+import devices.ISmartDevice;
+import devices.ISmartLight;
+import devices.SmartLight;
+import devices.SmartSpeaker;
+import devices.SmartThermostat;
+import mediator.SmartHomeController;
+import roles.DimmerRole;
+import roles.RoleRegistry;
+import roles.SecurityModeRole;
+import testing.Tests;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class EventJournalTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("EventJournalTest");
+        tests.test("replay restores the journaled home", EventJournalTest::replay);
+        tests.test("compaction round trip", EventJournalTest::compaction);
+        tests.test("compaction during concurrent writes and syncs", EventJournalTest::compactUnderLoad);
+        tests.test("configured roles replay with their parameter", EventJournalTest::configuredRoles);
+    }
+
+    static void replay() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        SmartHomeController controller = SmartHomeController.getInstance();
+        List<String> expected;
+        try (EventJournal journal = EventJournal.open(directory, controller, 1, 64L << 20)) {
+            SmartLight light = new SmartLight("jl", "Journal light");
+            SmartThermostat thermostat = new SmartThermostat("jt", "Journal thermostat");
+            SmartSpeaker speaker = new SmartSpeaker("js", "Journal speaker");
+            CompactDeviceStore store = new CompactDeviceStore();
+            ISmartLight view = (ISmartLight) store.view(store.addLight("jv", "Journal view"));
+            controller.registerAll(List.of(light, thermostat, speaker, view));
+            light.turnOn();
+            // More records than one buffer holds, so full buffers go through the flusher
+            for (int i = 0; i < 30_000; i++) {
+                light.setBrightness(i % 101);
+            }
+            thermostat.setTemperature(24.5);
+            speaker.turnOn();
+            speaker.playSound("Rain");
+            speaker.addRole(RoleRegistry.shared(SecurityModeRole.class));
+            view.turnOn();
+            view.setBrightness(7);
+            journal.awaitDurable();
+            check(journal.getAppendedCount() > 30_000, "records appended");
+            expected = infos(controller);
+        }
+        unregisterAll(controller);
+        try {
+            checkEquals(expected, recover(directory, controller), "recovered devices");
+            check(controller.findById("js").hasRole(SecurityModeRole.class), "recovered role");
+            check(controller.findById("jv") instanceof SmartLight, "view comes back as a heap light");
+        } finally {
+            unregisterAll(controller);
+            delete(directory);
+        }
+    }
+
+    static void compaction() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        SmartHomeController controller = SmartHomeController.getInstance();
+        List<String> expected;
+        try (EventJournal journal = EventJournal.open(directory, controller, 1, 64L << 20)) {
+            SmartLight light = new SmartLight("cl", "Compacted light");
+            controller.registerDevice(light);
+            light.turnOn();
+            light.setBrightness(20);
+            journal.compact();
+            light.setBrightness(60); // lands in the segment after the snapshot
+            journal.awaitDurable();
+            expected = infos(controller);
+        }
+        checkEquals(List.of("journal-1.log", "snapshot-1.bin"), files(directory), "files after compaction");
+        unregisterAll(controller);
+        try {
+            checkEquals(expected, recover(directory, controller), "recovered from snapshot and tail");
+        } finally {
+            unregisterAll(controller);
+            delete(directory);
+        }
+    }
+
+    static void compactUnderLoad() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        SmartHomeController controller = SmartHomeController.getInstance();
+        List<String> expected;
+        try (EventJournal journal = EventJournal.open(directory, controller, 1, 64L << 20)) {
+            List<SmartLight> lights = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                lights.add(new SmartLight("load-" + i, "Load " + i));
+            }
+            controller.registerAll(lights);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 20_000; i++) {
+                        lights.get(i % lights.size()).setBrightness(i % 101);
+                        if (i % 500 == 0) {
+                            journal.awaitDurable();
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            writer.start();
+            while (writer.isAlive()) {
+                journal.compact(); // closes the segment the flusher may be forcing
+            }
+            writer.join();
+            if (failure.get() != null) {
+                throw new AssertionError("writer failed", failure.get());
+            }
+            journal.awaitDurable();
+            expected = infos(controller);
+        }
+        unregisterAll(controller);
+        try {
+            checkEquals(expected, recover(directory, controller), "recovered state");
+        } finally {
+            unregisterAll(controller);
+            delete(directory);
+        }
+    }
+
+    static void configuredRoles() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        SmartHomeController controller = SmartHomeController.getInstance();
+        try (EventJournal journal = EventJournal.open(directory, controller, 1, 64L << 20)) {
+            SmartLight kept = new SmartLight("rk", "Kept");
+            SmartLight changed = new SmartLight("rc", "Changed");
+            kept.addRole(DimmerRole.of(25)); // journaled at registration
+            controller.registerAll(List.of(kept, changed));
+            changed.addRole(DimmerRole.of(40));
+            changed.removeRole(DimmerRole.class);
+            changed.addRole(DimmerRole.of(90));
+            journal.awaitDurable();
+        }
+        unregisterAll(controller);
+        try {
+            recover(directory, controller);
+            check(controller.findById("rk").getRole(DimmerRole.class) == DimmerRole.of(25), "level of the registered role");
+            check(controller.findById("rc").getRole(DimmerRole.class) == DimmerRole.of(90), "level after remove and add");
+        } finally {
+            unregisterAll(controller);
+            delete(directory);
+        }
+    }
+
+    /**
+     * Recover the journal into the controller and close it again
+     * @return Device infos of the recovered home
+     */
+    private static List<String> recover(Path directory, SmartHomeController controller) throws IOException {
+        EventJournal journal = EventJournal.open(directory, controller, 1, 64L << 20);
+        try {
+            return infos(controller);
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static List<String> infos(SmartHomeController controller) {
+        List<String> infos = new ArrayList<>();
+        for (ISmartDevice device : controller.getAllDevices()) {
+            infos.add(device.getDeviceInfo());
+        }
+        infos.sort(null);
+        return infos;
+    }
+
+    private static void unregisterAll(SmartHomeController controller) {
+        for (ISmartDevice device : controller.getAllDevices()) {
+            controller.unregisterDevice(device);
+        }
+    }
+
+    private static List<String> files(Path directory) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                names.add(file.getFileName().toString());
+            }
+        }
+        names.sort(null);
+        return names;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,185 @@
+package persistence;
+
+import devices.CompactDeviceStore;
+import devices.ISmartDevice;
+import devices.ISmartLight;
+import devices.ISmartSpeaker;
+import devices.ISmartThermostat;
+import devices.SmartLight;
+import devices.SmartSpeaker;
+import devices.SmartThermostat;
+import roles.DimmerRole;
+import roles.EnergyManagementRole;
+import roles.RoleRegistry;
+import roles.SecurityModeRole;
+import testing.Tests;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+import static testing.Tests.checkThrows;
+
+public class HomeSnapshotTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("HomeSnapshotTest");
+        tests.test("round trip keeps state and roles", HomeSnapshotTest::roundTrip);
+        tests.test("compact views are written as heap devices", HomeSnapshotTest::compactViews);
+        tests.test("configured roles keep their parameter", HomeSnapshotTest::configuredRoles);
+        tests.test("version 1 snapshots are still read", HomeSnapshotTest::versionOne);
+        tests.test("utf8Length matches String.getBytes", HomeSnapshotTest::utf8Length);
+        tests.test("rewrites replace the file through a temporary sibling", HomeSnapshotTest::replacesAtomically);
+    }
+
+    static void replacesAtomically() throws Exception {
+        Path directory = Files.createTempDirectory("snapshot");
+        Path file = directory.resolve("home.bin");
+        try {
+            SmartLight light = new SmartLight("L1", "Lamp");
+            HomeSnapshot.write(List.of(light), file);
+            light.setBrightness(25);
+            HomeSnapshot.write(List.of(light, new SmartSpeaker("S1", "Speaker")), file);
+            List<ISmartDevice> read = HomeSnapshot.read(file);
+            checkEquals(2, read.size(), "devices in the replaced file");
+            checkEquals(25, ((ISmartLight) read.get(0)).getBrightness(), "brightness");
+            checkEquals(List.of(file), filesIn(directory), "files after replacing");
+
+            // A failed move keeps the target as it was and removes the temporary file
+            Path blocked = directory.resolve("blocked.bin");
+            Files.createDirectory(blocked);
+            Files.createFile(blocked.resolve("inside"));
+            checkThrows(IOException.class, () -> HomeSnapshot.write(List.of(light), blocked));
+            check(Files.isDirectory(blocked), "target left alone");
+            checkEquals(List.of(blocked, file), filesIn(directory), "files after a failed write");
+            Files.delete(blocked.resolve("inside"));
+        } finally {
+            for (Path left : filesIn(directory)) {
+                Files.delete(left);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static List<Path> filesIn(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            entries.forEach(files::add);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    static void roundTrip() throws Exception {
+        SmartLight light = new SmartLight("L1", "Küche");
+        light.turnOn();
+        light.setBrightness(35);
+        light.addRole(RoleRegistry.shared(SecurityModeRole.class));
+        SmartThermostat thermostat = new SmartThermostat("T1", "Hall");
+        thermostat.setTemperature(23.5);
+        thermostat.addRole(RoleRegistry.shared(EnergyManagementRole.class));
+        SmartSpeaker speaker = new SmartSpeaker("S1", "Den 🎵");
+        speaker.turnOn();
+        speaker.setVolume(65);
+        speaker.playSound("Jazz");
+        speaker.addRole(RoleRegistry.shared(SecurityModeRole.class));
+
+        List<ISmartDevice> restored = writeAndRead(List.of(light, thermostat, speaker));
+        checkEquals(3, restored.size(), "device count");
+        checkEquals(light.getDeviceInfo(), restored.get(0).getDeviceInfo(), "light");
+        checkEquals(thermostat.getDeviceInfo(), restored.get(1).getDeviceInfo(), "thermostat");
+        checkEquals(speaker.getDeviceInfo(), restored.get(2).getDeviceInfo(), "speaker");
+        checkEquals(thermostat.getCurrentTemperature(), ((SmartThermostat) restored.get(1)).getCurrentTemperature(),
+            "current temperature");
+        check(restored.get(0).getRole(SecurityModeRole.class) == RoleRegistry.shared(SecurityModeRole.class),
+            "roles come back as the shared instance");
+        check(restored.get(1).hasRole(EnergyManagementRole.class), "thermostat role");
+        check(!restored.get(1).hasRole(SecurityModeRole.class), "no extra roles");
+    }
+
+    static void configuredRoles() throws Exception {
+        SmartLight dim = new SmartLight("dim", "Dim");
+        dim.addRole(DimmerRole.of(30));
+        dim.addRole(RoleRegistry.shared(SecurityModeRole.class));
+        SmartLight bright = new SmartLight("bright", "Bright");
+        bright.addRole(DimmerRole.of(70));
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartLight view = (ISmartLight) store.view(store.addLight("view", "View"));
+        view.addRole(DimmerRole.of(45));
+
+        List<ISmartDevice> restored = writeAndRead(List.of(dim, bright, view));
+        check(restored.get(0).getRole(DimmerRole.class) == DimmerRole.of(30), "first level, interned");
+        check(restored.get(0).hasRole(SecurityModeRole.class), "unconfigured role beside it");
+        check(restored.get(1).getRole(DimmerRole.class) == DimmerRole.of(70), "second level");
+        check(restored.get(2).getRole(DimmerRole.class) == DimmerRole.of(45), "view level");
+    }
+
+    static void versionOne() throws Exception {
+        String role = SecurityModeRole.class.getName();
+        ByteBuffer out = ByteBuffer.allocate(256);
+        out.putInt(0x53485331).putShort((short) 1).putInt(1);
+        out.putShort((short) 1);
+        HomeSnapshot.putString(out, role);
+        out.put(HomeSnapshot.TYPE_LIGHT).put((byte) 1);
+        HomeSnapshot.putString(out, "old");
+        HomeSnapshot.putString(out, "Old light");
+        out.putLong(1L).putInt(42);
+        out.flip();
+        List<ISmartDevice> restored = HomeSnapshot.decode(out);
+        SmartLight light = (SmartLight) restored.get(0);
+        check(light.isOn(), "on");
+        checkEquals(42, light.getBrightness(), "brightness");
+        check(light.getRole(SecurityModeRole.class) == RoleRegistry.shared(SecurityModeRole.class), "role");
+    }
+
+    static void compactViews() throws Exception {
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartLight light = (ISmartLight) store.view(store.addLight("cl", "Compact light"));
+        ISmartThermostat thermostat = (ISmartThermostat) store.view(store.addThermostat("ct", "Compact thermostat"));
+        ISmartSpeaker speaker = (ISmartSpeaker) store.view(store.addSpeaker("cs", "Compact speaker"));
+        light.turnOn();
+        light.setBrightness(12);
+        thermostat.setTemperature(18.5);
+        speaker.turnOn();
+        speaker.setVolume(80);
+        light.addRole(RoleRegistry.shared(SecurityModeRole.class));
+
+        List<ISmartDevice> restored = writeAndRead(List.of(light, thermostat, speaker));
+        SmartLight restoredLight = (SmartLight) restored.get(0);
+        check(restoredLight.isOn(), "light is on");
+        checkEquals(12, restoredLight.getBrightness(), "brightness");
+        check(restoredLight.hasRole(SecurityModeRole.class), "light role");
+        checkEquals(18.5, ((SmartThermostat) restored.get(1)).getTargetTemperature(), "target");
+        checkEquals(80, ((SmartSpeaker) restored.get(2)).getVolume(), "volume");
+        checkEquals("cs", restored.get(2).getDeviceId(), "speaker id");
+    }
+
+    static void utf8Length() {
+        String[] samples = {"", "plain", "Küche", "€", "🎵", "lone \uD800 high", "lone \uDC00 low",
+            "ends high \uD83C", "\uDFB5\uD83C reversed"};
+        for (String sample : samples) {
+            checkEquals(sample.getBytes(StandardCharsets.UTF_8).length, HomeSnapshot.utf8Length(sample), sample);
+        }
+    }
+
+    private static List<ISmartDevice> writeAndRead(List<ISmartDevice> devices) throws Exception {
+        Path file = Files.createTempFile("snapshot", ".bin");
+        try {
+            HomeSnapshot.write(new ArrayList<>(devices), file);
+            return HomeSnapshot.read(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package roles;
+
+import devices.ISmartDevice;
+import devices.SmartLight;
+
+/**
+ * Role used by RoleDispatchTest only, so its class is still uninitialized when the test starts
+ */
+public final class ChimeRole implements IDeviceRole {
+    static {
+        RoleDispatch.registerDefault(ChimeRole.class, SmartLight.class, (role, light) -> light.setBrightness(10));
+    }
+
+    @Override
+    public void execute(ISmartDevice device) {
+        RoleDispatch.dispatch(this, device);
+    }
+
+    @Override
+    public String getRoleName() {
+        return "Chime";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Test role with a built-in light handler";
+    }
+}
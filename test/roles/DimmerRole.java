@@ -0,0 +1,50 @@
+package roles;
+
+import devices.ISmartDevice;
+import devices.ISmartLight;
+
+/**
+ * Configured role used by the tests: dims lights to a fixed level
+ * Instances are interned per level and persisted through their parameter.
+ */
+public final class DimmerRole implements IDeviceRole {
+    static {
+        RoleRegistry.restorable(DimmerRole.class, text -> of(Integer.parseInt(text)));
+    }
+
+    private final int level;
+
+    private DimmerRole(int level) {
+        this.level = level;
+    }
+
+    public static DimmerRole of(int level) {
+        return RoleRegistry.parameterized(DimmerRole.class, level, DimmerRole::new);
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    @Override
+    public void execute(ISmartDevice device) {
+        if (device instanceof ISmartLight) {
+            ((ISmartLight) device).setBrightness(level);
+        }
+    }
+
+    @Override
+    public String getRoleName() {
+        return "Dimmer " + level + "%";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Dims lights to " + level + "%";
+    }
+
+    @Override
+    public String getParameter() {
+        return Integer.toString(level);
+    }
+}
@@ -0,0 +1,75 @@
+package roles;
+
+import devices.CompactDeviceStore;
+import devices.ISmartLight;
+import devices.ISmartSpeaker;
+import devices.RandomSource;
+import devices.SmartLight;
+import devices.SmartSpeaker;
+import testing.Tests;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class RoleDispatchTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("RoleDispatchTest");
+        tests.test("an override registered before the role loads survives", RoleDispatchTest::overrideBeforeLoad);
+        tests.test("defaults never replace a registered handler", RoleDispatchTest::defaultsDoNotReplace);
+        tests.test("vacation mode drives compact lights and speakers", RoleDispatchTest::vacationOnViews);
+    }
+
+    static void overrideBeforeLoad() {
+        // A class literal does not initialize ChimeRole; register must not let its defaults win later
+        RoleDispatch.register(ChimeRole.class, SmartLight.class, (role, light) -> light.setBrightness(77));
+        SmartLight light = new SmartLight("chime", "Chime");
+        new ChimeRole().execute(light);
+        checkEquals(77, light.getBrightness(), "brightness set by the override");
+    }
+
+    static void defaultsDoNotReplace() {
+        RoleDispatch.register(ChimeRole.class, SmartSpeaker.class, (role, speaker) -> speaker.setVolume(5));
+        RoleDispatch.registerDefault(ChimeRole.class, SmartSpeaker.class, (role, speaker) -> speaker.setVolume(95));
+        SmartSpeaker speaker = new SmartSpeaker("chime-speaker", "Chime speaker");
+        new ChimeRole().execute(speaker);
+        checkEquals(5, speaker.getVolume(), "volume set by the registered handler");
+        check(RoleDispatch.handles(VacationModeRole.class, CompactDeviceStore.LightView.class), "vacation handles light views");
+        check(RoleDispatch.handles(VacationModeRole.class, CompactDeviceStore.SpeakerView.class), "vacation handles speaker views");
+    }
+
+    static void vacationOnViews() {
+        RandomSource source = new RandomSource(2024);
+        VacationModeRole role = RoleRegistry.shared(VacationModeRole.class);
+        CompactDeviceStore store = new CompactDeviceStore();
+        for (int i = 0; i < 20; i++) {
+            String id = "vacation-" + i;
+            CompactDeviceStore.LightView view = (CompactDeviceStore.LightView) store.view(store.addLight(id, "View"));
+            SmartLight heap = new SmartLight(id, "Heap");
+            view.setRandomSource(source);
+            heap.setRandomSource(source);
+            for (int round = 0; round < 3; round++) {
+                role.execute(view);
+                role.execute(heap);
+                ISmartLight light = view;
+                checkEquals(heap.isOn(), light.isOn(), id + " power, round " + round);
+                checkEquals(heap.getBrightness(), light.getBrightness(), id + " brightness, round " + round);
+            }
+        }
+        int playing = 0;
+        for (int i = 0; i < 50; i++) {
+            ISmartSpeaker speaker = (ISmartSpeaker) store.view(store.addSpeaker("vacation-s" + i, "Speaker"));
+            speaker.turnOn();
+            role.execute(speaker);
+            if (!"None".equals(speaker.getCurrentSound())) {
+                playing++;
+            }
+        }
+        check(playing > 0 && playing < 50, "some speakers play, got " + playing);
+    }
+}
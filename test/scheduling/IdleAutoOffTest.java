@@ -0,0 +1,151 @@
+package scheduling;
+
+import devices.CompactDeviceStore;
+import devices.ISmartLight;
+import devices.ISmartSpeaker;
+import devices.SmartLight;
+import devices.SmartSpeaker;
+import devices.SmartThermostat;
+import mediator.SmartHomeController;
+import testing.Tests;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class IdleAutoOffTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("IdleAutoOffTest");
+        tests.test("idle device is switched off on the simulated clock", IdleAutoOffTest::switchesOffWhenIdle);
+        tests.test("activity defers the switch-off", IdleAutoOffTest::activityDefers);
+        tests.test("repeating the current value counts as activity", IdleAutoOffTest::unchangedCallsCount);
+        tests.test("compact views are watched, thermostats are not", IdleAutoOffTest::compactViews);
+    }
+
+    static void switchesOffWhenIdle() {
+        SimulatedClock clock = new SimulatedClock(1_000_000);
+        SmartHomeController controller = SmartHomeController.getInstance();
+        SmartLight light = new SmartLight("idle-light", "Idle light");
+        controller.registerDevice(light);
+        try (Scheduler scheduler = new Scheduler(clock, 1_000, Runnable::run)) {
+            IdleAutoOff monitor = IdleAutoOff.attach(controller, scheduler, 10, TimeUnit.MINUTES);
+            try {
+                light.turnOn();
+                clock.advance(9, TimeUnit.MINUTES);
+                scheduler.advance();
+                check(light.isOn(), "still on before the idle period");
+                clock.advance(1, TimeUnit.MINUTES);
+                scheduler.advance();
+                check(!light.isOn(), "off after the idle period");
+                checkEquals(1L, monitor.getTurnedOffCount(), "turned off");
+                checkEquals(0, monitor.getPendingCount(), "pending");
+            } finally {
+                monitor.detach();
+            }
+        } finally {
+            controller.unregisterDevice(light);
+        }
+    }
+
+    static void activityDefers() {
+        SimulatedClock clock = new SimulatedClock(1_000_000);
+        SmartHomeController controller = SmartHomeController.getInstance();
+        SmartLight light = new SmartLight("busy-light", "Busy light");
+        controller.registerDevice(light);
+        try (Scheduler scheduler = new Scheduler(clock, 1_000, Runnable::run)) {
+            IdleAutoOff monitor = IdleAutoOff.attach(controller, scheduler, 10, TimeUnit.MINUTES);
+            try {
+                light.turnOn();
+                clock.advance(6, TimeUnit.MINUTES);
+                light.setBrightness(40);
+                clock.advance(4, TimeUnit.MINUTES);
+                scheduler.advance();
+                check(light.isOn(), "activity six minutes in keeps it on");
+                checkEquals(1L, monitor.getDeferredCount(), "deferred");
+                checkEquals(1, monitor.getPendingCount(), "re-armed");
+                clock.advance(6, TimeUnit.MINUTES);
+                scheduler.advance();
+                check(!light.isOn(), "off ten minutes after the last activity");
+            } finally {
+                monitor.detach();
+            }
+        } finally {
+            controller.unregisterDevice(light);
+        }
+    }
+
+    static void unchangedCallsCount() {
+        SimulatedClock clock = new SimulatedClock(1_000_000);
+        SmartHomeController controller = SmartHomeController.getInstance();
+        SmartLight light = new SmartLight("same-light", "Same light");
+        SmartSpeaker speaker = new SmartSpeaker("same-speaker", "Same speaker");
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartLight view = (ISmartLight) store.view(store.addLight("same-view", "Same view"));
+        controller.registerAll(List.of(light, speaker, view));
+        try (Scheduler scheduler = new Scheduler(clock, 1_000, Runnable::run)) {
+            IdleAutoOff monitor = IdleAutoOff.attach(controller, scheduler, 10, TimeUnit.MINUTES);
+            try {
+                light.turnOn();
+                speaker.turnOn();
+                speaker.playSound("Rain");
+                view.turnOn();
+                for (int minute = 0; minute < 30; minute += 5) {
+                    clock.advance(5, TimeUnit.MINUTES);
+                    scheduler.advance();
+                    // Each call repeats the current value, so no change event fires
+                    light.turnOn();
+                    light.setBrightness(light.getBrightness());
+                    speaker.setVolume(speaker.getVolume());
+                    speaker.playSound("Rain");
+                    view.setBrightness(view.getBrightness());
+                }
+                check(light.isOn(), "light in use stays on");
+                check(speaker.isOn(), "speaker in use stays on");
+                check(view.isOn(), "compact light in use stays on");
+                checkEquals(0L, monitor.getTurnedOffCount(), "turned off");
+                clock.advance(10, TimeUnit.MINUTES);
+                scheduler.advance();
+                check(!light.isOn() && !speaker.isOn() && !view.isOn(), "all off once left alone");
+            } finally {
+                monitor.detach();
+            }
+        } finally {
+            controller.unregisterDevice(light);
+            controller.unregisterDevice(speaker);
+            controller.unregisterDevice(view);
+        }
+    }
+
+    static void compactViews() {
+        SimulatedClock clock = new SimulatedClock(1_000_000);
+        SmartHomeController controller = SmartHomeController.getInstance();
+        CompactDeviceStore store = new CompactDeviceStore();
+        ISmartSpeaker speaker = (ISmartSpeaker) store.view(store.addSpeaker("idle-view", "Idle view"));
+        SmartThermostat thermostat = new SmartThermostat("idle-thermostat", "Idle thermostat");
+        controller.registerAll(List.of(speaker, thermostat));
+        try (Scheduler scheduler = new Scheduler(clock, 1_000, Runnable::run)) {
+            IdleAutoOff monitor = IdleAutoOff.attach(controller, scheduler, 1, TimeUnit.MINUTES);
+            try {
+                speaker.turnOn();
+                thermostat.turnOn();
+                checkEquals(1, monitor.getPendingCount(), "only the speaker is armed");
+                clock.advance(1, TimeUnit.MINUTES);
+                scheduler.advance();
+                check(!speaker.isOn(), "compact speaker switched off");
+                check(thermostat.isOn(), "thermostat untouched");
+            } finally {
+                monitor.detach();
+            }
+        } finally {
+            controller.unregisterDevice(speaker);
+            controller.unregisterDevice(thermostat);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package scheduling;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clock that only moves when a test advances it
+ */
+final class SimulatedClock extends Clock {
+    private volatile long millis;
+
+    SimulatedClock(long startMillis) {
+        this.millis = startMillis;
+    }
+
+    void advance(long amount, TimeUnit unit) {
+        millis += unit.toMillis(amount);
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException();
+    }
+}
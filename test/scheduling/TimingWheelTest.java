@@ -0,0 +1,126 @@
+package scheduling;
+
+import testing.Tests;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class TimingWheelTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("TimingWheelTest");
+        tests.test("timeouts cascade down and fire exactly on their tick", TimingWheelTest::cascadeExactTick);
+        tests.test("due timeouts come out in deadline order", TimingWheelTest::deadlineOrder);
+        tests.test("deadlines inside a tick fire at its end", TimingWheelTest::roundsUp);
+        tests.test("cancelled timeouts never fire", TimingWheelTest::cancel);
+        tests.test("scheduler repeats on the simulated clock", TimingWheelTest::schedulerRepeats);
+    }
+
+    static void cascadeExactTick() {
+        SplittableRandom random = new SplittableRandom(11);
+        long start = 1_000;
+        TimingWheel wheel = new TimingWheel(1, start);
+        Map<Timeout, Long> deadlines = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Spread over levels 0 to 3, with extra weight right at the level boundaries
+            long delay = random.nextBoolean() ? 1 + random.nextLong(1L << 25)
+                : (1L << (8 * (1 + random.nextInt(3)))) + random.nextInt(-2, 3);
+            deadlines.put(wheel.schedule(start + delay, () -> { }), start + delay);
+        }
+        List<Timeout> due = new ArrayList<>();
+        long now = start;
+        int fired = 0;
+        while (wheel.size() > 0) {
+            long previous = now;
+            now += 1 + random.nextLong(100_000);
+            due.clear();
+            fired += wheel.advanceTo(now, due);
+            for (Timeout timeout : due) {
+                long deadline = deadlines.remove(timeout);
+                check(deadline > previous && deadline <= now,
+                    "deadline " + deadline + " fired in (" + previous + ", " + now + "]");
+                check(!timeout.isPending(), "fired timeout is no longer pending");
+            }
+        }
+        checkEquals(20_000, fired, "fired");
+        check(deadlines.isEmpty(), "every timeout fired once");
+    }
+
+    static void deadlineOrder() {
+        TimingWheel wheel = new TimingWheel(1, 0);
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 5_000; i++) {
+            wheel.schedule(1 + random.nextLong(300_000), () -> { });
+        }
+        List<Timeout> due = new ArrayList<>();
+        wheel.advanceTo(300_000, due);
+        checkEquals(5_000, due.size(), "all due");
+        for (int i = 1; i < due.size(); i++) {
+            check(due.get(i - 1).getDeadlineMillis() <= due.get(i).getDeadlineMillis(), "order at " + i);
+        }
+    }
+
+    static void roundsUp() {
+        TimingWheel wheel = new TimingWheel(100, 0);
+        Timeout inside = wheel.schedule(150, () -> { });
+        Timeout past = wheel.schedule(-500, () -> { });
+        List<Timeout> due = new ArrayList<>();
+        wheel.advanceTo(99, due);
+        checkEquals(List.of(), due, "nothing before the first tick ends");
+        wheel.advanceTo(100, due);
+        checkEquals(List.of(past), due, "past deadline fires on the next tick");
+        due.clear();
+        wheel.advanceTo(199, due);
+        checkEquals(List.of(), due, "never early");
+        wheel.advanceTo(200, due);
+        checkEquals(List.of(inside), due, "fires at the end of its tick");
+    }
+
+    static void cancel() {
+        TimingWheel wheel = new TimingWheel(1, 0);
+        Timeout near = wheel.schedule(10, () -> { });
+        Timeout far = wheel.schedule(100_000, () -> { });
+        Timeout kept = wheel.schedule(50_000, () -> { });
+        check(near.cancel() && far.cancel(), "pending timeouts cancel");
+        check(!near.cancel(), "second cancel is refused");
+        checkEquals(1, wheel.size(), "size");
+        List<Timeout> due = new ArrayList<>();
+        wheel.advanceTo(200_000, due);
+        checkEquals(List.of(kept), due, "only the kept timeout fires");
+    }
+
+    static void schedulerRepeats() {
+        SimulatedClock clock = new SimulatedClock(0); // Thursday 1970-01-01 00:00 UTC
+        try (Scheduler scheduler = new Scheduler(clock, 1_000, Runnable::run)) {
+            AtomicInteger rate = new AtomicInteger();
+            AtomicInteger daily = new AtomicInteger();
+            AtomicInteger once = new AtomicInteger();
+            scheduler.scheduleAtFixedRate("rate", rate::incrementAndGet, 10, TimeUnit.MINUTES);
+            scheduler.scheduleDaily("daily", LocalTime.of(23, 0), EnumSet.of(DayOfWeek.SATURDAY), daily::incrementAndGet);
+            ScheduledAction cancelled = scheduler.schedule("cancelled", once::incrementAndGet, 1, TimeUnit.HOURS);
+            cancelled.cancel();
+            for (int minute = 0; minute < 14 * 24 * 60; minute++) {
+                clock.advance(1, TimeUnit.MINUTES);
+                scheduler.advance();
+            }
+            checkEquals(14 * 24 * 6, rate.get(), "every ten minutes for two weeks");
+            checkEquals(2, daily.get(), "two Saturdays");
+            checkEquals(0, once.get(), "cancelled action");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package telemetry;
+
+import devices.DeviceField;
+import devices.SmartLight;
+import testing.Tests;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class GorillaTest {
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("GorillaTest");
+        tests.test("round trip is bit exact over every encoding branch", GorillaTest::roundTrip);
+        tests.test("special values survive", GorillaTest::specialValues);
+        tests.test("older timestamps are clamped to the latest", GorillaTest::clampedTimestamps);
+        tests.test("regular unchanged samples cost about two bits", GorillaTest::compression);
+        tests.test("history scans across sealed and open blocks", GorillaTest::historyScan);
+    }
+
+    static void roundTrip() {
+        SplittableRandom random = new SplittableRandom(7);
+        int samples = 50_000;
+        long[] timestamps = new long[samples];
+        double[] values = new double[samples];
+        long time = 1_700_000_000_000L;
+        double value = 21.5;
+        for (int i = 0; i < samples; i++) {
+            switch (random.nextInt(6)) {
+                case 0: time += 1_000; break;                         // regular interval
+                case 1: time += 1_000 + random.nextInt(-63, 65); break;
+                case 2: time += 2_000 + random.nextInt(-255, 257); break;
+                case 3: time += 5_000 + random.nextInt(-2047, 2049); break;
+                case 4: time += random.nextLong(1L << 40); break;      // raw 64-bit delta
+                default: break;                                       // same timestamp
+            }
+            switch (random.nextInt(4)) {
+                case 0: break;                                        // unchanged
+                case 1: value += 0.1; break;
+                case 2: value = random.nextInt(101); break;
+                default: value = random.nextDouble() * 1e6 - 5e5; break;
+            }
+            timestamps[i] = time;
+            values[i] = value;
+        }
+        GorillaEncoder encoder = new GorillaEncoder();
+        for (int i = 0; i < samples; i++) {
+            encoder.append(timestamps[i], values[i]);
+        }
+        checkSamples(timestamps, values, encoder.decoder());
+        GorillaBlock block = encoder.seal();
+        checkEquals(samples, block.count(), "sealed count");
+        checkSamples(timestamps, values, block.decoder());
+    }
+
+    static void specialValues() {
+        double[] values = {0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.MIN_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, 1.0, 1.0, Double.longBitsToDouble(0x7ff8dead0000beefL)};
+        long[] timestamps = new long[values.length];
+        GorillaEncoder encoder = new GorillaEncoder();
+        for (int i = 0; i < values.length; i++) {
+            timestamps[i] = i * 10L;
+            encoder.append(timestamps[i], values[i]);
+        }
+        checkSamples(timestamps, values, encoder.seal().decoder());
+    }
+
+    static void clampedTimestamps() {
+        GorillaEncoder encoder = new GorillaEncoder();
+        encoder.append(1_000, 1);
+        encoder.append(2_000, 2);
+        encoder.append(1_500, 3); // goes back in time
+        encoder.append(3_000, 4);
+        checkSamples(new long[] {1_000, 2_000, 2_000, 3_000}, new double[] {1, 2, 3, 4}, encoder.decoder());
+    }
+
+    static void compression() {
+        GorillaEncoder encoder = new GorillaEncoder();
+        for (int i = 0; i < 10_000; i++) {
+            encoder.append(i * 1_000L, 42.0);
+        }
+        // 16 bytes for the first sample, then one bit each for timestamp and value
+        check(encoder.sizeInBytes() <= 16 + 10_000 * 2 / 8 + 8, "size " + encoder.sizeInBytes());
+    }
+
+    static void historyScan() {
+        long[] now = {0};
+        StateHistory history = new StateHistory(16, 4, () -> now[0]);
+        SmartLight light = new SmartLight("history", "History");
+        light.addDeviceListener(history);
+        for (int i = 0; i < 100; i++) {
+            now[0] = i * 100L;
+            light.setBrightness(i % 2 == 0 ? 10 : 90);
+        }
+        // 4 sealed blocks of 16 retained plus 4 open samples; older blocks dropped
+        checkEquals(4 * 16 + 4, history.sampleCount("history", DeviceField.BRIGHTNESS), "retained samples");
+        List<Long> times = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+        int visited = history.scan("history", DeviceField.BRIGHTNESS, 5_000, 6_000, (t, v) -> {
+            times.add(t);
+            values.add(v);
+        });
+        checkEquals(11, visited, "samples in range");
+        checkEquals(5_000L, times.get(0), "first in range");
+        checkEquals(6_000L, times.get(times.size() - 1), "last in range");
+        checkEquals(10.0, values.get(0), "value at 5000");
+        checkEquals(0, history.scan("history", DeviceField.BRIGHTNESS, 0, 3_000, (t, v) -> { }), "evicted range");
+    }
+
+    private static void checkSamples(long[] timestamps, double[] values, GorillaDecoder decoder) {
+        for (int i = 0; i < timestamps.length; i++) {
+            check(decoder.next(), "sample " + i + " present");
+            checkEquals(timestamps[i], decoder.timestamp(), "timestamp " + i);
+            checkEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decoder.value()), "value bits " + i);
+        }
+        check(!decoder.next(), "no extra samples");
+    }
+}
@@ -0,0 +1,111 @@
+package telemetry;
+
+import testing.Tests;
+import java.util.ArrayList;
+import java.util.List;
+
+import static testing.Tests.check;
+import static testing.Tests.checkEquals;
+
+public class TimeSeriesTest {
+    private static final long BASE = Resolution.HOUR.bucketStart(1_700_000_000_000L);
+    private static final long MINUTE = Resolution.MINUTE.getMillis();
+
+    public static void main(String[] args) {
+        Tests tests = new Tests();
+        run(tests);
+        tests.exit();
+    }
+
+    public static void run(Tests tests) {
+        tests.section("TimeSeriesTest");
+        tests.test("a full ring keeps the newest samples", TimeSeriesTest::wraparound);
+        tests.test("range search works across the wrap point", TimeSeriesTest::rangeAfterWrap);
+        tests.test("older timestamps are clamped to the latest", TimeSeriesTest::clampedTimestamps);
+        tests.test("rollup buckets roll over by minute and hour", TimeSeriesTest::rollups);
+    }
+
+    /**
+     * Samples visited by a range query, as "timestamp=value" relative to BASE
+     */
+    private static List<String> range(TimeSeries series, long from, long to) {
+        List<String> samples = new ArrayList<>();
+        int visited = series.range(BASE + from, BASE + to, (timestamp, value) -> samples.add((timestamp - BASE) + "=" + value));
+        checkEquals(samples.size(), visited, "visited count");
+        return samples;
+    }
+
+    static void wraparound() {
+        TimeSeries series = new TimeSeries(5);
+        checkEquals(0, series.size(), "empty size");
+        check(Double.isNaN(series.latest()), "empty latest is NaN");
+        for (int i = 0; i < 12; i++) {
+            series.append(BASE + i * 1_000, i);
+        }
+        checkEquals(5, series.size(), "size capped at capacity");
+        checkEquals(11.0, series.latest(), "latest");
+        checkEquals(List.of("7000=7.0", "8000=8.0", "9000=9.0", "10000=10.0", "11000=11.0"),
+                    range(series, Long.MIN_VALUE / 2, Long.MAX_VALUE / 2), "retained samples, oldest first");
+    }
+
+    static void rangeAfterWrap() {
+        TimeSeries series = new TimeSeries(8);
+        for (int i = 0; i < 21; i++) {
+            series.append(BASE + i * 10, i); // retains 13..20, wrapped mid-ring
+        }
+        checkEquals(List.of("140=14.0", "150=15.0", "160=16.0"), range(series, 135, 165), "inside the ring");
+        checkEquals(List.of("130=13.0", "140=14.0"), range(series, 0, 140), "from before the oldest retained");
+        checkEquals(List.of("200=20.0"), range(series, 200, 1_000), "newest only");
+        checkEquals(List.of(), range(series, 201, 1_000), "after the newest");
+        checkEquals(List.of(), range(series, 142, 148), "between samples");
+    }
+
+    static void clampedTimestamps() {
+        TimeSeries series = new TimeSeries(8);
+        series.append(BASE + 100, 1);
+        series.append(BASE + 200, 2);
+        series.append(BASE + 150, 3); // older than the latest, recorded at 200
+        series.append(BASE + 300, 4);
+        checkEquals(List.of("200=2.0", "200=3.0"), range(series, 150, 250), "clamped sample kept in order");
+        checkEquals(List.of("100=1.0"), range(series, 0, 199), "nothing recorded at 150");
+        checkEquals(4, series.size(), "size");
+    }
+
+    static void rollups() {
+        TimeSeries series = new TimeSeries(16);
+        series.append(BASE, 1);
+        series.append(BASE + 30_000, 3);
+        series.append(BASE + MINUTE, 5);
+        series.append(BASE + 5 * MINUTE, 7);
+
+        List<String> minutes = new ArrayList<>();
+        series.buckets(Resolution.MINUTE, BASE, BASE + 10 * MINUTE, (start, min, max, sum, count) ->
+            minutes.add((start - BASE) / MINUTE + ":" + min + "/" + max + "/" + sum + "/" + count));
+        checkEquals(List.of("0:1.0/3.0/4.0/2", "1:5.0/5.0/5.0/1", "5:7.0/7.0/7.0/1"), minutes, "minute buckets");
+        RollupStats hour = series.rollup(Resolution.HOUR, BASE, BASE + 59 * MINUTE);
+        checkEquals(4L, hour.getCount(), "first hour count");
+        checkEquals(1.0, hour.getMin(), "first hour min");
+        checkEquals(7.0, hour.getMax(), "first hour max");
+        checkEquals(4.0, hour.getAverage(), "first hour average");
+
+        series.append(BASE + 60 * MINUTE, 10); // next hour
+        List<Long> hourCounts = new ArrayList<>();
+        series.buckets(Resolution.HOUR, BASE, BASE + 120 * MINUTE, (start, min, max, sum, count) -> hourCounts.add(count));
+        checkEquals(List.of(4L, 1L), hourCounts, "hour buckets");
+
+        // Minute 125 reuses minute 5's slot; the bucket starts over instead of merging
+        series.append(BASE + 125 * MINUTE, 2);
+        RollupStats recent = series.rollup(Resolution.MINUTE, BASE, BASE + 125 * MINUTE);
+        checkEquals(2L, recent.getCount(), "only the last 120 minutes are retained");
+        checkEquals(2.0, recent.getMin(), "recent min");
+        checkEquals(10.0, recent.getMax(), "recent max");
+        RollupStats lapped = series.rollup(Resolution.MINUTE, BASE + 125 * MINUTE, BASE + 125 * MINUTE);
+        checkEquals(1L, lapped.getCount(), "lapped bucket count");
+        checkEquals(2.0, lapped.getAverage(), "lapped bucket average");
+        RollupStats all = series.rollup(Resolution.HOUR, BASE, BASE + 180 * MINUTE);
+        checkEquals(6L, all.getCount(), "hours keep everything");
+        checkEquals(28.0 / 6, all.getAverage(), 1e-12, "average over three hours");
+        checkEquals(0L, series.rollup(Resolution.MINUTE, BASE + 200 * MINUTE, BASE + 300 * MINUTE).getCount(),
+                    "empty range");
+    }
+}
@@ -0,0 +1,42 @@
+package testing;
+
+import logging.EventLog;
+import logging.Level;
+
+/**
+ * Runs every test class
+ *
+ * Usage: java -cp bin testing.AllTests
+ * A single class runs on its own through its main method, e.g.
+ * java -cp bin mediator.DeviceRegistryTest
+ */
+public class AllTests {
+    public static void main(String[] args) {
+        EventLog.setLevel(Level.OFF); // the tests check state, not console output
+        Tests tests = new Tests();
+        mediator.DeviceRegistryTest.run(tests);
+        mediator.ParallelScenarioRunnerTest.run(tests);
+        mediator.RoleIndexTest.run(tests);
+        devices.SmartDeviceTest.run(tests);
+        devices.SmartDeviceConcurrencyTest.run(tests);
+        devices.CompactDeviceStoreTest.run(tests);
+        devices.CompactDeviceStoreConcurrencyTest.run(tests);
+        devices.StatusFormatTest.run(tests);
+        devices.RenderCacheTest.run(tests);
+        commands.CommandPipelineTest.run(tests);
+        commands.CommandBatchTest.run(tests);
+        persistence.HomeSnapshotTest.run(tests);
+        persistence.EventJournalTest.run(tests);
+        scheduling.TimingWheelTest.run(tests);
+        scheduling.IdleAutoOffTest.run(tests);
+        roles.RoleDispatchTest.run(tests);
+        energy.EnergyMeterTest.run(tests);
+        energy.LoadShedderTest.run(tests);
+        telemetry.GorillaTest.run(tests);
+        telemetry.TimeSeriesTest.run(tests);
+        events.DeviceEventBusTest.run(tests);
+        events.HomeEventPublisherTest.run(tests);
+        logging.AsyncRingBufferSinkTest.run(tests);
+        tests.exit();
+    }
+}
@@ -0,0 +1,122 @@
+package testing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Minimal test harness, in the spirit of bench.Bench
+ * Test classes expose a static run(Tests) that calls test() once per case;
+ * a case fails by throwing, usually through one of the check methods.
+ * Every case runs even if an earlier one failed.
+ */
+public final class Tests {
+    /**
+     * One test case
+     */
+    public interface Case {
+        void run() throws Exception;
+    }
+
+    private final List<String> failures = new ArrayList<>();
+    private int passed;
+
+    /**
+     * Print a heading for the cases of one test class
+     */
+    public void section(String name) {
+        System.out.println(name);
+    }
+
+    /**
+     * Run and report one case
+     * @param name Case name, printed with the result
+     * @param body The test
+     */
+    public void test(String name, Case body) {
+        try {
+            body.run();
+            passed++;
+            System.out.println("  ✓ " + name);
+        } catch (Throwable e) {
+            failures.add(name);
+            System.out.println("  ✗ " + name + ": " + e);
+            for (StackTraceElement frame : e.getStackTrace()) {
+                if (!frame.getClassName().startsWith("testing.")) {
+                    System.out.println("        at " + frame);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Print the summary
+     * @return Number of failed cases
+     */
+    public int finish() {
+        System.out.println();
+        System.out.println(passed + " passed, " + failures.size() + " failed");
+        for (String failure : failures) {
+            System.out.println("  ✗ " + failure);
+        }
+        return failures.size();
+    }
+
+    /**
+     * Exit with status 0 if every case passed, 1 otherwise
+     */
+    public void exit() {
+        System.exit(finish() == 0 ? 0 : 1);
+    }
+
+    // ===== Checks =====
+
+    public static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    public static void checkEquals(Object expected, Object actual, String what) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(what + ": expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    public static void checkEquals(double expected, double actual, double tolerance, String what) {
+        if (!(Math.abs(expected - actual) <= tolerance)) {
+            throw new AssertionError(what + ": expected <" + expected + "> but was <" + actual + ">");
+        }
+    }
+
+    /**
+     * Check that body throws an exception of the given type
+     * @return The exception, for further checks
+     */
+    public static <T extends Throwable> T checkThrows(Class<T> type, Case body) {
+        try {
+            body.run();
+        } catch (Throwable e) {
+            if (type.isInstance(e)) {
+                return type.cast(e);
+            }
+            throw new AssertionError("Expected " + type.getSimpleName() + " but got " + e, e);
+        }
+        throw new AssertionError("Expected " + type.getSimpleName() + " but nothing was thrown");
+    }
+
+    /**
+     * Wait up to timeoutMillis for a condition set by another thread
+     */
+    public static void await(BooleanSupplier condition, long timeoutMillis, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Timed out: " + message);
+            }
+            Thread.sleep(1);
+        }
+    }
+}